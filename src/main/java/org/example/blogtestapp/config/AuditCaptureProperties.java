@@ -0,0 +1,67 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки захвата аудита постов
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.audit.capture")
+public class AuditCaptureProperties {
+
+    /**
+     * Способ записи аудита: синхронный триггер или асинхронное чтение потока логической репликации
+     */
+    private Mode mode = Mode.TRIGGER;
+
+    /**
+     * Имя слота логической репликации
+     */
+    private String slotName = "post_audit_capture";
+
+    /**
+     * Имя публикации таблицы posts
+     */
+    private String publicationName = "post_audit_publication";
+
+    /**
+     * Сколько изменений записывать в post_audit_log одной транзакцией
+     */
+    private int batchSize = 500;
+
+    /**
+     * Сколько последних состояний постов (заголовок, статус, содержимое) держать в памяти:
+     * с ними сравниваются изменения из потока, не несущие старых значений
+     */
+    private int stateCacheSize = 1000;
+
+    /**
+     * Максимальная задержка записи неполной пачки
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Интервал отправки серверу подтверждённой позиции потока
+     */
+    private Duration statusInterval = Duration.ofSeconds(10);
+
+    /**
+     * Задержка перед повторным подключением к потоку
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    /**
+     * После стольких сбоев захвата подряд аудит до перезапуска возвращается к триггеру
+     */
+    private int maxConsecutiveFailures = 5;
+
+    public enum Mode {
+        TRIGGER,
+        LOGICAL
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки выгрузки журнала аудита в файлы
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.audit.export")
+public class AuditExportProperties {
+
+    /**
+     * Каталог файлов выгрузки
+     */
+    private String dir = "audit-export";
+
+    /**
+     * Сколько строк драйвер получает из серверного курсора за одно обращение
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Не больше стольких строк между контрольными точками
+     */
+    private int checkpointRows = 50000;
+
+    /**
+     * Не реже такого интервала сохраняется контрольная точка (и прогресс задания)
+     */
+    private Duration checkpointInterval = Duration.ofSeconds(10);
+
+    /**
+     * Размер буферов записи файла
+     */
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * Задание в статусе RUNNING без контрольных точек дольше этого считается прерванным
+     */
+    private Duration staleAfter = Duration.ofMinutes(2);
+
+    /**
+     * Сколько выгрузок выполняется одновременно на реплике
+     */
+    private int maxConcurrentJobs = 2;
+}
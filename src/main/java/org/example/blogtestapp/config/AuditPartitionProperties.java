@@ -0,0 +1,47 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки помесячных партиций журнала аудита post_audit_log
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.audit.partitions")
+public class AuditPartitionProperties {
+
+    /**
+     * Включено ли обслуживание партиций (создание будущих и удаление устаревших)
+     */
+    private boolean enabled = true;
+
+    /**
+     * На сколько месяцев вперёд заранее создавать партиции
+     */
+    private int monthsAhead = 3;
+
+    /**
+     * Сколько месяцев истории хранить; 0 — хранить всё
+     */
+    private int retentionMonths = 24;
+
+    /**
+     * Предельное ожидание блокировки post_audit_log при отсоединении партиции; не дождавшись, отсоединение
+     * повторяется при следующем обслуживании
+     */
+    private Duration detachLockTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Выгружать отсоединённые партиции в сжатые CSV-файлы перед удалением
+     */
+    private boolean archiveEnabled = true;
+
+    /**
+     * Каталог архивов отсоединённых партиций
+     */
+    private String archiveDir = "audit-archive";
+}
@@ -0,0 +1,19 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки пакетной модерации комментариев
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.comments.moderation")
+public class CommentModerationProperties {
+
+    /**
+     * Сколько комментариев изменяет один UPDATE; каждая пачка фиксируется отдельной транзакцией
+     */
+    private int chunkSize = 1000;
+}
@@ -0,0 +1,31 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки очереди записи лайков
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.likes.ingestion")
+public class LikeIngestionProperties {
+
+    /**
+     * Не больше стольких изменений записывается одним INSERT
+     */
+    private int batchSize = 500;
+
+    /**
+     * Ёмкость очереди; при переполнении запросы отклоняются с 503
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * Сколько запрос ждёт записи своего изменения
+     */
+    private Duration writeTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,31 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки кэша лайкнутых постов пользователей
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.likes.liked-state-cache")
+public class LikedStateCacheProperties {
+
+    /**
+     * Сколько пользователей держится в кэше (вытесняются давно не читавшиеся)
+     */
+    private int maxUsers = 10000;
+
+    /**
+     * Пользователи с большим числом лайков не кэшируются: их состояние читается запросом по странице
+     */
+    private int maxLikesPerUser = 100000;
+
+    /**
+     * Срок жизни записи: ограничивает устаревание из-за лайков, записанных другими репликами
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,28 @@
+package org.example.blogtestapp.config;
+
+import org.example.blogtestapp.service.MaterializedViewDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Регистрация материализованных представлений
+ * Новое представление добавляется отдельным бином {@link MaterializedViewDefinition}
+ */
+@Configuration
+public class MaterializedViewConfig {
+
+    public static final String ACTIVE_USERS_STATS_VIEW = "active_users_stats_mv";
+
+    @Bean
+    public MaterializedViewDefinition activeUsersStatsView() {
+        return MaterializedViewDefinition.builder()
+                .name(ACTIVE_USERS_STATS_VIEW)
+                .refreshMode(MaterializedViewDefinition.RefreshMode.CONCURRENTLY)
+                .sourceTable("users")
+                .sourceTable("posts")
+                .sourceTable("comments")
+                .sourceTable("likes")
+                .databaseJobName("daily-active-users-mv-refresh-job")
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.blogtestapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки адаптивного обновления материализованных представлений
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.materialized-views.refresh")
+public class MaterializedViewRefreshProperties {
+
+    /**
+     * Включено ли обновление по изменениям исходных таблиц
+     */
+    private boolean enabled = true;
+
+    /**
+     * Выполнять обновления по расписанию только на реплике-лидере (advisory-блокировка PostgreSQL)
+     */
+    private boolean leaderElection = true;
+
+    /**
+     * Сколько независимых представлений можно обновлять одновременно
+     */
+    private int parallelism = 2;
+
+    /**
+     * Сколько должно пройти без новых изменений, прежде чем запускать обновление
+     */
+    private Duration debounce = Duration.ofSeconds(5);
+
+    /**
+     * Минимальный интервал между обновлениями (нижняя граница устаревания)
+     */
+    private Duration minInterval = Duration.ofSeconds(30);
+
+    /**
+     * Максимальное время, которое изменения могут ждать обновления (верхняя граница устаревания);
+     * используется для представлений без собственного freshnessTarget
+     */
+    private Duration maxStaleness = Duration.ofMinutes(2);
+
+    /**
+     * Интервал обновления при отсутствии изменений (окно "последние 10 дней" сдвигается само)
+     */
+    private Duration idleRefreshInterval = Duration.ofDays(1);
+
+    /**
+     * Начальная задержка повтора после неудачного обновления
+     */
+    private Duration failureBackoff = Duration.ofSeconds(10);
+
+    /**
+     * Максимальная задержка повтора после серии неудачных обновлений
+     */
+    private Duration maxFailureBackoff = Duration.ofMinutes(10);
+
+    /**
+     * Таймаут ожидания уведомлений LISTEN/NOTIFY за одну итерацию
+     */
+    private Duration listenTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Задержка перед переподключением слушателя уведомлений
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    /**
+     * Считать строки представления после обновления точно (SELECT COUNT(*) читает его целиком);
+     * по умолчанию берётся оценка pg_class.reltuples
+     */
+    private boolean exactRowCount = false;
+}
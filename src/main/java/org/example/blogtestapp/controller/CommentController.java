@@ -0,0 +1,77 @@
+package org.example.blogtestapp.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.CommentResponse;
+import org.example.blogtestapp.dto.CreateCommentRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.service.CommentService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST Controller для работы с комментариями к постам
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class CommentController {
+
+    private final CommentService commentService;
+
+    /**
+     * Добавить комментарий или ответ на комментарий
+     */
+    @PostMapping("/posts/{postId}/comments")
+    public ResponseEntity<CommentResponse> createComment(
+            @PathVariable Long postId,
+            @Valid @RequestBody CreateCommentRequest request,
+            @RequestHeader("X-Author-Username") String authorUsername) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(commentService.createComment(postId, request, authorUsername));
+    }
+
+    /**
+     * Получить ветку обсуждения поста постранично по корневым комментариям
+     */
+    @GetMapping("/posts/{postId}/comments")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getThread(
+            @PathVariable Long postId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getThread(postId, after, size));
+    }
+
+    /**
+     * Получить комментарий со всеми ответами
+     */
+    @GetMapping("/posts/{postId}/comments/{commentId}/thread")
+    public ResponseEntity<CommentResponse> getSubtree(@PathVariable Long postId, @PathVariable Long commentId) {
+        return ResponseEntity.ok(commentService.getSubtree(postId, commentId));
+    }
+
+    /**
+     * Получить последние опубликованные комментарии
+     *
+     * @param after курсор nextCursor предыдущей страницы
+     */
+    @GetMapping("/comments/recent")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getRecentComments(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getRecentComments(after, size));
+    }
+
+    /**
+     * Получить комментарии пользователя
+     */
+    @GetMapping("/users/{username}/comments")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getAuthorComments(
+            @PathVariable String username,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getAuthorComments(username, after, size));
+    }
+}
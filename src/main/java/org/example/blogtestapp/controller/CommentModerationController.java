@@ -0,0 +1,57 @@
+package org.example.blogtestapp.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.CommentModerationResponse;
+import org.example.blogtestapp.dto.CommentResponse;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.ModerateCommentsRequest;
+import org.example.blogtestapp.service.CommentModerationService;
+import org.example.blogtestapp.service.CommentService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST Controller для модерации комментариев
+ */
+@RestController
+@RequestMapping("/private/comments")
+@RequiredArgsConstructor
+@Slf4j
+public class CommentModerationController {
+
+    private final CommentService commentService;
+    private final CommentModerationService commentModerationService;
+
+    /**
+     * Получить очередь модерации: неодобренные и неудалённые комментарии, новые первыми
+     *
+     * @param after курсор nextCursor предыдущей страницы
+     */
+    @GetMapping("/pending")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getPendingComments(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getPendingComments(after, size));
+    }
+
+    /**
+     * Получить все комментарии поста, включая неодобренные и удалённые
+     */
+    @GetMapping("/posts/{postId}")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getPostComments(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getPostComments(postId, after, size));
+    }
+
+    /**
+     * Одобрить, отклонить или удалить комментарии по списку id и/или фильтрам
+     */
+    @PostMapping("/moderation")
+    public ResponseEntity<CommentModerationResponse> moderate(@Valid @RequestBody ModerateCommentsRequest request) {
+        return ResponseEntity.ok(commentModerationService.moderate(request));
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.blogtestapp.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.service.DuplicateFieldException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Глобальный обработчик исключений для REST API
@@ -43,6 +45,22 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    /**
+     * Обработка нарушений уникальности: ответ в формате ошибок валидации с указанием поля
+     */
+    @ExceptionHandler(DuplicateFieldException.class)
+    public ResponseEntity<Map<String, Object>> handleDuplicateFieldException(DuplicateFieldException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Validation Failed");
+        response.put("message", ex.getMessage());
+        response.put("validationErrors", Map.of(ex.getField(), ex.getMessage()));
+
+        log.warn("Duplicate {}: {}", ex.getField(), ex.getMessage());
+        return ResponseEntity.badRequest().body(response);
+    }
+
     /**
      * Обработка IllegalArgumentException
      */
@@ -58,6 +76,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    /**
+     * Обработка переполнения очередей записи
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejectedExecutionException(RejectedExecutionException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.put("error", "Service Unavailable");
+        response.put("message", ex.getMessage());
+
+        log.warn("RejectedExecutionException: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     /**
      * Обработка общих исключений
      */
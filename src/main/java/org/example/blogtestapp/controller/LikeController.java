@@ -0,0 +1,86 @@
+package org.example.blogtestapp.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.LikedPostResponse;
+import org.example.blogtestapp.dto.LikedStateResponse;
+import org.example.blogtestapp.dto.LikerResponse;
+import org.example.blogtestapp.dto.MostLikedPostResponse;
+import org.example.blogtestapp.service.LikeService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST Controller для работы с лайками
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class LikeController {
+
+    private final LikeService likeService;
+
+    /**
+     * Поставить лайк посту; повторный вызов ничего не меняет
+     */
+    @PutMapping("/posts/{postId}/likes")
+    public ResponseEntity<Void> like(@PathVariable Long postId, @RequestHeader("X-Author-Username") String username) {
+        likeService.like(postId, username);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Снять лайк с поста; повторный вызов ничего не меняет
+     */
+    @DeleteMapping("/posts/{postId}/likes")
+    public ResponseEntity<Void> unlike(@PathVariable Long postId, @RequestHeader("X-Author-Username") String username) {
+        likeService.unlike(postId, username);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Узнать, какие посты страницы лайкнул пользователь
+     */
+    @GetMapping("/posts/liked-state")
+    public ResponseEntity<LikedStateResponse> getLikedState(@RequestParam List<Long> postIds,
+                                                            @RequestHeader("X-Author-Username") String username) {
+        return ResponseEntity.ok(likeService.getLikedState(username, postIds));
+    }
+
+    /**
+     * Получить пользователей, лайкнувших пост
+     *
+     * @param after курсор nextCursor предыдущей страницы
+     */
+    @GetMapping("/posts/{postId}/likers")
+    public ResponseEntity<CursorPageResponse<LikerResponse>> getLikers(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(likeService.getLikers(postId, after, size));
+    }
+
+    /**
+     * Получить посты, лайкнутые пользователем
+     */
+    @GetMapping("/users/{userId}/likes")
+    public ResponseEntity<CursorPageResponse<LikedPostResponse>> getLikedPosts(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(likeService.getLikedPosts(userId, after, size));
+    }
+
+    /**
+     * Получить самые лайкаемые посты за период: 24h, 7d, 30d или all
+     */
+    @GetMapping("/posts/most-liked")
+    public ResponseEntity<List<MostLikedPostResponse>> getMostLikedPosts(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(likeService.getMostLikedPosts(window, limit));
+    }
+}
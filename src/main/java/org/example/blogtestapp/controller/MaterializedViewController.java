@@ -8,10 +8,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.MaterializedViewRefreshResponse;
 import org.example.blogtestapp.service.MaterializedViewService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -28,10 +30,10 @@ public class MaterializedViewController {
     private final MaterializedViewService materializedViewService;
 
     /**
-     * Принудительное обновление материализованного представления
+     * Принудительное обновление всех материализованных представлений
      */
-    @Operation(summary = "Принудительное обновление материализованного представления",
-            description = "Запускает обновление материализованного представления с статистикой активных пользователей")
+    @Operation(summary = "Принудительное обновление всех материализованных представлений",
+            description = "Обновляет зарегистрированные представления: независимые параллельно, зависимые по порядку")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Обновление выполнено успешно",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = Map.class))),
@@ -39,18 +41,49 @@ public class MaterializedViewController {
     })
     @PostMapping("/refresh")
     public ResponseEntity<Map<String, Object>> forceRefresh() {
+        log.info("Force refresh request received");
+        return toRefreshResponse(materializedViewService.forceRefreshAll());
+    }
+
+    /**
+     * Принудительное обновление одного материализованного представления
+     */
+    @Operation(summary = "Принудительное обновление материализованного представления",
+            description = "Обновляет представление и, если cascade=true, все зависящие от него")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Обновление выполнено успешно",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "404", description = "Представление не зарегистрировано", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Ошибка при обновлении", content = @Content)
+    })
+    @PostMapping("/{viewName}/refresh")
+    public ResponseEntity<Map<String, Object>> forceRefreshView(
+            @PathVariable String viewName,
+            @RequestParam(defaultValue = "true") boolean cascade) {
+        log.info("Force refresh request received for {}", viewName);
         try {
-            log.info("Force refresh request received");
-            String result = materializedViewService.forceRefreshActiveUsersStatistics();
+            return toRefreshResponse(materializedViewService.forceRefresh(viewName, cascade));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Получение статистики обновлений всех материализованных представлений
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        try {
+            Map<String, Map<String, Object>> stats = materializedViewService.getRefreshStatistics();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", result);
+            response.put("statistics", stats);
             response.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            log.error("Force refresh failed", e);
+            log.error("Failed to get statistics", e);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -64,26 +97,40 @@ public class MaterializedViewController {
     /**
      * Получение статистики обновлений материализованного представления
      */
-    @GetMapping("/statistics")
-    public ResponseEntity<Map<String, Object>> getStatistics() {
+    @GetMapping("/{viewName}/statistics")
+    public ResponseEntity<Map<String, Object>> getViewStatistics(@PathVariable String viewName) {
         try {
-            Map<String, Object> stats = materializedViewService.getRefreshStatistics();
-            
+            Map<String, Object> stats = materializedViewService.getRefreshStatistics(viewName);
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("statistics", stats);
             response.put("timestamp", System.currentTimeMillis());
-            
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> toRefreshResponse(List<MaterializedViewRefreshResponse> results) {
+        boolean success = results.stream()
+                .allMatch(result -> result.getStatus() == MaterializedViewRefreshResponse.Status.REFRESHED);
+        long totalDuration = results.stream()
+                .mapToLong(result -> result.getDurationMs() != null ? result.getDurationMs() : 0L)
+                .sum();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", success);
+        response.put("results", results);
+        response.put("timestamp", System.currentTimeMillis());
+        if (success) {
+            response.put("message", String.format("Successfully refreshed %d materialized view(s) in %d ms",
+                    results.size(), totalDuration));
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Failed to get statistics", e);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("error", e.getMessage());
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return ResponseEntity.internalServerError().body(response);
         }
+        log.error("Force refresh failed: {}", results);
+        response.put("error", "Some materialized views were not refreshed");
+        return ResponseEntity.internalServerError().body(response);
     }
-}
\ No newline at end of file
+}
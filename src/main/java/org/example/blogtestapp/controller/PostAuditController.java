@@ -1,13 +1,30 @@
 package org.example.blogtestapp.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.AuditExportJobResponse;
+import org.example.blogtestapp.dto.CreateAuditExportRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.DailyAuditActivityResponse;
+import org.example.blogtestapp.dto.FrequentlyChangedPostResponse;
+import org.example.blogtestapp.dto.PostAuditContentResponse;
 import org.example.blogtestapp.dto.PostAuditResponse;
+import org.example.blogtestapp.dto.PostAuditSearchResultResponse;
+import org.example.blogtestapp.dto.PostAuditSummaryResponse;
+import org.example.blogtestapp.service.PostAuditExportService;
 import org.example.blogtestapp.service.PostAuditService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -22,63 +39,91 @@ import java.util.List;
 public class PostAuditController {
 
     private final PostAuditService postAuditService;
+    private final PostAuditExportService postAuditExportService;
 
     /**
      * Получить историю изменений поста
      */
     @GetMapping("/post/{postId}")
-    public ResponseEntity<List<PostAuditResponse>> getPostAuditHistory(@PathVariable Long postId) {
+    public ResponseEntity<List<PostAuditResponse>> getPostAuditHistory(
+            @PathVariable Long postId,
+            @RequestParam(defaultValue = "true") boolean includeContent) {
         log.info("Getting audit history for post ID: {}", postId);
-        List<PostAuditResponse> auditHistory = postAuditService.getPostAuditHistory(postId);
+        List<PostAuditResponse> auditHistory = postAuditService.getPostAuditHistory(postId, includeContent);
         return ResponseEntity.ok(auditHistory);
     }
 
     /**
-     * Получить все записи аудита по типу операции
+     * Получить содержимое поста до и после изменения для записи аудита
+     */
+    @GetMapping("/entries/{auditId}/content")
+    public ResponseEntity<PostAuditContentResponse> getAuditContent(@PathVariable Long auditId) {
+        return ResponseEntity.ok(postAuditService.getAuditContent(auditId));
+    }
+
+    /**
+     * Найти изменения постов, в которых слова запроса появились или исчезли, в хронологическом порядке
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CursorPageResponse<PostAuditSearchResultResponse>> searchHistory(
+            @RequestParam String q,
+            @RequestParam(required = false) Long postId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(postAuditService.searchHistory(q, postId, after, size));
+    }
+
+    /**
+     * Получить страницу записей аудита по типу операции
      */
     @GetMapping("/operation/{operation}")
-    public ResponseEntity<List<PostAuditResponse>> getAuditByOperation(@PathVariable String operation) {
-        List<PostAuditResponse> auditRecords = postAuditService.getAuditByOperation(operation.toUpperCase());
-        return ResponseEntity.ok(auditRecords);
+    public ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> getAuditByOperation(
+            @PathVariable String operation,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(postAuditService.getAuditByOperation(operation.toUpperCase(), after, size));
     }
 
     /**
-     * Получить записи аудита за период
+     * Получить страницу записей аудита за период
      */
     @GetMapping("/date-range")
-    public ResponseEntity<List<PostAuditResponse>> getAuditByDateRange(
+    public ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> getAuditByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<PostAuditResponse> auditRecords = postAuditService.getAuditByDateRange(startDate, endDate);
-        return ResponseEntity.ok(auditRecords);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(postAuditService.getAuditByDateRange(startDate, endDate, after, size));
     }
 
     /**
-     * Получить последние изменения
+     * Получить страницу последних изменений
      */
     @GetMapping("/recent")
-    public ResponseEntity<List<PostAuditResponse>> getRecentChanges(
+    public ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> getRecentChanges(
+            @RequestParam(required = false) String after,
             @RequestParam(defaultValue = "50") int limit) {
-        List<PostAuditResponse> recentChanges = postAuditService.getRecentChanges(limit);
-        return ResponseEntity.ok(recentChanges);
+        return ResponseEntity.ok(postAuditService.getRecentChanges(after, limit));
     }
 
     /**
-     * Получить изменения заголовков
+     * Получить страницу изменений заголовков
      */
     @GetMapping("/title-changes")
-    public ResponseEntity<List<PostAuditResponse>> getTitleChanges() {
-        List<PostAuditResponse> titleChanges = postAuditService.getTitleChanges();
-        return ResponseEntity.ok(titleChanges);
+    public ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> getTitleChanges(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(postAuditService.getTitleChanges(after, size));
     }
 
     /**
-     * Получить удаленные посты
+     * Получить страницу удаленных постов
      */
     @GetMapping("/deleted-posts")
-    public ResponseEntity<List<PostAuditResponse>> getDeletedPosts() {
-        List<PostAuditResponse> deletedPosts = postAuditService.getDeletedPosts();
-        return ResponseEntity.ok(deletedPosts);
+    public ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> getDeletedPosts(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(postAuditService.getDeletedPosts(after, size));
     }
 
     /**
@@ -94,9 +139,9 @@ public class PostAuditController {
      * Получить посты с частыми изменениями
      */
     @GetMapping("/frequently-changed")
-    public ResponseEntity<List<Object[]>> getFrequentlyChangedPosts(
+    public ResponseEntity<List<FrequentlyChangedPostResponse>> getFrequentlyChangedPosts(
             @RequestParam(defaultValue = "5") Long threshold) {
-        List<Object[]> frequentlyChangedPosts = postAuditService.getFrequentlyChangedPosts(threshold);
+        List<FrequentlyChangedPostResponse> frequentlyChangedPosts = postAuditService.getFrequentlyChangedPosts(threshold);
         return ResponseEntity.ok(frequentlyChangedPosts);
     }
 
@@ -104,10 +149,46 @@ public class PostAuditController {
      * Получить активность по дням
      */
     @GetMapping("/daily-activity")
-    public ResponseEntity<List<Object[]>> getDailyActivity(
+    public ResponseEntity<List<DailyAuditActivityResponse>> getDailyActivity(
             @RequestParam(defaultValue = "30") int days) {
-        LocalDateTime fromDate = LocalDateTime.now().minusDays(days);
-        List<Object[]> dailyActivity = postAuditService.getDailyActivity(fromDate);
+        LocalDate fromDate = LocalDate.now().minusDays(days);
+        List<DailyAuditActivityResponse> dailyActivity = postAuditService.getDailyActivity(fromDate);
         return ResponseEntity.ok(dailyActivity);
     }
-}
\ No newline at end of file
+
+    /**
+     * Запустить выгрузку журнала аудита за период в сжатый NDJSON/CSV-файл
+     */
+    @PostMapping("/exports")
+    public ResponseEntity<AuditExportJobResponse> startExport(@Valid @RequestBody CreateAuditExportRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(postAuditExportService.start(request));
+    }
+
+    /**
+     * Получить состояние и прогресс выгрузки
+     */
+    @GetMapping("/exports/{jobId}")
+    public ResponseEntity<AuditExportJobResponse> getExport(@PathVariable Long jobId) {
+        return ResponseEntity.ok(postAuditExportService.getJob(jobId));
+    }
+
+    /**
+     * Продолжить прерванную выгрузку с последней контрольной точки
+     */
+    @PostMapping("/exports/{jobId}/resume")
+    public ResponseEntity<AuditExportJobResponse> resumeExport(@PathVariable Long jobId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(postAuditExportService.resume(jobId));
+    }
+
+    /**
+     * Скачать файл завершённой выгрузки
+     */
+    @GetMapping("/exports/{jobId}/file")
+    public ResponseEntity<Resource> downloadExport(@PathVariable Long jobId) {
+        Path file = postAuditExportService.getExportFile(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file));
+    }
+}
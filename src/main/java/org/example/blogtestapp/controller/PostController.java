@@ -183,10 +183,14 @@ public class PostController {
 
     /**
      * Получить статистику активных пользователей за последние 10 дней
+     * limit — топ-N по activity score, page/size — страница внутри результата
      */
     @GetMapping("/statistics/active-users")
-    public ResponseEntity<List<ActiveUserStatisticsResponse>> getActiveUsersStatistics() {
-        List<ActiveUserStatisticsResponse> statistics = postService.getActiveUsersStatistics();
+    public ResponseEntity<List<ActiveUserStatisticsResponse>> getActiveUsersStatistics(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        List<ActiveUserStatisticsResponse> statistics = postService.getActiveUsersStatistics(limit, page, size);
         return ResponseEntity.ok(statistics);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.example.blogtestapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,14 +11,21 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.BatchCreateUsersRequest;
 import org.example.blogtestapp.dto.CreateUserRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
 import org.example.blogtestapp.dto.UpdateUserRequest;
+import org.example.blogtestapp.dto.UserRegistrationResult;
 import org.example.blogtestapp.dto.UserResponse;
 import org.example.blogtestapp.service.UserService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -30,7 +38,10 @@ import java.util.List;
 @Tag(name = "Users", description = "API для управления пользователями")
 public class UserController {
 
+    private static final int EXPORT_BATCH_SIZE = 1000;
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Создать нового пользователя
@@ -39,8 +50,8 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Пользователь успешно создан",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserResponse.class))),
-            @ApiResponse(responseCode = "400", description = "Невалидные данные", content = @Content),
-            @ApiResponse(responseCode = "409", description = "Пользователь с таким username уже существует", content = @Content)
+            @ApiResponse(responseCode = "400", description = "Невалидные данные или username/email уже заняты",
+                    content = @Content)
     })
     @PostMapping
     public ResponseEntity<UserResponse> createUser(
@@ -51,6 +62,18 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Пакетная регистрация пользователей (импорт при онбординге)
+     */
+    @Operation(summary = "Пакетная регистрация пользователей",
+            description = "Создаёт до 1000 пользователей одним запросом; для каждого возвращается CREATED или CONFLICT")
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserRegistrationResult>> createUsers(
+            @Valid @RequestBody BatchCreateUsersRequest request) {
+        log.info("Creating {} users in batch", request.getUsers().size());
+        return ResponseEntity.ok(userService.createUsers(request.getUsers()));
+    }
+
     /**
      * Получить пользователя по ID
      */
@@ -80,12 +103,40 @@ public class UserController {
     }
 
     /**
-     * Получить всех активных пользователей
+     * Получить активных пользователей постранично (keyset-пагинация по id или username)
      */
+    @Operation(summary = "Получить активных пользователей",
+            description = "Keyset-пагинация: nextCursor из ответа передаётся в параметре after")
     @GetMapping
-    public ResponseEntity<List<UserResponse>> getAllActiveUsers() {
-        List<UserResponse> users = userService.getAllActiveUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<CursorPageResponse<UserResponse>> getActiveUsers(
+            @Parameter(description = "Ключ сортировки: id или username", example = "id")
+            @RequestParam(defaultValue = "id") String sort,
+            @Parameter(description = "Курсор, полученный в nextCursor предыдущей страницы")
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(userService.getActiveUsersPage(sort, after, size));
+    }
+
+    /**
+     * Выгрузить всех активных пользователей в формате NDJSON (по одному JSON-объекту на строку)
+     */
+    @Operation(summary = "Выгрузить активных пользователей в NDJSON")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportActiveUsers() {
+        StreamingResponseBody body = outputStream -> userService.exportActiveUsers(EXPORT_BATCH_SIZE, users -> {
+            try {
+                for (UserResponse user : users) {
+                    outputStream.write(objectMapper.writeValueAsBytes(user));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     /**
@@ -130,8 +181,8 @@ public class UserController {
      * Получить топ пользователей по количеству постов
      */
     @GetMapping("/top")
-    public ResponseEntity<List<UserResponse>> getTopUsers() {
-        List<UserResponse> users = userService.getTopUsersByPostCount();
+    public ResponseEntity<List<UserResponse>> getTopUsers(@RequestParam(defaultValue = "10") int limit) {
+        List<UserResponse> users = userService.getTopUsersByPostCount(limit);
         return ResponseEntity.ok(users);
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO с состоянием и прогрессом выгрузки журнала аудита
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditExportJobResponse {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        INTERRUPTED
+    }
+
+    private Long id;
+    private Format format;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Status status;
+    private String fileName;
+    private Long estimatedRows;
+    private Long rowsWritten;
+    private Long bytesWritten;
+    private Double progressPercent;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
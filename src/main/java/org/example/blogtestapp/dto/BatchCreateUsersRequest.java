@@ -0,0 +1,25 @@
+package org.example.blogtestapp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO для пакетной регистрации пользователей
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCreateUsersRequest {
+
+    @NotEmpty(message = "Users are required")
+    @Size(max = 1000, message = "Batch cannot exceed 1000 users")
+    private List<@Valid CreateUserRequest> users;
+}
@@ -0,0 +1,19 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO с результатом пакетной модерации комментариев
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentModerationResponse {
+    private ModerateCommentsRequest.Action action;
+    private Long affectedCount;
+    private Integer batches;
+}
@@ -0,0 +1,38 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO комментария с вложенными ответами
+ * approved и deleted — состояние комментария (is_approved, is_deleted) в любом ответе.
+ * removed означает только то, что текст и автор скрыты: в ветке так возвращается удалённый
+ * или неодобренный комментарий, у которого есть видимые ответы, чтобы сохранить структуру ветки.
+ * В плоских списках модерации текст возвращается всегда, и removed всегда false
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentResponse {
+    private Long id;
+    private Long postId;
+    private Long parentCommentId;
+    private Integer depth;
+    private String content;
+    private String authorUsername;
+    private String authorDisplayName;
+    private Boolean approved;
+    private Boolean deleted;
+    private Boolean removed;
+    private LocalDateTime createdAt;
+
+    @Builder.Default
+    private List<CommentResponse> replies = new ArrayList<>();
+}
@@ -0,0 +1,28 @@
+package org.example.blogtestapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для запуска выгрузки журнала аудита за период [from, to)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateAuditExportRequest {
+
+    @NotNull(message = "From is required")
+    private LocalDateTime from;
+
+    @NotNull(message = "To is required")
+    private LocalDateTime to;
+
+    @Builder.Default
+    private AuditExportJobResponse.Format format = AuditExportJobResponse.Format.NDJSON;
+}
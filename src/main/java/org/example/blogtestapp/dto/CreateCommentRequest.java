@@ -0,0 +1,24 @@
+package org.example.blogtestapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для создания комментария или ответа на комментарий
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateCommentRequest {
+
+    @NotBlank(message = "Comment content is required")
+    @Size(min = 1, max = 1000, message = "Comment content must be between 1 and 1000 characters")
+    private String content;
+
+    private Long parentCommentId;
+}
@@ -0,0 +1,22 @@
+package org.example.blogtestapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO для страницы keyset-пагинации
+ * nextCursor передаётся в параметре after следующего запроса; null — последняя страница
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO для количества изменений постов за день
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyAuditActivityResponse {
+    private LocalDate date;
+    private Long changesCount;
+    private Long insertsCount;
+    private Long updatesCount;
+    private Long deletesCount;
+}
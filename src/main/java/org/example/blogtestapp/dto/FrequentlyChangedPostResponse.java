@@ -0,0 +1,24 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для поста с количеством его изменений
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FrequentlyChangedPostResponse {
+    private Long postId;
+    private Long changesCount;
+    private Long insertsCount;
+    private Long updatesCount;
+    private Long deletesCount;
+    private LocalDateTime lastChangedAt;
+}
@@ -0,0 +1,22 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO поста, лайкнутого пользователем
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikedPostResponse {
+    private Long postId;
+    private String title;
+    private String authorUsername;
+    private LocalDateTime likedAt;
+}
@@ -0,0 +1,19 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO с отметками "лайкнуто" для страницы постов: id поста -> лайкнул ли его пользователь
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikedStateResponse {
+    private Map<Long, Boolean> liked;
+}
@@ -0,0 +1,22 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO пользователя, лайкнувшего пост
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikerResponse {
+    private Long userId;
+    private String username;
+    private String displayName;
+    private LocalDateTime likedAt;
+}
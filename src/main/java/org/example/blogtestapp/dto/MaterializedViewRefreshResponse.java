@@ -0,0 +1,30 @@
+package org.example.blogtestapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO с результатом обновления одного материализованного представления
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaterializedViewRefreshResponse {
+
+    public enum Status {
+        REFRESHED,
+        FAILED,
+        SKIPPED
+    }
+
+    private String viewName;
+    private Status status;
+    private Long durationMs;
+    private Boolean fallbackUsed;
+    private String refreshPath;
+    private Long rowCount;
+    private String message;
+}
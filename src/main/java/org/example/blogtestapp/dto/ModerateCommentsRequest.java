@@ -0,0 +1,52 @@
+package org.example.blogtestapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO пакетной модерации комментариев
+ * Комментарии выбираются по списку id и/или фильтрам; заданные условия объединяются через AND,
+ * период создания — [from, to)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModerateCommentsRequest {
+
+    public enum Action {
+        /**
+         * Одобрить ожидающие комментарии
+         */
+        APPROVE,
+        /**
+         * Отклонить ожидающие комментарии (мягкое удаление)
+         */
+        REJECT,
+        /**
+         * Мягко удалить любые неудалённые комментарии
+         */
+        DELETE
+    }
+
+    @NotNull(message = "Action is required")
+    private Action action;
+
+    @Size(max = 1000, message = "Batch cannot exceed 1000 comment ids")
+    private List<Long> commentIds;
+
+    private String authorUsername;
+
+    private Long postId;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+}
@@ -0,0 +1,59 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO поста в рейтинге по лайкам за период
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MostLikedPostResponse {
+
+    /**
+     * Период рейтинга: текущий час и предыдущие (hours - 1) часов по часовым корзинам,
+     * сегодня и предыдущие (days - 1) дней по дневным корзинам, либо всё время
+     */
+    public enum Window {
+        DAY("24h", 24, null),
+        WEEK("7d", null, 7),
+        MONTH("30d", null, 30),
+        ALL("all", null, null);
+
+        private final String label;
+        private final Integer hours;
+        private final Integer days;
+
+        Window(String label, Integer hours, Integer days) {
+            this.label = label;
+            this.hours = hours;
+            this.days = days;
+        }
+
+        public Integer getHours() {
+            return hours;
+        }
+
+        public Integer getDays() {
+            return days;
+        }
+
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Unknown window: " + label + ", expected 24h, 7d, 30d or all");
+        }
+    }
+
+    private Long postId;
+    private String title;
+    private String authorUsername;
+    private Long likesCount;
+}
@@ -0,0 +1,20 @@
+package org.example.blogtestapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO содержимого поста до и после изменения для одной записи аудита
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostAuditContentResponse {
+    private Long id;
+    private Long postId;
+    private String oldContent;
+    private String newContent;
+}
@@ -0,0 +1,33 @@
+package org.example.blogtestapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для изменения поста, в котором слова поискового запроса появились или исчезли
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostAuditSearchResultResponse {
+
+    public enum Match {
+        APPEARED,
+        DISAPPEARED
+    }
+
+    private Long id;
+    private Long postId;
+    private String operation;
+    private LocalDateTime changedAt;
+    private Long userId;
+    private String oldTitle;
+    private String newTitle;
+    private Match match;
+    private String snippet;
+}
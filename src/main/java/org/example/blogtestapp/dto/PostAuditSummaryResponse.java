@@ -0,0 +1,33 @@
+package org.example.blogtestapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO записи аудита для списков: без содержимого поста, только его длина и MD5
+ * Содержимое запрашивается отдельно по id записи
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostAuditSummaryResponse {
+    private Long id;
+    private Long postId;
+    private String operation;
+    private LocalDateTime changedAt;
+    private Long userId;
+    private String oldTitle;
+    private String newTitle;
+    private Boolean oldIsPublished;
+    private Boolean newIsPublished;
+    private String changeDetails;
+    private Integer oldContentLength;
+    private Integer newContentLength;
+    private String oldContentHash;
+    private String newContentHash;
+}
@@ -0,0 +1,13 @@
+package org.example.blogtestapp.dto;
+
+import lombok.Value;
+
+/**
+ * Минимальная информация о пользователе для проверок на пути записи
+ */
+@Value
+public class UserReference {
+    Long id;
+    Boolean isActive;
+    String displayName;
+}
@@ -0,0 +1,28 @@
+package org.example.blogtestapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO с результатом регистрации одного пользователя из пакета
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRegistrationResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT
+    }
+
+    private Integer index;
+    private Status status;
+    private UserResponse user;
+    private Map<String, String> validationErrors;
+}
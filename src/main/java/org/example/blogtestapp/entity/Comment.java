@@ -45,4 +45,8 @@ public class Comment extends BaseEntity {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_comment_id")
     private Comment parentComment;
+
+    // Материализованный путь в дереве комментариев, заполняется триггером при вставке
+    @Column(name = "path", insertable = false, updatable = false)
+    private String path;
 }
\ No newline at end of file
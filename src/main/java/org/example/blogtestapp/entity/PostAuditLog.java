@@ -8,6 +8,8 @@ import java.time.LocalDateTime;
 /**
  * Сущность для журнала аудита изменений постов
  * Записывается через триггер при изменении/удалении постов
+ * Содержимое хранится целиком только в контрольных точках (newContent), остальные ревизии —
+ * дельтой относительно предыдущей записи поста (contentDelta*); восстанавливается в PostAuditService
  */
 @Entity
 @Table(name = "post_audit_log")
@@ -46,6 +48,31 @@ public class PostAuditLog {
     @Column(name = "new_content", columnDefinition = "TEXT")
     private String newContent;
 
+    @Column(name = "old_content_length")
+    private Integer oldContentLength;
+
+    @Column(name = "new_content_length")
+    private Integer newContentLength;
+
+    @Column(name = "old_content_hash", length = 32)
+    private String oldContentHash;
+
+    @Column(name = "new_content_hash", length = 32)
+    private String newContentHash;
+
+    @Column(name = "content_delta_prefix")
+    private Integer contentDeltaPrefix;
+
+    @Column(name = "content_delta_suffix")
+    private Integer contentDeltaSuffix;
+
+    @Column(name = "content_delta", columnDefinition = "TEXT")
+    private String contentDelta;
+
+    @Column(name = "content_chain_length", nullable = false)
+    @Builder.Default
+    private Integer contentChainLength = 0;
+
     @Column(name = "old_is_published")
     private Boolean oldIsPublished;
 
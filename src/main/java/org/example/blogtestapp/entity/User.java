@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.example.blogtestapp.service.UserReferenceCacheListener;
 
 import java.util.List;
 
@@ -14,6 +15,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "users")
+@EntityListeners(UserReferenceCacheListener.class)
 @Getter
 @Setter
 @Builder
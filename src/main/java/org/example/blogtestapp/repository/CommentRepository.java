@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,19 +19,65 @@ import java.util.List;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     /**
-     * Найти комментарии к посту (только одобренные и не удаленные)
+     * Колонки ветки комментариев вместе с автором (один запрос вместо обращения к users на каждый узел)
      */
-    List<Comment> findByPostAndIsApprovedTrueAndIsDeletedFalseOrderByCreatedAtAsc(Post post);
+    String THREAD_COLUMNS = "c.id, c.parent_comment_id, c.path, c.content, c.is_approved, c.is_deleted, " +
+                            "c.created_at, u.username, u.display_name";
+
+    /**
+     * Колонки плоских списков комментариев: THREAD_COLUMNS и id поста
+     */
+    String LISTING_COLUMNS = THREAD_COLUMNS + ", c.post_id";
+
+    /**
+     * Keyset-страница всех комментариев поста, включая неодобренные и удалённые (для модерации)
+     */
+    @Query(value = "SELECT " + LISTING_COLUMNS + " FROM comments c JOIN users u ON u.id = c.author_id " +
+                   "WHERE c.post_id = :postId AND (c.created_at, c.id) < (:cursorCreatedAt, :cursorId) " +
+                   "ORDER BY c.created_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findPostComments(@Param("postId") Long postId,
+                                    @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
+
+    /**
+     * Keyset-страница неудалённых комментариев автора
+     */
+    @Query(value = "SELECT " + LISTING_COLUMNS + " FROM comments c JOIN users u ON u.id = c.author_id " +
+                   "WHERE c.author_id = :authorId AND c.is_deleted = false " +
+                   "AND (c.created_at, c.id) < (:cursorCreatedAt, :cursorId) " +
+                   "ORDER BY c.created_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findAuthorComments(@Param("authorId") Long authorId,
+                                      @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                      @Param("cursorId") Long cursorId,
+                                      @Param("limit") int limit);
 
     /**
-     * Найти все комментарии к посту (включая неодобренные, для модерации)
+     * Keyset-страница последних одобренных комментариев
      */
-    List<Comment> findByPostOrderByCreatedAtDesc(Post post);
+    @Query(value = "SELECT " + LISTING_COLUMNS + " FROM comments c JOIN users u ON u.id = c.author_id " +
+                   "WHERE c.is_approved = true AND c.is_deleted = false " +
+                   "AND (c.created_at, c.id) < (:cursorCreatedAt, :cursorId) " +
+                   "ORDER BY c.created_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findRecentComments(@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                      @Param("cursorId") Long cursorId,
+                                      @Param("limit") int limit);
 
     /**
-     * Найти комментарии пользователя
+     * Keyset-страница комментариев, ожидающих модерации
      */
-    List<Comment> findByAuthorAndIsDeletedFalseOrderByCreatedAtDesc(User author);
+    @Query(value = "SELECT " + LISTING_COLUMNS + " FROM comments c JOIN users u ON u.id = c.author_id " +
+                   "WHERE c.is_approved = false AND c.is_deleted = false " +
+                   "AND (c.created_at, c.id) < (:cursorCreatedAt, :cursorId) " +
+                   "ORDER BY c.created_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findPendingComments(@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                       @Param("cursorId") Long cursorId,
+                                       @Param("limit") int limit);
+
+    /**
+     * Найти комментарии к посту (только одобренные и не удаленные)
+     */
+    List<Comment> findByPostAndIsApprovedTrueAndIsDeletedFalseOrderByCreatedAtAsc(Post post);
 
     /**
      * Найти дочерние комментарии (ответы)
@@ -42,23 +90,19 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostAndParentCommentIsNullAndIsApprovedTrueAndIsDeletedFalseOrderByCreatedAtAsc(Post post);
 
     /**
-     * Подсчитать количество комментариев к посту
+     * Количество видимых комментариев к посту из денормализованного счётчика post_comment_counts
      */
-    @Query("SELECT COUNT(c) FROM Comment c WHERE c.post = :post " +
-           "AND c.isApproved = true AND c.isDeleted = false")
-    Long countByPost(@Param("post") Post post);
+    @Query(value = "SELECT COALESCE((SELECT comments_count FROM post_comment_counts WHERE post_id = :postId), 0)",
+           nativeQuery = true)
+    Long countByPostId(@Param("postId") Long postId);
 
     /**
-     * Найти неодобренные комментарии (для модерации)
+     * Подсчитать неудаленные комментарии группы авторов одним запросом: [authorId, count]
      */
-    List<Comment> findByIsApprovedFalseAndIsDeletedFalseOrderByCreatedAtDesc();
-
-    /**
-     * Найти последние комментарии
-     */
-    @Query("SELECT c FROM Comment c WHERE c.isApproved = true AND c.isDeleted = false " +
-           "ORDER BY c.createdAt DESC")
-    List<Comment> findRecentComments();
+    @Query("SELECT c.author.id, COUNT(c) FROM Comment c " +
+           "WHERE c.author.id IN :authorIds AND c.isDeleted = false " +
+           "GROUP BY c.author.id")
+    List<Object[]> countActiveCommentsByAuthorIds(@Param("authorIds") Collection<Long> authorIds);
 
     /**
      * Поиск комментариев по содержимому
@@ -67,4 +111,24 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
            "AND LOWER(c.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
            "ORDER BY c.createdAt DESC")
     List<Comment> findByContentContaining(@Param("searchTerm") String searchTerm);
-}
\ No newline at end of file
+
+    /**
+     * Пути корневых комментариев поста после afterPath в порядке создания
+     */
+    @Query(value = "SELECT c.path FROM comments c " +
+                   "WHERE c.post_id = :postId AND c.parent_comment_id IS NULL AND c.path > :afterPath " +
+                   "ORDER BY c.path LIMIT :limit", nativeQuery = true)
+    List<String> findRootPaths(@Param("postId") Long postId,
+                               @Param("afterPath") String afterPath,
+                               @Param("limit") int limit);
+
+    /**
+     * Комментарии поста с путями в диапазоне [fromPath, toPath) в порядке обхода дерева в глубину
+     */
+    @Query(value = "SELECT " + THREAD_COLUMNS + " FROM comments c JOIN users u ON u.id = c.author_id " +
+                   "WHERE c.post_id = :postId AND c.path >= :fromPath AND c.path < :toPath " +
+                   "ORDER BY c.path", nativeQuery = true)
+    List<Object[]> findThreadRange(@Param("postId") Long postId,
+                                   @Param("fromPath") String fromPath,
+                                   @Param("toPath") String toPath);
+}
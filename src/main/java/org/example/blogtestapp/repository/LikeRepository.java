@@ -4,12 +4,14 @@ import org.example.blogtestapp.entity.Like;
 import org.example.blogtestapp.entity.Post;
 import org.example.blogtestapp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Repository для работы с лайками
@@ -18,30 +20,59 @@ import java.util.Optional;
 public interface LikeRepository extends JpaRepository<Like, Long> {
 
     /**
-     * Найти лайк пользователя для конкретного поста
+     * Проверить лайкнул ли пользователь пост
      */
-    Optional<Like> findByUserAndPost(User user, Post post);
+    boolean existsByUserAndPostAndIsActiveTrue(User user, Post post);
 
     /**
-     * Проверить лайкнул ли пользователь пост
+     * Id постов, лайкнутых пользователем, по возрастанию (index-only scan по idx_likes_user_active_post)
      */
-    boolean existsByUserAndPostAndIsActiveTrue(User user, Post post);
+    @Query(value = "SELECT post_id FROM likes WHERE user_id = :userId AND is_active = true " +
+                   "ORDER BY post_id LIMIT :limit", nativeQuery = true)
+    List<Long> findActiveLikedPostIds(@Param("userId") Long userId, @Param("limit") int limit);
 
     /**
-     * Найти все лайки поста
+     * Какие из постов лайкнул пользователь
      */
-    List<Like> findByPostAndIsActiveTrueOrderByCreatedAtDesc(Post post);
+    @Query(value = "SELECT post_id FROM likes WHERE user_id = :userId AND is_active = true " +
+                   "AND post_id IN (:postIds)", nativeQuery = true)
+    List<Long> findActiveLikedPostIdsAmong(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
 
     /**
-     * Найти все лайки пользователя
+     * Keyset-страница лайкнувших пост, новые первыми (idx_likes_post_created)
+     * Строки: id лайка, время лайка, id, username и display name пользователя
      */
-    List<Like> findByUserAndIsActiveTrueOrderByCreatedAtDesc(User user);
+    @Query(value = "SELECT l.id, l.created_at, u.id AS user_id, u.username, u.display_name " +
+                   "FROM likes l JOIN users u ON u.id = l.user_id " +
+                   "WHERE l.post_id = :postId AND l.is_active = true " +
+                   "AND (l.created_at, l.id) < (:cursorCreatedAt, :cursorId) " +
+                   "ORDER BY l.created_at DESC, l.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findLikers(@Param("postId") Long postId,
+                              @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                              @Param("cursorId") Long cursorId,
+                              @Param("limit") int limit);
 
     /**
-     * Подсчитать количество лайков поста
+     * Keyset-страница опубликованных постов, лайкнутых пользователем, новые лайки первыми
+     * Условие created_at <= курсора даёт границу поиска по idx_likes_user_activity (user_id, created_at).
+     * Строки: id лайка, время лайка, id и заголовок поста, username автора
      */
-    @Query("SELECT COUNT(l) FROM Like l WHERE l.post = :post AND l.isActive = true")
-    Long countByPost(@Param("post") Post post);
+    @Query(value = "SELECT l.id, l.created_at, p.id AS post_id, p.title, a.username " +
+                   "FROM likes l JOIN posts p ON p.id = l.post_id JOIN users a ON a.id = p.author_id " +
+                   "WHERE l.user_id = :userId AND l.is_active = true AND p.is_published = true " +
+                   "AND l.created_at <= :cursorCreatedAt AND (l.created_at, l.id) < (:cursorCreatedAt, :cursorId) " +
+                   "ORDER BY l.created_at DESC, l.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findLikedPosts(@Param("userId") Long userId,
+                                  @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                  @Param("cursorId") Long cursorId,
+                                  @Param("limit") int limit);
+
+    /**
+     * Количество лайков поста из денормализованного счётчика post_like_totals
+     */
+    @Query(value = "SELECT COALESCE((SELECT likes_count FROM post_like_totals WHERE post_id = :postId), 0)",
+           nativeQuery = true)
+    Long countByPostId(@Param("postId") Long postId);
 
     /**
      * Подсчитать количество лайков пользователя
@@ -50,19 +81,58 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     Long countByUser(@Param("user") User user);
 
     /**
-     * Найти самые лайкаемые посты
+     * Самые лайкаемые опубликованные посты за последние hours часов (включая текущий) по часовым корзинам
+     * Строки: id поста, заголовок, username автора, число лайков
+     */
+    @Query(value = "SELECT t.post_id, p.title, a.username, t.likes_count " +
+                   "FROM (SELECT post_id, SUM(likes_count) AS likes_count FROM post_like_hourly " +
+                   "      WHERE bucket_hour >= date_trunc('hour', LOCALTIMESTAMP) - make_interval(hours => :hours - 1) " +
+                   "      GROUP BY post_id HAVING SUM(likes_count) > 0) t " +
+                   "JOIN posts p ON p.id = t.post_id AND p.is_published = true " +
+                   "JOIN users a ON a.id = p.author_id " +
+                   "ORDER BY t.likes_count DESC, t.post_id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findMostLikedPostsSince(@Param("hours") int hours, @Param("limit") int limit);
+
+    /**
+     * Самые лайкаемые опубликованные посты за последние days дней (включая сегодня) по дневным корзинам
+     * Строки: id поста, заголовок, username автора, число лайков
+     */
+    @Query(value = "SELECT t.post_id, p.title, a.username, t.likes_count " +
+                   "FROM (SELECT post_id, SUM(likes_count) AS likes_count FROM post_like_daily " +
+                   "      WHERE bucket_date > CAST(LOCALTIMESTAMP AS DATE) - :days " +
+                   "      GROUP BY post_id HAVING SUM(likes_count) > 0) t " +
+                   "JOIN posts p ON p.id = t.post_id AND p.is_published = true " +
+                   "JOIN users a ON a.id = p.author_id " +
+                   "ORDER BY t.likes_count DESC, t.post_id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findMostLikedPostsSinceDays(@Param("days") int days, @Param("limit") int limit);
+
+    /**
+     * Самые лайкаемые опубликованные посты за всё время (idx_post_like_totals_count)
+     */
+    @Query(value = "SELECT t.post_id, p.title, a.username, t.likes_count " +
+                   "FROM post_like_totals t " +
+                   "JOIN posts p ON p.id = t.post_id AND p.is_published = true " +
+                   "JOIN users a ON a.id = p.author_id " +
+                   "WHERE t.likes_count > 0 " +
+                   "ORDER BY t.likes_count DESC, t.post_id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findMostLikedPosts(@Param("limit") int limit);
+
+    /**
+     * Удалить часовые корзины старше hours часов
      */
-    @Query("SELECT l.post FROM Like l WHERE l.isActive = true " +
-           "GROUP BY l.post " +
-           "ORDER BY COUNT(l) DESC")
-    List<Post> findMostLikedPosts();
+    @Modifying
+    @Query(value = "DELETE FROM post_like_hourly " +
+                   "WHERE bucket_hour < date_trunc('hour', LOCALTIMESTAMP) - make_interval(hours => :hours)",
+           nativeQuery = true)
+    int deleteHourlyBucketsOlderThan(@Param("hours") int hours);
 
     /**
-     * Найти пользователей, которые лайкнули пост
+     * Удалить дневные корзины старше days дней
      */
-    @Query("SELECT l.user FROM Like l WHERE l.post = :post AND l.isActive = true " +
-           "ORDER BY l.createdAt DESC")
-    List<User> findUsersWhoLikedPost(@Param("post") Post post);
+    @Modifying
+    @Query(value = "DELETE FROM post_like_daily WHERE bucket_date < CAST(LOCALTIMESTAMP AS DATE) - :days",
+           nativeQuery = true)
+    int deleteDailyBucketsOlderThan(@Param("days") int days);
 
     /**
      * Удалить все лайки пользователя (при удалении пользователя)
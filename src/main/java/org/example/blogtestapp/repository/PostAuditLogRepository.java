@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -15,23 +16,51 @@ import java.util.List;
 @Repository
 public interface PostAuditLogRepository extends JpaRepository<PostAuditLog, Long> {
 
+    /**
+     * Колонки записи аудита для списков: old_content/new_content не читаются
+     */
+    String SUMMARY_COLUMNS = "id, post_id, operation, changed_at, user_id, old_title, new_title, " +
+                             "old_is_published, new_is_published, change_details, " +
+                             "old_content_length, new_content_length, old_content_hash, new_content_hash";
+
+    /**
+     * Колонки результатов поиска по истории: признаки совпадения со словами, появившимися и исчезнувшими в изменении
+     */
+    String SEARCH_COLUMNS = "id, post_id, operation, changed_at, user_id, old_title, new_title, " +
+                            "COALESCE(added_terms @@ q, false), COALESCE(removed_terms @@ q, false)";
+
     /**
      * Найти все записи аудита для конкретного поста
      */
     List<PostAuditLog> findByPostIdOrderByChangedAtDesc(Long postId);
 
     /**
-     * Найти записи аудита по типу операции
+     * Найти все записи аудита поста в порядке записи (для восстановления содержимого)
      */
-    List<PostAuditLog> findByOperationOrderByChangedAtDesc(String operation);
+    List<PostAuditLog> findByPostIdOrderByIdAsc(Long postId);
 
     /**
-     * Найти записи аудита за определенный период
+     * Найти цепочку записей поста, достаточную для восстановления содержимого записи auditId:
+     * от последней контрольной точки перед ней до неё самой
      */
-    List<PostAuditLog> findByChangedAtBetweenOrderByChangedAtDesc(
-        LocalDateTime startDate, 
-        LocalDateTime endDate
-    );
+    @Query(value = "SELECT * FROM post_audit_log WHERE post_id = :postId AND id <= :auditId " +
+                   "AND id >= (SELECT COALESCE(MAX(id), 0) FROM post_audit_log " +
+                   "WHERE post_id = :postId AND id < :auditId AND new_content IS NOT NULL) " +
+                   "ORDER BY id", nativeQuery = true)
+    List<PostAuditLog> findContentChain(@Param("postId") Long postId, @Param("auditId") Long auditId);
+
+    /**
+     * Цепочки {@link #findContentChain} для нескольких записей одним запросом: auditIds[i] — запись поста postIds[i]
+     * Пересекающиеся цепочки одного поста могут вернуть запись повторно; порядок — по post_id и id
+     */
+    @Query(value = "SELECT c.* FROM (SELECT DISTINCT t.post_id, t.audit_id " +
+                   "FROM unnest(CAST(ARRAY[:postIds] AS bigint[]), CAST(ARRAY[:auditIds] AS bigint[])) " +
+                   "AS t(post_id, audit_id)) t " +
+                   "CROSS JOIN LATERAL (SELECT * FROM post_audit_log a WHERE a.post_id = t.post_id " +
+                   "AND a.id <= t.audit_id AND a.id >= (SELECT COALESCE(MAX(id), 0) FROM post_audit_log " +
+                   "WHERE post_id = t.post_id AND id < t.audit_id AND new_content IS NOT NULL)) c " +
+                   "ORDER BY c.post_id, c.id", nativeQuery = true)
+    List<PostAuditLog> findContentChains(@Param("postIds") List<Long> postIds, @Param("auditIds") List<Long> auditIds);
 
     /**
      * Найти записи аудита для конкретного пользователя
@@ -44,24 +73,49 @@ public interface PostAuditLogRepository extends JpaRepository<PostAuditLog, Long
     List<PostAuditLog> findByPostIdAndUserIdOrderByChangedAtDesc(Long postId, Long userId);
 
     /**
-     * Найти последние изменения (общий аудит)
+     * Найти последние изменения (общий аудит) после курсора (changedAt, id)
      */
-    @Query("SELECT pal FROM PostAuditLog pal ORDER BY pal.changedAt DESC")
-    List<PostAuditLog> findRecentChanges();
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM post_audit_log " +
+                   "WHERE (changed_at, id) < (:cursorChangedAt, :cursorId) " +
+                   "ORDER BY changed_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findRecentChanges(@Param("cursorChangedAt") LocalDateTime cursorChangedAt,
+                                     @Param("cursorId") Long cursorId,
+                                     @Param("limit") int limit);
 
     /**
-     * Найти изменения заголовков (когда изменялся title)
+     * Найти записи аудита по типу операции после курсора (changedAt, id)
      */
-    @Query("SELECT pal FROM PostAuditLog pal WHERE pal.operation = 'UPDATE' " +
-           "AND pal.oldTitle != pal.newTitle ORDER BY pal.changedAt DESC")
-    List<PostAuditLog> findTitleChanges();
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM post_audit_log " +
+                   "WHERE operation = :operation AND (changed_at, id) < (:cursorChangedAt, :cursorId) " +
+                   "ORDER BY changed_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findByOperation(@Param("operation") String operation,
+                                   @Param("cursorChangedAt") LocalDateTime cursorChangedAt,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("limit") int limit);
 
     /**
-     * Найти удаленные посты
+     * Найти записи аудита за определенный период после курсора (changedAt, id)
      */
-    @Query("SELECT pal FROM PostAuditLog pal WHERE pal.operation = 'DELETE' " +
-           "ORDER BY pal.changedAt DESC")
-    List<PostAuditLog> findDeletedPosts();
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM post_audit_log " +
+                   "WHERE changed_at BETWEEN :startDate AND :endDate " +
+                   "AND (changed_at, id) < (:cursorChangedAt, :cursorId) " +
+                   "ORDER BY changed_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findByChangedAtBetween(@Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate,
+                                          @Param("cursorChangedAt") LocalDateTime cursorChangedAt,
+                                          @Param("cursorId") Long cursorId,
+                                          @Param("limit") int limit);
+
+    /**
+     * Найти изменения заголовков (когда изменялся title) после курсора (changedAt, id)
+     */
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM post_audit_log " +
+                   "WHERE operation = 'UPDATE' AND old_title <> new_title " +
+                   "AND (changed_at, id) < (:cursorChangedAt, :cursorId) " +
+                   "ORDER BY changed_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTitleChanges(@Param("cursorChangedAt") LocalDateTime cursorChangedAt,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
 
     /**
      * Подсчитать количество изменений поста
@@ -70,19 +124,54 @@ public interface PostAuditLogRepository extends JpaRepository<PostAuditLog, Long
     Long countChangesByPostId(@Param("postId") Long postId);
 
     /**
-     * Найти частые изменения (посты с большим количеством изменений)
+     * Найти частые изменения (посты с большим количеством изменений) по агрегатам post_audit_post_rollup
      */
-    @Query("SELECT pal.postId, COUNT(pal) as changeCount FROM PostAuditLog pal " +
-           "GROUP BY pal.postId HAVING COUNT(pal) > :threshold " +
-           "ORDER BY COUNT(pal) DESC")
+    @Query(value = "SELECT post_id, changes_count, inserts_count, updates_count, deletes_count, last_changed_at " +
+                   "FROM post_audit_post_rollup WHERE changes_count > :threshold " +
+                   "ORDER BY changes_count DESC, post_id", nativeQuery = true)
     List<Object[]> findFrequentlyChangedPosts(@Param("threshold") Long threshold);
 
     /**
-     * Найти активность по дням
+     * Найти активность по дням по агрегатам post_audit_daily_rollup
+     */
+    @Query(value = "SELECT activity_date, SUM(changes_count), " +
+                   "SUM(changes_count) FILTER (WHERE operation = 'INSERT'), " +
+                   "SUM(changes_count) FILTER (WHERE operation = 'UPDATE'), " +
+                   "SUM(changes_count) FILTER (WHERE operation = 'DELETE') " +
+                   "FROM post_audit_daily_rollup WHERE activity_date >= :fromDate " +
+                   "GROUP BY activity_date ORDER BY activity_date DESC", nativeQuery = true)
+    List<Object[]> findDailyActivity(@Param("fromDate") LocalDate fromDate);
+
+    /**
+     * Найти изменения, в которых появились или исчезли все слова запроса, по возрастанию (changedAt, id)
+     */
+    @Query(value = "SELECT " + SEARCH_COLUMNS + " FROM post_audit_log, plainto_tsquery('russian', :query) q " +
+                   "WHERE (added_terms @@ q OR removed_terms @@ q) " +
+                   "AND (changed_at, id) > (:cursorChangedAt, :cursorId) " +
+                   "ORDER BY changed_at, id LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchChanges(@Param("query") String query,
+                                 @Param("cursorChangedAt") LocalDateTime cursorChangedAt,
+                                 @Param("cursorId") Long cursorId,
+                                 @Param("limit") int limit);
+
+    /**
+     * Найти изменения поста, в которых появились или исчезли все слова запроса, по возрастанию (changedAt, id)
+     */
+    @Query(value = "SELECT " + SEARCH_COLUMNS + " FROM post_audit_log, plainto_tsquery('russian', :query) q " +
+                   "WHERE post_id = :postId AND (added_terms @@ q OR removed_terms @@ q) " +
+                   "AND (changed_at, id) > (:cursorChangedAt, :cursorId) " +
+                   "ORDER BY changed_at, id LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchPostChanges(@Param("postId") Long postId,
+                                     @Param("query") String query,
+                                     @Param("cursorChangedAt") LocalDateTime cursorChangedAt,
+                                     @Param("cursorId") Long cursorId,
+                                     @Param("limit") int limit);
+
+    /**
+     * Фрагменты текстов с подсвеченными словами запроса, в порядке texts
      */
-    @Query("SELECT DATE(pal.changedAt), COUNT(pal) FROM PostAuditLog pal " +
-           "WHERE pal.changedAt >= :fromDate " +
-           "GROUP BY DATE(pal.changedAt) " +
-           "ORDER BY DATE(pal.changedAt) DESC")
-    List<Object[]> findDailyActivity(@Param("fromDate") LocalDateTime fromDate);
-}
\ No newline at end of file
+    @Query(value = "SELECT ts_headline('russian', t.text, plainto_tsquery('russian', :query), " +
+                   "'MaxFragments=2, MinWords=5, MaxWords=20') " +
+                   "FROM unnest(ARRAY[:texts]) WITH ORDINALITY AS t(text, n) ORDER BY t.n", nativeQuery = true)
+    List<String> findHeadlines(@Param("query") String query, @Param("texts") List<String> texts);
+}
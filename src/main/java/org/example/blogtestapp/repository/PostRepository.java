@@ -13,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,7 +31,7 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     /**
      * Найти посты пользователя
      */
-    List<Post> findByAuthorOrderByCreatedAtDesc(User author);
+    List<Post> findByAuthorIdOrderByCreatedAtDesc(Long authorId);
 
     /**
      * Найти опубликованные посты пользователя
@@ -88,6 +89,41 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("SELECT COUNT(p) FROM Post p WHERE p.author = :author AND p.isPublished = true")
     Long countPublishedPostsByAuthor(@Param("author") User author);
 
+    /**
+     * Подсчитать опубликованные посты группы авторов одним запросом: [authorId, count]
+     */
+    @Query("SELECT p.author.id, COUNT(p) FROM Post p " +
+           "WHERE p.author.id IN :authorIds AND p.isPublished = true " +
+           "GROUP BY p.author.id")
+    List<Object[]> countPublishedPostsByAuthorIds(@Param("authorIds") Collection<Long> authorIds);
+
+    /**
+     * Топ активных авторов по количеству опубликованных постов: [authorId, count, снимок запроса]
+     */
+    @Query(value = "SELECT p.author_id, COUNT(*) AS posts_count, CAST(pg_current_snapshot() AS TEXT) " +
+           "FROM posts p " +
+           "JOIN users u ON u.id = p.author_id " +
+           "WHERE p.is_published = true AND u.is_active = true " +
+           "GROUP BY p.author_id " +
+           "ORDER BY posts_count DESC, p.author_id " +
+           "LIMIT :limit",
+           nativeQuery = true)
+    List<Object[]> findTopAuthorsByPublishedPostCount(@Param("limit") int limit);
+
+    /**
+     * Количество опубликованных постов автора и снимок, в котором оно посчитано: [count, snapshot]
+     */
+    @Query(value = "SELECT COUNT(*), CAST(pg_current_snapshot() AS TEXT) " +
+           "FROM posts WHERE author_id = :authorId AND is_published = true",
+           nativeQuery = true)
+    List<Object[]> countPublishedPostsWithSnapshot(@Param("authorId") Long authorId);
+
+    /**
+     * Id текущей транзакции (назначается, если его ещё нет)
+     */
+    @Query(value = "SELECT CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT)", nativeQuery = true)
+    Long currentTransactionId();
+
     /**
      * Увеличить счетчик просмотров
      */
@@ -100,6 +136,11 @@ public interface PostRepository extends JpaRepository<Post, Long> {
      */
     Optional<Post> findByIdAndIsPublishedTrue(Long id);
 
+    /**
+     * Проверить, что пост существует и опубликован
+     */
+    boolean existsByIdAndIsPublishedTrue(Long id);
+
     /**
      * Найти похожие посты по тегам
      */
@@ -1,11 +1,14 @@
 package org.example.blogtestapp.repository;
 
+import org.example.blogtestapp.dto.UserReference;
 import org.example.blogtestapp.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -20,6 +23,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByUsername(String username);
 
+    /**
+     * Получить id, флаг активности и отображаемое имя пользователя по username, не загружая сущность
+     */
+    @Query("SELECT new org.example.blogtestapp.dto.UserReference(u.id, u.isActive, u.displayName) " +
+           "FROM User u WHERE u.username = :username")
+    Optional<UserReference> findReferenceByUsername(@Param("username") String username);
+
+    /**
+     * Занятые username и email среди указанных: [username, email]
+     */
+    @Query("SELECT u.username, u.email FROM User u " +
+           "WHERE u.username IN :usernames OR u.email IN :emails")
+    List<Object[]> findUsernamesAndEmails(@Param("usernames") Collection<String> usernames,
+                                          @Param("emails") Collection<String> emails);
+
     /**
      * Найти пользователя по email
      */
@@ -36,9 +54,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     /**
-     * Найти активных пользователей
+     * Страница активных пользователей после указанного id (keyset-пагинация)
      */
-    List<User> findByIsActiveTrue();
+    List<User> findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Страница активных пользователей после указанного username (keyset-пагинация)
+     */
+    List<User> findByIsActiveTrueAndUsernameGreaterThanOrderByUsernameAsc(String afterUsername, Limit limit);
 
     /**
      * Найти пользователей по части имени (поиск)
@@ -47,13 +70,4 @@ public interface UserRepository extends JpaRepository<User, Long> {
            "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(u.displayName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<User> findBySearchTerm(@Param("searchTerm") String searchTerm);
-
-    /**
-     * Найти топ пользователей по количеству постов
-     */
-    @Query("SELECT u FROM User u LEFT JOIN u.posts p " +
-           "WHERE u.isActive = true " +
-           "GROUP BY u.id " +
-           "ORDER BY COUNT(p) DESC")
-    List<User> findTopUsersByPostCount();
 }
\ No newline at end of file
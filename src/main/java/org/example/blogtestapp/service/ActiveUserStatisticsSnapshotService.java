@@ -0,0 +1,152 @@
+package org.example.blogtestapp.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.MaterializedViewConfig;
+import org.example.blogtestapp.dto.ActiveUserStatisticsResponse;
+import org.example.blogtestapp.repository.PostRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Снимок статистики активных пользователей в памяти
+ * Данные active_users_stats_mv меняются только при обновлении представления, поэтому запросы
+ * обслуживаются из неизменяемого снимка, который атомарно подменяется после каждого успешного обновления.
+ * Пока идёт фоновая перезагрузка, отдаются прежние (устаревшие) данные.
+ */
+@Service
+@Slf4j
+public class ActiveUserStatisticsSnapshotService {
+
+    private final PostRepository postRepository;
+    private final ExecutorService reloadExecutor;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean reloadInProgress = new AtomicBoolean();
+    private volatile boolean stale;
+
+    public ActiveUserStatisticsSnapshotService(PostRepository postRepository) {
+        this.postRepository = postRepository;
+        this.reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "active-users-snapshot-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdown();
+    }
+
+    /**
+     * Текущий снимок; при первом обращении загружается синхронно, устаревший перезагружается в фоне
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            return loadInitial();
+        }
+        if (stale) {
+            reloadAsync();
+        }
+        return current;
+    }
+
+    /**
+     * Статистика из снимка: limit ограничивает топ-N, page/size выбирают страницу внутри него
+     */
+    public List<ActiveUserStatisticsResponse> getStatistics(Integer limit, int page, Integer size) {
+        List<ActiveUserStatisticsResponse> entries = getSnapshot().getEntries();
+        if (limit != null) {
+            entries = entries.subList(0, Math.min(Math.max(limit, 0), entries.size()));
+        }
+        if (size != null) {
+            int from = (int) Math.min((long) Math.max(page, 0) * Math.max(size, 0), entries.size());
+            entries = entries.subList(from, Math.min(from + Math.max(size, 0), entries.size()));
+        }
+        return entries;
+    }
+
+    /**
+     * После обновления представления на этой реплике снимок перезагружается сразу в потоке обновления,
+     * после обновления на другой реплике — в фоне
+     */
+    @EventListener
+    public void onMaterializedViewRefreshed(MaterializedViewRefreshedEvent event) {
+        if (!MaterializedViewConfig.ACTIVE_USERS_STATS_VIEW.equals(event.getViewName())) {
+            return;
+        }
+        stale = true;
+        if (event.isRemote()) {
+            reloadAsync();
+        } else {
+            reload();
+        }
+    }
+
+    private synchronized Snapshot loadInitial() {
+        Snapshot current = snapshot.get();
+        return current != null ? current : reload();
+    }
+
+    private void reloadAsync() {
+        if (reloadInProgress.compareAndSet(false, true)) {
+            reloadExecutor.execute(() -> {
+                try {
+                    reload();
+                } finally {
+                    reloadInProgress.set(false);
+                }
+            });
+        }
+    }
+
+    private Snapshot reload() {
+        // Сбрасываем флаг до чтения: обновление, случившееся во время загрузки, снова пометит снимок устаревшим
+        stale = false;
+        try {
+            List<ActiveUserStatisticsResponse> entries = postRepository.getActiveUsersStatisticsRaw().stream()
+                    .map(row -> ActiveUserStatisticsResponse.builder()
+                            .username((String) row[0])
+                            .displayName((String) row[1])
+                            .postsCount(((Number) row[2]).longValue())
+                            .commentsCount(((Number) row[3]).longValue())
+                            .likesReceived(((Number) row[4]).longValue())
+                            .totalViews(((Number) row[5]).longValue())
+                            .activityScore(((Number) row[6]).doubleValue())
+                            .build())
+                    .toList();
+            Snapshot loaded = new Snapshot(entries, Instant.now());
+            snapshot.set(loaded);
+            log.debug("Loaded active users statistics snapshot with {} entries", entries.size());
+            return loaded;
+        } catch (RuntimeException e) {
+            stale = true;
+            Snapshot current = snapshot.get();
+            if (current == null) {
+                throw e;
+            }
+            log.warn("Failed to reload active users statistics snapshot, serving data loaded at {}: {}",
+                    current.getLoadedAt(), e.getMessage());
+            return current;
+        }
+    }
+
+    /**
+     * Неизменяемый снимок статистики, упорядоченный по activity_score
+     */
+    @Value
+    public static class Snapshot {
+        List<ActiveUserStatisticsResponse> entries;
+        Instant loadedAt;
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.blogtestapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.entity.User;
+import org.example.blogtestapp.repository.PostRepository;
+import org.example.blogtestapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Рейтинг авторов по количеству опубликованных постов
+ * Хранит в памяти ограниченный топ (capacity авторов), который обновляется после коммита
+ * публикации, снятия с публикации или удаления поста и периодически сверяется с БД.
+ * Запас capacity относительно максимального limit запроса компенсирует авторов, которые
+ * могли подняться из-за пределов топа между сверками.
+ * Каждая запись помнит снимок БД, в котором посчитана, а событие несёт id своей транзакции:
+ * изменение, уже видимое в снимке записи, повторно не прибавляется.
+ */
+@Component
+@Slf4j
+public class AuthorLeaderboard {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingLong(Entry::postsCount).reversed()
+            .thenComparingLong(Entry::authorId);
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final int capacity;
+
+    private final TreeSet<Entry> ranking = new TreeSet<>(RANKING);
+    private final Map<Long, Entry> entriesByAuthor = new HashMap<>();
+    private final Object reconcileLock = new Object();
+    private boolean loaded;
+
+    /**
+     * События, пришедшие во время сверки: после установки нового топа применяются к нему повторно
+     */
+    private List<AuthorPublishedPostsChangedEvent> eventsDuringReconcile;
+
+    public AuthorLeaderboard(PostRepository postRepository,
+                             UserRepository userRepository,
+                             @Value("${app.leaderboard.capacity:1000}") int capacity) {
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Id авторов первых limit мест рейтинга
+     */
+    public List<Long> top(int limit) {
+        synchronized (this) {
+            if (loaded) {
+                return topIds(limit);
+            }
+        }
+        reconcile();
+        synchronized (this) {
+            return topIds(limit);
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onPublishedPostsChanged(AuthorPublishedPostsChangedEvent event) {
+        synchronized (this) {
+            if (eventsDuringReconcile != null) {
+                eventsDuringReconcile.add(event);
+            }
+        }
+        apply(event);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onUserDeactivated(UserDeactivatedEvent event) {
+        Entry entry = entriesByAuthor.remove(event.getUserId());
+        if (entry != null) {
+            ranking.remove(entry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    /**
+     * Сверка с БД: топ пересчитывается одним агрегирующим запросом с LIMIT capacity
+     */
+    @Scheduled(fixedDelayString = "${app.leaderboard.reconcile-interval-ms:300000}",
+            initialDelayString = "${app.leaderboard.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            List<Object[]> rows;
+            List<AuthorPublishedPostsChangedEvent> pendingEvents;
+            synchronized (this) {
+                eventsDuringReconcile = new ArrayList<>();
+            }
+            try {
+                rows = postRepository.findTopAuthorsByPublishedPostCount(capacity);
+            } catch (RuntimeException e) {
+                log.warn("Failed to reconcile author leaderboard: {}", e.getMessage());
+                return;
+            } finally {
+                synchronized (this) {
+                    pendingEvents = eventsDuringReconcile;
+                    eventsDuringReconcile = null;
+                }
+            }
+            synchronized (this) {
+                ranking.clear();
+                entriesByAuthor.clear();
+                for (Object[] row : rows) {
+                    put(new Entry(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                            Snapshot.parse((String) row[2])));
+                }
+                loaded = true;
+            }
+            // События, закоммиченные после снимка запроса, в новом топе ещё не учтены
+            pendingEvents.forEach(this::apply);
+            log.debug("Author leaderboard reconciled with {} entries", rows.size());
+        }
+    }
+
+    /**
+     * Применить изменение к рейтингу, если оно не учтено в снимке, в котором посчитана запись автора
+     */
+    private void apply(AuthorPublishedPostsChangedEvent event) {
+        synchronized (this) {
+            Entry entry = entriesByAuthor.get(event.getAuthorId());
+            if (entry != null) {
+                applyDelta(entry, event);
+                return;
+            }
+            if (event.getDelta() < 0 || !loaded) {
+                return;
+            }
+        }
+        // Автора нет в топе: берём его точное количество постов (index-only scan по author_id)
+        boolean active = userRepository.findById(event.getAuthorId()).map(User::getIsActive).orElse(false);
+        if (!active) {
+            return;
+        }
+        Object[] row = postRepository.countPublishedPostsWithSnapshot(event.getAuthorId()).get(0);
+        long postsCount = ((Number) row[0]).longValue();
+        Snapshot snapshot = Snapshot.parse((String) row[1]);
+        synchronized (this) {
+            Entry entry = entriesByAuthor.get(event.getAuthorId());
+            if (entry == null) {
+                put(new Entry(event.getAuthorId(), postsCount, snapshot));
+            } else {
+                applyDelta(entry, event);
+            }
+        }
+    }
+
+    private void applyDelta(Entry entry, AuthorPublishedPostsChangedEvent event) {
+        if (!entry.countedIn().covers(event.getTransactionId())) {
+            put(new Entry(entry.authorId(), Math.max(0, entry.postsCount() + event.getDelta()), entry.countedIn()));
+        }
+    }
+
+    private List<Long> topIds(int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (Entry entry : ranking) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            ids.add(entry.authorId());
+        }
+        return ids;
+    }
+
+    private void put(Entry entry) {
+        Entry previous = entriesByAuthor.remove(entry.authorId());
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        if (entry.postsCount() <= 0) {
+            return;
+        }
+        ranking.add(entry);
+        entriesByAuthor.put(entry.authorId(), entry);
+        if (ranking.size() > capacity) {
+            Entry evicted = ranking.pollLast();
+            entriesByAuthor.remove(evicted.authorId());
+        }
+    }
+
+    private record Entry(long authorId, long postsCount, Snapshot countedIn) {
+    }
+
+    /**
+     * Снимок БД (pg_current_snapshot, "xmin:xmax:xip,..."), в котором посчитана запись
+     */
+    private record Snapshot(long xmin, long xmax, Set<Long> inProgress) {
+
+        static Snapshot parse(String value) {
+            String[] parts = value.split(":", -1);
+            Set<Long> inProgress = new HashSet<>();
+            if (!parts[2].isEmpty()) {
+                for (String xid : parts[2].split(",")) {
+                    inProgress.add(Long.parseLong(xid));
+                }
+            }
+            return new Snapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+        }
+
+        /**
+         * Видна ли снимку закоммиченная транзакция xid
+         */
+        boolean covers(long xid) {
+            return xid < xmin || (xid < xmax && !inProgress.contains(xid));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.blogtestapp.service;
+
+import lombok.Value;
+
+/**
+ * Событие изменения количества опубликованных постов автора (публикация, снятие с публикации, удаление)
+ */
+@Value
+public class AuthorPublishedPostsChangedEvent {
+
+    Long authorId;
+
+    /**
+     * +1 — пост опубликован, -1 — пост снят с публикации или удалён
+     */
+    int delta;
+
+    /**
+     * Транзакция изменения (pg_current_xact_id): по ней рейтинг пропускает события, уже учтённые в его снимке
+     */
+    long transactionId;
+}
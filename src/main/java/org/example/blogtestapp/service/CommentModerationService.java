@@ -0,0 +1,133 @@
+package org.example.blogtestapp.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.CommentModerationProperties;
+import org.example.blogtestapp.dto.CommentModerationResponse;
+import org.example.blogtestapp.dto.ModerateCommentsRequest;
+import org.example.blogtestapp.dto.ModerateCommentsRequest.Action;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетная модерация комментариев
+ * Подходящие комментарии меняются пачками по chunkSize одним UPDATE на пачку, каждая пачка —
+ * отдельная короткая транзакция, поэтому зачистка тысяч комментариев не держит блокировки
+ * на всём наборе. Счётчики комментариев постов корректирует триггер уровня оператора
+ * (post_comment_counts) — по одной строке на пост за пачку.
+ */
+@Service
+@Slf4j
+public class CommentModerationService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final UserReferenceCache userReferenceCache;
+    private final CommentModerationProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public CommentModerationService(UserReferenceCache userReferenceCache,
+                                    CommentModerationProperties properties,
+                                    PlatformTransactionManager transactionManager) {
+        this.userReferenceCache = userReferenceCache;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Применить действие модерации ко всем комментариям, подходящим под условия запроса
+     *
+     * @throws IllegalArgumentException если не задано ни одного условия или автор не найден
+     */
+    public CommentModerationResponse moderate(ModerateCommentsRequest request) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        conditions.add(statePredicate(request.getAction()));
+        if (request.getCommentIds() != null && !request.getCommentIds().isEmpty()) {
+            conditions.add("id IN (:commentIds)");
+            parameters.put("commentIds", request.getCommentIds());
+        }
+        if (request.getAuthorUsername() != null) {
+            Long authorId = userReferenceCache.find(request.getAuthorUsername())
+                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + request.getAuthorUsername()))
+                    .getId();
+            conditions.add("author_id = :authorId");
+            parameters.put("authorId", authorId);
+        }
+        if (request.getPostId() != null) {
+            conditions.add("post_id = :postId");
+            parameters.put("postId", request.getPostId());
+        }
+        if (request.getFrom() != null) {
+            conditions.add("created_at >= :from");
+            parameters.put("from", request.getFrom());
+        }
+        if (request.getTo() != null) {
+            conditions.add("created_at < :to");
+            parameters.put("to", request.getTo());
+        }
+        if (parameters.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "At least one of commentIds, authorUsername, postId, from or to is required");
+        }
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("From must be before to");
+        }
+
+        // Состояние проверяется и во внешнем WHERE: строку, изменённую параллельно после выбора пачки,
+        // UPDATE перепроверит и пропустит
+        String sql = "UPDATE comments SET " + assignment(request.getAction()) + ", updated_at = CURRENT_TIMESTAMP " +
+                     "WHERE id IN (SELECT id FROM comments WHERE " + String.join(" AND ", conditions) +
+                     " LIMIT :chunkSize) AND " + statePredicate(request.getAction());
+        parameters.put("chunkSize", properties.getChunkSize());
+
+        long affected = 0;
+        int batches = 0;
+        // Неполная пачка не означает конец: строки пачки, изменённые параллельно, внешний WHERE пропускает.
+        // Подходящих комментариев больше нет, только когда пачка не изменила ни одной строки
+        int updated;
+        while ((updated = transactionTemplate.execute(status -> {
+            Query update = entityManager.createNativeQuery(sql);
+            parameters.forEach(update::setParameter);
+            return update.executeUpdate();
+        })) > 0) {
+            affected += updated;
+            batches++;
+        }
+
+        log.info("Comment moderation {} affected {} comments in {} batches", request.getAction(), affected, batches);
+        return CommentModerationResponse.builder()
+                .action(request.getAction())
+                .affectedCount(affected)
+                .batches(batches)
+                .build();
+    }
+
+    /**
+     * Состояние, в котором комментарий подлежит действию; совпадает с условием частичного индекса
+     */
+    private static String statePredicate(Action action) {
+        return switch (action) {
+            case APPROVE, REJECT -> "is_approved = false AND is_deleted = false";
+            case DELETE -> "is_deleted = false";
+        };
+    }
+
+    private static String assignment(Action action) {
+        return switch (action) {
+            case APPROVE -> "is_approved = true";
+            case REJECT, DELETE -> "is_deleted = true";
+        };
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.CommentResponse;
+import org.example.blogtestapp.dto.CreateCommentRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.UserReference;
+import org.example.blogtestapp.entity.Comment;
+import org.example.blogtestapp.entity.Post;
+import org.example.blogtestapp.entity.User;
+import org.example.blogtestapp.repository.CommentRepository;
+import org.example.blogtestapp.repository.PostRepository;
+import org.example.blogtestapp.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис для работы с комментариями
+ * Ветки читаются по материализованному пути (comments.path): страница корневых комментариев вместе
+ * со всеми ответами — это один диапазон индекса (post_id, path), поэтому число запросов не зависит
+ * от глубины и размера ветки.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class CommentService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Предельная глубина ответа: путь из MAX_DEPTH + 1 сегментов остаётся в пределах размера ключа индекса
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private static final int PATH_SEGMENT_LENGTH = 16;
+
+    /**
+     * Граница диапазона поддерева: '/' следует сразу за разделителем '.'
+     */
+    private static final String SUBTREE_END = "/";
+
+    private final CommentRepository commentRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final UserReferenceCache userReferenceCache;
+
+    /**
+     * Добавить комментарий к посту или ответ на комментарий
+     */
+    public CommentResponse createComment(Long postId, CreateCommentRequest request, String authorUsername) {
+        UserReference authorReference = userReferenceCache.getActive(authorUsername);
+        Post post = postRepository.findById(postId)
+                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
+
+        Comment parent = null;
+        int depth = 0;
+        if (request.getParentCommentId() != null) {
+            parent = commentRepository.findById(request.getParentCommentId())
+                    .filter(comment -> comment.getPost().getId().equals(postId))
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Parent comment not found in post " + postId + ": " + request.getParentCommentId()));
+            depth = depthOf(parent.getPath()) + 1;
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Comment thread is too deep, max depth is " + MAX_DEPTH);
+            }
+        }
+
+        User author = userRepository.getReferenceById(authorReference.getId());
+        Comment saved = commentRepository.save(Comment.builder()
+                .content(request.getContent())
+                .author(author)
+                .post(post)
+                .parentComment(parent)
+                .build());
+        log.info("Comment {} created for post {} by user {}", saved.getId(), postId, authorUsername);
+
+        return CommentResponse.builder()
+                .id(saved.getId())
+                .postId(postId)
+                .parentCommentId(parent != null ? parent.getId() : null)
+                .depth(depth)
+                .content(saved.getContent())
+                .authorUsername(authorUsername)
+                // Имя из кэша ссылок: author — прокси getReferenceById, его инициализация стоила бы SELECT из users
+                .authorDisplayName(authorReference.getDisplayName())
+                .approved(saved.getIsApproved())
+                .deleted(false)
+                .removed(false)
+                .createdAt(saved.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Получить страницу ветки обсуждения поста: size корневых комментариев после after со всеми ответами
+     *
+     * @param after id последнего корневого комментария предыдущей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommentResponse> getThread(Long postId, Long after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<String> rootPaths = commentRepository.findRootPaths(postId, after != null ? segment(after) : "", size + 1);
+        boolean hasMore = rootPaths.size() > size;
+        List<String> pageRoots = hasMore ? rootPaths.subList(0, size) : rootPaths;
+        if (pageRoots.isEmpty()) {
+            return CursorPageResponse.<CommentResponse>builder()
+                    .items(List.of())
+                    .hasMore(false)
+                    .build();
+        }
+        // Корни страницы идут подряд в порядке путей, поэтому их поддеревья — один непрерывный диапазон
+        List<CommentResponse> roots = buildTree(postId, commentRepository.findThreadRange(
+                postId, pageRoots.get(0), pageRoots.get(pageRoots.size() - 1) + SUBTREE_END));
+        String lastRoot = pageRoots.get(pageRoots.size() - 1);
+        return CursorPageResponse.<CommentResponse>builder()
+                .items(roots)
+                .nextCursor(hasMore ? String.valueOf(Long.parseLong(lastRoot, 16)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Получить комментарий со всеми ответами
+     */
+    @Transactional(readOnly = true)
+    public CommentResponse getSubtree(Long postId, Long commentId) {
+        Comment comment = commentRepository.findById(commentId)
+                .filter(found -> found.getPost().getId().equals(postId))
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Comment not found in post " + postId + ": " + commentId));
+        List<CommentResponse> roots = buildTree(postId, commentRepository.findThreadRange(
+                postId, comment.getPath(), comment.getPath() + SUBTREE_END));
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("Comment not found in post " + postId + ": " + commentId);
+        }
+        return roots.get(0);
+    }
+
+    /**
+     * Получить все комментарии поста, включая неодобренные и удалённые (для модерации)
+     *
+     * @param after курсор "createdAt_id" последнего комментария предыдущей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommentResponse> getPostComments(Long postId, String after, int size) {
+        return page(after, size, (cursor, limit) ->
+                commentRepository.findPostComments(postId, cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Получить неудалённые комментарии автора
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommentResponse> getAuthorComments(String username, String after, int size) {
+        UserReference author = userReferenceCache.find(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+        return page(after, size, (cursor, limit) ->
+                commentRepository.findAuthorComments(author.getId(), cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Получить последние одобренные комментарии
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommentResponse> getRecentComments(String after, int size) {
+        return page(after, size, (cursor, limit) ->
+                commentRepository.findRecentComments(cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Получить комментарии, ожидающие модерации
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommentResponse> getPendingComments(String after, int size) {
+        return page(after, size, (cursor, limit) ->
+                commentRepository.findPendingComments(cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Keyset-страница по (createdAt, id) в порядке убывания: LIMIT применяется в БД,
+     * лишняя (size + 1)-я запись только показывает, есть ли следующая страница
+     */
+    private CursorPageResponse<CommentResponse> page(String after, int size,
+                                                     BiFunction<KeysetCursor, Integer, List<Object[]>> query) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<CommentResponse> comments = query.apply(KeysetCursor.parse(after), size + 1).stream()
+                .map(CommentService::mapToListedComment)
+                .collect(Collectors.toList());
+
+        boolean hasMore = comments.size() > size;
+        List<CommentResponse> pageComments = hasMore ? comments.subList(0, size) : comments;
+        CommentResponse last = hasMore ? pageComments.get(pageComments.size() - 1) : null;
+        String nextCursor = last != null ? new KeysetCursor(last.getCreatedAt(), last.getId()).toString() : null;
+
+        return CursorPageResponse.<CommentResponse>builder()
+                .items(pageComments)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Маппинг строки LISTING_COLUMNS: в плоском списке текст и автор не скрываются
+     */
+    private static CommentResponse mapToListedComment(Object[] row) {
+        return CommentResponse.builder()
+                .id(((Number) row[0]).longValue())
+                .postId(((Number) row[9]).longValue())
+                .parentCommentId(row[1] != null ? ((Number) row[1]).longValue() : null)
+                .depth(depthOf((String) row[2]))
+                .content((String) row[3])
+                .approved((Boolean) row[4])
+                .deleted((Boolean) row[5])
+                .removed(false)
+                .createdAt(toLocalDateTime(row[6]))
+                .authorUsername((String) row[7])
+                .authorDisplayName((String) row[8])
+                .build();
+    }
+
+    /**
+     * Собрать дерево из строк в порядке путей: родитель всегда встречается раньше своих ответов
+     * Скрытые (удалённые или неодобренные) комментарии без видимых ответов отбрасываются,
+     * с видимыми ответами — остаются без текста и автора
+     */
+    private List<CommentResponse> buildTree(Long postId, List<Object[]> rows) {
+        List<CommentResponse> ordered = new ArrayList<>(rows.size());
+        Map<Long, CommentResponse> byId = new HashMap<>();
+        List<CommentResponse> roots = new ArrayList<>();
+        for (Object[] row : rows) {
+            CommentResponse comment = mapToCommentResponse(postId, row);
+            CommentResponse parent = comment.getParentCommentId() != null ? byId.get(comment.getParentCommentId()) : null;
+            if (parent != null) {
+                parent.getReplies().add(comment);
+            } else {
+                roots.add(comment);
+            }
+            byId.put(comment.getId(), comment);
+            ordered.add(comment);
+        }
+        // Обратный порядок обхода: ответы обрабатываются раньше родителей
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            CommentResponse comment = ordered.get(i);
+            if (comment.getRemoved() && comment.getReplies().isEmpty()) {
+                CommentResponse parent = comment.getParentCommentId() != null ? byId.get(comment.getParentCommentId()) : null;
+                (parent != null ? parent.getReplies() : roots).removeIf(reply -> reply == comment);
+            }
+        }
+        return roots;
+    }
+
+    private static CommentResponse mapToCommentResponse(Long postId, Object[] row) {
+        boolean visible = Boolean.TRUE.equals(row[4]) && !Boolean.TRUE.equals(row[5]);
+        return CommentResponse.builder()
+                .id(((Number) row[0]).longValue())
+                .postId(postId)
+                .parentCommentId(row[1] != null ? ((Number) row[1]).longValue() : null)
+                .depth(depthOf((String) row[2]))
+                .content(visible ? (String) row[3] : null)
+                .approved(Boolean.TRUE.equals(row[4]))
+                .deleted(Boolean.TRUE.equals(row[5]))
+                .removed(!visible)
+                .createdAt(toLocalDateTime(row[6]))
+                .authorUsername(visible ? (String) row[7] : null)
+                .authorDisplayName(visible ? (String) row[8] : null)
+                .build();
+    }
+
+    private static int depthOf(String path) {
+        return (path.length() - PATH_SEGMENT_LENGTH) / (PATH_SEGMENT_LENGTH + 1);
+    }
+
+    private static String segment(long commentId) {
+        String hex = Long.toHexString(commentId);
+        return "0".repeat(PATH_SEGMENT_LENGTH - hex.length()) + hex;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.blogtestapp.service;
+
+import lombok.Getter;
+
+/**
+ * Нарушение уникальности поля (например, username или email уже заняты)
+ */
+@Getter
+public class DuplicateFieldException extends IllegalArgumentException {
+
+    private final String field;
+
+    public DuplicateFieldException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.blogtestapp.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Позиция keyset-пагинации по (время, id): время и id последней строки предыдущей страницы,
+ * передаётся клиенту строкой "время_id"
+ */
+record KeysetCursor(LocalDateTime timestamp, Long id) {
+
+    /**
+     * Курсор первой страницы в порядке убывания: левее любой реальной строки
+     */
+    static final KeysetCursor FIRST = new KeysetCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    /**
+     * Курсор первой страницы в порядке возрастания: раньше любой реальной строки
+     */
+    static final KeysetCursor EARLIEST = new KeysetCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    /**
+     * Разобрать курсор клиента; пустой курсор — первая страница в порядке убывания
+     */
+    static KeysetCursor parse(String value) {
+        return parse(value, FIRST);
+    }
+
+    static KeysetCursor parse(String value, KeysetCursor initial) {
+        if (value == null || value.isBlank()) {
+            return initial;
+        }
+        int separator = value.lastIndexOf('_');
+        try {
+            return new KeysetCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + "_" + id;
+    }
+}
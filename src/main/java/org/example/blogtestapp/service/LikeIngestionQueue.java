@@ -0,0 +1,183 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.LikeIngestionProperties;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь записи лайков с микро-пакетами
+ * Один поток забирает всё, что накопилось за время записи предыдущей пачки, схлопывает изменения
+ * одной пары (пользователь, пост) до последнего и записывает пачку одним INSERT ... ON CONFLICT.
+ * Под нагрузкой лайки вирусного поста пишутся одной транзакцией вместо сотен конкурирующих
+ * (каждая из которых блокировала бы строку поста FOR KEY SHARE при проверке внешнего ключа);
+ * в простое пачка состоит из одного изменения и записывается без ожидания.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikeIngestionQueue implements SmartLifecycle {
+
+    /**
+     * Строки вставляются в порядке уникального ключа, поэтому пачки не взаимоблокируются с другими записями.
+     * Повторная установка лайка обновляет created_at — время лайка; неизменившиеся строки не переписываются.
+     * Пост или пользователь, удалённые после постановки в очередь, пропускаются вместо ошибки внешнего ключа.
+     */
+    private static final String UPSERT_SQL =
+            "INSERT INTO likes (user_id, post_id, is_active) " +
+            "SELECT e.user_id, e.post_id, e.is_active " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::boolean[]) AS e(user_id, post_id, is_active) " +
+            "WHERE EXISTS (SELECT 1 FROM posts p WHERE p.id = e.post_id) " +
+            "AND EXISTS (SELECT 1 FROM users u WHERE u.id = e.user_id) " +
+            "ORDER BY e.user_id, e.post_id " +
+            "ON CONFLICT (user_id, post_id) DO UPDATE SET " +
+            "is_active = EXCLUDED.is_active, " +
+            "created_at = CASE WHEN EXCLUDED.is_active THEN CURRENT_TIMESTAMP ELSE likes.created_at END, " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE likes.is_active IS DISTINCT FROM EXCLUDED.is_active";
+
+    private final DataSource dataSource;
+    private final LikeIngestionProperties properties;
+    private final LikedPostsCache likedPostsCache;
+
+    private BlockingQueue<LikeEvent> queue;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @Override
+    public void start() {
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        running = true;
+        writerThread = new Thread(this::writeLoop, "like-ingestion");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            try {
+                writerThread.join(properties.getWriteTimeout().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Не успевшие записаться за writeTimeout изменения не теряются молча: ожидающие запросы получают ошибку
+        List<LikeEvent> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Like ingestion stopped with {} unwritten like changes", abandoned.size());
+            RejectedExecutionException error = new RejectedExecutionException("Like ingestion queue is stopped");
+            abandoned.forEach(event -> event.completion().completeExceptionally(error));
+        }
+    }
+
+    /**
+     * Очередь останавливается после веб-сервера: запросы, завершающиеся при graceful shutdown,
+     * ещё успевают поставить и дождаться записи своих лайков
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Поставить изменение лайка в очередь
+     *
+     * @return future, завершающееся после коммита пачки с этим изменением
+     * @throws RejectedExecutionException если очередь переполнена или остановлена
+     */
+    public CompletableFuture<Void> submit(Long userId, Long postId, boolean active) {
+        LikeEvent event = new LikeEvent(userId, postId, active, new CompletableFuture<>());
+        if (!running) {
+            throw new RejectedExecutionException("Like ingestion queue is stopped");
+        }
+        if (!queue.offer(event)) {
+            throw new RejectedExecutionException("Like ingestion queue is full");
+        }
+        return event.completion();
+    }
+
+    private void writeLoop() {
+        List<LikeEvent> events = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                LikeEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                events.add(first);
+                queue.drainTo(events, properties.getBatchSize() - 1);
+                write(events);
+            } catch (InterruptedException e) {
+                // Остановка: оставшиеся в очереди изменения записываются без ожидания
+                running = false;
+            } finally {
+                events.clear();
+            }
+        }
+    }
+
+    private void write(List<LikeEvent> events) {
+        // Последнее изменение пары побеждает: INSERT ... ON CONFLICT не может изменить строку дважды
+        Map<LikeKey, Boolean> latest = new LinkedHashMap<>();
+        for (LikeEvent event : events) {
+            latest.put(new LikeKey(event.userId(), event.postId()), event.active());
+        }
+        List<Map.Entry<LikeKey, Boolean>> changes = new ArrayList<>(latest.entrySet());
+        changes.sort(Map.Entry.comparingByKey(Comparator.comparing(LikeKey::userId).thenComparing(LikeKey::postId)));
+        Long[] userIds = new Long[changes.size()];
+        Long[] postIds = new Long[changes.size()];
+        Boolean[] active = new Boolean[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            userIds[i] = changes.get(i).getKey().userId();
+            postIds[i] = changes.get(i).getKey().postId();
+            active[i] = changes.get(i).getValue();
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement upsert = connection.prepareStatement(UPSERT_SQL)) {
+            upsert.setArray(1, connection.createArrayOf("bigint", userIds));
+            upsert.setArray(2, connection.createArrayOf("bigint", postIds));
+            upsert.setArray(3, connection.createArrayOf("boolean", active));
+            int written = upsert.executeUpdate();
+            log.debug("Wrote {} like changes ({} events, {} rows changed)", changes.size(), events.size(), written);
+            changes.forEach(change -> likedPostsCache.apply(change.getKey().userId(), change.getKey().postId(),
+                    change.getValue()));
+            events.forEach(event -> event.completion().complete(null));
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Failed to write {} like changes: {}", changes.size(), e.getMessage());
+            events.forEach(event -> event.completion().completeExceptionally(e));
+        }
+    }
+
+    private record LikeKey(Long userId, Long postId) {
+    }
+
+    private record LikeEvent(Long userId, Long postId, boolean active, CompletableFuture<Void> completion) {
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.LikeIngestionProperties;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.LikedPostResponse;
+import org.example.blogtestapp.dto.LikedStateResponse;
+import org.example.blogtestapp.dto.LikerResponse;
+import org.example.blogtestapp.dto.MostLikedPostResponse;
+import org.example.blogtestapp.dto.UserReference;
+import org.example.blogtestapp.repository.LikeRepository;
+import org.example.blogtestapp.repository.PostRepository;
+import org.example.blogtestapp.repository.UserRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис для работы с лайками
+ * Лайк и его снятие идемпотентны: запись — upsert строки (user_id, post_id) через {@link LikeIngestionQueue}
+ * без предварительного чтения лайка; запрос возвращается после коммита пачки с его изменением.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LikeService {
+
+    private static final int MAX_LIKED_STATE_POSTS = 200;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_MOST_LIKED_LIMIT = 100;
+
+    /**
+     * Корзины хранятся на сутки дольше самого длинного окна, которое по ним считается
+     */
+    private static final int HOURLY_BUCKET_RETENTION_HOURS = MostLikedPostResponse.Window.DAY.getHours() + 24;
+    private static final int DAILY_BUCKET_RETENTION_DAYS = MostLikedPostResponse.Window.MONTH.getDays() + 1;
+
+    private final LikeIngestionQueue likeIngestionQueue;
+    private final LikeIngestionProperties properties;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final LikeRepository likeRepository;
+    private final UserReferenceCache userReferenceCache;
+    private final LikedPostsCache likedPostsCache;
+    private final SchedulerLeaderElection leaderElection;
+
+    /**
+     * Поставить лайк посту
+     */
+    public void like(Long postId, String username) {
+        write(postId, username, true);
+    }
+
+    /**
+     * Снять лайк с поста
+     */
+    public void unlike(Long postId, String username) {
+        write(postId, username, false);
+    }
+
+    /**
+     * Какие посты страницы лайкнул пользователь: ответ из кэша лайкнутых постов без запроса на каждый пост
+     */
+    public LikedStateResponse getLikedState(String username, List<Long> postIds) {
+        if (postIds.isEmpty() || postIds.size() > MAX_LIKED_STATE_POSTS) {
+            throw new IllegalArgumentException("Post ids count must be between 1 and " + MAX_LIKED_STATE_POSTS);
+        }
+        UserReference user = userReferenceCache.find(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+        Set<Long> liked = likedPostsCache.findLiked(user.getId(), postIds);
+        Map<Long, Boolean> state = new LinkedHashMap<>();
+        postIds.forEach(postId -> state.put(postId, liked.contains(postId)));
+        return LikedStateResponse.builder()
+                .liked(state)
+                .build();
+    }
+
+    /**
+     * Получить пользователей, лайкнувших пост, новые лайки первыми
+     *
+     * @param after курсор "likedAt_likeId" последней записи предыдущей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<LikerResponse> getLikers(Long postId, String after, int size) {
+        if (!postRepository.existsByIdAndIsPublishedTrue(postId)) {
+            throw new IllegalArgumentException("Published post not found with ID: " + postId);
+        }
+        return page(after, size,
+                (cursor, limit) -> likeRepository.findLikers(postId, cursor.timestamp(), cursor.id(), limit),
+                row -> LikerResponse.builder()
+                        .userId(((Number) row[2]).longValue())
+                        .username((String) row[3])
+                        .displayName((String) row[4])
+                        .likedAt(toLocalDateTime(row[1]))
+                        .build());
+    }
+
+    /**
+     * Получить опубликованные посты, лайкнутые пользователем, новые лайки первыми
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<LikedPostResponse> getLikedPosts(Long userId, String after, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found with ID: " + userId);
+        }
+        return page(after, size,
+                (cursor, limit) -> likeRepository.findLikedPosts(userId, cursor.timestamp(), cursor.id(), limit),
+                row -> LikedPostResponse.builder()
+                        .postId(((Number) row[2]).longValue())
+                        .title((String) row[3])
+                        .authorUsername((String) row[4])
+                        .likedAt(toLocalDateTime(row[1]))
+                        .build());
+    }
+
+    /**
+     * Получить самые лайкаемые посты за период
+     * Окно 24h считается по часовым корзинам post_like_hourly, 7d и 30d — по дневным post_like_daily
+     * (не больше 30 строк на пост вместо всех лайков), всё время — по итогам post_like_totals
+     */
+    @Transactional(readOnly = true)
+    public List<MostLikedPostResponse> getMostLikedPosts(String window, int limit) {
+        if (limit < 1 || limit > MAX_MOST_LIKED_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_MOST_LIKED_LIMIT);
+        }
+        MostLikedPostResponse.Window likeWindow = MostLikedPostResponse.Window.fromLabel(window);
+        List<Object[]> rows;
+        if (likeWindow.getHours() != null) {
+            rows = likeRepository.findMostLikedPostsSince(likeWindow.getHours(), limit);
+        } else if (likeWindow.getDays() != null) {
+            rows = likeRepository.findMostLikedPostsSinceDays(likeWindow.getDays(), limit);
+        } else {
+            rows = likeRepository.findMostLikedPosts(limit);
+        }
+        return rows.stream()
+                .map(row -> MostLikedPostResponse.builder()
+                        .postId(((Number) row[0]).longValue())
+                        .title((String) row[1])
+                        .authorUsername((String) row[2])
+                        .likesCount(((Number) row[3]).longValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Удалить часовые и дневные корзины, вышедшие за окна рейтинга, которые по ним считаются
+     */
+    @Scheduled(fixedDelayString = "${app.likes.buckets.purge-interval-ms:3600000}",
+            initialDelayString = "${app.likes.buckets.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpiredLikeBuckets() {
+        if (!leaderElection.isLeader()) {
+            return;
+        }
+        int deleted = likeRepository.deleteHourlyBucketsOlderThan(HOURLY_BUCKET_RETENTION_HOURS)
+                + likeRepository.deleteDailyBucketsOlderThan(DAILY_BUCKET_RETENTION_DAYS);
+        if (deleted > 0) {
+            log.info("Purged {} expired post like buckets", deleted);
+        }
+    }
+
+    private void write(Long postId, String username, boolean active) {
+        UserReference user = userReferenceCache.getActive(username);
+        if (!postRepository.existsByIdAndIsPublishedTrue(postId)) {
+            throw new IllegalArgumentException("Published post not found with ID: " + postId);
+        }
+        try {
+            likeIngestionQueue.submit(user.getId(), postId, active)
+                    .get(properties.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing like", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to write like for post " + postId, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out writing like for post " + postId, e);
+        }
+    }
+
+    /**
+     * Keyset-страница по (created_at, id лайка) в порядке убывания: LIMIT применяется в БД,
+     * лишняя (size + 1)-я строка только показывает, есть ли следующая страница.
+     * Первые два столбца строки — id и время лайка.
+     */
+    private static <T> CursorPageResponse<T> page(String after, int size,
+                                                  BiFunction<KeysetCursor, Integer, List<Object[]>> query,
+                                                  Function<Object[], T> mapper) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<Object[]> rows = query.apply(KeysetCursor.parse(after), size + 1);
+        boolean hasMore = rows.size() > size;
+        List<Object[]> pageRows = hasMore ? rows.subList(0, size) : rows;
+        Object[] last = hasMore ? pageRows.get(pageRows.size() - 1) : null;
+
+        return CursorPageResponse.<T>builder()
+                .items(pageRows.stream().map(mapper).collect(Collectors.toList()))
+                .nextCursor(last != null
+                        ? new KeysetCursor(toLocalDateTime(last[1]), ((Number) last[0]).longValue()).toString()
+                        : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.blogtestapp.service;
+
+import java.util.Arrays;
+
+/**
+ * Компактное множество id лайкнутых постов по схеме Roaring
+ * Id делится на старшие биты (ключ контейнера) и младшие 16 бит. Контейнер хранит младшие биты
+ * отсортированным массивом char (2 байта на пост), а при заполнении больше {@link #ARRAY_LIMIT} —
+ * битовой картой на 8 КБ. Id постов последовательны, поэтому лайки одного пользователя
+ * занимают немного контейнеров и стоят около 2 байт на лайк вместо десятков в HashSet&lt;Long&gt;.
+ * Не потокобезопасно: доступ синхронизирует {@link LikedPostsCache}.
+ */
+final class LikedPostSet {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private long[] keys = new long[0];
+    private Object[] containers = new Object[0];
+    private int[] cardinalities = new int[0];
+    private int size;
+
+    /**
+     * Построить множество из id в порядке возрастания
+     */
+    static LikedPostSet ofSorted(Iterable<Long> postIds) {
+        LikedPostSet set = new LikedPostSet();
+        for (Long postId : postIds) {
+            set.add(postId);
+        }
+        return set;
+    }
+
+    boolean contains(long postId) {
+        int index = Arrays.binarySearch(keys, 0, size, postId >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) postId;
+        Object container = containers[index];
+        return container instanceof char[] values
+                ? Arrays.binarySearch(values, 0, cardinalities[index], low) >= 0
+                : (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    void add(long postId) {
+        long key = postId >>> 16;
+        char low = (char) postId;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key);
+        }
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof char[] values) {
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position >= 0) {
+                return;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                long[] bitmap = toBitmap(values, cardinality);
+                bitmap[low >>> 6] |= 1L << low;
+                containers[index] = bitmap;
+            } else {
+                position = -position - 1;
+                if (cardinality == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+                    containers[index] = values;
+                }
+                System.arraycopy(values, position, values, position + 1, cardinality - position);
+                values[position] = low;
+            }
+        } else {
+            long[] bitmap = (long[]) container;
+            if ((bitmap[low >>> 6] & (1L << low)) != 0) {
+                return;
+            }
+            bitmap[low >>> 6] |= 1L << low;
+        }
+        cardinalities[index] = cardinality + 1;
+    }
+
+    void remove(long postId) {
+        int index = Arrays.binarySearch(keys, 0, size, postId >>> 16);
+        if (index < 0) {
+            return;
+        }
+        char low = (char) postId;
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof char[] values) {
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+        } else {
+            long[] bitmap = (long[]) container;
+            if ((bitmap[low >>> 6] & (1L << low)) == 0) {
+                return;
+            }
+            bitmap[low >>> 6] &= ~(1L << low);
+            if (cardinality - 1 <= ARRAY_LIMIT / 2) {
+                containers[index] = toArray(bitmap, cardinality - 1);
+            }
+        }
+        cardinalities[index] = cardinality - 1;
+        if (cardinality == 1) {
+            removeContainer(index);
+        }
+    }
+
+    private void insertContainer(int index, long key) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = new char[4];
+        cardinalities[index] = 0;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private static long[] toBitmap(char[] values, int cardinality) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            bitmap[values[i] >>> 6] |= 1L << values[i];
+        }
+        return bitmap;
+    }
+
+    private static char[] toArray(long[] bitmap, int cardinality) {
+        char[] values = new char[cardinality];
+        int position = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                values[position++] = (char) (word * 64 + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.blogtestapp.service;
+
+import org.example.blogtestapp.config.LikedStateCacheProperties;
+import org.example.blogtestapp.repository.LikeRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ограниченный LRU-кэш userId -> множество лайкнутых постов ({@link LikedPostSet})
+ * При промахе множество загружается одним index-only scan по idx_likes_user_active_post.
+ * Лайки, записанные этой репликой, применяются к кэшу после коммита ({@link LikeIngestionQueue});
+ * изменения, пришедшие во время загрузки, применяются поверх загруженного множества.
+ * Лайки других реплик видны по истечении TTL.
+ */
+@Component
+public class LikedPostsCache {
+
+    private final LikeRepository likeRepository;
+    private final LikedStateCacheProperties properties;
+    private final Map<Long, CachedSet> cache;
+
+    /**
+     * Изменения пользователей, чьё множество сейчас загружается
+     */
+    private final Map<Long, List<Change>> loading = new HashMap<>();
+
+    public LikedPostsCache(LikeRepository likeRepository, LikedStateCacheProperties properties) {
+        this.likeRepository = likeRepository;
+        this.properties = properties;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedSet> eldest) {
+                return size() > properties.getMaxUsers();
+            }
+        };
+    }
+
+    /**
+     * Какие из постов лайкнул пользователь
+     */
+    public Set<Long> findLiked(Long userId, Collection<Long> postIds) {
+        boolean load;
+        synchronized (cache) {
+            CachedSet cached = cache.get(userId);
+            if (cached != null && System.nanoTime() - cached.loadedAtNanos() < properties.getTtl().toNanos()) {
+                return cached.postIds() != null
+                        ? filter(cached.postIds(), postIds)
+                        : findLikedAmong(userId, postIds);
+            }
+            load = loading.putIfAbsent(userId, new ArrayList<>()) == null;
+        }
+        if (!load) {
+            // Множество уже загружает другой запрос
+            return findLikedAmong(userId, postIds);
+        }
+
+        List<Long> likedPostIds;
+        try {
+            likedPostIds = likeRepository.findActiveLikedPostIds(userId, properties.getMaxLikesPerUser() + 1);
+        } catch (RuntimeException e) {
+            synchronized (cache) {
+                loading.remove(userId);
+            }
+            throw e;
+        }
+        synchronized (cache) {
+            List<Change> changes = loading.remove(userId);
+            if (likedPostIds.size() > properties.getMaxLikesPerUser()) {
+                // Запоминается, что пользователь слишком велик для кэша, чтобы не загружать его снова
+                cache.put(userId, new CachedSet(null, System.nanoTime()));
+            } else {
+                LikedPostSet liked = LikedPostSet.ofSorted(likedPostIds);
+                // Повтор изменения, уже вошедшего в загруженный снимок, ничего не меняет
+                changes.forEach(change -> change.applyTo(liked));
+                cache.put(userId, new CachedSet(liked, System.nanoTime()));
+                return filter(liked, postIds);
+            }
+        }
+        return findLikedAmong(userId, postIds);
+    }
+
+    /**
+     * Применить закоммиченное изменение лайка
+     */
+    public void apply(Long userId, Long postId, boolean active) {
+        Change change = new Change(postId, active);
+        synchronized (cache) {
+            CachedSet cached = cache.get(userId);
+            if (cached != null && cached.postIds() != null) {
+                change.applyTo(cached.postIds());
+            }
+            List<Change> changes = loading.get(userId);
+            if (changes != null) {
+                changes.add(change);
+            }
+        }
+    }
+
+    private Set<Long> findLikedAmong(Long userId, Collection<Long> postIds) {
+        return new HashSet<>(likeRepository.findActiveLikedPostIdsAmong(userId, postIds));
+    }
+
+    private static Set<Long> filter(LikedPostSet likedPostIds, Collection<Long> postIds) {
+        Set<Long> liked = new HashSet<>();
+        for (Long postId : postIds) {
+            if (likedPostIds.contains(postId)) {
+                liked.add(postId);
+            }
+        }
+        return liked;
+    }
+
+    private record Change(Long postId, boolean active) {
+
+        void applyTo(LikedPostSet postIds) {
+            if (active) {
+                postIds.add(postId);
+            } else {
+                postIds.remove(postId);
+            }
+        }
+    }
+
+    /**
+     * @param postIds null, если у пользователя больше maxLikesPerUser лайков
+     */
+    private record CachedSet(LikedPostSet postIds, long loadedAtNanos) {
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.MaterializedViewRefreshProperties;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отслеживание изменений в таблицах, из которых строятся материализованные представления
+ * Слушает канал LISTEN/NOTIFY, в который statement-level триггеры пишут имя изменённой таблицы,
+ * и помечает устаревшими представления из реестра, построенные из этой таблицы.
+ * Уведомления об обновлениях, выполненных другими репликами, публикуются как {@link MaterializedViewRefreshedEvent}.
+ * Пока изменений нет, не выполняет ни одного запроса к БД.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MaterializedViewChangeTracker implements SmartLifecycle {
+
+    public static final String CHANNEL = "materialized_view_source_changed";
+    public static final String REFRESHED_CHANNEL = "materialized_view_refreshed";
+
+    private final DataSource dataSource;
+    private final MaterializedViewRefreshProperties properties;
+    private final MaterializedViewRegistry registry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, ViewFreshness> freshnessByView = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    /**
+     * Зарегистрировать изменение исходной таблицы: все представления, построенные из неё, устаревают
+     */
+    public void markSourceChanged(String table) {
+        for (MaterializedViewDefinition view : registry.findBySourceTable(table)) {
+            markDirty(view.getName(), table);
+        }
+    }
+
+    /**
+     * Пометить все представления устаревшими (например, после потери уведомлений)
+     */
+    public void markAllDirty(String source) {
+        for (MaterializedViewDefinition view : registry.getAll()) {
+            markDirty(view.getName(), source);
+        }
+    }
+
+    /**
+     * Пометить представление устаревшим
+     */
+    public void markDirty(String viewName, String source) {
+        freshness(viewName).markDirty();
+        log.trace("Materialized view {} is stale: {}", viewName, source);
+    }
+
+    /**
+     * Текущая версия изменений представления; фиксируется перед началом обновления
+     */
+    public long currentVersion(String viewName) {
+        return freshness(viewName).changeVersion.get();
+    }
+
+    /**
+     * Отметить успешное обновление, включившее все изменения до указанной версии
+     */
+    public void markRefreshed(String viewName, long version, Instant startedAt) {
+        freshness(viewName).markRefreshed(version, startedAt);
+    }
+
+    /**
+     * Полезная нагрузка уведомления об обновлении: свои уведомления слушатель пропускает
+     */
+    public String refreshedNotificationPayload(String viewName) {
+        return instanceId + ":" + viewName;
+    }
+
+    public ViewFreshness freshness(String viewName) {
+        return freshnessByView.computeIfAbsent(registry.get(viewName).getName(), name -> new ViewFreshness());
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Change-driven materialized view refresh is disabled");
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "mv-change-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Цикл получения уведомлений с переподключением при обрыве соединения
+     */
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                    statement.execute("LISTEN " + REFRESHED_CHANNEL);
+                }
+                log.info("Listening for materialized view source changes on channel {}", CHANNEL);
+
+                // Пока соединения не было, уведомления могли быть потеряны
+                markAllDirty("listener-connected");
+
+                int timeoutMs = (int) properties.getListenTimeout().toMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(timeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            if (REFRESHED_CHANNEL.equals(notification.getName())) {
+                                onRefreshedNotification(notification.getParameter());
+                            } else {
+                                markSourceChanged(notification.getParameter());
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Ошибка обработки уведомления не должна останавливать поток: переподключаемся так же, как при обрыве
+                if (!running) {
+                    return;
+                }
+                log.warn("Materialized view change listener disconnected: {}", e.getMessage());
+                try {
+                    Thread.sleep(properties.getReconnectDelay().toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Представление обновлено другой репликой или pg_cron (payload "источник:имя представления")
+     */
+    private void onRefreshedNotification(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0 || payload.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        String viewName = payload.substring(separator + 1);
+        if (registry.find(viewName).isPresent()) {
+            eventPublisher.publishEvent(new MaterializedViewRefreshedEvent(viewName, true));
+        }
+    }
+
+    /**
+     * Состояние свежести одного представления
+     */
+    public static class ViewFreshness {
+
+        private final AtomicLong changeVersion = new AtomicLong();
+        private final AtomicLong refreshedVersion = new AtomicLong();
+
+        private volatile Instant pendingSince;
+        private volatile Instant lastChangeAt;
+        private volatile Instant lastRefreshAt = Instant.now();
+
+        synchronized void markDirty() {
+            Instant now = Instant.now();
+            if (!isDirty()) {
+                pendingSince = now;
+            }
+            lastChangeAt = now;
+            changeVersion.incrementAndGet();
+        }
+
+        synchronized void markRefreshed(long version, Instant startedAt) {
+            refreshedVersion.accumulateAndGet(version, Math::max);
+            lastRefreshAt = startedAt;
+            // Изменения, пришедшие во время обновления, остаются ожидающими с момента его начала
+            pendingSince = isDirty() ? startedAt : null;
+        }
+
+        public boolean isDirty() {
+            return changeVersion.get() > refreshedVersion.get();
+        }
+
+        public long getPendingChanges() {
+            return Math.max(0, changeVersion.get() - refreshedVersion.get());
+        }
+
+        public Instant getPendingSince() {
+            return pendingSince;
+        }
+
+        public Instant getLastChangeAt() {
+            return lastChangeAt;
+        }
+
+        public Instant getLastRefreshAt() {
+            return lastRefreshAt;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.blogtestapp.service;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Описание материализованного представления для реестра
+ * Задаёт способ обновления, зависимости от других представлений, исходные таблицы и цель по свежести
+ */
+@Value
+@Builder
+public class MaterializedViewDefinition {
+
+    /**
+     * Способ обновления представления
+     */
+    public enum RefreshMode {
+        /**
+         * REFRESH ... CONCURRENTLY (не блокирует чтение, нужен уникальный индекс);
+         * при ошибке выполняется обычный REFRESH
+         */
+        CONCURRENTLY,
+        /**
+         * Обычный REFRESH с эксклюзивной блокировкой представления
+         */
+        BLOCKING
+    }
+
+    String name;
+
+    @Builder.Default
+    RefreshMode refreshMode = RefreshMode.CONCURRENTLY;
+
+    /**
+     * Представления, которые нужно обновить раньше этого
+     */
+    @Singular("dependsOn")
+    Set<String> dependsOn;
+
+    /**
+     * Таблицы, изменение которых делает представление устаревшим
+     */
+    @Singular
+    Set<String> sourceTables;
+
+    /**
+     * Максимально допустимое устаревание; null — значение по умолчанию из настроек
+     */
+    Duration freshnessTarget;
+
+    /**
+     * Имя джобы pg_cron, которая обновляет представление на уровне БД (если есть)
+     */
+    String databaseJobName;
+
+    /**
+     * SQL основного обновления
+     */
+    public String getRefreshSql() {
+        return refreshMode == RefreshMode.CONCURRENTLY
+                ? "REFRESH MATERIALIZED VIEW CONCURRENTLY " + name
+                : getFallbackRefreshSql();
+    }
+
+    /**
+     * SQL обновления без CONCURRENTLY (например, если представление ещё не заполнено)
+     */
+    public String getFallbackRefreshSql() {
+        return "REFRESH MATERIALIZED VIEW " + name;
+    }
+}
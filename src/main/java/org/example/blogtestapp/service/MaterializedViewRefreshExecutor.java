@@ -0,0 +1,266 @@
+package org.example.blogtestapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.MaterializedViewRefreshProperties;
+import org.example.blogtestapp.dto.MaterializedViewRefreshResponse;
+import org.example.blogtestapp.dto.MaterializedViewRefreshResponse.Status;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выполнение обновлений материализованных представлений
+ * Независимые представления обновляются параллельно на ограниченном пуле,
+ * зависимое представление стартует только после успешного обновления всех своих зависимостей.
+ */
+@Component
+@Slf4j
+public class MaterializedViewRefreshExecutor {
+
+    static final String PATH_CONCURRENT = "CONCURRENT";
+    static final String PATH_FALLBACK = "FALLBACK";
+    static final String PATH_BLOCKING = "BLOCKING";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final MaterializedViewRegistry registry;
+    private final MaterializedViewChangeTracker changeTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService pool;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<String, AtomicLong> lastRowCounts = new ConcurrentHashMap<>();
+    private final boolean exactRowCount;
+
+    public MaterializedViewRefreshExecutor(MaterializedViewRegistry registry,
+                                           MaterializedViewChangeTracker changeTracker,
+                                           PlatformTransactionManager transactionManager,
+                                           MaterializedViewRefreshProperties properties,
+                                           MeterRegistry meterRegistry,
+                                           ApplicationEventPublisher eventPublisher) {
+        this.registry = registry;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.changeTracker = changeTracker;
+        this.exactRowCount = properties.isExactRowCount();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "mv-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Обновить указанные представления с учётом зависимостей между ними
+     *
+     * @return результаты в порядке обновления
+     */
+    public List<MaterializedViewRefreshResponse> refresh(Collection<String> viewNames, String refreshType) {
+        Set<String> requested = new HashSet<>();
+        for (String viewName : viewNames) {
+            requested.add(registry.get(viewName).getName());
+        }
+
+        Map<String, CompletableFuture<MaterializedViewRefreshResponse>> futures = new LinkedHashMap<>();
+        for (MaterializedViewDefinition view : registry.getAll()) {
+            if (!requested.contains(view.getName())) {
+                continue;
+            }
+            List<CompletableFuture<MaterializedViewRefreshResponse>> dependencies = new ArrayList<>();
+            for (String dependency : view.getDependsOn()) {
+                if (futures.containsKey(dependency)) {
+                    dependencies.add(futures.get(dependency));
+                }
+            }
+            CompletableFuture<MaterializedViewRefreshResponse> future = CompletableFuture
+                    .allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenApplyAsync(ignored -> {
+                        for (CompletableFuture<MaterializedViewRefreshResponse> dependency : dependencies) {
+                            MaterializedViewRefreshResponse result = dependency.join();
+                            if (result.getStatus() != Status.REFRESHED) {
+                                return skipped(view, "dependency " + result.getViewName() + " was not refreshed");
+                            }
+                        }
+                        return refreshOne(view, refreshType);
+                    }, pool);
+            futures.put(view.getName(), future);
+        }
+
+        return futures.values().stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    /**
+     * Обновить одно представление и отметить зависимые как устаревшие
+     */
+    private MaterializedViewRefreshResponse refreshOne(MaterializedViewDefinition view, String refreshType) {
+        long version = changeTracker.currentVersion(view.getName());
+        Instant startedAt = Instant.now();
+        long startTime = System.nanoTime();
+        String refreshPath = view.getRefreshMode() == MaterializedViewDefinition.RefreshMode.CONCURRENTLY
+                ? PATH_CONCURRENT : PATH_BLOCKING;
+        Long rowCount;
+        try {
+            try {
+                rowCount = refreshAndCount(view, view.getRefreshSql());
+            } catch (RuntimeException e) {
+                if (view.getRefreshMode() != MaterializedViewDefinition.RefreshMode.CONCURRENTLY) {
+                    throw e;
+                }
+                // Например, представление ещё ни разу не заполнялось
+                log.warn("Concurrent refresh of {} failed, falling back to blocking refresh: {}",
+                        view.getName(), e.getMessage());
+                refreshPath = PATH_FALLBACK;
+                rowCount = refreshAndCount(view, view.getFallbackRefreshSql());
+            }
+        } catch (RuntimeException e) {
+            long elapsedNanos = System.nanoTime() - startTime;
+            long duration = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            log.error("Failed to refresh materialized view {}", view.getName(), e);
+            recordMetrics(view.getName(), refreshType, refreshPath, false, elapsedNanos, null);
+            logRefresh(view.getName(), refreshType, startedAt, duration, null, refreshPath, false, e.getMessage());
+            return MaterializedViewRefreshResponse.builder()
+                    .viewName(view.getName())
+                    .status(Status.FAILED)
+                    .durationMs(duration)
+                    .fallbackUsed(PATH_FALLBACK.equals(refreshPath))
+                    .refreshPath(refreshPath)
+                    .message(e.getMessage())
+                    .build();
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        long duration = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        changeTracker.markRefreshed(view.getName(), version, startedAt);
+        for (MaterializedViewDefinition dependent : registry.getDependents(view.getName())) {
+            changeTracker.markDirty(dependent.getName(), "dependency:" + view.getName());
+        }
+        recordMetrics(view.getName(), refreshType, refreshPath, true, elapsedNanos, rowCount);
+        logRefresh(view.getName(), refreshType, startedAt, duration, rowCount, refreshPath, true, null);
+        eventPublisher.publishEvent(new MaterializedViewRefreshedEvent(view.getName(), false));
+        log.info("Refreshed materialized view {} ({} rows, {}) in {} ms", view.getName(), rowCount, refreshPath, duration);
+
+        return MaterializedViewRefreshResponse.builder()
+                .viewName(view.getName())
+                .status(Status.REFRESHED)
+                .durationMs(duration)
+                .fallbackUsed(PATH_FALLBACK.equals(refreshPath))
+                .refreshPath(refreshPath)
+                .rowCount(rowCount)
+                .message(String.format("Successfully refreshed materialized view in %d ms", duration))
+                .build();
+    }
+
+    /**
+     * Обновить представление и в той же транзакции получить число его строк: точное, если включено
+     * exactRowCount, иначе оценку pg_class.reltuples (null, пока представление ни разу не анализировалось)
+     */
+    private Long refreshAndCount(MaterializedViewDefinition view, String sql) {
+        return transactionTemplate.execute(status -> {
+            entityManager.createNativeQuery(sql).executeUpdate();
+            if (exactRowCount) {
+                return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM " + view.getName())
+                        .getSingleResult()).longValue();
+            }
+            double estimate = ((Number) entityManager.createNativeQuery(
+                            "SELECT reltuples FROM pg_class WHERE oid = CAST(:viewName AS regclass)")
+                    .setParameter("viewName", view.getName())
+                    .getSingleResult()).doubleValue();
+            return estimate >= 0 ? Math.round(estimate) : null;
+        });
+    }
+
+    private void recordMetrics(String viewName, String refreshType, String refreshPath, boolean success,
+                               long elapsedNanos, Long rowCount) {
+        Timer.builder("materialized-view.refresh")
+                .description("Duration of materialized view refreshes")
+                .tag("view", viewName)
+                .tag("type", refreshType)
+                .tag("path", refreshPath)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (rowCount != null) {
+            lastRowCounts.computeIfAbsent(viewName, name -> meterRegistry.gauge("materialized-view.rows",
+                    Tags.of("view", name), new AtomicLong())).set(rowCount);
+        }
+    }
+
+    private void logRefresh(String viewName, String refreshType, Instant startedAt, long durationMs, Long rowCount,
+                            String refreshPath, boolean success, String errorMessage) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.createNativeQuery(
+                                "INSERT INTO materialized_view_refresh_log " +
+                                "(view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, " +
+                                "success, error_message) " +
+                                "VALUES (:viewName, :refreshType, :triggeredAt, :durationMs, :rowCount, :refreshPath, " +
+                                ":success, :errorMessage)")
+                        .setParameter("viewName", viewName)
+                        .setParameter("refreshType", refreshType)
+                        .setParameter("triggeredAt", LocalDateTime.ofInstant(startedAt, ZoneId.systemDefault()))
+                        .setParameter("durationMs", durationMs)
+                        .setParameter("rowCount", rowCount)
+                        .setParameter("refreshPath", refreshPath)
+                        .setParameter("success", success)
+                        .setParameter("errorMessage", errorMessage)
+                        .executeUpdate();
+                if (success) {
+                    // Другие реплики перезагружают свои снимки данных представления
+                    entityManager.createNativeQuery("SELECT pg_notify(:channel, :payload)")
+                            .setParameter("channel", MaterializedViewChangeTracker.REFRESHED_CHANNEL)
+                            .setParameter("payload", changeTracker.refreshedNotificationPayload(viewName))
+                            .getSingleResult();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to write refresh log for {}: {}", viewName, e.getMessage());
+        }
+    }
+
+    private static MaterializedViewRefreshResponse skipped(MaterializedViewDefinition view, String reason) {
+        return MaterializedViewRefreshResponse.builder()
+                .viewName(view.getName())
+                .status(Status.SKIPPED)
+                .message(reason)
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.MaterializedViewRefreshProperties;
+import org.example.blogtestapp.dto.MaterializedViewRefreshResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Адаптивный планировщик обновления материализованных представлений
+ * Обновляет представление по накопленным изменениям: ждёт паузы в записи (debounce),
+ * не обновляет чаще min-interval и не допускает устаревания дольше freshnessTarget представления.
+ * Тик планировщика работает только с состоянием в памяти, поэтому в простое ничего не стоит.
+ * В кластере обновляет только реплика-лидер ({@link SchedulerLeaderElection}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MaterializedViewRefreshScheduler {
+
+    private final MaterializedViewService materializedViewService;
+    private final MaterializedViewRegistry registry;
+    private final MaterializedViewChangeTracker changeTracker;
+    private final MaterializedViewRefreshProperties properties;
+    private final SchedulerLeaderElection leaderElection;
+
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean();
+
+    private final Map<String, Instant> retryNotBefore = new ConcurrentHashMap<>();
+    private final Map<String, Integer> consecutiveFailures = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${app.materialized-views.refresh.tick-interval-ms:1000}")
+    public void onTick() {
+        // Остальные реплики продолжают отслеживать изменения и подхватят их, став лидером
+        if (!properties.isEnabled() || !leaderElection.isLeader()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Map<String, String> dueViews = new LinkedHashMap<>();
+        for (MaterializedViewDefinition view : registry.getAll()) {
+            String reason = resolveRefreshReason(view, now);
+            if (reason != null) {
+                dueViews.put(view.getName(), reason);
+            }
+        }
+        if (dueViews.isEmpty()) {
+            return;
+        }
+        if (!leaderElection.confirmLeadership()) {
+            log.info("Scheduler leadership lost, skipping refresh of {}", dueViews.keySet());
+            return;
+        }
+        dueViews.forEach((viewName, reason) -> log.info("Refreshing materialized view {}: {}", viewName, reason));
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            log.debug("Materialized view refresh already in progress, skipping tick");
+            return;
+        }
+        try {
+            for (MaterializedViewRefreshResponse result :
+                    materializedViewService.refreshScheduled(new ArrayList<>(dueViews.keySet()))) {
+                if (result.getStatus() == MaterializedViewRefreshResponse.Status.FAILED) {
+                    int failures = consecutiveFailures.merge(result.getViewName(), 1, Integer::sum);
+                    Duration backoff = backoffFor(failures);
+                    retryNotBefore.put(result.getViewName(), Instant.now().plus(backoff));
+                    log.error("Failed to refresh mv {}, next attempt in {} s", result.getViewName(), backoff.toSeconds());
+                } else if (result.getStatus() == MaterializedViewRefreshResponse.Status.REFRESHED) {
+                    consecutiveFailures.remove(result.getViewName());
+                    retryNotBefore.remove(result.getViewName());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh mv using application job", e);
+        } finally {
+            refreshInProgress.set(false);
+        }
+    }
+
+    /**
+     * Определить, пора ли обновлять представление; null — обновление не требуется
+     */
+    String resolveRefreshReason(MaterializedViewDefinition view, Instant now) {
+        if (now.isBefore(retryNotBefore.getOrDefault(view.getName(), Instant.MIN))) {
+            return null;
+        }
+        MaterializedViewChangeTracker.ViewFreshness freshness = changeTracker.freshness(view.getName());
+        Instant lastRefreshAt = freshness.getLastRefreshAt();
+
+        if (freshness.isDirty()) {
+            if (elapsed(lastRefreshAt, now).compareTo(properties.getMinInterval()) < 0) {
+                return null;
+            }
+            Duration freshnessTarget = view.getFreshnessTarget() != null
+                    ? view.getFreshnessTarget() : properties.getMaxStaleness();
+            Instant pendingSince = freshness.getPendingSince();
+            if (pendingSince != null && elapsed(pendingSince, now).compareTo(freshnessTarget) >= 0) {
+                return "freshness target reached with " + freshness.getPendingChanges() + " pending changes";
+            }
+            Instant lastChangeAt = freshness.getLastChangeAt();
+            if (lastChangeAt == null || elapsed(lastChangeAt, now).compareTo(properties.getDebounce()) >= 0) {
+                return "writes settled with " + freshness.getPendingChanges() + " pending changes";
+            }
+            return null;
+        }
+
+        if (elapsed(lastRefreshAt, now).compareTo(properties.getIdleRefreshInterval()) >= 0) {
+            // Периодическое обновление может выполнять pg_cron; тогда приложение его не дублирует
+            if (materializedViewService.isDatabaseJobActive(view.getName())) {
+                changeTracker.markRefreshed(view.getName(), changeTracker.currentVersion(view.getName()), now);
+                return null;
+            }
+            return "idle refresh interval elapsed";
+        }
+        return null;
+    }
+
+    private Duration backoffFor(int failures) {
+        Duration backoff = properties.getFailureBackoff().multipliedBy(1L << Math.min(failures - 1, 16));
+        return backoff.compareTo(properties.getMaxFailureBackoff()) > 0 ? properties.getMaxFailureBackoff() : backoff;
+    }
+
+    private static Duration elapsed(Instant from, Instant to) {
+        return Duration.between(from, to);
+    }
+}
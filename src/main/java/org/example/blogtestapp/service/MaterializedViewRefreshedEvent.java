@@ -0,0 +1,18 @@
+package org.example.blogtestapp.service;
+
+import lombok.Value;
+
+/**
+ * Событие успешного обновления материализованного представления
+ * Публикуется локально после обновления и при получении уведомления от другой реплики или pg_cron.
+ */
+@Value
+public class MaterializedViewRefreshedEvent {
+
+    String viewName;
+
+    /**
+     * Обновление выполнено другой репликой или самой БД
+     */
+    boolean remote;
+}
@@ -0,0 +1,121 @@
+package org.example.blogtestapp.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Реестр материализованных представлений
+ * Проверяет зависимости при старте и хранит представления в порядке, в котором их можно обновлять
+ */
+@Component
+public class MaterializedViewRegistry {
+
+    private final Map<String, MaterializedViewDefinition> viewsInRefreshOrder;
+
+    public MaterializedViewRegistry(List<MaterializedViewDefinition> definitions) {
+        Map<String, MaterializedViewDefinition> byName = new LinkedHashMap<>();
+        for (MaterializedViewDefinition definition : definitions) {
+            if (byName.put(definition.getName(), definition) != null) {
+                throw new IllegalStateException("Duplicate materialized view definition: " + definition.getName());
+            }
+        }
+        for (MaterializedViewDefinition definition : byName.values()) {
+            for (String dependency : definition.getDependsOn()) {
+                if (!byName.containsKey(dependency)) {
+                    throw new IllegalStateException("Materialized view " + definition.getName()
+                            + " depends on unknown view " + dependency);
+                }
+            }
+        }
+        this.viewsInRefreshOrder = Collections.unmodifiableMap(sortByDependencies(byName));
+    }
+
+    /**
+     * Все представления; зависимости идут раньше зависимых
+     */
+    public Collection<MaterializedViewDefinition> getAll() {
+        return viewsInRefreshOrder.values();
+    }
+
+    public Optional<MaterializedViewDefinition> find(String name) {
+        return Optional.ofNullable(viewsInRefreshOrder.get(name));
+    }
+
+    public MaterializedViewDefinition get(String name) {
+        return find(name)
+                .orElseThrow(() -> new IllegalArgumentException("Materialized view not registered: " + name));
+    }
+
+    /**
+     * Представления, напрямую зависящие от указанного
+     */
+    public List<MaterializedViewDefinition> getDependents(String name) {
+        return viewsInRefreshOrder.values().stream()
+                .filter(view -> view.getDependsOn().contains(name))
+                .toList();
+    }
+
+    /**
+     * Представление и все транзитивно зависящие от него, в порядке обновления
+     */
+    public List<String> withDependents(String name) {
+        Set<String> affected = new HashSet<>();
+        affected.add(get(name).getName());
+        List<String> result = new ArrayList<>();
+        for (MaterializedViewDefinition view : viewsInRefreshOrder.values()) {
+            if (affected.contains(view.getName())
+                    || view.getDependsOn().stream().anyMatch(affected::contains)) {
+                affected.add(view.getName());
+                result.add(view.getName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Представления, которые строятся из указанной таблицы
+     */
+    public List<MaterializedViewDefinition> findBySourceTable(String table) {
+        return viewsInRefreshOrder.values().stream()
+                .filter(view -> view.getSourceTables().contains(table))
+                .toList();
+    }
+
+    /**
+     * Топологическая сортировка; цикл в зависимостях — ошибка конфигурации
+     */
+    private static Map<String, MaterializedViewDefinition> sortByDependencies(
+            Map<String, MaterializedViewDefinition> byName) {
+        Map<String, MaterializedViewDefinition> sorted = new LinkedHashMap<>();
+        Set<String> visiting = new HashSet<>();
+        for (String name : byName.keySet()) {
+            visit(name, byName, visiting, sorted);
+        }
+        return sorted;
+    }
+
+    private static void visit(String name, Map<String, MaterializedViewDefinition> byName,
+                              Set<String> visiting, Map<String, MaterializedViewDefinition> sorted) {
+        if (sorted.containsKey(name)) {
+            return;
+        }
+        if (!visiting.add(name)) {
+            throw new IllegalStateException("Cyclic materialized view dependency involving " + name);
+        }
+        MaterializedViewDefinition definition = byName.get(name);
+        for (String dependency : definition.getDependsOn()) {
+            visit(dependency, byName, visiting, sorted);
+        }
+        visiting.remove(name);
+        sorted.put(name, definition);
+    }
+}
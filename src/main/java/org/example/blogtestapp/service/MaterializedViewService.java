@@ -2,23 +2,23 @@ package org.example.blogtestapp.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.example.blogtestapp.config.MaterializedViewConfig;
+import org.example.blogtestapp.dto.MaterializedViewRefreshResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
-import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для обновления материализованных представлений
- * Поддерживает database-level refresh через триггеры и pg_cron, а также fallback на application-level
+ * Поддерживает database-level refresh через pg_cron и application-level обновление по изменениям.
+ * Представления и их зависимости описаны в {@link MaterializedViewRegistry}.
  */
 @Service
 @RequiredArgsConstructor
@@ -28,75 +28,103 @@ public class MaterializedViewService {
     @PersistenceContext
     private EntityManager entityManager;
 
+    private final MaterializedViewRegistry registry;
+    private final MaterializedViewRefreshExecutor refreshExecutor;
+    private final MaterializedViewChangeTracker changeTracker;
+
     /**
-     * Fallback обновление materialized view (только если database job не активен)
-     * Теперь используется только как резерв, основное обновление делает pg_cron daily job
+     * Обновление представлений по расписанию (вызывается {@link MaterializedViewRefreshScheduler})
      */
-    @Scheduled(cron = "0 * * * * *") // 24 hours - daily
-    @Transactional
-    public void refreshActiveUsersStatistics() {
-        try {
-            // Проверяем, активен ли database job
-            if (isPgCronAvailable() && isCronJobExists()) {
-                log.debug("Daily database job is active, skipping application-level refresh");
-                return;
-            }
-
-            log.info("Daily database job not active, using application-level refresh");
+    public List<MaterializedViewRefreshResponse> refreshScheduled(List<String> viewNames) {
+        return refreshExecutor.refresh(viewNames, "SCHEDULED");
+    }
 
-            // Try to use the database function first, fallback to direct refresh
-            refreshActiveUsersMv();
-            log.info("Successfully refreshed using database function");
-        } catch (Exception e) {
-            log.error("Failed to refresh mv using application job", e);
-        }
+    /**
+     * Принудительное обновление всех зарегистрированных представлений в порядке зависимостей
+     */
+    public List<MaterializedViewRefreshResponse> forceRefreshAll() {
+        log.info("Force refreshing all materialized views");
+        List<String> viewNames = registry.getAll().stream()
+                .map(MaterializedViewDefinition::getName)
+                .toList();
+        return refreshExecutor.refresh(viewNames, "MANUAL");
     }
 
-    private void refreshActiveUsersMv() {
-        entityManager.createNativeQuery("SELECT refresh_active_users_mv()").getSingleResult();
+    /**
+     * Принудительное обновление представления; с cascade обновляются и зависящие от него
+     */
+    public List<MaterializedViewRefreshResponse> forceRefresh(String viewName, boolean cascade) {
+        log.info("Force refreshing materialized view {} (cascade: {})", viewName, cascade);
+        List<String> viewNames = cascade ? registry.withDependents(viewName) : List.of(registry.get(viewName).getName());
+        return refreshExecutor.refresh(viewNames, "MANUAL");
     }
 
     /**
      * Принудительное обновление materialized view
      */
-    @Transactional
     public String forceRefreshActiveUsersStatistics() {
-        log.info("Force refreshing active users statistics materialized view");
-        long startTime = System.currentTimeMillis();
-        try {
-            refreshActiveUsersMv();
-            log.info("Force refresh completed using database function");
-        } catch (Exception e) {
-            log.error("Failed to force refresh active users statistics materialized view: {}", e.getMessage(), e);
-            return String.format("Unable to force refresh active users statistics materialized view: %s", e.getMessage());
+        MaterializedViewRefreshResponse result =
+                forceRefresh(MaterializedViewConfig.ACTIVE_USERS_STATS_VIEW, false).get(0);
+        if (result.getStatus() != MaterializedViewRefreshResponse.Status.REFRESHED) {
+            return String.format("Unable to force refresh active users statistics materialized view: %s",
+                    result.getMessage());
         }
-        long duration = System.currentTimeMillis() - startTime;
-        String result = String.format("Successfully refreshed materialized view in %d ms", duration);
-        log.info(result);
-        return result;
+        return result.getMessage();
+    }
+
+    /**
+     * Получение статистики обновлений всех представлений
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Object>> getRefreshStatistics() {
+        return registry.getAll().stream()
+                .collect(Collectors.toMap(MaterializedViewDefinition::getName,
+                        view -> getRefreshStatistics(view.getName()),
+                        (a, b) -> a,
+                        LinkedHashMap::new));
     }
 
     /**
      * Получение статистики обновлений MV из лога
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getRefreshStatistics() {
+    public Map<String, Object> getRefreshStatistics(String viewName) {
+        MaterializedViewDefinition view = registry.get(viewName);
         try {
             String sql = "SELECT COUNT(*) as refresh_count, " +
                     "MAX(triggered_at) as last_refresh, " +
                     "AVG(duration_ms) as avg_duration, " +
-                    "SUM(CASE WHEN success = false THEN 1 ELSE 0 END) as error_count " +
+                    "SUM(CASE WHEN success = false THEN 1 ELSE 0 END) as error_count, " +
+                    "PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY duration_ms) as p50_duration, " +
+                    "PERCENTILE_CONT(0.95) WITHIN GROUP (ORDER BY duration_ms) as p95_duration, " +
+                    "MAX(duration_ms) as max_duration, " +
+                    "SUM(CASE WHEN refresh_path = 'FALLBACK' THEN 1 ELSE 0 END) as fallback_count, " +
+                    "(ARRAY_AGG(row_count ORDER BY triggered_at DESC) " +
+                    "FILTER (WHERE row_count IS NOT NULL))[1] as last_row_count " +
                     "FROM materialized_view_refresh_log " +
-                    "WHERE view_name = 'active_users_stats_mv' " +
+                    "WHERE view_name = :viewName " +
                     "AND triggered_at >= CURRENT_DATE - INTERVAL '1 day'";
 
-            Object[] result = (Object[]) entityManager.createNativeQuery(sql).getSingleResult();
+            Object[] result = (Object[]) entityManager.createNativeQuery(sql)
+                    .setParameter("viewName", view.getName())
+                    .getSingleResult();
 
             Map<String, Object> stats = new HashMap<>();
             stats.put("refreshCount", ((Number) result[0]).longValue());
             stats.put("lastRefresh", result[1]);
             stats.put("averageDurationMs", result[2] != null ? ((Number) result[2]).doubleValue() : 0.0);
-            stats.put("errorCount", ((Number) result[3]).longValue());
+            stats.put("errorCount", result[3] != null ? ((Number) result[3]).longValue() : 0L);
+            stats.put("p50DurationMs", result[4] != null ? ((Number) result[4]).doubleValue() : null);
+            stats.put("p95DurationMs", result[5] != null ? ((Number) result[5]).doubleValue() : null);
+            stats.put("maxDurationMs", result[6] != null ? ((Number) result[6]).longValue() : null);
+            stats.put("fallbackCount", result[7] != null ? ((Number) result[7]).longValue() : 0L);
+            stats.put("lastRowCount", result[8] != null ? ((Number) result[8]).longValue() : null);
+
+            MaterializedViewChangeTracker.ViewFreshness freshness = changeTracker.freshness(view.getName());
+            stats.put("pendingChanges", freshness.getPendingChanges());
+            stats.put("pendingSince", freshness.getPendingSince());
+            stats.put("dependsOn", view.getDependsOn());
+            stats.put("refreshMode", view.getRefreshMode());
 
             return stats;
 
@@ -123,17 +151,28 @@ public class MaterializedViewService {
         }
     }
 
+    /**
+     * Активна ли джоба pg_cron, обновляющая представление на уровне БД
+     */
+    @Transactional(readOnly = true)
+    public boolean isDatabaseJobActive(String viewName) {
+        String jobName = registry.get(viewName).getDatabaseJobName();
+        return jobName != null && isPgCronAvailable() && isCronJobExists(jobName);
+    }
+
     /**
      * Проверка наличии джобы на уровне БД
      */
-    private boolean isCronJobExists() {
+    private boolean isCronJobExists(String jobName) {
         try {
-            String checkSql = "SELECT EXISTS(SELECT 1 FROM cron.job WHERE jobname = 'daily-active-users-mv-refresh-job')";
-            Boolean result = (Boolean) entityManager.createNativeQuery(checkSql).getSingleResult();
+            String checkSql = "SELECT EXISTS(SELECT 1 FROM cron.job WHERE jobname = :jobName)";
+            Boolean result = (Boolean) entityManager.createNativeQuery(checkSql)
+                    .setParameter("jobName", jobName)
+                    .getSingleResult();
             return Boolean.TRUE.equals(result);
         } catch (Exception e) {
-            log.debug("Cannot check pg_cron daily-active-users-mv-refresh-job availability: {}", e.getMessage());
+            log.debug("Cannot check pg_cron {} availability: {}", jobName, e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+}
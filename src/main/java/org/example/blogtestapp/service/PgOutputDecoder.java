@@ -0,0 +1,161 @@
+package org.example.blogtestapp.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разбор сообщений логической репликации pgoutput (протокол версии 1)
+ * Нужны только границы транзакций, строковые изменения и логические сообщения; значения колонок
+ * приходят в текстовом виде.
+ * Описания таблиц (Relation) запоминаются, так как сообщения изменений ссылаются на них по OID.
+ */
+class PgOutputDecoder {
+
+    /**
+     * Эпоха временных меток PostgreSQL
+     */
+    private static final Instant POSTGRES_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    /**
+     * Разобрать одно сообщение; null — сообщение, не влияющее на аудит (relation, origin, type, truncate)
+     */
+    Message decode(ByteBuffer buffer) {
+        char type = (char) buffer.get();
+        switch (type) {
+            case 'B' -> {
+                long finalLsn = buffer.getLong();
+                Instant commitTime = toInstant(buffer.getLong());
+                return new Begin(finalLsn, commitTime);
+            }
+            case 'C' -> {
+                buffer.get(); // flags
+                long commitLsn = buffer.getLong();
+                long endLsn = buffer.getLong();
+                return new Commit(commitLsn, endLsn, toInstant(buffer.getLong()));
+            }
+            case 'M' -> {
+                buffer.get(); // flags
+                buffer.getLong(); // lsn
+                String prefix = readString(buffer);
+                byte[] content = new byte[buffer.getInt()];
+                buffer.get(content);
+                return new LogicalMessage(prefix, new String(content, StandardCharsets.UTF_8));
+            }
+            case 'R' -> {
+                int oid = buffer.getInt();
+                String namespace = readString(buffer);
+                String name = readString(buffer);
+                buffer.get(); // replica identity
+                int columnCount = buffer.getShort();
+                List<String> columns = new ArrayList<>(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    buffer.get(); // flags
+                    columns.add(readString(buffer));
+                    buffer.getInt(); // type oid
+                    buffer.getInt(); // type modifier
+                }
+                relations.put(oid, new Relation(namespace, name, columns));
+                return null;
+            }
+            case 'I' -> {
+                Relation relation = relations.get(buffer.getInt());
+                buffer.get(); // 'N'
+                return new RowChange(ChangeType.INSERT, relation, null, readTuple(buffer, relation, null));
+            }
+            case 'U' -> {
+                Relation relation = relations.get(buffer.getInt());
+                Map<String, String> oldRow = null;
+                char marker = (char) buffer.get();
+                if (marker == 'K' || marker == 'O') {
+                    oldRow = readTuple(buffer, relation, null);
+                    buffer.get(); // 'N'
+                }
+                return new RowChange(ChangeType.UPDATE, relation, oldRow, readTuple(buffer, relation, oldRow));
+            }
+            case 'D' -> {
+                Relation relation = relations.get(buffer.getInt());
+                buffer.get(); // 'K' или 'O'
+                return new RowChange(ChangeType.DELETE, relation, readTuple(buffer, relation, null), null);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Кортеж: колонка -> текстовое значение
+     * Неизменившееся TOAST-значение в UPDATE не передаётся: оно берётся из старого кортежа, если тот его содержит,
+     * иначе колонки нет в строке (в отличие от NULL, который присутствует со значением null)
+     */
+    private static Map<String, String> readTuple(ByteBuffer buffer, Relation relation, Map<String, String> oldRow) {
+        int columnCount = buffer.getShort();
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            String column = relation.columns().get(i);
+            char kind = (char) buffer.get();
+            if (kind == 'u' && (oldRow == null || oldRow.get(column) == null)) {
+                continue;
+            }
+            String value = switch (kind) {
+                case 'n' -> null;
+                case 'u' -> oldRow.get(column);
+                default -> {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    yield new String(bytes, StandardCharsets.UTF_8);
+                }
+            };
+            row.put(column, value);
+        }
+        return row;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // ищем завершающий ноль
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Instant toInstant(long postgresMicros) {
+        return POSTGRES_EPOCH.plus(postgresMicros, ChronoUnit.MICROS);
+    }
+
+    enum ChangeType {
+        INSERT, UPDATE, DELETE
+    }
+
+    sealed interface Message permits Begin, Commit, RowChange, LogicalMessage {
+    }
+
+    record Begin(long finalLsn, Instant commitTime) implements Message {
+    }
+
+    record Commit(long commitLsn, long endLsn, Instant commitTime) implements Message {
+    }
+
+    record RowChange(ChangeType type, Relation relation,
+                     Map<String, String> oldRow, Map<String, String> newRow) implements Message {
+    }
+
+    /**
+     * Сообщение pg_logical_emit_message (приходит при слот-опции messages=true)
+     */
+    record LogicalMessage(String prefix, String content) implements Message {
+    }
+
+    record Relation(String namespace, String name, List<String> columns) {
+    }
+}
@@ -0,0 +1,538 @@
+package org.example.blogtestapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.AuditExportProperties;
+import org.example.blogtestapp.dto.AuditExportJobResponse;
+import org.example.blogtestapp.dto.CreateAuditExportRequest;
+import org.example.blogtestapp.dto.PostAuditResponse;
+import org.example.blogtestapp.entity.PostAuditLog;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка журнала аудита за период в сжатые NDJSON/CSV-файлы
+ * Строки читаются серверным курсором в порядке (post_id, id) отрезками между контрольными точками.
+ * В конце отрезка gzip-член файла завершается, файл сбрасывается на диск, а позиция и размер файла
+ * сохраняются в audit_export_job. Продолжение прерванной выгрузки обрезает файл до сохранённого размера
+ * и дописывает следующий gzip-член, поэтому файл всегда остаётся корректным gzip, а память
+ * не зависит от длины периода. Содержимое восстанавливается из дельт по предыдущей записи того же поста.
+ */
+@Service
+@Slf4j
+public class PostAuditExportService {
+
+    private static final String CSV_HEADER = "id,post_id,operation,changed_at,user_id,old_title,new_title," +
+            "old_content,new_content,old_is_published,new_is_published,change_details";
+
+    private static final String SELECT_SEGMENT = "SELECT id, post_id, operation, changed_at, user_id, " +
+            "old_title, new_title, old_content, new_content, old_is_published, new_is_published, change_details, " +
+            "content_delta_prefix, content_delta_suffix, content_delta, old_content_hash, new_content_hash " +
+            "FROM post_audit_log " +
+            "WHERE changed_at >= ? AND changed_at < ? AND (post_id, id) > (?, ?) " +
+            "ORDER BY post_id, id LIMIT ?";
+
+    private static final String SELECT_JOB = "SELECT id, format, from_changed_at, to_changed_at, status, " +
+            "file_name, estimated_rows, rows_written, bytes_written, error_message, created_at, updated_at, " +
+            "completed_at FROM audit_export_job WHERE id = ?";
+
+    private final DataSource dataSource;
+    private final PostAuditService postAuditService;
+    private final ObjectMapper objectMapper;
+    private final AuditExportProperties properties;
+    private final ExecutorService exportExecutor;
+
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    private volatile boolean shuttingDown;
+
+    public PostAuditExportService(DataSource dataSource,
+                                  PostAuditService postAuditService,
+                                  ObjectMapper objectMapper,
+                                  AuditExportProperties properties) {
+        this.dataSource = dataSource;
+        this.postAuditService = postAuditService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.exportExecutor = Executors.newFixedThreadPool(properties.getMaxConcurrentJobs(), runnable -> {
+            Thread thread = new Thread(runnable, "audit-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Выгрузки сохраняют контрольную точку и переходят в INTERRUPTED, их можно продолжить после перезапуска
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        exportExecutor.shutdown();
+        if (!exportExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Audit exports {} did not stop in time", runningJobs);
+        }
+    }
+
+    /**
+     * Запустить выгрузку в фоне
+     */
+    public AuditExportJobResponse start(CreateAuditExportRequest request) {
+        if (request.getFrom() == null || request.getTo() == null || !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("Export range must have from before to");
+        }
+        AuditExportJobResponse.Format format = request.getFormat() != null
+                ? request.getFormat() : AuditExportJobResponse.Format.NDJSON;
+        long estimatedRows = estimateRows(request.getFrom(), request.getTo());
+        long jobId = execute("SELECT nextval(pg_get_serial_sequence('audit_export_job', 'id'))", statement -> {
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        });
+        String fileName = "audit-export-" + jobId + (format == AuditExportJobResponse.Format.CSV ? ".csv.gz" : ".ndjson.gz");
+        execute("INSERT INTO audit_export_job (id, format, from_changed_at, to_changed_at, status, file_name, " +
+                "estimated_rows) VALUES (?, ?, ?, ?, ?, ?, ?)", statement -> {
+            statement.setLong(1, jobId);
+            statement.setString(2, format.name());
+            statement.setTimestamp(3, Timestamp.valueOf(request.getFrom()));
+            statement.setTimestamp(4, Timestamp.valueOf(request.getTo()));
+            statement.setString(5, AuditExportJobResponse.Status.RUNNING.name());
+            statement.setString(6, fileName);
+            statement.setLong(7, estimatedRows);
+            return statement.executeUpdate();
+        });
+        log.info("Starting audit export {} of [{}, {}) as {}", jobId, request.getFrom(), request.getTo(), format);
+        submit(jobId);
+        return getJob(jobId);
+    }
+
+    /**
+     * Продолжить прерванную или завершившуюся ошибкой выгрузку с последней контрольной точки
+     */
+    public AuditExportJobResponse resume(Long jobId) {
+        if (runningJobs.contains(jobId)) {
+            throw new IllegalArgumentException("Export job is already running: " + jobId);
+        }
+        // RUNNING без контрольных точек дольше stale-after — выгрузка реплики, остановленной без сохранения статуса
+        int claimed = execute("UPDATE audit_export_job SET status = 'RUNNING', error_message = NULL, " +
+                "updated_at = LOCALTIMESTAMP WHERE id = ? AND (status IN ('FAILED', 'INTERRUPTED') " +
+                "OR (status = 'RUNNING' AND updated_at < LOCALTIMESTAMP - ? * INTERVAL '1 second'))", statement -> {
+            statement.setLong(1, jobId);
+            statement.setLong(2, properties.getStaleAfter().toSeconds());
+            return statement.executeUpdate();
+        });
+        if (claimed == 0) {
+            throw new IllegalArgumentException("Export job cannot be resumed in status " + getJob(jobId).getStatus());
+        }
+        log.info("Resuming audit export {}", jobId);
+        submit(jobId);
+        return getJob(jobId);
+    }
+
+    /**
+     * Состояние и прогресс выгрузки
+     */
+    public AuditExportJobResponse getJob(Long jobId) {
+        return execute(SELECT_JOB, statement -> {
+            statement.setLong(1, jobId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new IllegalArgumentException("Export job not found with ID: " + jobId);
+                }
+                return mapToAuditExportJobResponse(resultSet);
+            }
+        });
+    }
+
+    /**
+     * Файл завершённой выгрузки
+     */
+    public Path getExportFile(Long jobId) {
+        AuditExportJobResponse job = getJob(jobId);
+        if (job.getStatus() != AuditExportJobResponse.Status.COMPLETED) {
+            throw new IllegalArgumentException("Export job is not completed: " + jobId);
+        }
+        Path file = Paths.get(properties.getDir()).resolve(job.getFileName());
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Export file is not available on this replica: " + job.getFileName());
+        }
+        return file;
+    }
+
+    private void submit(long jobId) {
+        runningJobs.add(jobId);
+        exportExecutor.execute(() -> {
+            try {
+                export(getJob(jobId));
+            } catch (Exception e) {
+                log.error("Audit export {} failed", jobId, e);
+                markFailed(jobId, e);
+            } finally {
+                runningJobs.remove(jobId);
+            }
+        });
+    }
+
+    private void export(AuditExportJobResponse job) throws IOException {
+        Path directory = Paths.get(properties.getDir());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(job.getFileName());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() < job.getBytesWritten()) {
+                throw new IllegalStateException("Export file " + file + " is shorter than its last checkpoint, " +
+                        "resume the job on the replica that wrote it");
+            }
+            // Всё, что было дописано после контрольной точки, будет выгружено заново
+            channel.truncate(job.getBytesWritten());
+            channel.position(job.getBytesWritten());
+
+            ExportCursor cursor = loadCursor(job.getId());
+            boolean header = job.getBytesWritten() == 0 && job.getFormat() == AuditExportJobResponse.Format.CSV;
+            SegmentEnd end;
+            do {
+                try (Writer writer = openMember(channel)) {
+                    if (header) {
+                        writer.write(CSV_HEADER);
+                        writer.write('\n');
+                        header = false;
+                    }
+                    end = writeSegment(job, cursor, writer);
+                }
+                channel.force(false);
+                AuditExportJobResponse.Status status = switch (end) {
+                    case EXHAUSTED -> AuditExportJobResponse.Status.COMPLETED;
+                    case STOPPED -> AuditExportJobResponse.Status.INTERRUPTED;
+                    case CHECKPOINT -> AuditExportJobResponse.Status.RUNNING;
+                };
+                saveCheckpoint(job.getId(), cursor, channel.position(), status);
+                log.info("Audit export {}: {} of ~{} rows written, {}", job.getId(), cursor.rowsWritten,
+                        job.getEstimatedRows(), status);
+            } while (end == SegmentEnd.CHECKPOINT);
+        }
+    }
+
+    private ExportCursor loadCursor(long jobId) {
+        return execute("SELECT last_post_id, last_audit_id, rows_written FROM audit_export_job WHERE id = ?",
+                statement -> {
+                    statement.setLong(1, jobId);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        return new ExportCursor(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+                    }
+                });
+    }
+
+    /**
+     * Новый gzip-член в конце файла; закрытие завершает член, но оставляет канал открытым
+     */
+    private Writer openMember(FileChannel channel) throws IOException {
+        OutputStream file = new BufferedOutputStream(new UnclosableOutputStream(Channels.newOutputStream(channel)),
+                properties.getBufferSize());
+        return new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(file, properties.getBufferSize()), StandardCharsets.UTF_8), properties.getBufferSize());
+    }
+
+    /**
+     * Записать строки от позиции cursor до checkpoint-rows строк, checkpoint-interval или остановки приложения
+     */
+    private SegmentEnd writeSegment(AuditExportJobResponse job, ExportCursor cursor, Writer writer) throws IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            // Драйвер читает результат порциями fetchSize (серверный курсор) только вне autocommit
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SEGMENT)) {
+                statement.setFetchSize(properties.getFetchSize());
+                statement.setTimestamp(1, Timestamp.valueOf(job.getFrom()));
+                statement.setTimestamp(2, Timestamp.valueOf(job.getTo()));
+                statement.setLong(3, cursor.postId);
+                statement.setLong(4, cursor.auditId);
+                statement.setInt(5, properties.getCheckpointRows());
+                long deadline = System.nanoTime() + properties.getCheckpointInterval().toNanos();
+                int rows = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        writeRow(job.getFormat(), cursor.next(resultSet), writer);
+                        rows++;
+                        if (shuttingDown) {
+                            return SegmentEnd.STOPPED;
+                        }
+                        if (System.nanoTime() - deadline > 0) {
+                            return SegmentEnd.CHECKPOINT;
+                        }
+                    }
+                } finally {
+                    connection.rollback();
+                }
+                return rows < properties.getCheckpointRows() ? SegmentEnd.EXHAUSTED : SegmentEnd.CHECKPOINT;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read audit rows for export " + job.getId(), e);
+        }
+    }
+
+    private void writeRow(AuditExportJobResponse.Format format, PostAuditResponse row, Writer writer) throws IOException {
+        if (format == AuditExportJobResponse.Format.CSV) {
+            writer.write(String.join(",", String.valueOf(row.getId()), String.valueOf(row.getPostId()),
+                    csv(row.getOperation()), csv(row.getChangedAt()), csv(row.getUserId()),
+                    csv(row.getOldTitle()), csv(row.getNewTitle()), csv(row.getOldContent()), csv(row.getNewContent()),
+                    csv(row.getOldIsPublished()), csv(row.getNewIsPublished()), csv(row.getChangeDetails())));
+        } else {
+            try {
+                writer.write(objectMapper.writeValueAsString(row));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize audit entry " + row.getId(), e);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Оценка объёма по агрегатам post_audit_daily_rollup (с точностью до дней на границах периода)
+     */
+    private long estimateRows(LocalDateTime from, LocalDateTime to) {
+        return execute("SELECT COALESCE(SUM(changes_count), 0) FROM post_audit_daily_rollup " +
+                "WHERE activity_date BETWEEN ? AND ?", statement -> {
+            statement.setObject(1, from.toLocalDate());
+            statement.setObject(2, to.toLocalDate());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        });
+    }
+
+    private void saveCheckpoint(long jobId, ExportCursor cursor, long bytesWritten, AuditExportJobResponse.Status status) {
+        execute("UPDATE audit_export_job SET rows_written = ?, bytes_written = ?, last_post_id = ?, " +
+                "last_audit_id = ?, status = ?, updated_at = LOCALTIMESTAMP, " +
+                "completed_at = CASE WHEN ? THEN LOCALTIMESTAMP END WHERE id = ?", statement -> {
+            statement.setLong(1, cursor.rowsWritten);
+            statement.setLong(2, bytesWritten);
+            statement.setLong(3, cursor.postId);
+            statement.setLong(4, cursor.auditId);
+            statement.setString(5, status.name());
+            statement.setBoolean(6, status == AuditExportJobResponse.Status.COMPLETED);
+            statement.setLong(7, jobId);
+            return statement.executeUpdate();
+        });
+    }
+
+    private void markFailed(long jobId, Exception cause) {
+        try {
+            execute("UPDATE audit_export_job SET status = 'FAILED', error_message = ?, updated_at = LOCALTIMESTAMP " +
+                    "WHERE id = ?", statement -> {
+                statement.setString(1, Objects.toString(cause.getMessage(), cause.getClass().getName()));
+                statement.setLong(2, jobId);
+                return statement.executeUpdate();
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to mark audit export {} as failed", jobId, e);
+        }
+    }
+
+    private static AuditExportJobResponse mapToAuditExportJobResponse(ResultSet resultSet) throws SQLException {
+        AuditExportJobResponse.Status status = AuditExportJobResponse.Status.valueOf(resultSet.getString("status"));
+        long estimatedRows = resultSet.getLong("estimated_rows");
+        long rowsWritten = resultSet.getLong("rows_written");
+        double progress = status == AuditExportJobResponse.Status.COMPLETED ? 100.0
+                : estimatedRows > 0 ? Math.min(99.9, Math.round(rowsWritten * 1000.0 / estimatedRows) / 10.0) : 0.0;
+        Timestamp completedAt = resultSet.getTimestamp("completed_at");
+        return AuditExportJobResponse.builder()
+                .id(resultSet.getLong("id"))
+                .format(AuditExportJobResponse.Format.valueOf(resultSet.getString("format")))
+                .from(resultSet.getTimestamp("from_changed_at").toLocalDateTime())
+                .to(resultSet.getTimestamp("to_changed_at").toLocalDateTime())
+                .status(status)
+                .fileName(resultSet.getString("file_name"))
+                .estimatedRows(estimatedRows)
+                .rowsWritten(rowsWritten)
+                .bytesWritten(resultSet.getLong("bytes_written"))
+                .progressPercent(progress)
+                .errorMessage(resultSet.getString("error_message"))
+                .createdAt(resultSet.getTimestamp("created_at").toLocalDateTime())
+                .updatedAt(resultSet.getTimestamp("updated_at").toLocalDateTime())
+                .completedAt(completedAt != null ? completedAt.toLocalDateTime() : null)
+                .build();
+    }
+
+    private <T> T execute(String sql, StatementCallback<T> callback) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            return callback.apply(statement);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to execute: " + sql, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementCallback<T> {
+        T apply(PreparedStatement statement) throws SQLException;
+    }
+
+    private enum SegmentEnd {
+        CHECKPOINT,
+        EXHAUSTED,
+        STOPPED
+    }
+
+    /**
+     * Позиция выгрузки и содержимое последней выгруженной ревизии поста, от которой декодируется следующая
+     */
+    private class ExportCursor {
+
+        private long postId;
+        private long auditId;
+        private long rowsWritten;
+        private String current;
+        private boolean currentKnown;
+
+        ExportCursor(long postId, long auditId, long rowsWritten) {
+            this.postId = postId;
+            this.auditId = auditId;
+            this.rowsWritten = rowsWritten;
+        }
+
+        PostAuditResponse next(ResultSet resultSet) throws SQLException {
+            PostAuditLog auditLog = PostAuditLog.builder()
+                    .id(resultSet.getLong("id"))
+                    .postId(resultSet.getLong("post_id"))
+                    .operation(resultSet.getString("operation"))
+                    .changedAt(resultSet.getTimestamp("changed_at").toLocalDateTime())
+                    .userId((Long) resultSet.getObject("user_id"))
+                    .oldTitle(resultSet.getString("old_title"))
+                    .newTitle(resultSet.getString("new_title"))
+                    .oldContent(resultSet.getString("old_content"))
+                    .newContent(resultSet.getString("new_content"))
+                    .oldIsPublished((Boolean) resultSet.getObject("old_is_published"))
+                    .newIsPublished((Boolean) resultSet.getObject("new_is_published"))
+                    .changeDetails(resultSet.getString("change_details"))
+                    .contentDeltaPrefix((Integer) resultSet.getObject("content_delta_prefix"))
+                    .contentDeltaSuffix((Integer) resultSet.getObject("content_delta_suffix"))
+                    .contentDelta(resultSet.getString("content_delta"))
+                    .oldContentHash(resultSet.getString("old_content_hash"))
+                    .newContentHash(resultSet.getString("new_content_hash"))
+                    .build();
+            if (auditLog.getPostId() != postId) {
+                currentKnown = false;
+            }
+            PostAuditService.RevisionContent content = decode(auditLog);
+            postId = auditLog.getPostId();
+            auditId = auditLog.getId();
+            current = content.current();
+            currentKnown = true;
+            rowsWritten++;
+            return PostAuditResponse.builder()
+                    .id(auditLog.getId())
+                    .postId(auditLog.getPostId())
+                    .operation(auditLog.getOperation())
+                    .changedAt(auditLog.getChangedAt())
+                    .userId(auditLog.getUserId())
+                    .oldTitle(auditLog.getOldTitle())
+                    .newTitle(auditLog.getNewTitle())
+                    .oldContent(content.oldContent())
+                    .newContent(content.newContent())
+                    .oldIsPublished(auditLog.getOldIsPublished())
+                    .newIsPublished(auditLog.getNewIsPublished())
+                    .changeDetails(auditLog.getChangeDetails())
+                    .build();
+        }
+
+        /**
+         * Запись без собственного содержимого декодируется от предыдущей выгруженной ревизии поста.
+         * Это верно, только если та ревизия — непосредственно предыдущая запись цепочки (на границе периода
+         * это не гарантировано), поэтому результат сверяется с хэшем, а при расхождении или в начале поста
+         * цепочка читается от контрольной точки.
+         */
+        private PostAuditService.RevisionContent decode(PostAuditLog auditLog) {
+            if (auditLog.getOldContent() != null || "INSERT".equals(auditLog.getOperation())) {
+                return PostAuditService.decode(auditLog, null);
+            }
+            if (currentKnown) {
+                PostAuditService.RevisionContent content = PostAuditService.decode(auditLog, current);
+                if (matchesHash(auditLog, content)) {
+                    return content;
+                }
+            }
+            return postAuditService.decodeChain(auditLog.getPostId(), auditLog.getId());
+        }
+
+        private boolean matchesHash(PostAuditLog auditLog, PostAuditService.RevisionContent content) {
+            boolean deleted = "DELETE".equals(auditLog.getOperation());
+            String expected = deleted ? auditLog.getOldContentHash() : auditLog.getNewContentHash();
+            String actual = deleted ? content.oldContent() : content.newContent();
+            return expected == null || (actual != null && expected.equals(md5(actual)));
+        }
+    }
+
+    private static String md5(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Поток поверх канала файла, закрытие которого не закрывает канал
+     */
+    private static class UnclosableOutputStream extends FilterOutputStream {
+
+        UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
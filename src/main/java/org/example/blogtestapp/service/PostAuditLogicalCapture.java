@@ -0,0 +1,669 @@
+package org.example.blogtestapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.AuditCaptureProperties;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.fluent.logical.ChainedLogicalStreamBuilder;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Асинхронный захват аудита постов из потока логической репликации pgoutput
+ * В режиме LOGICAL реплика-лидер создаёт публикацию и слот, отключает триггер audit_posts_trigger
+ * и пачками записывает изменения posts в post_audit_log (процедура record_post_audit).
+ * Позиция потока (LSN) сохраняется в audit_capture_state в той же транзакции, что и пачка,
+ * поэтому после перезапуска чтение продолжается с неё; сервер хранит WAL до подтверждения.
+ * Старые значения UPDATE и DELETE берутся из последнего известного состояния поста, а не из WAL
+ * (REPLICA IDENTITY остаётся DEFAULT): UPDATE без изменений аудируемых полей отбрасывается до записи.
+ * Если захват не удаётся запустить (например, wal_level не logical), аудит продолжает писать триггер.
+ * После max-consecutive-failures сбоев подряд реплика до перезапуска возвращает аудит триггеру,
+ * чтобы одна и та же ошибочная транзакция не останавливала аудит; отставание слота видно в метрике
+ * post-audit.capture.slot-lag.
+ * При возврате в режим TRIGGER триггер включается, а слот дочитывается до момента включения и удаляется.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostAuditLogicalCapture implements SmartLifecycle {
+
+    private static final String IDENTIFIER_PATTERN = "[a-z_][a-z0-9_]{0,62}";
+    private static final String CURRENT_LSN = "(pg_current_wal_lsn() - '0/0'::pg_lsn)::bigint";
+    /**
+     * Последняя запись аудита каждого поста; для постов без истории — текущая строка posts
+     */
+    private static final String PREVIOUS_STATE_SQL =
+            "SELECT t.post_id, h.id, h.user_id, h.new_title, h.new_is_published, h.new_content_hash, " +
+            "p.author_id, p.content " +
+            "FROM unnest(?::bigint[]) AS t(post_id) " +
+            "LEFT JOIN LATERAL (SELECT id, user_id, new_title, new_is_published, new_content_hash " +
+            "FROM post_audit_log WHERE post_id = t.post_id ORDER BY id DESC LIMIT 1) h ON true " +
+            "LEFT JOIN posts p ON p.id = t.post_id AND h.id IS NULL";
+    private static final String RECORD_SQL =
+            "CALL record_post_audit(?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS timestamptz)::timestamp)";
+
+    private final DataSource dataSource;
+    private final JdbcConnectionDetails connectionDetails;
+    private final AuditCaptureProperties properties;
+    private final SchedulerLeaderElection leaderElection;
+    private final PostAuditService postAuditService;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong slotLagBytes = new AtomicLong();
+    private volatile boolean running;
+    private Thread captureThread;
+    private int consecutiveFailures;
+    private boolean fallenBackToTrigger;
+
+    @Override
+    public void start() {
+        if (!properties.getSlotName().matches(IDENTIFIER_PATTERN)
+                || !properties.getPublicationName().matches(IDENTIFIER_PATTERN)) {
+            throw new IllegalArgumentException("Invalid audit capture slot or publication name");
+        }
+        meterRegistry.gauge("post-audit.capture.slot-lag", slotLagBytes);
+        running = true;
+        captureThread = new Thread(this::captureLoop, "post-audit-capture");
+        captureThread.setDaemon(true);
+        captureThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (captureThread != null) {
+            captureThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void captureLoop() {
+        boolean triggerModeRestored = false;
+        while (running) {
+            try {
+                if (!leaderElection.isLeader()) {
+                    triggerModeRestored = false;
+                } else if (properties.getMode() == AuditCaptureProperties.Mode.LOGICAL && !fallenBackToTrigger) {
+                    stream(prepareLogicalCapture(), false);
+                } else if (!triggerModeRestored) {
+                    triggerModeRestored = restoreTriggerCapture();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Post audit logical capture failed: {}", e.getMessage());
+                if (properties.getMode() == AuditCaptureProperties.Mode.LOGICAL && !fallenBackToTrigger
+                        && ++consecutiveFailures >= properties.getMaxConsecutiveFailures()) {
+                    fallenBackToTrigger = true;
+                    triggerModeRestored = false;
+                    log.error("Post audit logical capture failed {} times in a row, falling back to audit_posts_trigger " +
+                            "until restart", consecutiveFailures);
+                }
+            }
+            try {
+                Thread.sleep(properties.getReconnectDelay().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Подготовить захват: публикация, слот, затем отключение триггера (именно в таком порядке,
+     * чтобы каждое изменение попало либо в триггер, либо в слот)
+     */
+    private CaptureState prepareLogicalCapture() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            String walLevel = queryString(statement, "SHOW wal_level");
+            if (!"logical".equals(walLevel)) {
+                throw new IllegalStateException("wal_level is " + walLevel + ", audit stays on the trigger");
+            }
+            resetReplicaIdentity(statement);
+            if (!exists(connection, "SELECT 1 FROM pg_publication WHERE pubname = ?", properties.getPublicationName())) {
+                statement.execute("CREATE PUBLICATION " + properties.getPublicationName() +
+                        " FOR TABLE posts WITH (publish = 'insert, update, delete')");
+            }
+            if (!exists(connection, "SELECT 1 FROM pg_replication_slots WHERE slot_name = ?", properties.getSlotName())) {
+                execute(connection, "SELECT pg_create_logical_replication_slot(?, 'pgoutput')", properties.getSlotName());
+                log.info("Created logical replication slot {}", properties.getSlotName());
+            }
+            execute(connection, "INSERT INTO audit_capture_state (slot_name) VALUES (?) ON CONFLICT (slot_name) DO NOTHING",
+                    properties.getSlotName());
+            if (isTriggerEnabled(statement)) {
+                toggleTrigger(connection, false);
+                log.info("Post audit switched to logical replication capture, audit_posts_trigger disabled");
+            }
+            return loadState(connection);
+        }
+    }
+
+    /**
+     * Вернуть запись аудита триггеру и дочитать слот до момента включения триггера
+     *
+     * @return true, если слота больше нет
+     */
+    private boolean restoreTriggerCapture() throws SQLException {
+        CaptureState state;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (!isTriggerEnabled(statement)) {
+                toggleTrigger(connection, true);
+                log.info("Post audit switched back to audit_posts_trigger");
+            }
+            if (!exists(connection, "SELECT 1 FROM pg_replication_slots WHERE slot_name = ?", properties.getSlotName())) {
+                return true;
+            }
+            state = loadState(connection);
+            // Маркер в WAL после включения триггера: всё, что закоммичено раньше, в потоке идёт до него
+            execute(connection, "SELECT pg_logical_emit_message(false, ?, 'drain')", properties.getSlotName());
+        }
+        if (!stream(state, true)) {
+            return false;
+        }
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            execute(connection, "SELECT pg_drop_replication_slot(?)", properties.getSlotName());
+            statement.execute("DROP PUBLICATION IF EXISTS " + properties.getPublicationName());
+            resetReplicaIdentity(statement);
+            execute(connection, "DELETE FROM audit_capture_state WHERE slot_name = ?", properties.getSlotName());
+        }
+        log.info("Logical replication slot {} drained and dropped", properties.getSlotName());
+        return true;
+    }
+
+    /**
+     * Отставание слота: сколько байт WAL сервер хранит для захвата сверх подтверждённой позиции
+     */
+    @Scheduled(fixedDelayString = "${app.audit.capture.lag-check-interval-ms:30000}")
+    public void measureSlotLag() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT (pg_current_wal_lsn() - confirmed_flush_lsn)::bigint " +
+                     "FROM pg_replication_slots WHERE slot_name = ?")) {
+            statement.setString(1, properties.getSlotName());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                slotLagBytes.set(resultSet.next() ? resultSet.getLong(1) : 0L);
+            }
+        } catch (SQLException e) {
+            log.debug("Failed to measure audit capture slot lag: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Читать поток и записывать аудит пачками
+     *
+     * @param drain остановиться на маркере дочитывания слота; иначе читать, пока реплика лидер
+     * @return true, если слот дочитан до маркера
+     */
+    private boolean stream(CaptureState state, boolean drain) throws SQLException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        List<PgOutputDecoder.RowChange> transaction = new ArrayList<>();
+        List<AuditChange> batch = new ArrayList<>();
+        // Последние известные состояния постов в порядке обращения: давно не менявшиеся вытесняются первыми
+        Map<Long, PostState> states = new LinkedHashMap<>(16, 0.75f, true);
+        Instant commitTime = null;
+        long confirmedLsn = state.confirmedLsn();
+        long receivedLsn = confirmedLsn;
+        long batchStartedAt = System.nanoTime();
+
+        try (Connection replicationConnection = openReplicationConnection();
+             PGReplicationStream stream = startStream(replicationConnection, confirmedLsn)) {
+            log.info("Streaming post changes from slot {} after LSN {}", properties.getSlotName(),
+                    LogSequenceNumber.valueOf(confirmedLsn));
+            while (running && leaderElection.isLeader()) {
+                ByteBuffer message = stream.readPending();
+                if (message == null) {
+                    long elapsedNanos = System.nanoTime() - batchStartedAt;
+                    if (receivedLsn > confirmedLsn && elapsedNanos >= properties.getFlushInterval().toNanos()) {
+                        confirmedLsn = flush(stream, batch, receivedLsn, states);
+                    }
+                    TimeUnit.MILLISECONDS.sleep(10);
+                    continue;
+                }
+                PgOutputDecoder.Message decoded = decoder.decode(message);
+                if (decoded instanceof PgOutputDecoder.Begin begin) {
+                    commitTime = begin.commitTime();
+                    transaction.clear();
+                } else if (decoded instanceof PgOutputDecoder.RowChange change) {
+                    transaction.add(change);
+                } else if (decoded instanceof PgOutputDecoder.Commit commit) {
+                    // Уже записанные транзакции (повтор после перезапуска) и записанные триггером пропускаются
+                    if (commit.endLsn() > confirmedLsn && !state.triggerActiveAt(commit.commitLsn())) {
+                        if (batch.isEmpty()) {
+                            batchStartedAt = System.nanoTime();
+                        }
+                        batch.addAll(toAuditChanges(transaction, commitTime, states));
+                    } else {
+                        // Аудит этих постов записан без потока: их состояние перечитывается из журнала
+                        transaction.forEach(change -> states.remove(postIdOf(change)));
+                    }
+                    transaction.clear();
+                    receivedLsn = Math.max(receivedLsn, commit.endLsn());
+                    if (batch.size() >= properties.getBatchSize()) {
+                        confirmedLsn = flush(stream, batch, receivedLsn, states);
+                    }
+                } else if (decoded instanceof PgOutputDecoder.LogicalMessage marker && drain
+                        && properties.getSlotName().equals(marker.prefix())) {
+                    if (receivedLsn > confirmedLsn) {
+                        flush(stream, batch, receivedLsn, states);
+                    }
+                    return true;
+                }
+            }
+            if (receivedLsn > confirmedLsn) {
+                flush(stream, batch, receivedLsn, states);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Записать пачку и позицию потока одной транзакцией, затем подтвердить позицию серверу
+     * После записи состояния постов есть и в журнале аудита, поэтому лишние вытесняются только здесь
+     */
+    private long flush(PGReplicationStream stream, List<AuditChange> batch, long endLsn,
+                       Map<Long, PostState> states) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement record = connection.prepareStatement(RECORD_SQL);
+                 PreparedStatement checkpoint = connection.prepareStatement(
+                         "UPDATE audit_capture_state SET confirmed_lsn = ?, updated_at = CURRENT_TIMESTAMP " +
+                         "WHERE slot_name = ?")) {
+                for (AuditChange change : batch) {
+                    record.setString(1, change.operation());
+                    record.setLong(2, change.postId());
+                    record.setObject(3, change.authorId(), Types.BIGINT);
+                    record.setString(4, change.oldTitle());
+                    record.setString(5, change.newTitle());
+                    record.setString(6, change.oldContent());
+                    record.setString(7, change.newContent());
+                    record.setObject(8, change.oldIsPublished(), Types.BOOLEAN);
+                    record.setObject(9, change.newIsPublished(), Types.BOOLEAN);
+                    record.setObject(10, OffsetDateTime.ofInstant(change.changedAt(), ZoneOffset.UTC));
+                    record.addBatch();
+                }
+                if (!batch.isEmpty()) {
+                    record.executeBatch();
+                }
+                checkpoint.setLong(1, endLsn);
+                checkpoint.setString(2, properties.getSlotName());
+                checkpoint.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        consecutiveFailures = 0;
+        if (!batch.isEmpty()) {
+            log.debug("Captured {} post audit changes up to LSN {}", batch.size(), LogSequenceNumber.valueOf(endLsn));
+        }
+        batch.clear();
+        Iterator<Long> eldest = states.keySet().iterator();
+        while (states.size() > properties.getStateCacheSize()) {
+            eldest.next();
+            eldest.remove();
+        }
+
+        LogSequenceNumber lsn = LogSequenceNumber.valueOf(endLsn);
+        stream.setAppliedLSN(lsn);
+        stream.setFlushedLSN(lsn);
+        stream.forceUpdateStatus();
+        return endLsn;
+    }
+
+    /**
+     * Записи аудита для изменений транзакции
+     * Поток не несёт старых значений: прежнее состояние поста берётся из предыдущих изменений потока
+     * или из последней записи аудита, а его содержимое восстанавливается из журнала, только если изменение
+     * будет записано. UPDATE, не изменивший заголовок, содержимое и статус публикации (например, счётчик
+     * просмотров), в пачку не попадает.
+     */
+    private List<AuditChange> toAuditChanges(List<PgOutputDecoder.RowChange> changes, Instant commitTime,
+                                             Map<Long, PostState> states) throws SQLException {
+        loadPreviousStates(changes, states);
+
+        List<StateTransition> transitions = new ArrayList<>();
+        List<Long> contentPostIds = new ArrayList<>();
+        List<Long> contentAuditIds = new ArrayList<>();
+        for (PgOutputDecoder.RowChange change : changes) {
+            long postId = postIdOf(change);
+            PostState previous = states.get(postId);
+            PostState next = change.type() == PgOutputDecoder.ChangeType.DELETE
+                    ? null
+                    : nextState(previous, change.newRow());
+            if (change.type() == PgOutputDecoder.ChangeType.UPDATE && previous != null && previous.known()
+                    && previous.sameAs(next)) {
+                states.put(postId, next);
+                continue;
+            }
+            if (previous != null && previous.known() && previous.content() == null
+                    && !contentAuditIds.contains(previous.auditId())) {
+                contentPostIds.add(postId);
+                contentAuditIds.add(previous.auditId());
+            }
+            transitions.add(new StateTransition(change.type(), postId, previous, next));
+            if (next != null) {
+                states.put(postId, next);
+            } else {
+                states.remove(postId);
+            }
+        }
+
+        Map<Long, PostAuditService.RevisionContent> loaded =
+                postAuditService.decodeChains(contentPostIds, contentAuditIds);
+        Function<PostState, String> content = state -> state.content() != null || state.auditId() == null
+                ? state.content()
+                : reconstructedContent(loaded, state.auditId());
+        List<AuditChange> auditChanges = new ArrayList<>(transitions.size());
+        for (StateTransition transition : transitions) {
+            PostState previous = transition.previous() != null && transition.previous().known()
+                    ? transition.previous() : null;
+            PostState next = transition.next();
+            auditChanges.add(switch (transition.type()) {
+                case INSERT -> new AuditChange("INSERT", transition.postId(), next.authorId(), null, next.title(),
+                        null, content.apply(next), null, next.isPublished(), commitTime);
+                case UPDATE -> new AuditChange("UPDATE", transition.postId(), next.authorId(),
+                        previous != null ? previous.title() : null, next.title(),
+                        previous != null ? content.apply(previous) : null, content.apply(next),
+                        previous != null ? previous.isPublished() : null, next.isPublished(), commitTime);
+                case DELETE -> new AuditChange("DELETE", transition.postId(),
+                        transition.previous() != null ? transition.previous().authorId() : null,
+                        previous != null ? previous.title() : null, null,
+                        previous != null ? content.apply(previous) : null, null,
+                        previous != null ? previous.isPublished() : null, null, commitTime);
+            });
+        }
+        // Восстановленное содержимое остаётся в состояниях, которые на него ссылаются
+        for (Long postId : contentPostIds) {
+            states.computeIfPresent(postId, (id, state) -> state.content() == null && loaded.containsKey(state.auditId())
+                    ? state.withContent(loaded.get(state.auditId()).current())
+                    : state);
+        }
+        return auditChanges;
+    }
+
+    /**
+     * Содержимое поста после записи аудита auditId, восстановленное из цепочки дельт
+     */
+    private static String reconstructedContent(Map<Long, PostAuditService.RevisionContent> loaded, Long auditId) {
+        PostAuditService.RevisionContent revision = loaded.get(auditId);
+        if (revision == null || revision.current() == null) {
+            throw new IllegalStateException("Content of post audit record " + auditId +
+                    " cannot be reconstructed from its delta chain");
+        }
+        return revision.current();
+    }
+
+    /**
+     * Загрузить одним запросом последние записи аудита постов, состояние которых неизвестно
+     * Для поста без истории аудита (например, после удаления старых партиций) прежние значения неизвестны;
+     * его текущее содержимое нужно только как замена неизменившемуся TOAST-значению, которое поток не передаёт
+     */
+    private void loadPreviousStates(List<PgOutputDecoder.RowChange> changes, Map<Long, PostState> states)
+            throws SQLException {
+        Long[] postIds = changes.stream()
+                .filter(change -> change.type() != PgOutputDecoder.ChangeType.INSERT)
+                .map(PostAuditLogicalCapture::postIdOf)
+                .filter(postId -> !states.containsKey(postId))
+                .distinct()
+                .toArray(Long[]::new);
+        if (postIds.length == 0) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(PREVIOUS_STATE_SQL)) {
+            statement.setArray(1, connection.createArrayOf("bigint", postIds));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Long auditId = resultSet.getObject(2, Long.class);
+                    states.put(resultSet.getLong(1), auditId != null
+                            ? new PostState(resultSet.getObject(3, Long.class), resultSet.getString(4),
+                                    resultSet.getObject(5, Boolean.class), resultSet.getString(6), null, auditId, true)
+                            : new PostState(resultSet.getObject(7, Long.class), null, null, null,
+                                    resultSet.getString(8), null, false));
+                }
+            }
+        }
+    }
+
+    /**
+     * Состояние поста после INSERT или UPDATE; неизменившееся TOAST-содержимое (колонки нет в строке)
+     * наследуется от прежнего состояния
+     */
+    private static PostState nextState(PostState previous, Map<String, String> row) {
+        Long authorId = Long.parseLong(row.get("author_id"));
+        String title = row.get("title");
+        Boolean isPublished = parseBoolean(row.get("is_published"));
+        if (row.containsKey("content")) {
+            String content = row.get("content");
+            return new PostState(authorId, title, isPublished, md5(content), content, null, true);
+        }
+        if (previous == null) {
+            return new PostState(authorId, title, isPublished, null, null, null, true);
+        }
+        String contentHash = previous.known() ? previous.contentHash() : md5(previous.content());
+        return new PostState(authorId, title, isPublished, contentHash, previous.content(), previous.auditId(), true);
+    }
+
+    private static long postIdOf(PgOutputDecoder.RowChange change) {
+        Map<String, String> row = change.type() == PgOutputDecoder.ChangeType.DELETE
+                ? change.oldRow()
+                : change.newRow();
+        return Long.parseLong(row.get("id"));
+    }
+
+    /**
+     * MD5 в шестнадцатеричном виде, как md5(text) в PostgreSQL
+     */
+    private static String md5(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        return value != null ? "t".equals(value) : null;
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties connectionProperties = new Properties();
+        PGProperty.USER.set(connectionProperties, connectionDetails.getUsername());
+        PGProperty.PASSWORD.set(connectionProperties, connectionDetails.getPassword());
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(connectionProperties, "10");
+        PGProperty.REPLICATION.set(connectionProperties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(connectionProperties, "simple");
+        return DriverManager.getConnection(connectionDetails.getJdbcUrl(), connectionProperties);
+    }
+
+    private PGReplicationStream startStream(Connection replicationConnection, long confirmedLsn) throws SQLException {
+        ChainedLogicalStreamBuilder builder = replicationConnection.unwrap(PGConnection.class)
+                .getReplicationAPI()
+                .replicationStream()
+                .logical()
+                .withSlotName(properties.getSlotName())
+                .withSlotOption("proto_version", "1")
+                .withSlotOption("publication_names", properties.getPublicationName())
+                .withSlotOption("messages", true)
+                .withStatusInterval((int) properties.getStatusInterval().toMillis(), TimeUnit.MILLISECONDS);
+        if (confirmedLsn > 0) {
+            builder.withStartPosition(LogSequenceNumber.valueOf(confirmedLsn));
+        }
+        return builder.start();
+    }
+
+    /**
+     * Включить или отключить триггер и запомнить LSN переключения
+     * ALTER TABLE ждёт завершения текущих записей в posts, поэтому транзакции, закоммиченные раньше
+     * прочитанного LSN, обработаны прежним способом, а более поздние — новым
+     */
+    private void toggleTrigger(Connection connection, boolean enable) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE posts " + (enable ? "ENABLE" : "DISABLE") + " TRIGGER audit_posts_trigger");
+            execute(connection, "UPDATE audit_capture_state SET " +
+                    (enable ? "trigger_enabled_lsn" : "trigger_disabled_lsn") + " = " + CURRENT_LSN +
+                    ", updated_at = CURRENT_TIMESTAMP WHERE slot_name = ?", properties.getSlotName());
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static boolean isTriggerEnabled(Statement statement) throws SQLException {
+        return !"D".equals(queryString(statement, "SELECT tgenabled FROM pg_trigger " +
+                "WHERE tgname = 'audit_posts_trigger' AND tgrelid = 'posts'::regclass"));
+    }
+
+    private CaptureState loadState(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT confirmed_lsn, trigger_disabled_lsn, trigger_enabled_lsn FROM audit_capture_state " +
+                "WHERE slot_name = ?")) {
+            statement.setString(1, properties.getSlotName());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return new CaptureState(0L, null, null);
+                }
+                return new CaptureState(resultSet.getLong(1),
+                        resultSet.getObject(2, Long.class), resultSet.getObject(3, Long.class));
+            }
+        }
+    }
+
+    /**
+     * Вернуть posts идентичность реплики по умолчанию (первичный ключ), если её расширила прежняя версия захвата
+     */
+    private static void resetReplicaIdentity(Statement statement) throws SQLException {
+        if ("f".equals(queryString(statement, "SELECT relreplident FROM pg_class WHERE oid = 'posts'::regclass"))) {
+            statement.execute("ALTER TABLE posts REPLICA IDENTITY DEFAULT");
+        }
+    }
+
+    private static String queryString(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private static boolean exists(Connection connection, String sql, String parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, parameter);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql, String parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, parameter);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Позиция потребителя и LSN последних переключений триггера
+     */
+    record CaptureState(long confirmedLsn, Long triggerDisabledLsn, Long triggerEnabledLsn) {
+
+        /**
+         * Был ли триггер включён при коммите транзакции с данным LSN (тогда аудит уже записан им)
+         */
+        boolean triggerActiveAt(long commitLsn) {
+            boolean disabledBefore = triggerDisabledLsn != null && triggerDisabledLsn <= commitLsn;
+            boolean enabledBefore = triggerEnabledLsn != null && triggerEnabledLsn <= commitLsn;
+            if (disabledBefore && enabledBefore) {
+                return triggerEnabledLsn > triggerDisabledLsn;
+            }
+            if (disabledBefore || enabledBefore) {
+                return enabledBefore;
+            }
+            // До первого известного переключения триггер был включён, если первым его отключили
+            if (triggerDisabledLsn == null) {
+                return triggerEnabledLsn == null;
+            }
+            return triggerEnabledLsn == null || triggerDisabledLsn < triggerEnabledLsn;
+        }
+    }
+
+    /**
+     * Последнее известное состояние поста
+     *
+     * @param content  содержимое; null — ещё не восстановлено из записи аудита auditId
+     * @param known    false — истории поста нет, прежние значения неизвестны (content — текущее содержимое posts)
+     */
+    private record PostState(Long authorId, String title, Boolean isPublished, String contentHash, String content,
+                             Long auditId, boolean known) {
+
+        boolean sameAs(PostState other) {
+            return Objects.equals(title, other.title) && Objects.equals(isPublished, other.isPublished)
+                    && Objects.equals(contentHash, other.contentHash);
+        }
+
+        PostState withContent(String content) {
+            return new PostState(authorId, title, isPublished, contentHash, content, auditId, known);
+        }
+    }
+
+    private record StateTransition(PgOutputDecoder.ChangeType type, long postId, PostState previous, PostState next) {
+    }
+
+    private record AuditChange(String operation, long postId, Long authorId,
+                               String oldTitle, String newTitle, String oldContent, String newContent,
+                               Boolean oldIsPublished, Boolean newIsPublished, Instant changedAt) {
+    }
+}
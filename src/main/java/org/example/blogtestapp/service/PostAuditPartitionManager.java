@@ -0,0 +1,227 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.AuditPartitionProperties;
+import org.postgresql.PGConnection;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Обслуживание помесячных партиций post_audit_log
+ * Заранее создаёт партиции будущих месяцев (и месяцев, строки которых попали в DEFAULT-партицию),
+ * а партиции старше срока хранения отсоединяет,
+ * выгружает в сжатый CSV и удаляет: удаление истории — это DROP TABLE партиции, а не DELETE строк.
+ * Выполняется только на реплике-лидере ({@link SchedulerLeaderElection}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostAuditPartitionManager {
+
+    private static final String PARTITION_PREFIX = "post_audit_log_p";
+    private static final String PARTITION_PATTERN = "^post_audit_log_p[0-9]{4}_[0-9]{2}$";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final DataSource dataSource;
+    private final AuditPartitionProperties properties;
+    private final SchedulerLeaderElection leaderElection;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintainIfLeader();
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.partitions.maintenance-interval-ms:3600000}",
+            initialDelayString = "${app.audit.partitions.maintenance-interval-ms:3600000}")
+    public void maintainIfLeader() {
+        if (!properties.isEnabled() || !leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            maintain(YearMonth.now());
+        } catch (RuntimeException e) {
+            log.error("Failed to maintain post_audit_log partitions", e);
+        }
+    }
+
+    /**
+     * Создать недостающие будущие партиции и применить срок хранения относительно месяца now
+     *
+     * @return имена партиций, удалённых в этом запуске
+     */
+    public List<String> maintain(YearMonth now) {
+        // Создание партиций и срок хранения независимы: сбой одного не останавливает другое
+        try {
+            int created = ensurePartitions();
+            if (created > 0) {
+                log.info("Created {} post_audit_log partitions", created);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to create post_audit_log partitions", e);
+        }
+        if (properties.getRetentionMonths() <= 0) {
+            return List.of();
+        }
+        YearMonth oldestKept = now.minusMonths(properties.getRetentionMonths());
+        for (String partition : listAttachedPartitions()) {
+            if (monthOf(partition).isBefore(oldestKept)) {
+                try {
+                    detach(partition);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to detach post_audit_log partition {}, will retry: {}", partition, e.getMessage());
+                }
+            }
+        }
+        // Отсоединённые, но ещё не выгруженные партиции (в том числе после сбоя прошлого запуска)
+        List<String> dropped = new ArrayList<>();
+        for (String partition : listDetachedPartitions()) {
+            try {
+                if (properties.isArchiveEnabled()) {
+                    archive(partition);
+                }
+                drop(partition);
+                dropped.add(partition);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to archive detached partition {}, will retry", partition, e);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Имя партиции месяца
+     */
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private int ensurePartitions() {
+        return execute("SELECT ensure_post_audit_log_partitions(?)", statement -> {
+            statement.setInt(1, properties.getMonthsAhead());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        });
+    }
+
+    private List<String> listAttachedPartitions() {
+        return listTables("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'post_audit_log'::regclass AND c.relname ~ ? ORDER BY c.relname");
+    }
+
+    private List<String> listDetachedPartitions() {
+        return listTables("SELECT c.relname FROM pg_class c " +
+                "WHERE c.relkind = 'r' AND NOT c.relispartition AND c.relname ~ ? " +
+                "AND c.relnamespace = current_schema()::regnamespace ORDER BY c.relname");
+    }
+
+    private List<String> listTables(String sql) {
+        return execute(sql, statement -> {
+            statement.setString(1, PARTITION_PATTERN);
+            List<String> names = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    names.add(resultSet.getString(1));
+                }
+            }
+            return names;
+        });
+    }
+
+    /**
+     * DETACH берёт ACCESS EXCLUSIVE на post_audit_log (CONCURRENTLY недоступен при DEFAULT-партиции),
+     * поэтому ожидание блокировки ограничено lock_timeout: очередь за ним остановила бы все записи в posts
+     */
+    private void detach(String partition) {
+        // Имя партиции проверено по PARTITION_PATTERN, поэтому подстановка в DDL безопасна
+        String sql = "ALTER TABLE post_audit_log DETACH PARTITION " + partition;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL lock_timeout = " + properties.getDetachLockTimeout().toMillis());
+                statement.execute(sql);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to execute: " + sql, e);
+        }
+        log.info("Detached post_audit_log partition {}", partition);
+    }
+
+    private void archive(String partition) throws IOException {
+        Path directory = Paths.get(properties.getArchiveDir());
+        Files.createDirectories(directory);
+        Path target = directory.resolve(partition + ".csv.gz");
+        Path temporary = directory.resolve(partition + ".csv.gz.tmp");
+        long rows;
+        try (Connection connection = dataSource.getConnection();
+             OutputStream output = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+            rows = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", output);
+        } catch (SQLException e) {
+            Files.deleteIfExists(temporary);
+            throw new IllegalStateException("Failed to copy partition " + partition, e);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Archived {} rows of partition {} to {}", rows, partition, target);
+    }
+
+    private void drop(String partition) {
+        executeDdl("DROP TABLE " + partition);
+        log.info("Dropped post_audit_log partition {}", partition);
+    }
+
+    private static YearMonth monthOf(String partition) {
+        return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+    }
+
+    private void executeDdl(String sql) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to execute: " + sql, e);
+        }
+    }
+
+    private <T> T execute(String sql, StatementCallback<T> callback) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            return callback.apply(statement);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to execute: " + sql, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementCallback<T> {
+        T apply(PreparedStatement statement) throws SQLException;
+    }
+}
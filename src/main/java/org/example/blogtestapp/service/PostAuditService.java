@@ -2,14 +2,30 @@ package org.example.blogtestapp.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.DailyAuditActivityResponse;
+import org.example.blogtestapp.dto.FrequentlyChangedPostResponse;
+import org.example.blogtestapp.dto.PostAuditContentResponse;
 import org.example.blogtestapp.dto.PostAuditResponse;
+import org.example.blogtestapp.dto.PostAuditSearchResultResponse;
+import org.example.blogtestapp.dto.PostAuditSummaryResponse;
 import org.example.blogtestapp.entity.PostAuditLog;
 import org.example.blogtestapp.repository.PostAuditLogRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -21,69 +37,135 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PostAuditService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final PostAuditLogRepository postAuditLogRepository;
 
     /**
      * Получить историю изменений поста
+     *
+     * @param includeContent восстановить полный текст до и после каждого изменения
      */
-    public List<PostAuditResponse> getPostAuditHistory(Long postId) {
+    public List<PostAuditResponse> getPostAuditHistory(Long postId, boolean includeContent) {
         log.info("Getting audit history for post ID: {}", postId);
-        
-        return postAuditLogRepository.findByPostIdOrderByChangedAtDesc(postId)
-                .stream()
-                .map(this::mapToPostAuditResponse)
-                .collect(Collectors.toList());
+
+        List<PostAuditLog> chain = postAuditLogRepository.findByPostIdOrderByIdAsc(postId);
+        List<PostAuditResponse> history = new ArrayList<>(chain.size());
+        String current = null;
+        for (PostAuditLog auditLog : chain) {
+            RevisionContent content = decode(auditLog, current);
+            current = content.current();
+            history.add(mapToPostAuditResponse(auditLog, includeContent ? content : RevisionContent.EMPTY));
+        }
+        Collections.reverse(history);
+        return history;
     }
 
     /**
-     * Получить все записи аудита по типу операции
+     * Получить содержимое поста до и после изменения для записи аудита
      */
-    public List<PostAuditResponse> getAuditByOperation(String operation) {
-        return postAuditLogRepository.findByOperationOrderByChangedAtDesc(operation)
-                .stream()
-                .map(this::mapToPostAuditResponse)
-                .collect(Collectors.toList());
+    public PostAuditContentResponse getAuditContent(Long auditId) {
+        Long postId = postAuditLogRepository.findById(auditId)
+                .map(PostAuditLog::getPostId)
+                .orElseThrow(() -> new IllegalArgumentException("Audit entry not found with ID: " + auditId));
+
+        RevisionContent content = decodeChain(postId, auditId);
+        return PostAuditContentResponse.builder()
+                .id(auditId)
+                .postId(postId)
+                .oldContent(content.oldContent())
+                .newContent(content.newContent())
+                .build();
     }
 
     /**
-     * Получить записи аудита за период
+     * Восстановить содержимое записи аудита от ближайшей предшествующей контрольной точки
      */
-    public List<PostAuditResponse> getAuditByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return postAuditLogRepository.findByChangedAtBetweenOrderByChangedAtDesc(startDate, endDate)
-                .stream()
-                .map(this::mapToPostAuditResponse)
-                .collect(Collectors.toList());
+    RevisionContent decodeChain(Long postId, Long auditId) {
+        RevisionContent content = RevisionContent.EMPTY;
+        String current = null;
+        for (PostAuditLog auditLog : postAuditLogRepository.findContentChain(postId, auditId)) {
+            content = decode(auditLog, current);
+            current = content.current();
+        }
+        return content;
     }
 
     /**
-     * Получить последние изменения
+     * Восстановить содержимое нескольких записей аудита: цепочки всех записей читаются одним запросом
+     * и декодируются в памяти
+     *
+     * @param auditIds записи аудита; auditIds[i] относится к посту postIds[i]
+     * @return содержимое по id записи аудита
      */
-    public List<PostAuditResponse> getRecentChanges(int limit) {
-        List<PostAuditLog> changes = postAuditLogRepository.findRecentChanges();
-        return changes.stream()
-                .limit(limit)
-                .map(this::mapToPostAuditResponse)
-                .collect(Collectors.toList());
+    Map<Long, RevisionContent> decodeChains(List<Long> postIds, List<Long> auditIds) {
+        if (auditIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, NavigableMap<Long, PostAuditLog>> entriesByPost = new HashMap<>();
+        for (PostAuditLog auditLog : postAuditLogRepository.findContentChains(postIds, auditIds)) {
+            entriesByPost.computeIfAbsent(auditLog.getPostId(), id -> new TreeMap<>()).put(auditLog.getId(), auditLog);
+        }
+        Map<Long, RevisionContent> contents = new HashMap<>();
+        for (int i = 0; i < auditIds.size(); i++) {
+            NavigableMap<Long, PostAuditLog> entries = entriesByPost.getOrDefault(postIds.get(i), Collections.emptyNavigableMap());
+            Long auditId = auditIds.get(i);
+            // Цепочка записи загружена целиком, поэтому ближайшая загруженная контрольная точка — её начало
+            Long checkpointId = entries.headMap(auditId, false).descendingMap().values().stream()
+                    .filter(auditLog -> auditLog.getNewContent() != null)
+                    .map(PostAuditLog::getId)
+                    .findFirst()
+                    .orElse(Long.MIN_VALUE);
+            RevisionContent content = RevisionContent.EMPTY;
+            String current = null;
+            for (PostAuditLog auditLog : entries.subMap(checkpointId, true, auditId, true).values()) {
+                content = decode(auditLog, current);
+                current = content.current();
+            }
+            contents.put(auditId, content);
+        }
+        return contents;
     }
 
     /**
-     * Получить изменения заголовков
+     * Получить страницу записей аудита по типу операции
      */
-    public List<PostAuditResponse> getTitleChanges() {
-        return postAuditLogRepository.findTitleChanges()
-                .stream()
-                .map(this::mapToPostAuditResponse)
-                .collect(Collectors.toList());
+    public CursorPageResponse<PostAuditSummaryResponse> getAuditByOperation(String operation, String after, int size) {
+        return page(after, size, (cursor, limit) -> postAuditLogRepository.findByOperation(
+                operation, cursor.timestamp(), cursor.id(), limit));
     }
 
     /**
-     * Получить удаленные посты
+     * Получить страницу записей аудита за период
      */
-    public List<PostAuditResponse> getDeletedPosts() {
-        return postAuditLogRepository.findDeletedPosts()
-                .stream()
-                .map(this::mapToPostAuditResponse)
-                .collect(Collectors.toList());
+    public CursorPageResponse<PostAuditSummaryResponse> getAuditByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                                     String after, int size) {
+        return page(after, size, (cursor, limit) -> postAuditLogRepository.findByChangedAtBetween(
+                startDate, endDate, cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Получить страницу последних изменений
+     */
+    public CursorPageResponse<PostAuditSummaryResponse> getRecentChanges(String after, int size) {
+        return page(after, size, (cursor, limit) -> postAuditLogRepository.findRecentChanges(
+                cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Получить страницу изменений заголовков
+     */
+    public CursorPageResponse<PostAuditSummaryResponse> getTitleChanges(String after, int size) {
+        return page(after, size, (cursor, limit) -> postAuditLogRepository.findTitleChanges(
+                cursor.timestamp(), cursor.id(), limit));
+    }
+
+    /**
+     * Получить страницу удаленных постов
+     */
+    public CursorPageResponse<PostAuditSummaryResponse> getDeletedPosts(String after, int size) {
+        return getAuditByOperation("DELETE", after, size);
     }
 
     /**
@@ -96,21 +178,199 @@ public class PostAuditService {
     /**
      * Получить посты с частыми изменениями
      */
-    public List<Object[]> getFrequentlyChangedPosts(Long threshold) {
-        return postAuditLogRepository.findFrequentlyChangedPosts(threshold);
+    public List<FrequentlyChangedPostResponse> getFrequentlyChangedPosts(Long threshold) {
+        return postAuditLogRepository.findFrequentlyChangedPosts(threshold).stream()
+                .map(row -> FrequentlyChangedPostResponse.builder()
+                        .postId(((Number) row[0]).longValue())
+                        .changesCount(((Number) row[1]).longValue())
+                        .insertsCount(((Number) row[2]).longValue())
+                        .updatesCount(((Number) row[3]).longValue())
+                        .deletesCount(((Number) row[4]).longValue())
+                        .lastChangedAt(toLocalDateTime(row[5]))
+                        .build())
+                .collect(Collectors.toList());
     }
 
     /**
      * Получить активность по дням
      */
-    public List<Object[]> getDailyActivity(LocalDateTime fromDate) {
-        return postAuditLogRepository.findDailyActivity(fromDate);
+    public List<DailyAuditActivityResponse> getDailyActivity(LocalDate fromDate) {
+        return postAuditLogRepository.findDailyActivity(fromDate).stream()
+                .map(row -> DailyAuditActivityResponse.builder()
+                        .date(toLocalDate(row[0]))
+                        .changesCount(toLong(row[1]))
+                        .insertsCount(toLong(row[2]))
+                        .updatesCount(toLong(row[3]))
+                        .deletesCount(toLong(row[4]))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Найти изменения, в которых слова запроса появились в заголовке или содержимом поста или исчезли из них
+     * Кандидаты выбираются по GIN-индексам added_terms/removed_terms в хронологическом порядке; содержимое
+     * восстанавливается только для записей страницы (одним запросом цепочек), чтобы построить фрагмент
+     * с найденными словами.
+     *
+     * @param postId искать только в истории этого поста; null — во всех постах
+     */
+    public CursorPageResponse<PostAuditSearchResultResponse> searchHistory(String query, Long postId,
+                                                                          String after, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        KeysetCursor cursor = KeysetCursor.parse(after, KeysetCursor.EARLIEST);
+        List<Object[]> rows = postId != null
+                ? postAuditLogRepository.searchPostChanges(postId, query, cursor.timestamp(), cursor.id(), size + 1)
+                : postAuditLogRepository.searchChanges(query, cursor.timestamp(), cursor.id(), size + 1);
+
+        boolean hasMore = rows.size() > size;
+        List<Object[]> pageRows = hasMore ? rows.subList(0, size) : rows;
+        List<PostAuditSearchResultResponse> results = new ArrayList<>(pageRows.size());
+        for (Object[] row : pageRows) {
+            PostAuditSearchResultResponse result = PostAuditSearchResultResponse.builder()
+                    .id(((Number) row[0]).longValue())
+                    .postId(((Number) row[1]).longValue())
+                    .operation((String) row[2])
+                    .changedAt(toLocalDateTime(row[3]))
+                    .userId(row[4] != null ? ((Number) row[4]).longValue() : null)
+                    .oldTitle((String) row[5])
+                    .newTitle((String) row[6])
+                    .match(Boolean.TRUE.equals(row[7])
+                            ? PostAuditSearchResultResponse.Match.APPEARED
+                            : PostAuditSearchResultResponse.Match.DISAPPEARED)
+                    .build();
+            results.add(result);
+        }
+        Map<Long, RevisionContent> contents = decodeChains(
+                results.stream().map(PostAuditSearchResultResponse::getPostId).toList(),
+                results.stream().map(PostAuditSearchResultResponse::getId).toList());
+        List<String> texts = new ArrayList<>(results.size());
+        for (PostAuditSearchResultResponse result : results) {
+            // Фрагмент берётся из версии, в которой слова есть: после изменения для APPEARED, до — для DISAPPEARED
+            RevisionContent content = contents.get(result.getId());
+            boolean appeared = result.getMatch() == PostAuditSearchResultResponse.Match.APPEARED;
+            String title = appeared ? result.getNewTitle() : result.getOldTitle();
+            String body = appeared ? content.newContent() : content.oldContent();
+            texts.add((title != null ? title : "") + "\n" + (body != null ? body : ""));
+        }
+        if (!texts.isEmpty()) {
+            List<String> snippets = postAuditLogRepository.findHeadlines(query, texts);
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).setSnippet(snippets.get(i));
+            }
+        }
+        String nextCursor = hasMore
+                ? new KeysetCursor(results.get(results.size() - 1).getChangedAt(), results.get(results.size() - 1).getId()).toString()
+                : null;
+        return CursorPageResponse.<PostAuditSearchResultResponse>builder()
+                .items(results)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Keyset-страница по (changedAt, id) в порядке убывания: LIMIT применяется в БД,
+     * лишняя (size + 1)-я запись только показывает, есть ли следующая страница
+     */
+    private CursorPageResponse<PostAuditSummaryResponse> page(String after, int size,
+                                                              BiFunction<KeysetCursor, Integer, List<Object[]>> query) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<PostAuditSummaryResponse> records = query.apply(KeysetCursor.parse(after), size + 1).stream()
+                .map(this::mapToPostAuditSummaryResponse)
+                .collect(Collectors.toList());
+
+        boolean hasMore = records.size() > size;
+        List<PostAuditSummaryResponse> pageRecords = hasMore ? records.subList(0, size) : records;
+        PostAuditSummaryResponse last = hasMore ? pageRecords.get(pageRecords.size() - 1) : null;
+        String nextCursor = last != null ? new KeysetCursor(last.getChangedAt(), last.getId()).toString() : null;
+
+        return CursorPageResponse.<PostAuditSummaryResponse>builder()
+                .items(pageRecords)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Маппинг строки SUMMARY_COLUMNS в PostAuditSummaryResponse
+     */
+    private PostAuditSummaryResponse mapToPostAuditSummaryResponse(Object[] row) {
+        return PostAuditSummaryResponse.builder()
+                .id(((Number) row[0]).longValue())
+                .postId(((Number) row[1]).longValue())
+                .operation((String) row[2])
+                .changedAt(toLocalDateTime(row[3]))
+                .userId(row[4] != null ? ((Number) row[4]).longValue() : null)
+                .oldTitle((String) row[5])
+                .newTitle((String) row[6])
+                .oldIsPublished((Boolean) row[7])
+                .newIsPublished((Boolean) row[8])
+                .changeDetails((String) row[9])
+                .oldContentLength(row[10] != null ? ((Number) row[10]).intValue() : null)
+                .newContentLength(row[11] != null ? ((Number) row[11]).intValue() : null)
+                .oldContentHash((String) row[12])
+                .newContentHash((String) row[13])
+                .build();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    /**
+     * SUM ... FILTER возвращает NULL, если за день не было операций этого типа
+     */
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    /**
+     * Восстановить содержимое записи аудита по содержимому поста после предыдущей записи (previous)
+     */
+    static RevisionContent decode(PostAuditLog auditLog, String previous) {
+        String oldContent = auditLog.getOldContent() != null ? auditLog.getOldContent()
+                : "INSERT".equals(auditLog.getOperation()) ? null : previous;
+        if ("DELETE".equals(auditLog.getOperation())) {
+            return new RevisionContent(oldContent, null, oldContent);
+        }
+        String newContent;
+        if (auditLog.getNewContent() != null) {
+            newContent = auditLog.getNewContent();
+        } else if (auditLog.getContentDelta() != null) {
+            newContent = oldContent != null
+                    ? applyDelta(oldContent, auditLog.getContentDeltaPrefix(), auditLog.getContentDeltaSuffix(),
+                    auditLog.getContentDelta())
+                    : null;
+        } else {
+            newContent = oldContent;
+        }
+        return new RevisionContent(oldContent, newContent, newContent);
+    }
+
+    /**
+     * Заменить середину base между prefix и suffix символами (кодовыми точками, как char_length в PostgreSQL)
+     */
+    private static String applyDelta(String base, int prefix, int suffix, String middle) {
+        int prefixEnd = base.offsetByCodePoints(0, prefix);
+        int suffixStart = base.offsetByCodePoints(base.length(), -suffix);
+        return base.substring(0, prefixEnd) + middle + base.substring(suffixStart);
     }
 
     /**
      * Маппинг PostAuditLog в PostAuditResponse
      */
-    private PostAuditResponse mapToPostAuditResponse(PostAuditLog auditLog) {
+    private PostAuditResponse mapToPostAuditResponse(PostAuditLog auditLog, RevisionContent content) {
         return PostAuditResponse.builder()
                 .id(auditLog.getId())
                 .postId(auditLog.getPostId())
@@ -119,11 +379,19 @@ public class PostAuditService {
                 .userId(auditLog.getUserId())
                 .oldTitle(auditLog.getOldTitle())
                 .newTitle(auditLog.getNewTitle())
-                .oldContent(auditLog.getOldContent())
-                .newContent(auditLog.getNewContent())
+                .oldContent(content.oldContent())
+                .newContent(content.newContent())
                 .oldIsPublished(auditLog.getOldIsPublished())
                 .newIsPublished(auditLog.getNewIsPublished())
                 .changeDetails(auditLog.getChangeDetails())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Содержимое поста до и после изменения; current — содержимое после записи, от которого декодируется следующая
+     */
+    record RevisionContent(String oldContent, String newContent, String current) {
+
+        static final RevisionContent EMPTY = new RevisionContent(null, null, null);
+    }
+}
@@ -7,6 +7,7 @@ import org.example.blogtestapp.entity.Post;
 import org.example.blogtestapp.entity.Tag;
 import org.example.blogtestapp.entity.User;
 import org.example.blogtestapp.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -33,6 +34,9 @@ public class PostService {
     private final TagRepository tagRepository;
     private final LikeRepository likeRepository;
     private final CommentRepository commentRepository;
+    private final ActiveUserStatisticsSnapshotService activeUserStatisticsSnapshotService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserReferenceCache userReferenceCache;
 
     /**
      * Создать новый пост
@@ -40,8 +44,8 @@ public class PostService {
     public PostResponse createPost(CreatePostRequest request, String authorUsername) {
         log.info("Creating new post with title: {} by user: {}", request.getTitle(), authorUsername);
 
-        User author = userRepository.findByUsername(authorUsername)
-                .orElseThrow(() -> new IllegalArgumentException("User not found: " + authorUsername));
+        UserReference authorReference = userReferenceCache.getActive(authorUsername);
+        User author = userRepository.getReferenceById(authorReference.getId());
 
         // Обработка тегов
         Set<Tag> tags = processTagNames(request.getTagNames());
@@ -61,8 +65,13 @@ public class PostService {
         // Обновляем счетчики использования тегов
         updateTagUsageCounts(tags, 1);
 
+        if (savedPost.getIsPublished()) {
+            eventPublisher.publishEvent(new AuthorPublishedPostsChangedEvent(author.getId(), 1,
+                    postRepository.currentTransactionId()));
+        }
+
         log.info("Post created successfully with ID: {}", savedPost.getId());
-        return mapToPostResponse(savedPost);
+        return mapToPostResponse(savedPost, authorUsername);
     }
 
     /**
@@ -101,10 +110,10 @@ public class PostService {
      */
     @Transactional(readOnly = true)
     public List<PostSummaryResponse> getPostsByUser(String username) {
-        User user = userRepository.findByUsername(username)
+        UserReference user = userReferenceCache.find(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
 
-        return postRepository.findByAuthorOrderByCreatedAtDesc(user)
+        return postRepository.findByAuthorIdOrderByCreatedAtDesc(user.getId())
                 .stream()
                 .map(this::mapToPostSummaryResponse)
                 .collect(Collectors.toList());
@@ -120,7 +129,7 @@ public class PostService {
                 .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + id));
 
         // Проверяем права доступа
-        if (!post.getAuthor().getUsername().equals(authorUsername)) {
+        if (!isOwner(post, authorUsername)) {
             throw new IllegalArgumentException("User does not have permission to update this post");
         }
 
@@ -144,6 +153,11 @@ public class PostService {
             } else if (!request.getIsPublished()) {
                 post.setPublishedAt(null);
             }
+            if (request.getIsPublished() != wasPublished) {
+                eventPublisher.publishEvent(new AuthorPublishedPostsChangedEvent(
+                        post.getAuthor().getId(), request.getIsPublished() ? 1 : -1,
+                        postRepository.currentTransactionId()));
+            }
         }
         if (request.getTagNames() != null) {
             Set<Tag> newTags = processTagNames(request.getTagNames());
@@ -157,7 +171,8 @@ public class PostService {
         Post savedPost = postRepository.save(post);
         log.info("Post updated successfully with ID: {}", savedPost.getId());
 
-        return mapToPostResponse(savedPost);
+        // Владелец проверен выше: имя автора известно без загрузки пользователя
+        return mapToPostResponse(savedPost, authorUsername);
     }
 
     /**
@@ -170,7 +185,7 @@ public class PostService {
                 .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + id));
 
         // Проверяем права доступа
-        if (!post.getAuthor().getUsername().equals(authorUsername)) {
+        if (!isOwner(post, authorUsername)) {
             throw new IllegalArgumentException("User does not have permission to delete this post");
         }
 
@@ -178,6 +193,10 @@ public class PostService {
         updateTagUsageCounts(post.getTags(), -1);
 
         postRepository.delete(post);
+        if (post.getIsPublished()) {
+            eventPublisher.publishEvent(new AuthorPublishedPostsChangedEvent(post.getAuthor().getId(), -1,
+                    postRepository.currentTransactionId()));
+        }
         log.info("Post deleted successfully with ID: {}", id);
     }
 
@@ -237,22 +256,19 @@ public class PostService {
     }
 
     /**
-     * Получить статистику активных пользователей за последние 10 дней
+     * Получить статистику активных пользователей за последние 10 дней (из снимка в памяти)
      */
-    @Transactional(readOnly = true)
-    public List<ActiveUserStatisticsResponse> getActiveUsersStatistics() {
-        List<Object[]> rawResults = postRepository.getActiveUsersStatisticsRaw();
-        return rawResults.stream()
-                .map(row -> ActiveUserStatisticsResponse.builder()
-                        .username((String) row[0])
-                        .displayName((String) row[1])
-                        .postsCount(((Number) row[2]).longValue())
-                        .commentsCount(((Number) row[3]).longValue())
-                        .likesReceived(((Number) row[4]).longValue())
-                        .totalViews(((Number) row[5]).longValue())
-                        .activityScore(((Number) row[6]).doubleValue())
-                        .build())
-                .collect(Collectors.toList());
+    public List<ActiveUserStatisticsResponse> getActiveUsersStatistics(Integer limit, int page, Integer size) {
+        return activeUserStatisticsSnapshotService.getStatistics(limit, page, size);
+    }
+
+    /**
+     * Является ли пользователь автором поста: сравнивается author_id, автор поста не загружается
+     */
+    private boolean isOwner(Post post, String username) {
+        return userReferenceCache.find(username)
+                .map(user -> user.getId().equals(post.getAuthor().getId()))
+                .orElse(false);
     }
 
     /**
@@ -296,13 +312,21 @@ public class PostService {
      * Маппинг Post в PostResponse
      */
     private PostResponse mapToPostResponse(Post post) {
+        return mapToPostResponse(post, post.getAuthor().getUsername());
+    }
+
+    /**
+     * Маппинг Post в PostResponse с уже известным именем автора:
+     * автор-прокси (getReferenceById) не инициализируется лишним SELECT из users
+     */
+    private PostResponse mapToPostResponse(Post post, String authorUsername) {
         Set<String> tagNames = post.getTags() != null ?
                 post.getTags().stream()
                         .map(Tag::getName)
                         .collect(Collectors.toSet()) : new HashSet<>();
 
-        Long likesCount = likeRepository.countByPost(post);
-        Long commentsCount = commentRepository.countByPost(post);
+        Long likesCount = likeRepository.countByPostId(post.getId());
+        Long commentsCount = commentRepository.countByPostId(post.getId());
 
         return PostResponse.builder()
                 .id(post.getId())
@@ -311,7 +335,7 @@ public class PostService {
                 .publishedAt(post.getPublishedAt())
                 .isPublished(post.getIsPublished())
                 .viewsCount(post.getViewsCount())
-                .authorUsername(post.getAuthor().getUsername())
+                .authorUsername(authorUsername)
                 .authorId(post.getAuthor().getId())
                 .tagNames(tagNames)
                 .likesCount(likesCount)
@@ -333,8 +357,8 @@ public class PostService {
         String excerpt = post.getContent().length() > 200 ?
                 post.getContent().substring(0, 200) + "..." : post.getContent();
 
-        Long likesCount = likeRepository.countByPost(post);
-        Long commentsCount = commentRepository.countByPost(post);
+        Long likesCount = likeRepository.countByPostId(post.getId());
+        Long commentsCount = commentRepository.countByPostId(post.getId());
 
         return PostSummaryResponse.builder()
                 .id(post.getId())
@@ -0,0 +1,168 @@
+package org.example.blogtestapp.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.blogtestapp.config.MaterializedViewRefreshProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Выбор лидера среди реплик приложения для фоновых обновлений
+ * Лидер держит сессионную advisory-блокировку PostgreSQL на выделенном соединении вне пула:
+ * пул может закрыть или пересоздать своё соединение, и блокировка пропадёт незаметно для лидера.
+ * Если лидер падает, его соединение закрывается, PostgreSQL снимает блокировку,
+ * и её забирает следующая реплика при очередной проверке.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLeaderElection implements SmartLifecycle {
+
+    /**
+     * Ключ advisory-блокировки планировщика обновлений материализованных представлений
+     */
+    public static final long LEADER_LOCK_KEY = 0x6d765f7265667265L;
+
+    private final JdbcConnectionDetails connectionDetails;
+    private final MaterializedViewRefreshProperties properties;
+
+    private Connection lockConnection;
+    private volatile boolean leader;
+    private volatile boolean running;
+
+    /**
+     * Является ли реплика лидером (по последней проверке, без обращения к БД)
+     */
+    public boolean isLeader() {
+        return !properties.isLeaderElection() || leader;
+    }
+
+    /**
+     * Подтвердить лидерство перед выполнением работы: проверяет по pg_locks, что сессия соединения
+     * всё ещё держит блокировку
+     */
+    public synchronized boolean confirmLeadership() {
+        if (!properties.isLeaderElection()) {
+            return true;
+        }
+        if (!leader) {
+            return false;
+        }
+        try {
+            if (holdsLock()) {
+                return true;
+            }
+            log.warn("Scheduler leader lock is no longer held by this instance");
+        } catch (SQLException e) {
+            log.warn("Leader lock connection check failed: {}", e.getMessage());
+        }
+        loseLeadership();
+        return false;
+    }
+
+    /**
+     * Попытка стать лидером; лидер лишь проверяет, что соединение с блокировкой не потеряно
+     */
+    @Scheduled(fixedDelayString = "${app.materialized-views.refresh.leader-check-interval-ms:5000}")
+    public synchronized void checkLeadership() {
+        if (!running || !properties.isLeaderElection()) {
+            return;
+        }
+        if (leader) {
+            confirmLeadership();
+            return;
+        }
+        try {
+            Connection connection = openLockConnection();
+            boolean acquired = false;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, LEADER_LOCK_KEY);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    acquired = resultSet.next() && resultSet.getBoolean(1);
+                }
+            } finally {
+                if (!acquired) {
+                    connection.close();
+                }
+            }
+            if (acquired) {
+                lockConnection = connection;
+                leader = true;
+                log.info("This instance became scheduler leader");
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to acquire scheduler leader lock: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        checkLeadership();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (leader) {
+            loseLeadership();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private Connection openLockConnection() throws SQLException {
+        return DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                connectionDetails.getUsername(), connectionDetails.getPassword());
+    }
+
+    /**
+     * Есть ли блокировка лидера у сессии соединения. Ключ bigint хранится в pg_locks
+     * старшей половиной в classid, младшей в objid, objsubid = 1
+     */
+    private boolean holdsLock() throws SQLException {
+        try (PreparedStatement statement = lockConnection.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM pg_locks WHERE locktype = 'advisory' AND granted " +
+                "AND pid = pg_backend_pid() AND objsubid = 1 " +
+                "AND classid::BIGINT = (?::BIGINT >> 32) AND objid::BIGINT = (?::BIGINT & 4294967295))")) {
+            statement.setQueryTimeout(2);
+            statement.setLong(1, LEADER_LOCK_KEY);
+            statement.setLong(2, LEADER_LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void loseLeadership() {
+        leader = false;
+        if (lockConnection != null) {
+            // Явно отпускаем блокировку, чтобы другая реплика подхватила лидерство сразу
+            try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setQueryTimeout(2);
+                statement.setLong(1, LEADER_LOCK_KEY);
+                statement.execute();
+            } catch (SQLException e) {
+                log.debug("Failed to release scheduler leader lock: {}", e.getMessage());
+            }
+            try {
+                lockConnection.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close leader lock connection: {}", e.getMessage());
+            }
+            lockConnection = null;
+        }
+        log.info("This instance is no longer scheduler leader");
+    }
+}
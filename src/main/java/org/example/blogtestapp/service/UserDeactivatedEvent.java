@@ -0,0 +1,13 @@
+package org.example.blogtestapp.service;
+
+import lombok.Value;
+
+/**
+ * Событие деактивации пользователя
+ */
+@Value
+public class UserDeactivatedEvent {
+
+    Long userId;
+    String username;
+}
@@ -0,0 +1,107 @@
+package org.example.blogtestapp.service;
+
+import org.example.blogtestapp.dto.UserReference;
+import org.example.blogtestapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный LRU-кэш username -> (id, активность, отображаемое имя) для пути записи постов и комментариев
+ * Сбрасывается при изменении, деактивации или удалении пользователя ({@link UserReferenceCacheListener});
+ * TTL ограничивает устаревание записей, изменённых на других репликах.
+ */
+@Component
+public class UserReferenceCache {
+
+    private final UserRepository userRepository;
+    private final Map<String, CachedReference> cache;
+    private final long ttlNanos;
+
+    /**
+     * Счётчик сбросов: значение, прочитанное из БД до сброса, в кэш не попадает
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserReferenceCache(UserRepository userRepository,
+                              @Value("${app.user-reference-cache.max-size:10000}") int maxSize,
+                              @Value("${app.user-reference-cache.ttl:60s}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedReference> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Найти пользователя по username
+     */
+    public Optional<UserReference> find(String username) {
+        synchronized (cache) {
+            CachedReference cached = cache.get(username);
+            if (cached != null && System.nanoTime() - cached.loadedAtNanos() < ttlNanos) {
+                return Optional.of(cached.reference());
+            }
+        }
+        long generation = invalidations.get();
+        Optional<UserReference> loaded = userRepository.findReferenceByUsername(username);
+        loaded.ifPresent(reference -> {
+            synchronized (cache) {
+                if (invalidations.get() == generation) {
+                    cache.put(username, new CachedReference(reference, System.nanoTime()));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Найти активного пользователя по username
+     *
+     * @throws IllegalArgumentException если пользователь не найден или деактивирован
+     */
+    public UserReference getActive(String username) {
+        UserReference reference = find(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+        if (!Boolean.TRUE.equals(reference.getIsActive())) {
+            throw new IllegalArgumentException("User is not active: " + username);
+        }
+        return reference;
+    }
+
+    /**
+     * Сбросить запись сразу и ещё раз после коммита текущей транзакции:
+     * до коммита другие транзакции могут успеть закэшировать прежнее значение
+     */
+    public void invalidateOnCommit(String username) {
+        invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(username);
+                }
+            });
+        }
+    }
+
+    public void invalidate(String username) {
+        synchronized (cache) {
+            invalidations.incrementAndGet();
+            cache.remove(username);
+        }
+    }
+
+    private record CachedReference(UserReference reference, long loadedAtNanos) {
+    }
+}
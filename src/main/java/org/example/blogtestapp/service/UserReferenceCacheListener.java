@@ -0,0 +1,25 @@
+package org.example.blogtestapp.service;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.example.blogtestapp.entity.User;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA-слушатель сущности User: сбрасывает {@link UserReferenceCache} при изменении
+ * (в том числе из UserService.updateUser и deactivateUser) и удалении пользователя
+ */
+@Component
+@RequiredArgsConstructor
+public class UserReferenceCacheListener {
+
+    private final ObjectProvider<UserReferenceCache> userReferenceCache;
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        userReferenceCache.getObject().invalidateOnCommit(user.getUsername());
+    }
+}
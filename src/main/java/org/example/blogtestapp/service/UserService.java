@@ -1,17 +1,39 @@
 package org.example.blogtestapp.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.blogtestapp.dto.CreateUserRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
 import org.example.blogtestapp.dto.UpdateUserRequest;
+import org.example.blogtestapp.dto.UserRegistrationResult;
 import org.example.blogtestapp.dto.UserResponse;
 import org.example.blogtestapp.entity.User;
+import org.example.blogtestapp.repository.CommentRepository;
+import org.example.blogtestapp.repository.PostRepository;
 import org.example.blogtestapp.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.TypedParameterValue;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,22 +45,26 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_TOP_LIMIT = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final AuthorLeaderboard authorLeaderboard;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Создать нового пользователя
+     * Уникальность username и email проверяет сама БД: выполняется один INSERT,
+     * а нарушение уникального ограничения превращается в ошибку соответствующего поля.
      */
     public UserResponse createUser(CreateUserRequest request) {
         log.info("Creating new user with username: {}", request.getUsername());
 
-        // Проверка уникальности username и email
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new IllegalArgumentException("Username already exists: " + request.getUsername());
-        }
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email already exists: " + request.getEmail());
-        }
-
         User user = User.builder()
                 .username(request.getUsername())
                 .email(request.getEmail())
@@ -47,10 +73,108 @@ public class UserService {
                 .isActive(true)
                 .build();
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw toDuplicateFieldException(e, request);
+        }
         log.info("User created successfully with ID: {}", savedUser.getId());
 
-        return mapToUserResponse(savedUser);
+        // У нового пользователя ещё нет постов и комментариев
+        return toUserResponse(savedUser.getId(), request);
+    }
+
+    /**
+     * Пакетная регистрация пользователей одним INSERT ... ON CONFLICT DO NOTHING
+     * Пропущенные из-за конфликта строки определяются по RETURNING, причина конфликта —
+     * одним дополнительным запросом только по ним.
+     */
+    public List<UserRegistrationResult> createUsers(List<CreateUserRequest> requests) {
+        log.info("Creating {} users in batch", requests.size());
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO users (username, email, display_name, bio, is_active) VALUES ");
+        for (int i = 0; i < requests.size(); i++) {
+            sql.append(i > 0 ? ", " : "")
+                    .append("(:username").append(i)
+                    .append(", :email").append(i)
+                    .append(", :displayName").append(i)
+                    .append(", :bio").append(i)
+                    .append(", true)");
+        }
+        sql.append(" ON CONFLICT DO NOTHING RETURNING id, username, email");
+
+        Query insert = entityManager.createNativeQuery(sql.toString());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateUserRequest request = requests.get(i);
+            insert.setParameter("username" + i, request.getUsername());
+            insert.setParameter("email" + i, request.getEmail());
+            insert.setParameter("displayName" + i, new TypedParameterValue<>(StandardBasicTypes.STRING,
+                    request.getDisplayName()));
+            insert.setParameter("bio" + i, new TypedParameterValue<>(StandardBasicTypes.STRING, request.getBio()));
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> inserted = insert.getResultList();
+        Map<List<String>, Long> insertedIds = new HashMap<>();
+        for (Object[] row : inserted) {
+            insertedIds.put(List.of((String) row[1], (String) row[2]), ((Number) row[0]).longValue());
+        }
+
+        // Строка создана, если её (username, email) вернулись из RETURNING и не заняты более ранней строкой пакета
+        Set<String> claimedUsernames = new HashSet<>();
+        List<Integer> conflictIndexes = new ArrayList<>();
+        Map<Integer, Long> createdIds = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String username = requests.get(i).getUsername();
+            Long id = insertedIds.get(List.of(username, requests.get(i).getEmail()));
+            if (id != null && claimedUsernames.add(username)) {
+                createdIds.put(i, id);
+            } else {
+                conflictIndexes.add(i);
+            }
+        }
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        if (!conflictIndexes.isEmpty()) {
+            List<Object[]> taken = userRepository.findUsernamesAndEmails(
+                    conflictIndexes.stream().map(i -> requests.get(i).getUsername()).toList(),
+                    conflictIndexes.stream().map(i -> requests.get(i).getEmail()).toList());
+            for (Object[] row : taken) {
+                takenUsernames.add((String) row[0]);
+                takenEmails.add((String) row[1]);
+            }
+        }
+
+        List<UserRegistrationResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateUserRequest request = requests.get(i);
+            Long id = createdIds.get(i);
+            if (id != null) {
+                results.add(UserRegistrationResult.builder()
+                        .index(i)
+                        .status(UserRegistrationResult.Status.CREATED)
+                        .user(toUserResponse(id, request))
+                        .build());
+                continue;
+            }
+            Map<String, String> errors = new HashMap<>();
+            if (takenUsernames.contains(request.getUsername())) {
+                errors.put("username", "Username already exists: " + request.getUsername());
+            }
+            if (takenEmails.contains(request.getEmail())) {
+                errors.put("email", "Email already exists: " + request.getEmail());
+            }
+            results.add(UserRegistrationResult.builder()
+                    .index(i)
+                    .status(UserRegistrationResult.Status.CONFLICT)
+                    .validationErrors(errors)
+                    .build());
+        }
+        log.info("Batch registration finished: {} created, {} conflicts",
+                createdIds.size(), conflictIndexes.size());
+        return results;
     }
 
     /**
@@ -72,14 +196,56 @@ public class UserService {
     }
 
     /**
-     * Получить всех активных пользователей
+     * Получить страницу активных пользователей (keyset-пагинация)
+     *
+     * @param sort  ключ сортировки: id или username
+     * @param after значение ключа последнего пользователя предыдущей страницы; null — первая страница
      */
     @Transactional(readOnly = true)
-    public List<UserResponse> getAllActiveUsers() {
-        return userRepository.findByIsActiveTrue()
-                .stream()
-                .map(this::mapToUserResponse)
-                .collect(Collectors.toList());
+    public CursorPageResponse<UserResponse> getActiveUsersPage(String sort, String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Limit limit = Limit.of(size + 1);
+        List<User> users = switch (sort) {
+            case "id" -> userRepository.findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(parseIdCursor(after), limit);
+            case "username" -> userRepository.findByIsActiveTrueAndUsernameGreaterThanOrderByUsernameAsc(
+                    after != null ? after : "", limit);
+            default -> throw new IllegalArgumentException("Unsupported sort: " + sort + " (expected id or username)");
+        };
+
+        boolean hasMore = users.size() > size;
+        List<User> pageUsers = hasMore ? users.subList(0, size) : users;
+        String nextCursor = null;
+        if (hasMore) {
+            User last = pageUsers.get(pageUsers.size() - 1);
+            nextCursor = "id".equals(sort) ? String.valueOf(last.getId()) : last.getUsername();
+        }
+
+        return CursorPageResponse.<UserResponse>builder()
+                .items(mapToUserResponses(pageUsers))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Выгрузка всех активных пользователей пачками по id
+     * Каждая пачка читается в собственной транзакции, поэтому память и время удержания соединения
+     * не зависят от общего количества пользователей.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportActiveUsers(int batchSize, Consumer<List<UserResponse>> batchConsumer) {
+        Long afterId = 0L;
+        while (afterId != null) {
+            List<User> users = userRepository.findByIsActiveTrueAndIdGreaterThanOrderByIdAsc(afterId,
+                    Limit.of(batchSize));
+            if (users.isEmpty()) {
+                return;
+            }
+            batchConsumer.accept(mapToUserResponses(users));
+            afterId = users.size() < batchSize ? null : users.get(users.size() - 1).getId();
+        }
     }
 
     /**
@@ -115,6 +281,7 @@ public class UserService {
 
         user.setIsActive(false);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserDeactivatedEvent(user.getId(), user.getUsername()));
 
         log.info("User deactivated successfully with ID: {}", id);
     }
@@ -124,46 +291,112 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public List<UserResponse> searchUsers(String searchTerm) {
-        return userRepository.findBySearchTerm(searchTerm)
-                .stream()
-                .map(this::mapToUserResponse)
-                .collect(Collectors.toList());
+        return mapToUserResponses(userRepository.findBySearchTerm(searchTerm));
     }
 
     /**
-     * Получить топ пользователей по количеству постов
+     * Получить топ пользователей по количеству опубликованных постов (из рейтинга в памяти)
      */
     @Transactional(readOnly = true)
-    public List<UserResponse> getTopUsersByPostCount() {
-        return userRepository.findTopUsersByPostCount()
-                .stream()
-                .map(this::mapToUserResponse)
-                .collect(Collectors.toList());
+    public List<UserResponse> getTopUsersByPostCount(int limit) {
+        if (limit < 1 || limit > MAX_TOP_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_TOP_LIMIT);
+        }
+        List<Long> authorIds = authorLeaderboard.top(limit);
+        Map<Long, User> usersById = userRepository.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> users = authorIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return mapToUserResponses(users);
     }
 
     /**
      * Маппинг User в UserResponse
      */
     private UserResponse mapToUserResponse(User user) {
-        Long postsCount = user.getPosts() != null ? 
-            user.getPosts().stream()
-                .filter(post -> post.getIsPublished())
-                .count() : 0L;
-        
-        Long commentsCount = user.getComments() != null ? 
-            user.getComments().stream()
-                .filter(comment -> !comment.getIsDeleted())
-                .count() : 0L;
+        return mapToUserResponses(List.of(user)).get(0);
+    }
+
+    /**
+     * Маппинг списка User в UserResponse
+     * Количество постов и комментариев считается двумя сгруппированными запросами на весь список,
+     * коллекции posts/comments пользователей не загружаются.
+     */
+    private List<UserResponse> mapToUserResponses(List<User> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        List<Long> userIds = users.stream().map(User::getId).toList();
+        Map<Long, Long> postsCounts = toCountMap(postRepository.countPublishedPostsByAuthorIds(userIds));
+        Map<Long, Long> commentsCounts = toCountMap(commentRepository.countActiveCommentsByAuthorIds(userIds));
+
+        return users.stream()
+                .map(user -> UserResponse.builder()
+                        .id(user.getId())
+                        .username(user.getUsername())
+                        .email(user.getEmail())
+                        .displayName(user.getDisplayName())
+                        .bio(user.getBio())
+                        .isActive(user.getIsActive())
+                        .postsCount(postsCounts.getOrDefault(user.getId(), 0L))
+                        .commentsCount(commentsCounts.getOrDefault(user.getId(), 0L))
+                        .build())
+                .collect(Collectors.toList());
+    }
 
+    private static UserResponse toUserResponse(Long id, CreateUserRequest request) {
         return UserResponse.builder()
-                .id(user.getId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .displayName(user.getDisplayName())
-                .bio(user.getBio())
-                .isActive(user.getIsActive())
-                .postsCount(postsCount)
-                .commentsCount(commentsCount)
+                .id(id)
+                .username(request.getUsername())
+                .email(request.getEmail())
+                .displayName(request.getDisplayName())
+                .bio(request.getBio())
+                .isActive(true)
+                .postsCount(0L)
+                .commentsCount(0L)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Определить по имени нарушенного ограничения, какое поле не уникально
+     */
+    private static RuntimeException toDuplicateFieldException(DataIntegrityViolationException e,
+                                                               CreateUserRequest request) {
+        String constraint = null;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                constraint = violation.getConstraintName();
+                break;
+            }
+        }
+        String details = constraint != null ? constraint : String.valueOf(e.getMostSpecificCause().getMessage());
+        if (details.contains("username")) {
+            return new DuplicateFieldException("username", "Username already exists: " + request.getUsername());
+        }
+        if (details.contains("email")) {
+            return new DuplicateFieldException("email", "Email already exists: " + request.getEmail());
+        }
+        return e;
+    }
+
+    private static Long parseIdCursor(String after) {
+        if (after == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(after);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + after);
+        }
+    }
+
+    private static Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+}
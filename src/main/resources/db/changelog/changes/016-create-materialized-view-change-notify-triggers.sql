@@ -0,0 +1,40 @@
+--liquibase formatted sql
+
+--changeset myblog:016-create-mv-change-notify-function splitStatements:false endDelimiter:/
+--comment: Notify application about changes in tables that feed materialized views
+
+-- Функция уведомления об изменении исходных данных материализованных представлений
+-- Одинаковые уведомления в рамках одной транзакции PostgreSQL схлопывает в одно
+CREATE OR REPLACE FUNCTION notify_materialized_view_source_changed()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('materialized_view_source_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION notify_materialized_view_source_changed() IS 'Отправляет NOTIFY при изменении таблиц, из которых строятся материализованные представления';
+/
+--rollback DROP FUNCTION IF EXISTS notify_materialized_view_source_changed();
+
+--changeset myblog:016-create-mv-change-notify-triggers
+--comment: Statement-level triggers so that bulk writes produce a single notification
+
+DROP TRIGGER IF EXISTS posts_mv_change_notify_trigger ON posts;
+CREATE TRIGGER posts_mv_change_notify_trigger
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON posts
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_materialized_view_source_changed();
+
+DROP TRIGGER IF EXISTS comments_mv_change_notify_trigger ON comments;
+CREATE TRIGGER comments_mv_change_notify_trigger
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON comments
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_materialized_view_source_changed();
+
+DROP TRIGGER IF EXISTS likes_mv_change_notify_trigger ON likes;
+CREATE TRIGGER likes_mv_change_notify_trigger
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON likes
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_materialized_view_source_changed();
+
+--rollback DROP TRIGGER IF EXISTS posts_mv_change_notify_trigger ON posts;
+--rollback DROP TRIGGER IF EXISTS comments_mv_change_notify_trigger ON comments;
+--rollback DROP TRIGGER IF EXISTS likes_mv_change_notify_trigger ON likes;
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset myblog:017-create-users-mv-change-notify-trigger
+--comment: Users feed materialized views too (display_name, is_active)
+
+DROP TRIGGER IF EXISTS users_mv_change_notify_trigger ON users;
+CREATE TRIGGER users_mv_change_notify_trigger
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON users
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_materialized_view_source_changed();
+
+--rollback DROP TRIGGER IF EXISTS users_mv_change_notify_trigger ON users;
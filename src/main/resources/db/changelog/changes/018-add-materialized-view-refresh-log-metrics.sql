@@ -0,0 +1,105 @@
+--liquibase formatted sql
+
+--changeset myblog:018-add-materialized-view-refresh-log-metrics
+--comment: Record row count and refresh path for every materialized view refresh
+
+ALTER TABLE materialized_view_refresh_log ADD COLUMN row_count BIGINT;
+ALTER TABLE materialized_view_refresh_log ADD COLUMN refresh_path VARCHAR(20);
+
+-- Статистика обновлений выбирается по представлению за последние сутки
+CREATE INDEX idx_mv_refresh_log_view_triggered_at ON materialized_view_refresh_log(view_name, triggered_at);
+
+COMMENT ON COLUMN materialized_view_refresh_log.duration_ms IS 'Длительность обновления в миллисекундах';
+COMMENT ON COLUMN materialized_view_refresh_log.row_count IS 'Количество строк в представлении после обновления';
+COMMENT ON COLUMN materialized_view_refresh_log.refresh_path IS 'Способ обновления: CONCURRENT, FALLBACK (блокирующее после неудачного CONCURRENTLY), BLOCKING';
+
+--rollback DROP INDEX IF EXISTS idx_mv_refresh_log_view_triggered_at;
+--rollback ALTER TABLE materialized_view_refresh_log DROP COLUMN IF EXISTS refresh_path;
+--rollback ALTER TABLE materialized_view_refresh_log DROP COLUMN IF EXISTS row_count;
+
+--changeset myblog:018-record-refresh-timings-in-refresh-functions splitStatements:false endDelimiter:/
+--comment: Record duration, row count and refresh path in database-level refresh functions
+
+CREATE OR REPLACE FUNCTION refresh_active_users_mv_scheduled()
+RETURNS VOID AS $$
+DECLARE
+    started_at TIMESTAMP := clock_timestamp();
+    refreshed_rows BIGINT;
+BEGIN
+    REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+    SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+    VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            refreshed_rows, 'CONCURRENT', true);
+
+EXCEPTION WHEN OTHERS THEN
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, refresh_path, success, error_message)
+    VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            'CONCURRENT', false, SQLERRM);
+
+    RAISE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION refresh_active_users_mv()
+RETURNS VOID AS $$
+DECLARE
+    started_at TIMESTAMP := clock_timestamp();
+    used_path VARCHAR(20) := 'CONCURRENT';
+    refreshed_rows BIGINT;
+BEGIN
+    -- Try concurrent refresh first, fallback to non-concurrent if it fails
+    BEGIN
+        REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+    EXCEPTION WHEN OTHERS THEN
+        REFRESH MATERIALIZED VIEW active_users_stats_mv;
+        used_path := 'FALLBACK';
+    END;
+    SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+    VALUES ('active_users_stats_mv', 'APPLICATION', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            refreshed_rows, used_path, true);
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION refresh_active_users_mv_scheduled()
+--rollback RETURNS VOID AS $$
+--rollback BEGIN
+--rollback     REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+--rollback
+--rollback     INSERT INTO materialized_view_refresh_log (view_name, refresh_type, triggered_at, success)
+--rollback     VALUES ('active_users_stats_mv', 'SCHEDULED', CURRENT_TIMESTAMP, true);
+--rollback
+--rollback EXCEPTION WHEN OTHERS THEN
+--rollback     INSERT INTO materialized_view_refresh_log (view_name, refresh_type, triggered_at, success, error_message)
+--rollback     VALUES ('active_users_stats_mv', 'SCHEDULED', CURRENT_TIMESTAMP, false, SQLERRM);
+--rollback
+--rollback     RAISE;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback
+--rollback CREATE OR REPLACE FUNCTION refresh_active_users_mv()
+--rollback RETURNS VOID AS $$
+--rollback BEGIN
+--rollback     -- Try concurrent refresh first, fallback to non-concurrent if it fails
+--rollback     BEGIN
+--rollback         REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+--rollback     EXCEPTION WHEN OTHERS THEN
+--rollback         -- If concurrent refresh fails, use regular refresh
+--rollback         REFRESH MATERIALIZED VIEW active_users_stats_mv;
+--rollback     END;
+--rollback
+--rollback     -- Simple logging
+--rollback     INSERT INTO materialized_view_refresh_log (view_name, refresh_type, triggered_at, success)
+--rollback     VALUES ('active_users_stats_mv', 'APPLICATION', CURRENT_TIMESTAMP, true);
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
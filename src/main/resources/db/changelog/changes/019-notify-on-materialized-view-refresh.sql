@@ -0,0 +1,110 @@
+--liquibase formatted sql
+
+--changeset myblog:019-notify-on-materialized-view-refresh splitStatements:false endDelimiter:/
+--comment: Notify application instances when the database refreshes active_users_stats_mv
+
+-- Приложение держит снимок данных представления в памяти и перезагружает его по этому уведомлению
+CREATE OR REPLACE FUNCTION refresh_active_users_mv_scheduled()
+RETURNS VOID AS $$
+DECLARE
+    started_at TIMESTAMP := clock_timestamp();
+    refreshed_rows BIGINT;
+BEGIN
+    REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+    SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+    VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            refreshed_rows, 'CONCURRENT', true);
+
+    PERFORM pg_notify('materialized_view_refreshed', 'database:active_users_stats_mv');
+
+EXCEPTION WHEN OTHERS THEN
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, refresh_path, success, error_message)
+    VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            'CONCURRENT', false, SQLERRM);
+
+    RAISE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION refresh_active_users_mv()
+RETURNS VOID AS $$
+DECLARE
+    started_at TIMESTAMP := clock_timestamp();
+    used_path VARCHAR(20) := 'CONCURRENT';
+    refreshed_rows BIGINT;
+BEGIN
+    -- Try concurrent refresh first, fallback to non-concurrent if it fails
+    BEGIN
+        REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+    EXCEPTION WHEN OTHERS THEN
+        REFRESH MATERIALIZED VIEW active_users_stats_mv;
+        used_path := 'FALLBACK';
+    END;
+    SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+    VALUES ('active_users_stats_mv', 'APPLICATION', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            refreshed_rows, used_path, true);
+
+    PERFORM pg_notify('materialized_view_refreshed', 'database:active_users_stats_mv');
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION refresh_active_users_mv_scheduled()
+--rollback RETURNS VOID AS $$
+--rollback DECLARE
+--rollback     started_at TIMESTAMP := clock_timestamp();
+--rollback     refreshed_rows BIGINT;
+--rollback BEGIN
+--rollback     REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+--rollback     SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+--rollback
+--rollback     INSERT INTO materialized_view_refresh_log
+--rollback         (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+--rollback     VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+--rollback             (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+--rollback             refreshed_rows, 'CONCURRENT', true);
+--rollback
+--rollback EXCEPTION WHEN OTHERS THEN
+--rollback     INSERT INTO materialized_view_refresh_log
+--rollback         (view_name, refresh_type, triggered_at, duration_ms, refresh_path, success, error_message)
+--rollback     VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+--rollback             (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+--rollback             'CONCURRENT', false, SQLERRM);
+--rollback
+--rollback     RAISE;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback
+--rollback CREATE OR REPLACE FUNCTION refresh_active_users_mv()
+--rollback RETURNS VOID AS $$
+--rollback DECLARE
+--rollback     started_at TIMESTAMP := clock_timestamp();
+--rollback     used_path VARCHAR(20) := 'CONCURRENT';
+--rollback     refreshed_rows BIGINT;
+--rollback BEGIN
+--rollback     -- Try concurrent refresh first, fallback to non-concurrent if it fails
+--rollback     BEGIN
+--rollback         REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+--rollback     EXCEPTION WHEN OTHERS THEN
+--rollback         REFRESH MATERIALIZED VIEW active_users_stats_mv;
+--rollback         used_path := 'FALLBACK';
+--rollback     END;
+--rollback     SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+--rollback
+--rollback     INSERT INTO materialized_view_refresh_log
+--rollback         (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+--rollback     VALUES ('active_users_stats_mv', 'APPLICATION', started_at,
+--rollback             (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+--rollback             refreshed_rows, used_path, true);
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
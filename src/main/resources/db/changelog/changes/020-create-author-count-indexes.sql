@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset myblog:020-create-author-count-indexes
+--comment: Partial indexes for per-author post and comment counts in user responses
+
+-- Количество опубликованных постов автора считается index-only scan без чтения строк постов
+CREATE INDEX IF NOT EXISTS idx_posts_author_published
+ON posts (author_id)
+WHERE is_published = true;
+
+-- Количество неудаленных комментариев автора
+CREATE INDEX IF NOT EXISTS idx_comments_author_not_deleted
+ON comments (author_id)
+WHERE is_deleted = false;
+
+--rollback DROP INDEX IF EXISTS idx_comments_author_not_deleted;
+--rollback DROP INDEX IF EXISTS idx_posts_author_published;
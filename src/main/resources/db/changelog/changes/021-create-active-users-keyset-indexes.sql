@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset myblog:021-create-active-users-keyset-indexes
+--comment: Partial indexes for keyset pagination of active users by id and username
+
+CREATE INDEX IF NOT EXISTS idx_users_active_id
+ON users (id)
+WHERE is_active = true;
+
+CREATE INDEX IF NOT EXISTS idx_users_active_username
+ON users (username)
+WHERE is_active = true;
+
+--rollback DROP INDEX IF EXISTS idx_users_active_username;
+--rollback DROP INDEX IF EXISTS idx_users_active_id;
@@ -0,0 +1,25 @@
+--liquibase formatted sql
+
+--changeset myblog:022-create-post-audit-log-keyset-indexes
+--comment: Composite indexes for keyset pagination of audit listings by (changed_at, id)
+
+-- Индекс по changed_at расширяется id: ORDER BY changed_at DESC, id DESC LIMIT n читается обратным сканом
+DROP INDEX IF EXISTS idx_post_audit_log_changed_at;
+CREATE INDEX idx_post_audit_log_changed_at
+ON post_audit_log (changed_at, id);
+
+-- Выборки по типу операции (в том числе удалённые посты)
+DROP INDEX IF EXISTS idx_post_audit_log_operation;
+CREATE INDEX idx_post_audit_log_operation
+ON post_audit_log (operation, changed_at, id);
+
+-- Изменения заголовков
+CREATE INDEX IF NOT EXISTS idx_post_audit_log_title_changes
+ON post_audit_log (changed_at, id)
+WHERE operation = 'UPDATE' AND old_title <> new_title;
+
+--rollback DROP INDEX IF EXISTS idx_post_audit_log_title_changes;
+--rollback DROP INDEX IF EXISTS idx_post_audit_log_operation;
+--rollback CREATE INDEX idx_post_audit_log_operation ON post_audit_log(operation);
+--rollback DROP INDEX IF EXISTS idx_post_audit_log_changed_at;
+--rollback CREATE INDEX idx_post_audit_log_changed_at ON post_audit_log(changed_at);
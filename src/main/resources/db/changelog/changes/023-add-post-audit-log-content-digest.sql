@@ -0,0 +1,183 @@
+--liquibase formatted sql
+
+--changeset myblog:023-add-post-audit-log-content-digest-columns
+--comment: Content length and md5 columns so audit listings never read old_content/new_content
+
+ALTER TABLE post_audit_log
+    ADD COLUMN old_content_length INTEGER,
+    ADD COLUMN new_content_length INTEGER,
+    ADD COLUMN old_content_hash VARCHAR(32),
+    ADD COLUMN new_content_hash VARCHAR(32);
+
+UPDATE post_audit_log
+SET old_content_length = char_length(old_content),
+    new_content_length = char_length(new_content),
+    old_content_hash = md5(old_content),
+    new_content_hash = md5(new_content)
+WHERE old_content IS NOT NULL OR new_content IS NOT NULL;
+
+COMMENT ON COLUMN post_audit_log.old_content_length IS 'Длина старого содержимого в символах';
+COMMENT ON COLUMN post_audit_log.new_content_length IS 'Длина нового содержимого в символах';
+COMMENT ON COLUMN post_audit_log.old_content_hash IS 'MD5 старого содержимого';
+COMMENT ON COLUMN post_audit_log.new_content_hash IS 'MD5 нового содержимого';
+
+--rollback ALTER TABLE post_audit_log DROP COLUMN old_content_length, DROP COLUMN new_content_length, DROP COLUMN old_content_hash, DROP COLUMN new_content_hash;
+
+--changeset myblog:023-fill-post-audit-log-content-digest splitStatements:false endDelimiter:/
+--comment: Audit trigger fills content length and md5 together with the content itself
+
+CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    change_details_text TEXT := '';
+BEGIN
+    -- Обработка INSERT
+    IF TG_OP = 'INSERT' THEN
+        change_details_text := 'Создан новый пост';
+
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            new_title, new_content, new_content_length, new_content_hash,
+            new_is_published, change_details
+        ) VALUES (
+            NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+            NEW.title, NEW.content, char_length(NEW.content), md5(NEW.content),
+            NEW.is_published, change_details_text
+        );
+
+        RETURN NEW;
+    END IF;
+
+    -- Обработка UPDATE
+    IF TG_OP = 'UPDATE' THEN
+        change_details_text := 'Изменения: ';
+
+        IF OLD.title != NEW.title THEN
+            change_details_text := change_details_text || 'заголовок; ';
+        END IF;
+
+        IF OLD.content != NEW.content THEN
+            change_details_text := change_details_text || 'содержимое; ';
+        END IF;
+
+        IF OLD.is_published != NEW.is_published THEN
+            change_details_text := change_details_text || 'статус публикации; ';
+        END IF;
+
+        change_details_text := RTRIM(change_details_text, '; ');
+
+        IF OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published THEN
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title, old_content, new_content,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title, OLD.content, NEW.content,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+        END IF;
+
+        RETURN NEW;
+    END IF;
+
+    -- Обработка DELETE
+    IF TG_OP = 'DELETE' THEN
+        change_details_text := 'Пост удален';
+
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, old_content, old_content_length, old_content_hash,
+            old_is_published, change_details
+        ) VALUES (
+            OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+            OLD.title, OLD.content, char_length(OLD.content), md5(OLD.content),
+            OLD.is_published, change_details_text
+        );
+
+        RETURN OLD;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+--rollback RETURNS TRIGGER AS
+--rollback $$
+--rollback DECLARE
+--rollback     change_details_text TEXT := '';
+--rollback BEGIN
+--rollback     -- Обработка INSERT
+--rollback     IF TG_OP = 'INSERT' THEN
+--rollback         change_details_text := 'Создан новый пост';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             new_title, new_content, new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback             NEW.title, NEW.content, NEW.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Обработка UPDATE
+--rollback     IF TG_OP = 'UPDATE' THEN
+--rollback         -- Формируем детальное описание изменений
+--rollback         change_details_text := 'Изменения: ';
+--rollback
+--rollback         IF OLD.title != NEW.title THEN
+--rollback             change_details_text := change_details_text || 'заголовок; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.content != NEW.content THEN
+--rollback             change_details_text := change_details_text || 'содержимое; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.is_published != NEW.is_published THEN
+--rollback             change_details_text := change_details_text || 'статус публикации; ';
+--rollback         END IF;
+--rollback
+--rollback         -- Удаляем последний "; "
+--rollback         change_details_text := RTRIM(change_details_text, '; ');
+--rollback
+--rollback         -- Записываем в лог только если были реальные изменения в отслеживаемых полях
+--rollback         IF OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published THEN
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title, old_content, new_content,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title, OLD.content, NEW.content,
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback         END IF;
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Обработка DELETE
+--rollback     IF TG_OP = 'DELETE' THEN
+--rollback         change_details_text := 'Пост удален';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, old_content, old_is_published, change_details
+--rollback         ) VALUES (
+--rollback             OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+--rollback             OLD.title, OLD.content, OLD.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN OLD;
+--rollback     END IF;
+--rollback
+--rollback     RETURN NULL;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
@@ -0,0 +1,302 @@
+--liquibase formatted sql
+
+--changeset myblog:024-add-post-audit-log-content-delta-columns
+--comment: Store audit content as splice deltas against the previous revision with periodic full checkpoints
+
+ALTER TABLE post_audit_log
+    ADD COLUMN content_delta_prefix INTEGER,
+    ADD COLUMN content_delta_suffix INTEGER,
+    ADD COLUMN content_delta TEXT,
+    ADD COLUMN content_chain_length INTEGER NOT NULL DEFAULT 0;
+
+-- Цепочка ревизий поста читается по id: поиск предыдущей записи в триггере и реконструкция содержимого
+DROP INDEX IF EXISTS idx_post_audit_log_post_id;
+CREATE INDEX idx_post_audit_log_post_id ON post_audit_log (post_id, id);
+
+COMMENT ON COLUMN post_audit_log.new_content IS 'Новое содержимое целиком (контрольная точка); NULL — см. content_delta';
+COMMENT ON COLUMN post_audit_log.old_content IS 'Старое содержимое целиком, только если предыдущей записи аудита по посту нет';
+COMMENT ON COLUMN post_audit_log.content_delta_prefix IS 'Количество символов начала, совпадающих с предыдущей ревизией';
+COMMENT ON COLUMN post_audit_log.content_delta_suffix IS 'Количество символов конца, совпадающих с предыдущей ревизией';
+COMMENT ON COLUMN post_audit_log.content_delta IS 'Текст, заменяющий середину предыдущей ревизии';
+COMMENT ON COLUMN post_audit_log.content_chain_length IS 'Количество дельт от последней контрольной точки';
+
+--rollback DROP INDEX IF EXISTS idx_post_audit_log_post_id;
+--rollback CREATE INDEX idx_post_audit_log_post_id ON post_audit_log(post_id);
+--rollback ALTER TABLE post_audit_log DROP COLUMN content_delta_prefix, DROP COLUMN content_delta_suffix, DROP COLUMN content_delta, DROP COLUMN content_chain_length;
+
+--changeset myblog:024-create-audit-content-delta-function splitStatements:false endDelimiter:/
+--comment: Splice delta between two texts: common prefix and suffix lengths plus the replaced middle
+
+-- Длины общих начала и конца ищутся бинарным поиском: O(n log n) вместо посимвольного сравнения
+CREATE OR REPLACE FUNCTION audit_content_delta(
+    old_text TEXT, new_text TEXT,
+    OUT prefix_length INTEGER, OUT suffix_length INTEGER, OUT middle TEXT)
+AS
+$$
+DECLARE
+    old_length INTEGER := char_length(old_text);
+    new_length INTEGER := char_length(new_text);
+    lo INTEGER;
+    hi INTEGER;
+    mid INTEGER;
+BEGIN
+    lo := 0;
+    hi := LEAST(old_length, new_length);
+    WHILE lo < hi LOOP
+        mid := (lo + hi + 1) / 2;
+        IF left(old_text, mid) = left(new_text, mid) THEN
+            lo := mid;
+        ELSE
+            hi := mid - 1;
+        END IF;
+    END LOOP;
+    prefix_length := lo;
+
+    lo := 0;
+    hi := LEAST(old_length, new_length) - prefix_length;
+    WHILE lo < hi LOOP
+        mid := (lo + hi + 1) / 2;
+        IF right(old_text, mid) = right(new_text, mid) THEN
+            lo := mid;
+        ELSE
+            hi := mid - 1;
+        END IF;
+    END LOOP;
+    suffix_length := lo;
+
+    middle := substr(new_text, prefix_length + 1, new_length - prefix_length - suffix_length);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+/
+--rollback DROP FUNCTION IF EXISTS audit_content_delta(TEXT, TEXT);
+
+--changeset myblog:024-delta-encode-audit-trigger splitStatements:false endDelimiter:/
+--comment: Audit trigger writes content deltas instead of full old/new content
+
+CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+    checkpoint_interval CONSTANT INTEGER := 20;
+    change_details_text TEXT := '';
+    previous_id BIGINT;
+    previous_chain_length INTEGER;
+    delta RECORD;
+BEGIN
+    -- Обработка INSERT: первая ревизия всегда контрольная точка
+    IF TG_OP = 'INSERT' THEN
+        change_details_text := 'Создан новый пост';
+
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            new_title, new_content, new_content_length, new_content_hash,
+            new_is_published, change_details
+        ) VALUES (
+            NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+            NEW.title, NEW.content, char_length(NEW.content), md5(NEW.content),
+            NEW.is_published, change_details_text
+        );
+
+        RETURN NEW;
+    END IF;
+
+    -- Предыдущая запись аудита поста: относительно неё кодируется содержимое
+    SELECT id, content_chain_length INTO previous_id, previous_chain_length
+    FROM post_audit_log
+    WHERE post_id = OLD.id
+    ORDER BY id DESC
+    LIMIT 1;
+
+    -- Обработка UPDATE
+    IF TG_OP = 'UPDATE' THEN
+        change_details_text := 'Изменения: ';
+
+        IF OLD.title != NEW.title THEN
+            change_details_text := change_details_text || 'заголовок; ';
+        END IF;
+
+        IF OLD.content != NEW.content THEN
+            change_details_text := change_details_text || 'содержимое; ';
+        END IF;
+
+        IF OLD.is_published != NEW.is_published THEN
+            change_details_text := change_details_text || 'статус публикации; ';
+        END IF;
+
+        change_details_text := RTRIM(change_details_text, '; ');
+
+        IF NOT (OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published) THEN
+            RETURN NEW;
+        END IF;
+
+        IF previous_id IS NULL THEN
+            -- История поста не сохранилась: записываем обе версии целиком
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title, old_content, new_content,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title, OLD.content, NEW.content,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+            RETURN NEW;
+        END IF;
+
+        IF OLD.content = NEW.content THEN
+            -- Содержимое не менялось: ни текста, ни дельты
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                content_chain_length,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                previous_chain_length,
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+            RETURN NEW;
+        END IF;
+
+        SELECT * INTO delta FROM audit_content_delta(OLD.content, NEW.content);
+
+        -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+        IF previous_chain_length + 1 >= checkpoint_interval
+                OR char_length(delta.middle) * 2 >= char_length(NEW.content) THEN
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title, new_content,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title, NEW.content,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+        ELSE
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title,
+                content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title,
+                delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+        END IF;
+
+        RETURN NEW;
+    END IF;
+
+    -- Обработка DELETE: удалённое содержимое совпадает с последней ревизией
+    IF TG_OP = 'DELETE' THEN
+        change_details_text := 'Пост удален';
+
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, old_content, old_content_length, old_content_hash,
+            content_chain_length, old_is_published, change_details
+        ) VALUES (
+            OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+            OLD.title, CASE WHEN previous_id IS NULL THEN OLD.content END,
+            char_length(OLD.content), md5(OLD.content),
+            COALESCE(previous_chain_length, 0), OLD.is_published, change_details_text
+        );
+
+        RETURN OLD;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+--rollback RETURNS TRIGGER AS
+--rollback $$
+--rollback DECLARE
+--rollback     change_details_text TEXT := '';
+--rollback BEGIN
+--rollback     -- Обработка INSERT
+--rollback     IF TG_OP = 'INSERT' THEN
+--rollback         change_details_text := 'Создан новый пост';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             new_title, new_content, new_content_length, new_content_hash,
+--rollback             new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback             NEW.title, NEW.content, char_length(NEW.content), md5(NEW.content),
+--rollback             NEW.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Обработка UPDATE
+--rollback     IF TG_OP = 'UPDATE' THEN
+--rollback         change_details_text := 'Изменения: ';
+--rollback
+--rollback         IF OLD.title != NEW.title THEN
+--rollback             change_details_text := change_details_text || 'заголовок; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.content != NEW.content THEN
+--rollback             change_details_text := change_details_text || 'содержимое; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.is_published != NEW.is_published THEN
+--rollback             change_details_text := change_details_text || 'статус публикации; ';
+--rollback         END IF;
+--rollback
+--rollback         change_details_text := RTRIM(change_details_text, '; ');
+--rollback
+--rollback         IF OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published THEN
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title, old_content, new_content,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title, OLD.content, NEW.content,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback         END IF;
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Обработка DELETE
+--rollback     IF TG_OP = 'DELETE' THEN
+--rollback         change_details_text := 'Пост удален';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, old_content, old_content_length, old_content_hash,
+--rollback             old_is_published, change_details
+--rollback         ) VALUES (
+--rollback             OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+--rollback             OLD.title, OLD.content, char_length(OLD.content), md5(OLD.content),
+--rollback             OLD.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN OLD;
+--rollback     END IF;
+--rollback
+--rollback     RETURN NULL;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
@@ -0,0 +1,545 @@
+--liquibase formatted sql
+
+--changeset myblog:025-create-post-audit-log-partition-functions splitStatements:false endDelimiter:/
+--comment: Functions creating monthly partitions of post_audit_log
+
+CREATE OR REPLACE FUNCTION create_post_audit_log_partition(month_start DATE)
+RETURNS BOOLEAN AS
+$$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := 'post_audit_log_p' || to_char(partition_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF post_audit_log FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, partition_start, (partition_start + INTERVAL '1 month')::DATE);
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+-- Партиции текущего месяца и months_ahead следующих; возвращает количество созданных
+CREATE OR REPLACE FUNCTION ensure_post_audit_log_partitions(months_ahead INTEGER)
+RETURNS INTEGER AS
+$$
+DECLARE
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        IF create_post_audit_log_partition((date_trunc('month', CURRENT_DATE) + make_interval(months => i))::DATE) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback DROP FUNCTION IF EXISTS ensure_post_audit_log_partitions(INTEGER); DROP FUNCTION IF EXISTS create_post_audit_log_partition(DATE);
+
+--changeset myblog:025-partition-post-audit-log-by-month splitStatements:false
+--comment: Recreate post_audit_log as a table range-partitioned by changed_at month and move existing rows
+
+ALTER TABLE post_audit_log RENAME TO post_audit_log_legacy;
+ALTER SEQUENCE post_audit_log_id_seq OWNED BY NONE;
+
+CREATE TABLE post_audit_log (
+    id BIGINT NOT NULL DEFAULT nextval('post_audit_log_id_seq'),
+    post_id BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL CHECK (operation IN ('INSERT', 'UPDATE', 'DELETE')),
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    user_id BIGINT,
+    old_title VARCHAR(200),
+    new_title VARCHAR(200),
+    old_content TEXT,
+    new_content TEXT,
+    old_is_published BOOLEAN,
+    new_is_published BOOLEAN,
+    change_details TEXT,
+    old_content_length INTEGER,
+    new_content_length INTEGER,
+    old_content_hash VARCHAR(32),
+    new_content_hash VARCHAR(32),
+    content_delta_prefix INTEGER,
+    content_delta_suffix INTEGER,
+    content_delta TEXT,
+    content_chain_length INTEGER NOT NULL DEFAULT 0
+) PARTITION BY RANGE (changed_at);
+
+-- Страховка от отсутствующей партиции (например, при сбое планировщика): запись аудита не должна падать
+CREATE TABLE post_audit_log_default PARTITION OF post_audit_log DEFAULT;
+
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    month_start := COALESCE(date_trunc('month', (SELECT MIN(changed_at) FROM post_audit_log_legacy)),
+                            date_trunc('month', CURRENT_DATE))::DATE;
+    WHILE month_start <= (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::DATE LOOP
+        PERFORM create_post_audit_log_partition(month_start);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO post_audit_log (
+    id, post_id, operation, changed_at, user_id,
+    old_title, new_title, old_content, new_content,
+    old_is_published, new_is_published, change_details,
+    old_content_length, new_content_length, old_content_hash, new_content_hash,
+    content_delta_prefix, content_delta_suffix, content_delta, content_chain_length
+)
+SELECT id, post_id, operation, changed_at, user_id,
+       old_title, new_title, old_content, new_content,
+       old_is_published, new_is_published, change_details,
+       old_content_length, new_content_length, old_content_hash, new_content_hash,
+       content_delta_prefix, content_delta_suffix, content_delta, content_chain_length
+FROM post_audit_log_legacy;
+
+DROP TABLE post_audit_log_legacy;
+ALTER SEQUENCE post_audit_log_id_seq OWNED BY post_audit_log.id;
+
+-- Первичный ключ партиционированной таблицы обязан включать ключ партиционирования
+ALTER TABLE post_audit_log ADD CONSTRAINT post_audit_log_pkey PRIMARY KEY (id, changed_at);
+
+CREATE INDEX idx_post_audit_log_changed_at ON post_audit_log (changed_at, id);
+CREATE INDEX idx_post_audit_log_operation ON post_audit_log (operation, changed_at, id);
+CREATE INDEX idx_post_audit_log_title_changes ON post_audit_log (changed_at, id)
+    WHERE operation = 'UPDATE' AND old_title <> new_title;
+CREATE INDEX idx_post_audit_log_post_id ON post_audit_log (post_id, id);
+CREATE INDEX idx_post_audit_log_post_changed_at ON post_audit_log (post_id, changed_at DESC);
+CREATE INDEX idx_post_audit_log_user_id ON post_audit_log (user_id);
+
+COMMENT ON TABLE post_audit_log IS 'Журнал аудита изменений постов, помесячные партиции по changed_at';
+
+--rollback ALTER TABLE post_audit_log RENAME TO post_audit_log_partitioned;
+--rollback ALTER SEQUENCE post_audit_log_id_seq OWNED BY NONE;
+--rollback CREATE TABLE post_audit_log (LIKE post_audit_log_partitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING COMMENTS);
+--rollback INSERT INTO post_audit_log SELECT * FROM post_audit_log_partitioned;
+--rollback DROP TABLE post_audit_log_partitioned;
+--rollback ALTER SEQUENCE post_audit_log_id_seq OWNED BY post_audit_log.id;
+--rollback ALTER TABLE post_audit_log ADD CONSTRAINT post_audit_log_pkey PRIMARY KEY (id);
+--rollback CREATE INDEX idx_post_audit_log_changed_at ON post_audit_log (changed_at, id);
+--rollback CREATE INDEX idx_post_audit_log_operation ON post_audit_log (operation, changed_at, id);
+--rollback CREATE INDEX idx_post_audit_log_title_changes ON post_audit_log (changed_at, id)
+--rollback     WHERE operation = 'UPDATE' AND old_title <> new_title;
+--rollback CREATE INDEX idx_post_audit_log_post_id ON post_audit_log (post_id, id);
+--rollback CREATE INDEX idx_post_audit_log_post_changed_at ON post_audit_log (post_id, changed_at DESC);
+--rollback CREATE INDEX idx_post_audit_log_user_id ON post_audit_log (user_id);
+--rollback COMMENT ON TABLE post_audit_log IS 'Журнал аудита изменений постов';
+
+--changeset myblog:025-restore-post-audit-log-column-comments
+--comment: Column comments of the recreated partitioned post_audit_log (lost with the legacy table)
+
+COMMENT ON COLUMN post_audit_log.post_id IS 'ID поста, который был изменен';
+COMMENT ON COLUMN post_audit_log.operation IS 'Тип операции: INSERT, UPDATE, DELETE';
+COMMENT ON COLUMN post_audit_log.changed_at IS 'Время изменения';
+COMMENT ON COLUMN post_audit_log.user_id IS 'ID пользователя, внесшего изменения';
+COMMENT ON COLUMN post_audit_log.old_title IS 'Старый заголовок (для UPDATE)';
+COMMENT ON COLUMN post_audit_log.new_title IS 'Новый заголовок (для INSERT/UPDATE)';
+COMMENT ON COLUMN post_audit_log.old_is_published IS 'Старый статус публикации (для UPDATE)';
+COMMENT ON COLUMN post_audit_log.new_is_published IS 'Новый статус публикации (для INSERT/UPDATE)';
+COMMENT ON COLUMN post_audit_log.change_details IS 'Детальное описание изменений';
+COMMENT ON COLUMN post_audit_log.old_content_length IS 'Длина старого содержимого в символах';
+COMMENT ON COLUMN post_audit_log.new_content_length IS 'Длина нового содержимого в символах';
+COMMENT ON COLUMN post_audit_log.old_content_hash IS 'MD5 старого содержимого';
+COMMENT ON COLUMN post_audit_log.new_content_hash IS 'MD5 нового содержимого';
+COMMENT ON COLUMN post_audit_log.new_content IS 'Новое содержимое целиком (контрольная точка); NULL — см. content_delta';
+COMMENT ON COLUMN post_audit_log.old_content IS 'Старое содержимое целиком, только если предыдущей записи аудита по посту нет';
+COMMENT ON COLUMN post_audit_log.content_delta_prefix IS 'Количество символов начала, совпадающих с предыдущей ревизией';
+COMMENT ON COLUMN post_audit_log.content_delta_suffix IS 'Количество символов конца, совпадающих с предыдущей ревизией';
+COMMENT ON COLUMN post_audit_log.content_delta IS 'Текст, заменяющий середину предыдущей ревизии';
+COMMENT ON COLUMN post_audit_log.content_chain_length IS 'Количество дельт от последней контрольной точки';
+
+--rollback not required
+
+--changeset myblog:025-keep-audit-delta-chains-within-partition splitStatements:false endDelimiter:/
+--comment: Audit trigger starts a new content checkpoint in every month so partitions can be dropped independently
+
+CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+    checkpoint_interval CONSTANT INTEGER := 20;
+    change_details_text TEXT := '';
+    previous_id BIGINT;
+    previous_chain_length INTEGER;
+    delta RECORD;
+BEGIN
+    -- Обработка INSERT: первая ревизия всегда контрольная точка
+    IF TG_OP = 'INSERT' THEN
+        change_details_text := 'Создан новый пост';
+
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            new_title, new_content, new_content_length, new_content_hash,
+            new_is_published, change_details
+        ) VALUES (
+            NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+            NEW.title, NEW.content, char_length(NEW.content), md5(NEW.content),
+            NEW.is_published, change_details_text
+        );
+
+        RETURN NEW;
+    END IF;
+
+    -- Предыдущая запись аудита поста: относительно неё кодируется содержимое.
+    -- Цепочка дельт не переходит границу месяца (партиции): первая запись месяца хранит текст целиком,
+    -- поэтому удаление старой партиции не ломает восстановление содержимого в оставшихся.
+    SELECT id, content_chain_length INTO previous_id, previous_chain_length
+    FROM post_audit_log
+    WHERE post_id = OLD.id
+      AND changed_at >= date_trunc('month', CURRENT_TIMESTAMP)
+    ORDER BY id DESC
+    LIMIT 1;
+
+    -- Обработка UPDATE
+    IF TG_OP = 'UPDATE' THEN
+        change_details_text := 'Изменения: ';
+
+        IF OLD.title != NEW.title THEN
+            change_details_text := change_details_text || 'заголовок; ';
+        END IF;
+
+        IF OLD.content != NEW.content THEN
+            change_details_text := change_details_text || 'содержимое; ';
+        END IF;
+
+        IF OLD.is_published != NEW.is_published THEN
+            change_details_text := change_details_text || 'статус публикации; ';
+        END IF;
+
+        change_details_text := RTRIM(change_details_text, '; ');
+
+        IF NOT (OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published) THEN
+            RETURN NEW;
+        END IF;
+
+        IF previous_id IS NULL THEN
+            -- История поста не сохранилась: записываем обе версии целиком
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title, old_content, new_content,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title, OLD.content, NEW.content,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+            RETURN NEW;
+        END IF;
+
+        IF OLD.content = NEW.content THEN
+            -- Содержимое не менялось: ни текста, ни дельты
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                content_chain_length,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                previous_chain_length,
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+            RETURN NEW;
+        END IF;
+
+        SELECT * INTO delta FROM audit_content_delta(OLD.content, NEW.content);
+
+        -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+        IF previous_chain_length + 1 >= checkpoint_interval
+                OR char_length(delta.middle) * 2 >= char_length(NEW.content) THEN
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title, new_content,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title, NEW.content,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+        ELSE
+            INSERT INTO post_audit_log (
+                post_id, operation, changed_at, user_id,
+                old_title, new_title,
+                content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+                old_content_length, new_content_length, old_content_hash, new_content_hash,
+                old_is_published, new_is_published, change_details
+            ) VALUES (
+                NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+                OLD.title, NEW.title,
+                delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+                char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+                OLD.is_published, NEW.is_published, change_details_text
+            );
+        END IF;
+
+        RETURN NEW;
+    END IF;
+
+    -- Обработка DELETE: удалённое содержимое совпадает с последней ревизией
+    IF TG_OP = 'DELETE' THEN
+        change_details_text := 'Пост удален';
+
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, old_content, old_content_length, old_content_hash,
+            content_chain_length, old_is_published, change_details
+        ) VALUES (
+            OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+            OLD.title, CASE WHEN previous_id IS NULL THEN OLD.content END,
+            char_length(OLD.content), md5(OLD.content),
+            COALESCE(previous_chain_length, 0), OLD.is_published, change_details_text
+        );
+
+        RETURN OLD;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+--rollback RETURNS TRIGGER AS
+--rollback $$
+--rollback DECLARE
+--rollback     -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+--rollback     checkpoint_interval CONSTANT INTEGER := 20;
+--rollback     change_details_text TEXT := '';
+--rollback     previous_id BIGINT;
+--rollback     previous_chain_length INTEGER;
+--rollback     delta RECORD;
+--rollback BEGIN
+--rollback     -- Обработка INSERT: первая ревизия всегда контрольная точка
+--rollback     IF TG_OP = 'INSERT' THEN
+--rollback         change_details_text := 'Создан новый пост';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             new_title, new_content, new_content_length, new_content_hash,
+--rollback             new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback             NEW.title, NEW.content, char_length(NEW.content), md5(NEW.content),
+--rollback             NEW.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Предыдущая запись аудита поста: относительно неё кодируется содержимое
+--rollback     SELECT id, content_chain_length INTO previous_id, previous_chain_length
+--rollback     FROM post_audit_log
+--rollback     WHERE post_id = OLD.id
+--rollback     ORDER BY id DESC
+--rollback     LIMIT 1;
+--rollback
+--rollback     -- Обработка UPDATE
+--rollback     IF TG_OP = 'UPDATE' THEN
+--rollback         change_details_text := 'Изменения: ';
+--rollback
+--rollback         IF OLD.title != NEW.title THEN
+--rollback             change_details_text := change_details_text || 'заголовок; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.content != NEW.content THEN
+--rollback             change_details_text := change_details_text || 'содержимое; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.is_published != NEW.is_published THEN
+--rollback             change_details_text := change_details_text || 'статус публикации; ';
+--rollback         END IF;
+--rollback
+--rollback         change_details_text := RTRIM(change_details_text, '; ');
+--rollback
+--rollback         IF NOT (OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published) THEN
+--rollback             RETURN NEW;
+--rollback         END IF;
+--rollback
+--rollback         IF previous_id IS NULL THEN
+--rollback             -- История поста не сохранилась: записываем обе версии целиком
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title, old_content, new_content,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title, OLD.content, NEW.content,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback             RETURN NEW;
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.content = NEW.content THEN
+--rollback             -- Содержимое не менялось: ни текста, ни дельты
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 content_chain_length,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 previous_chain_length,
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback             RETURN NEW;
+--rollback         END IF;
+--rollback
+--rollback         SELECT * INTO delta FROM audit_content_delta(OLD.content, NEW.content);
+--rollback
+--rollback         -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+--rollback         IF previous_chain_length + 1 >= checkpoint_interval
+--rollback                 OR char_length(delta.middle) * 2 >= char_length(NEW.content) THEN
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title, new_content,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title, NEW.content,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback         ELSE
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title,
+--rollback                 content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title,
+--rollback                 delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback         END IF;
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Обработка DELETE: удалённое содержимое совпадает с последней ревизией
+--rollback     IF TG_OP = 'DELETE' THEN
+--rollback         change_details_text := 'Пост удален';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, old_content, old_content_length, old_content_hash,
+--rollback             content_chain_length, old_is_published, change_details
+--rollback         ) VALUES (
+--rollback             OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+--rollback             OLD.title, CASE WHEN previous_id IS NULL THEN OLD.content END,
+--rollback             char_length(OLD.content), md5(OLD.content),
+--rollback             COALESCE(previous_chain_length, 0), OLD.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN OLD;
+--rollback     END IF;
+--rollback
+--rollback     RETURN NULL;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
+
+--changeset myblog:025-move-default-partition-rows-into-monthly-partitions splitStatements:false endDelimiter:/
+--comment: Creating a month partition moves that month's rows out of the default partition; months found in the default partition get their partitions
+
+CREATE OR REPLACE FUNCTION create_post_audit_log_partition(month_start DATE)
+RETURNS BOOLEAN AS
+$$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::DATE;
+    partition_end DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'post_audit_log_p' || to_char(partition_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    -- Строки месяца в DEFAULT-партиции запрещают создать его партицию: она создаётся отдельной таблицей,
+    -- строки переносятся в неё, и только затем она присоединяется
+    IF EXISTS (SELECT 1 FROM post_audit_log_default WHERE changed_at >= partition_start AND changed_at < partition_end) THEN
+        EXECUTE format('CREATE TABLE %I (LIKE post_audit_log INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+        EXECUTE format('WITH moved AS (DELETE FROM post_audit_log_default WHERE changed_at >= %L AND changed_at < %L '
+                       'RETURNING *) INSERT INTO %I SELECT * FROM moved',
+                       partition_start, partition_end, partition_name);
+        EXECUTE format('ALTER TABLE post_audit_log ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, partition_start, partition_end);
+        RETURN true;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF post_audit_log FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, partition_start, partition_end);
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+-- Партиции месяцев, строки которых попали в DEFAULT-партицию, затем текущего месяца и months_ahead следующих;
+-- возвращает количество созданных
+CREATE OR REPLACE FUNCTION ensure_post_audit_log_partitions(months_ahead INTEGER)
+RETURNS INTEGER AS
+$$
+DECLARE
+    created INTEGER := 0;
+    month_start DATE;
+BEGIN
+    FOR month_start IN SELECT DISTINCT date_trunc('month', changed_at)::DATE FROM post_audit_log_default LOOP
+        IF create_post_audit_log_partition(month_start) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    FOR i IN 0..months_ahead LOOP
+        IF create_post_audit_log_partition((date_trunc('month', CURRENT_DATE) + make_interval(months => i))::DATE) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION create_post_audit_log_partition(month_start DATE)
+--rollback RETURNS BOOLEAN AS
+--rollback $$
+--rollback DECLARE
+--rollback     partition_start DATE := date_trunc('month', month_start)::DATE;
+--rollback     partition_name TEXT := 'post_audit_log_p' || to_char(partition_start, 'YYYY_MM');
+--rollback BEGIN
+--rollback     IF to_regclass(partition_name) IS NOT NULL THEN
+--rollback         RETURN false;
+--rollback     END IF;
+--rollback     EXECUTE format('CREATE TABLE %I PARTITION OF post_audit_log FOR VALUES FROM (%L) TO (%L)',
+--rollback                    partition_name, partition_start, (partition_start + INTERVAL '1 month')::DATE);
+--rollback     RETURN true;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
+--rollback CREATE OR REPLACE FUNCTION ensure_post_audit_log_partitions(months_ahead INTEGER)
+--rollback RETURNS INTEGER AS
+--rollback $$
+--rollback DECLARE
+--rollback     created INTEGER := 0;
+--rollback BEGIN
+--rollback     FOR i IN 0..months_ahead LOOP
+--rollback         IF create_post_audit_log_partition((date_trunc('month', CURRENT_DATE) + make_interval(months => i))::DATE) THEN
+--rollback             created := created + 1;
+--rollback         END IF;
+--rollback     END LOOP;
+--rollback     RETURN created;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
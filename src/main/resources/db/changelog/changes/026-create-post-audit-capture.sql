@@ -0,0 +1,343 @@
+--liquibase formatted sql
+
+--changeset myblog:026-create-record-post-audit-procedure splitStatements:false endDelimiter:/
+--comment: Audit row writing shared by the posts trigger and the logical replication consumer
+
+-- Запись аудита одного изменения поста (дельта-кодирование содержимого, см. 024 и 025).
+-- Вызывается триггером audit_posts_trigger или приложением при захвате изменений через pgoutput.
+CREATE OR REPLACE PROCEDURE record_post_audit(
+    p_operation TEXT, p_post_id BIGINT, p_author_id BIGINT,
+    p_old_title TEXT, p_new_title TEXT,
+    p_old_content TEXT, p_new_content TEXT,
+    p_old_is_published BOOLEAN, p_new_is_published BOOLEAN,
+    p_changed_at TIMESTAMP)
+AS
+$$
+DECLARE
+    -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+    checkpoint_interval CONSTANT INTEGER := 20;
+    change_details_text TEXT := '';
+    previous_id BIGINT;
+    previous_chain_length INTEGER;
+    delta RECORD;
+BEGIN
+    -- INSERT: первая ревизия всегда контрольная точка
+    IF p_operation = 'INSERT' THEN
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            new_title, new_content, new_content_length, new_content_hash,
+            new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'INSERT', p_changed_at, p_author_id,
+            p_new_title, p_new_content, char_length(p_new_content), md5(p_new_content),
+            p_new_is_published, 'Создан новый пост'
+        );
+        RETURN;
+    END IF;
+
+    -- Предыдущая запись аудита поста в том же месяце (партиции): относительно неё кодируется содержимое
+    SELECT id, content_chain_length INTO previous_id, previous_chain_length
+    FROM post_audit_log
+    WHERE post_id = p_post_id
+      AND changed_at >= date_trunc('month', p_changed_at)
+    ORDER BY id DESC
+    LIMIT 1;
+
+    -- DELETE: удалённое содержимое совпадает с последней ревизией
+    IF p_operation = 'DELETE' THEN
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, old_content, old_content_length, old_content_hash,
+            content_chain_length, old_is_published, change_details
+        ) VALUES (
+            p_post_id, 'DELETE', p_changed_at, p_author_id,
+            p_old_title, CASE WHEN previous_id IS NULL THEN p_old_content END,
+            char_length(p_old_content), md5(p_old_content),
+            COALESCE(previous_chain_length, 0), p_old_is_published, 'Пост удален'
+        );
+        RETURN;
+    END IF;
+
+    -- UPDATE
+    IF p_old_title = p_new_title AND p_old_content = p_new_content AND p_old_is_published = p_new_is_published THEN
+        RETURN;
+    END IF;
+
+    change_details_text := 'Изменения: ';
+    IF p_old_title != p_new_title THEN
+        change_details_text := change_details_text || 'заголовок; ';
+    END IF;
+    IF p_old_content != p_new_content THEN
+        change_details_text := change_details_text || 'содержимое; ';
+    END IF;
+    IF p_old_is_published != p_new_is_published THEN
+        change_details_text := change_details_text || 'статус публикации; ';
+    END IF;
+    change_details_text := RTRIM(change_details_text, '; ');
+
+    IF previous_id IS NULL THEN
+        -- Истории поста в этом месяце нет: записываем обе версии целиком
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, new_title, old_content, new_content,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id,
+            p_old_title, p_new_title, p_old_content, p_new_content,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+        RETURN;
+    END IF;
+
+    IF p_old_content = p_new_content THEN
+        -- Содержимое не менялось: ни текста, ни дельты
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, new_title,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            content_chain_length,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id,
+            p_old_title, p_new_title,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            previous_chain_length,
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+        RETURN;
+    END IF;
+
+    SELECT * INTO delta FROM audit_content_delta(p_old_content, p_new_content);
+
+    -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+    IF previous_chain_length + 1 >= checkpoint_interval
+            OR char_length(delta.middle) * 2 >= char_length(p_new_content) THEN
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, new_title, new_content,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id,
+            p_old_title, p_new_title, p_new_content,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+    ELSE
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id,
+            old_title, new_title,
+            content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id,
+            p_old_title, p_new_title,
+            delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        CALL record_post_audit('INSERT', NEW.id, NEW.author_id, NULL, NEW.title, NULL, NEW.content,
+                               NULL, NEW.is_published, LOCALTIMESTAMP);
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'UPDATE' THEN
+        CALL record_post_audit('UPDATE', NEW.id, NEW.author_id, OLD.title, NEW.title, OLD.content, NEW.content,
+                               OLD.is_published, NEW.is_published, LOCALTIMESTAMP);
+        RETURN NEW;
+    END IF;
+
+    IF TG_OP = 'DELETE' THEN
+        CALL record_post_audit('DELETE', OLD.id, OLD.author_id, OLD.title, NULL, OLD.content, NULL,
+                               OLD.is_published, NULL, LOCALTIMESTAMP);
+        RETURN OLD;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION audit_posts_trigger_function()
+--rollback RETURNS TRIGGER AS
+--rollback $$
+--rollback DECLARE
+--rollback     -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+--rollback     checkpoint_interval CONSTANT INTEGER := 20;
+--rollback     change_details_text TEXT := '';
+--rollback     previous_id BIGINT;
+--rollback     previous_chain_length INTEGER;
+--rollback     delta RECORD;
+--rollback BEGIN
+--rollback     -- Обработка INSERT: первая ревизия всегда контрольная точка
+--rollback     IF TG_OP = 'INSERT' THEN
+--rollback         change_details_text := 'Создан новый пост';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             new_title, new_content, new_content_length, new_content_hash,
+--rollback             new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             NEW.id, 'INSERT', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback             NEW.title, NEW.content, char_length(NEW.content), md5(NEW.content),
+--rollback             NEW.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Предыдущая запись аудита поста: относительно неё кодируется содержимое.
+--rollback     -- Цепочка дельт не переходит границу месяца (партиции): первая запись месяца хранит текст целиком,
+--rollback     -- поэтому удаление старой партиции не ломает восстановление содержимого в оставшихся.
+--rollback     SELECT id, content_chain_length INTO previous_id, previous_chain_length
+--rollback     FROM post_audit_log
+--rollback     WHERE post_id = OLD.id
+--rollback       AND changed_at >= date_trunc('month', CURRENT_TIMESTAMP)
+--rollback     ORDER BY id DESC
+--rollback     LIMIT 1;
+--rollback
+--rollback     -- Обработка UPDATE
+--rollback     IF TG_OP = 'UPDATE' THEN
+--rollback         change_details_text := 'Изменения: ';
+--rollback
+--rollback         IF OLD.title != NEW.title THEN
+--rollback             change_details_text := change_details_text || 'заголовок; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.content != NEW.content THEN
+--rollback             change_details_text := change_details_text || 'содержимое; ';
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.is_published != NEW.is_published THEN
+--rollback             change_details_text := change_details_text || 'статус публикации; ';
+--rollback         END IF;
+--rollback
+--rollback         change_details_text := RTRIM(change_details_text, '; ');
+--rollback
+--rollback         IF NOT (OLD.title != NEW.title OR OLD.content != NEW.content OR OLD.is_published != NEW.is_published) THEN
+--rollback             RETURN NEW;
+--rollback         END IF;
+--rollback
+--rollback         IF previous_id IS NULL THEN
+--rollback             -- История поста не сохранилась: записываем обе версии целиком
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title, old_content, new_content,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title, OLD.content, NEW.content,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback             RETURN NEW;
+--rollback         END IF;
+--rollback
+--rollback         IF OLD.content = NEW.content THEN
+--rollback             -- Содержимое не менялось: ни текста, ни дельты
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 content_chain_length,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 previous_chain_length,
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback             RETURN NEW;
+--rollback         END IF;
+--rollback
+--rollback         SELECT * INTO delta FROM audit_content_delta(OLD.content, NEW.content);
+--rollback
+--rollback         -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+--rollback         IF previous_chain_length + 1 >= checkpoint_interval
+--rollback                 OR char_length(delta.middle) * 2 >= char_length(NEW.content) THEN
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title, new_content,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title, NEW.content,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback         ELSE
+--rollback             INSERT INTO post_audit_log (
+--rollback                 post_id, operation, changed_at, user_id,
+--rollback                 old_title, new_title,
+--rollback                 content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+--rollback                 old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback                 old_is_published, new_is_published, change_details
+--rollback             ) VALUES (
+--rollback                 NEW.id, 'UPDATE', CURRENT_TIMESTAMP, NEW.author_id,
+--rollback                 OLD.title, NEW.title,
+--rollback                 delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+--rollback                 char_length(OLD.content), char_length(NEW.content), md5(OLD.content), md5(NEW.content),
+--rollback                 OLD.is_published, NEW.is_published, change_details_text
+--rollback             );
+--rollback         END IF;
+--rollback
+--rollback         RETURN NEW;
+--rollback     END IF;
+--rollback
+--rollback     -- Обработка DELETE: удалённое содержимое совпадает с последней ревизией
+--rollback     IF TG_OP = 'DELETE' THEN
+--rollback         change_details_text := 'Пост удален';
+--rollback
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, old_content, old_content_length, old_content_hash,
+--rollback             content_chain_length, old_is_published, change_details
+--rollback         ) VALUES (
+--rollback             OLD.id, 'DELETE', CURRENT_TIMESTAMP, OLD.author_id,
+--rollback             OLD.title, CASE WHEN previous_id IS NULL THEN OLD.content END,
+--rollback             char_length(OLD.content), md5(OLD.content),
+--rollback             COALESCE(previous_chain_length, 0), OLD.is_published, change_details_text
+--rollback         );
+--rollback
+--rollback         RETURN OLD;
+--rollback     END IF;
+--rollback
+--rollback     RETURN NULL;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
+--rollback DROP PROCEDURE IF EXISTS record_post_audit(TEXT, BIGINT, BIGINT, TEXT, TEXT, TEXT, TEXT, BOOLEAN, BOOLEAN, TIMESTAMP);
+--rollback /
+
+--changeset myblog:026-create-audit-capture-state-table
+--comment: Resumable position of the logical replication audit consumer
+
+CREATE TABLE audit_capture_state (
+    slot_name VARCHAR(63) PRIMARY KEY,
+    confirmed_lsn BIGINT NOT NULL DEFAULT 0,
+    trigger_disabled_lsn BIGINT,
+    trigger_enabled_lsn BIGINT,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE audit_capture_state IS 'Позиция потребителя логической репликации для аудита постов';
+COMMENT ON COLUMN audit_capture_state.confirmed_lsn IS 'LSN конца последней транзакции, аудит которой записан';
+COMMENT ON COLUMN audit_capture_state.trigger_disabled_lsn IS 'LSN отключения триггера: более ранние транзакции записаны триггером';
+COMMENT ON COLUMN audit_capture_state.trigger_enabled_lsn IS 'LSN обратного включения триггера: более поздние транзакции записывает триггер';
+
+--rollback DROP TABLE audit_capture_state;
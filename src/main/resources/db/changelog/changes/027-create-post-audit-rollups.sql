@@ -0,0 +1,93 @@
+--liquibase formatted sql
+
+--changeset myblog:027-create-post-audit-rollup-tables
+--comment: Pre-aggregated audit activity per day and per post
+
+-- Активность по дням: строка на (день, операция, шард). Шард = post_id % 16 разносит
+-- конкурентные изменения разных постов по разным строкам, чтобы они не ждали блокировку одной строки дня
+CREATE TABLE post_audit_daily_rollup (
+    activity_date DATE NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    shard SMALLINT NOT NULL,
+    changes_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (activity_date, operation, shard)
+);
+
+-- Счётчики изменений поста с разбивкой по операциям
+CREATE TABLE post_audit_post_rollup (
+    post_id BIGINT PRIMARY KEY,
+    changes_count BIGINT NOT NULL DEFAULT 0,
+    inserts_count BIGINT NOT NULL DEFAULT 0,
+    updates_count BIGINT NOT NULL DEFAULT 0,
+    deletes_count BIGINT NOT NULL DEFAULT 0,
+    last_changed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_post_audit_post_rollup_changes ON post_audit_post_rollup (changes_count DESC, post_id);
+
+COMMENT ON TABLE post_audit_daily_rollup IS 'Количество изменений постов по дням и операциям, обновляется при записи аудита';
+COMMENT ON TABLE post_audit_post_rollup IS 'Количество изменений по постам, обновляется при записи аудита';
+--rollback DROP TABLE IF EXISTS post_audit_post_rollup;
+--rollback DROP TABLE IF EXISTS post_audit_daily_rollup;
+
+--changeset myblog:027-create-post-audit-rollup-trigger splitStatements:false endDelimiter:/
+--comment: Keep audit rollups up to date as audit rows are inserted
+
+-- Срабатывает на любую запись аудита (триггер постов или захват через pgoutput).
+-- Удаление партиций по сроку хранения агрегаты не уменьшает: они покрывают всю историю.
+CREATE OR REPLACE FUNCTION post_audit_rollup_trigger_function()
+RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO post_audit_daily_rollup (activity_date, operation, shard, changes_count)
+    VALUES (NEW.changed_at::DATE, NEW.operation, NEW.post_id % 16, 1)
+    ON CONFLICT (activity_date, operation, shard)
+        DO UPDATE SET changes_count = post_audit_daily_rollup.changes_count + 1;
+
+    INSERT INTO post_audit_post_rollup (post_id, changes_count, inserts_count, updates_count, deletes_count, last_changed_at)
+    VALUES (NEW.post_id, 1,
+            CASE WHEN NEW.operation = 'INSERT' THEN 1 ELSE 0 END,
+            CASE WHEN NEW.operation = 'UPDATE' THEN 1 ELSE 0 END,
+            CASE WHEN NEW.operation = 'DELETE' THEN 1 ELSE 0 END,
+            NEW.changed_at)
+    ON CONFLICT (post_id) DO UPDATE SET
+        changes_count = post_audit_post_rollup.changes_count + 1,
+        inserts_count = post_audit_post_rollup.inserts_count + EXCLUDED.inserts_count,
+        updates_count = post_audit_post_rollup.updates_count + EXCLUDED.updates_count,
+        deletes_count = post_audit_post_rollup.deletes_count + EXCLUDED.deletes_count,
+        last_changed_at = GREATEST(post_audit_post_rollup.last_changed_at, EXCLUDED.last_changed_at);
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+CREATE TRIGGER post_audit_rollup_trigger
+    AFTER INSERT ON post_audit_log
+    FOR EACH ROW
+    EXECUTE FUNCTION post_audit_rollup_trigger_function();
+/
+--rollback DROP TRIGGER IF EXISTS post_audit_rollup_trigger ON post_audit_log;
+--rollback /
+--rollback DROP FUNCTION IF EXISTS post_audit_rollup_trigger_function();
+--rollback /
+
+--changeset myblog:027-backfill-post-audit-rollups
+--comment: Build rollups from the existing audit history
+
+INSERT INTO post_audit_daily_rollup (activity_date, operation, shard, changes_count)
+SELECT changed_at::DATE, operation, post_id % 16, COUNT(*)
+FROM post_audit_log
+GROUP BY changed_at::DATE, operation, post_id % 16;
+
+INSERT INTO post_audit_post_rollup (post_id, changes_count, inserts_count, updates_count, deletes_count, last_changed_at)
+SELECT post_id,
+       COUNT(*),
+       COUNT(*) FILTER (WHERE operation = 'INSERT'),
+       COUNT(*) FILTER (WHERE operation = 'UPDATE'),
+       COUNT(*) FILTER (WHERE operation = 'DELETE'),
+       MAX(changed_at)
+FROM post_audit_log
+GROUP BY post_id;
+--rollback DELETE FROM post_audit_post_rollup;
+--rollback DELETE FROM post_audit_daily_rollup;
@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+--changeset myblog:028-create-audit-export-job-table
+--comment: Resumable audit export jobs
+
+-- Состояние выгрузки аудита: последняя записанная позиция (post_id, id) и размер файла
+-- на момент контрольной точки; продолжение обрезает файл до bytes_written и читает дальше
+CREATE TABLE audit_export_job (
+    id BIGSERIAL PRIMARY KEY,
+    format VARCHAR(10) NOT NULL,
+    from_changed_at TIMESTAMP NOT NULL,
+    to_changed_at TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    estimated_rows BIGINT NOT NULL DEFAULT 0,
+    rows_written BIGINT NOT NULL DEFAULT 0,
+    bytes_written BIGINT NOT NULL DEFAULT 0,
+    last_post_id BIGINT NOT NULL DEFAULT 0,
+    last_audit_id BIGINT NOT NULL DEFAULT 0,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+COMMENT ON TABLE audit_export_job IS 'Задания выгрузки журнала аудита в сжатые NDJSON/CSV-файлы';
+--rollback DROP TABLE IF EXISTS audit_export_job;
@@ -0,0 +1,386 @@
+--liquibase formatted sql
+
+--changeset myblog:029-add-post-audit-log-search-terms
+--comment: Terms added and removed by each audited change, for searching audit history
+
+ALTER TABLE post_audit_log
+    ADD COLUMN added_terms tsvector,
+    ADD COLUMN removed_terms tsvector;
+
+COMMENT ON COLUMN post_audit_log.added_terms IS 'Лексемы заголовка (A) и содержимого (B), которых не было до изменения';
+COMMENT ON COLUMN post_audit_log.removed_terms IS 'Лексемы заголовка (A) и содержимого (B), исчезнувшие после изменения';
+--rollback ALTER TABLE post_audit_log DROP COLUMN IF EXISTS added_terms, DROP COLUMN IF EXISTS removed_terms;
+
+--changeset myblog:029-create-audit-changed-terms-function splitStatements:false endDelimiter:/
+--comment: Lexemes present in the target version of a post but not in the source version
+
+-- Лексемы to_*, отсутствующие в from_*; для неизменившегося поля to_tsvector не вычисляется
+CREATE OR REPLACE FUNCTION audit_changed_terms(p_from_title TEXT, p_to_title TEXT,
+                                               p_from_content TEXT, p_to_content TEXT)
+RETURNS tsvector AS
+$$
+    SELECT NULLIF(
+        CASE WHEN p_from_title IS DISTINCT FROM p_to_title
+             THEN setweight(ts_delete(to_tsvector('russian', COALESCE(p_to_title, '')),
+                                      tsvector_to_array(to_tsvector('russian', COALESCE(p_from_title, '')))), 'A')
+             ELSE ''::tsvector END
+        || CASE WHEN p_from_content IS DISTINCT FROM p_to_content
+             THEN setweight(ts_delete(to_tsvector('russian', COALESCE(p_to_content, '')),
+                                      tsvector_to_array(to_tsvector('russian', COALESCE(p_from_content, '')))), 'B')
+             ELSE ''::tsvector END,
+        ''::tsvector)
+$$ LANGUAGE sql IMMUTABLE;
+/
+--rollback DROP FUNCTION IF EXISTS audit_changed_terms(TEXT, TEXT, TEXT, TEXT);
+--rollback /
+
+--changeset myblog:029-record-post-audit-search-terms splitStatements:false endDelimiter:/
+--comment: Store changed terms with every audit row
+
+CREATE OR REPLACE PROCEDURE record_post_audit(
+    p_operation TEXT, p_post_id BIGINT, p_author_id BIGINT,
+    p_old_title TEXT, p_new_title TEXT,
+    p_old_content TEXT, p_new_content TEXT,
+    p_old_is_published BOOLEAN, p_new_is_published BOOLEAN,
+    p_changed_at TIMESTAMP)
+AS
+$$
+DECLARE
+    -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+    checkpoint_interval CONSTANT INTEGER := 20;
+    change_details_text TEXT := '';
+    previous_id BIGINT;
+    previous_chain_length INTEGER;
+    delta RECORD;
+    added_terms_value tsvector;
+    removed_terms_value tsvector;
+BEGIN
+    -- UPDATE без изменений аудируемых полей (например, счётчика просмотров) не записывается
+    IF p_operation = 'UPDATE' AND p_old_title = p_new_title AND p_old_content = p_new_content
+            AND p_old_is_published = p_new_is_published THEN
+        RETURN;
+    END IF;
+
+    -- Лексемы заголовка (вес A) и содержимого (вес B), появившиеся и исчезнувшие в этом изменении
+    added_terms_value := audit_changed_terms(p_old_title, p_new_title, p_old_content, p_new_content);
+    removed_terms_value := audit_changed_terms(p_new_title, p_old_title, p_new_content, p_old_content);
+
+    -- INSERT: первая ревизия всегда контрольная точка
+    IF p_operation = 'INSERT' THEN
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id, added_terms, removed_terms,
+            new_title, new_content, new_content_length, new_content_hash,
+            new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'INSERT', p_changed_at, p_author_id, added_terms_value, removed_terms_value,
+            p_new_title, p_new_content, char_length(p_new_content), md5(p_new_content),
+            p_new_is_published, 'Создан новый пост'
+        );
+        RETURN;
+    END IF;
+
+    -- Предыдущая запись аудита поста в том же месяце (партиции): относительно неё кодируется содержимое
+    SELECT id, content_chain_length INTO previous_id, previous_chain_length
+    FROM post_audit_log
+    WHERE post_id = p_post_id
+      AND changed_at >= date_trunc('month', p_changed_at)
+    ORDER BY id DESC
+    LIMIT 1;
+
+    -- DELETE: удалённое содержимое совпадает с последней ревизией
+    IF p_operation = 'DELETE' THEN
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id, added_terms, removed_terms,
+            old_title, old_content, old_content_length, old_content_hash,
+            content_chain_length, old_is_published, change_details
+        ) VALUES (
+            p_post_id, 'DELETE', p_changed_at, p_author_id, added_terms_value, removed_terms_value,
+            p_old_title, CASE WHEN previous_id IS NULL THEN p_old_content END,
+            char_length(p_old_content), md5(p_old_content),
+            COALESCE(previous_chain_length, 0), p_old_is_published, 'Пост удален'
+        );
+        RETURN;
+    END IF;
+
+    -- UPDATE
+    change_details_text := 'Изменения: ';
+    IF p_old_title != p_new_title THEN
+        change_details_text := change_details_text || 'заголовок; ';
+    END IF;
+    IF p_old_content != p_new_content THEN
+        change_details_text := change_details_text || 'содержимое; ';
+    END IF;
+    IF p_old_is_published != p_new_is_published THEN
+        change_details_text := change_details_text || 'статус публикации; ';
+    END IF;
+    change_details_text := RTRIM(change_details_text, '; ');
+
+    IF previous_id IS NULL THEN
+        -- Истории поста в этом месяце нет: записываем обе версии целиком
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id, added_terms, removed_terms,
+            old_title, new_title, old_content, new_content,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id, added_terms_value, removed_terms_value,
+            p_old_title, p_new_title, p_old_content, p_new_content,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+        RETURN;
+    END IF;
+
+    IF p_old_content = p_new_content THEN
+        -- Содержимое не менялось: ни текста, ни дельты
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id, added_terms, removed_terms,
+            old_title, new_title,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            content_chain_length,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id, added_terms_value, removed_terms_value,
+            p_old_title, p_new_title,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            previous_chain_length,
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+        RETURN;
+    END IF;
+
+    SELECT * INTO delta FROM audit_content_delta(p_old_content, p_new_content);
+
+    -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+    IF previous_chain_length + 1 >= checkpoint_interval
+            OR char_length(delta.middle) * 2 >= char_length(p_new_content) THEN
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id, added_terms, removed_terms,
+            old_title, new_title, new_content,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id, added_terms_value, removed_terms_value,
+            p_old_title, p_new_title, p_new_content,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+    ELSE
+        INSERT INTO post_audit_log (
+            post_id, operation, changed_at, user_id, added_terms, removed_terms,
+            old_title, new_title,
+            content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+            old_content_length, new_content_length, old_content_hash, new_content_hash,
+            old_is_published, new_is_published, change_details
+        ) VALUES (
+            p_post_id, 'UPDATE', p_changed_at, p_author_id, added_terms_value, removed_terms_value,
+            p_old_title, p_new_title,
+            delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+            char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+            p_old_is_published, p_new_is_published, change_details_text
+        );
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE PROCEDURE record_post_audit(
+--rollback     p_operation TEXT, p_post_id BIGINT, p_author_id BIGINT,
+--rollback     p_old_title TEXT, p_new_title TEXT,
+--rollback     p_old_content TEXT, p_new_content TEXT,
+--rollback     p_old_is_published BOOLEAN, p_new_is_published BOOLEAN,
+--rollback     p_changed_at TIMESTAMP)
+--rollback AS
+--rollback $$
+--rollback DECLARE
+--rollback     -- Не более стольких дельт подряд: реконструкция любой ревизии читает не больше checkpoint_interval записей
+--rollback     checkpoint_interval CONSTANT INTEGER := 20;
+--rollback     change_details_text TEXT := '';
+--rollback     previous_id BIGINT;
+--rollback     previous_chain_length INTEGER;
+--rollback     delta RECORD;
+--rollback BEGIN
+--rollback     -- INSERT: первая ревизия всегда контрольная точка
+--rollback     IF p_operation = 'INSERT' THEN
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             new_title, new_content, new_content_length, new_content_hash,
+--rollback             new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             p_post_id, 'INSERT', p_changed_at, p_author_id,
+--rollback             p_new_title, p_new_content, char_length(p_new_content), md5(p_new_content),
+--rollback             p_new_is_published, 'Создан новый пост'
+--rollback         );
+--rollback         RETURN;
+--rollback     END IF;
+--rollback
+--rollback     -- Предыдущая запись аудита поста в том же месяце (партиции): относительно неё кодируется содержимое
+--rollback     SELECT id, content_chain_length INTO previous_id, previous_chain_length
+--rollback     FROM post_audit_log
+--rollback     WHERE post_id = p_post_id
+--rollback       AND changed_at >= date_trunc('month', p_changed_at)
+--rollback     ORDER BY id DESC
+--rollback     LIMIT 1;
+--rollback
+--rollback     -- DELETE: удалённое содержимое совпадает с последней ревизией
+--rollback     IF p_operation = 'DELETE' THEN
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, old_content, old_content_length, old_content_hash,
+--rollback             content_chain_length, old_is_published, change_details
+--rollback         ) VALUES (
+--rollback             p_post_id, 'DELETE', p_changed_at, p_author_id,
+--rollback             p_old_title, CASE WHEN previous_id IS NULL THEN p_old_content END,
+--rollback             char_length(p_old_content), md5(p_old_content),
+--rollback             COALESCE(previous_chain_length, 0), p_old_is_published, 'Пост удален'
+--rollback         );
+--rollback         RETURN;
+--rollback     END IF;
+--rollback
+--rollback     -- UPDATE
+--rollback     IF p_old_title = p_new_title AND p_old_content = p_new_content AND p_old_is_published = p_new_is_published THEN
+--rollback         RETURN;
+--rollback     END IF;
+--rollback
+--rollback     change_details_text := 'Изменения: ';
+--rollback     IF p_old_title != p_new_title THEN
+--rollback         change_details_text := change_details_text || 'заголовок; ';
+--rollback     END IF;
+--rollback     IF p_old_content != p_new_content THEN
+--rollback         change_details_text := change_details_text || 'содержимое; ';
+--rollback     END IF;
+--rollback     IF p_old_is_published != p_new_is_published THEN
+--rollback         change_details_text := change_details_text || 'статус публикации; ';
+--rollback     END IF;
+--rollback     change_details_text := RTRIM(change_details_text, '; ');
+--rollback
+--rollback     IF previous_id IS NULL THEN
+--rollback         -- Истории поста в этом месяце нет: записываем обе версии целиком
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, new_title, old_content, new_content,
+--rollback             old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback             old_is_published, new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             p_post_id, 'UPDATE', p_changed_at, p_author_id,
+--rollback             p_old_title, p_new_title, p_old_content, p_new_content,
+--rollback             char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+--rollback             p_old_is_published, p_new_is_published, change_details_text
+--rollback         );
+--rollback         RETURN;
+--rollback     END IF;
+--rollback
+--rollback     IF p_old_content = p_new_content THEN
+--rollback         -- Содержимое не менялось: ни текста, ни дельты
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, new_title,
+--rollback             old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback             content_chain_length,
+--rollback             old_is_published, new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             p_post_id, 'UPDATE', p_changed_at, p_author_id,
+--rollback             p_old_title, p_new_title,
+--rollback             char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+--rollback             previous_chain_length,
+--rollback             p_old_is_published, p_new_is_published, change_details_text
+--rollback         );
+--rollback         RETURN;
+--rollback     END IF;
+--rollback
+--rollback     SELECT * INTO delta FROM audit_content_delta(p_old_content, p_new_content);
+--rollback
+--rollback     -- Контрольная точка: цепочка дельт достигла предела или дельта не меньше половины текста
+--rollback     IF previous_chain_length + 1 >= checkpoint_interval
+--rollback             OR char_length(delta.middle) * 2 >= char_length(p_new_content) THEN
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, new_title, new_content,
+--rollback             old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback             old_is_published, new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             p_post_id, 'UPDATE', p_changed_at, p_author_id,
+--rollback             p_old_title, p_new_title, p_new_content,
+--rollback             char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+--rollback             p_old_is_published, p_new_is_published, change_details_text
+--rollback         );
+--rollback     ELSE
+--rollback         INSERT INTO post_audit_log (
+--rollback             post_id, operation, changed_at, user_id,
+--rollback             old_title, new_title,
+--rollback             content_delta_prefix, content_delta_suffix, content_delta, content_chain_length,
+--rollback             old_content_length, new_content_length, old_content_hash, new_content_hash,
+--rollback             old_is_published, new_is_published, change_details
+--rollback         ) VALUES (
+--rollback             p_post_id, 'UPDATE', p_changed_at, p_author_id,
+--rollback             p_old_title, p_new_title,
+--rollback             delta.prefix_length, delta.suffix_length, delta.middle, previous_chain_length + 1,
+--rollback             char_length(p_old_content), char_length(p_new_content), md5(p_old_content), md5(p_new_content),
+--rollback             p_old_is_published, p_new_is_published, change_details_text
+--rollback         );
+--rollback     END IF;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
+
+--changeset myblog:029-backfill-post-audit-log-search-terms splitStatements:false endDelimiter:/
+--comment: Compute changed terms for existing audit rows by replaying each post's content chain
+
+DO
+$$
+DECLARE
+    audit_row RECORD;
+    current_post_id BIGINT;
+    current_content TEXT;
+    row_old_content TEXT;
+    row_new_content TEXT;
+BEGIN
+    FOR audit_row IN
+        SELECT id, changed_at, post_id, operation, old_title, new_title, old_content, new_content,
+               content_delta_prefix, content_delta_suffix, content_delta
+        FROM post_audit_log
+        ORDER BY post_id, id
+    LOOP
+        IF current_post_id IS DISTINCT FROM audit_row.post_id THEN
+            current_post_id := audit_row.post_id;
+            current_content := NULL;
+        END IF;
+
+        -- Та же реконструкция, что и в PostAuditService.decode
+        row_old_content := COALESCE(audit_row.old_content,
+                                    CASE WHEN audit_row.operation = 'INSERT' THEN NULL ELSE current_content END);
+        IF audit_row.operation = 'DELETE' THEN
+            row_new_content := NULL;
+            current_content := row_old_content;
+        ELSE
+            IF audit_row.new_content IS NOT NULL THEN
+                row_new_content := audit_row.new_content;
+            ELSIF audit_row.content_delta IS NOT NULL THEN
+                row_new_content := left(row_old_content, audit_row.content_delta_prefix)
+                                   || audit_row.content_delta
+                                   || right(row_old_content, audit_row.content_delta_suffix);
+            ELSE
+                row_new_content := row_old_content;
+            END IF;
+            current_content := row_new_content;
+        END IF;
+
+        UPDATE post_audit_log
+        SET added_terms = audit_changed_terms(audit_row.old_title, audit_row.new_title,
+                                              row_old_content, row_new_content),
+            removed_terms = audit_changed_terms(audit_row.new_title, audit_row.old_title,
+                                                row_new_content, row_old_content)
+        WHERE id = audit_row.id AND changed_at = audit_row.changed_at;
+    END LOOP;
+END;
+$$;
+/
+--rollback UPDATE post_audit_log SET added_terms = NULL, removed_terms = NULL;
+--rollback /
+
+--changeset myblog:029-create-post-audit-log-search-indexes
+--comment: GIN indexes for searching changed terms
+
+CREATE INDEX idx_post_audit_log_added_terms ON post_audit_log USING gin (added_terms);
+CREATE INDEX idx_post_audit_log_removed_terms ON post_audit_log USING gin (removed_terms);
+--rollback DROP INDEX IF EXISTS idx_post_audit_log_added_terms;
+--rollback DROP INDEX IF EXISTS idx_post_audit_log_removed_terms;
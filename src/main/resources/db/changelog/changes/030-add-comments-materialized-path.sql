@@ -0,0 +1,84 @@
+--liquibase formatted sql
+
+--changeset myblog:030-add-comments-path-column
+--comment: Materialized path of each comment within its thread
+
+-- Путь — id предков и самого комментария в виде 16 hex-цифр через точку. Фиксированная ширина и
+-- побайтовое сравнение (COLLATE "C") дают порядок обхода дерева в глубину: поддерево комментария P —
+-- это диапазон [P, P || '/'), так как '/' следует сразу за '.'
+ALTER TABLE comments ADD COLUMN path TEXT COLLATE "C";
+
+COMMENT ON COLUMN comments.path IS 'Материализованный путь: id предков и комментария (16 hex-цифр) через точку';
+--rollback ALTER TABLE comments DROP COLUMN IF EXISTS path;
+
+--changeset myblog:030-backfill-comments-path
+--comment: Compute paths of existing comments (before the trigger, which keeps paths unchanged on update)
+
+WITH RECURSIVE tree AS (
+    SELECT id, lpad(to_hex(id), 16, '0') AS path
+    FROM comments
+    WHERE parent_comment_id IS NULL
+    UNION ALL
+    SELECT c.id, tree.path || '.' || lpad(to_hex(c.id), 16, '0')
+    FROM comments c
+    JOIN tree ON c.parent_comment_id = tree.id
+)
+UPDATE comments
+SET path = tree.path
+FROM tree
+WHERE comments.id = tree.id;
+
+ALTER TABLE comments ALTER COLUMN path SET NOT NULL;
+--rollback ALTER TABLE comments ALTER COLUMN path DROP NOT NULL;
+--rollback UPDATE comments SET path = NULL;
+
+--changeset myblog:030-create-comments-path-trigger splitStatements:false endDelimiter:/
+--comment: Maintain comment paths on insert
+
+CREATE OR REPLACE FUNCTION set_comment_path_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    parent_path TEXT;
+    parent_post_id BIGINT;
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF NEW.parent_comment_id IS DISTINCT FROM OLD.parent_comment_id OR NEW.post_id IS DISTINCT FROM OLD.post_id THEN
+            RAISE EXCEPTION 'Comment % cannot be moved to another parent or post', OLD.id;
+        END IF;
+        NEW.path := OLD.path;
+        RETURN NEW;
+    END IF;
+
+    IF NEW.parent_comment_id IS NULL THEN
+        NEW.path := lpad(to_hex(NEW.id), 16, '0');
+        RETURN NEW;
+    END IF;
+
+    SELECT path, post_id INTO parent_path, parent_post_id FROM comments WHERE id = NEW.parent_comment_id;
+    IF parent_post_id IS DISTINCT FROM NEW.post_id THEN
+        RAISE EXCEPTION 'Parent comment % belongs to another post', NEW.parent_comment_id;
+    END IF;
+    NEW.path := parent_path || '.' || lpad(to_hex(NEW.id), 16, '0');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+CREATE TRIGGER set_comment_path_trigger
+    BEFORE INSERT OR UPDATE ON comments
+    FOR EACH ROW
+    EXECUTE FUNCTION set_comment_path_trigger_function();
+/
+--rollback DROP TRIGGER IF EXISTS set_comment_path_trigger ON comments;
+--rollback /
+--rollback DROP FUNCTION IF EXISTS set_comment_path_trigger_function();
+--rollback /
+
+--changeset myblog:030-create-comments-path-indexes
+--comment: Range scans over a post's thread and its top-level comments
+
+CREATE INDEX idx_comments_post_path ON comments (post_id, path);
+CREATE INDEX idx_comments_post_root_path ON comments (post_id, path) WHERE parent_comment_id IS NULL;
+--rollback DROP INDEX IF EXISTS idx_comments_post_path;
+--rollback DROP INDEX IF EXISTS idx_comments_post_root_path;
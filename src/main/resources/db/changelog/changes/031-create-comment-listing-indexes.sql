@@ -0,0 +1,36 @@
+--liquibase formatted sql
+
+--changeset myblog:031-create-comment-listing-indexes
+--comment: Keyset indexes for comment listings per post, per author and for moderation
+
+-- Все комментарии поста для модерации: страница — диапазон индекса после (created_at, id) курсора
+CREATE INDEX IF NOT EXISTS idx_comments_post_created
+ON comments (post_id, created_at DESC, id DESC);
+
+-- Неудалённые комментарии автора; префикс author_id покрывает и подсчёт комментариев автора
+CREATE INDEX IF NOT EXISTS idx_comments_author_created_not_deleted
+ON comments (author_id, created_at DESC, id DESC)
+WHERE is_deleted = false;
+
+-- Лента последних опубликованных комментариев
+CREATE INDEX IF NOT EXISTS idx_comments_recent_approved
+ON comments (created_at DESC, id DESC)
+WHERE is_approved = true AND is_deleted = false;
+
+-- Очередь модерации: индекс содержит только ожидающие комментарии и остаётся маленьким
+CREATE INDEX IF NOT EXISTS idx_comments_pending_moderation
+ON comments (created_at DESC, id DESC)
+WHERE is_approved = false AND is_deleted = false;
+
+-- Индексы по булевым флагам и счётный индекс автора заменены частичными индексами выше
+DROP INDEX IF EXISTS idx_comments_is_approved;
+DROP INDEX IF EXISTS idx_comments_is_deleted;
+DROP INDEX IF EXISTS idx_comments_author_not_deleted;
+
+--rollback CREATE INDEX IF NOT EXISTS idx_comments_author_not_deleted ON comments (author_id) WHERE is_deleted = false;
+--rollback CREATE INDEX IF NOT EXISTS idx_comments_is_deleted ON comments (is_deleted);
+--rollback CREATE INDEX IF NOT EXISTS idx_comments_is_approved ON comments (is_approved);
+--rollback DROP INDEX IF EXISTS idx_comments_pending_moderation;
+--rollback DROP INDEX IF EXISTS idx_comments_recent_approved;
+--rollback DROP INDEX IF EXISTS idx_comments_author_created_not_deleted;
+--rollback DROP INDEX IF EXISTS idx_comments_post_created;
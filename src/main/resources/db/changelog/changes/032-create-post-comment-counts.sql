@@ -0,0 +1,90 @@
+--liquibase formatted sql
+
+--changeset myblog:032-create-post-comment-counts
+--comment: Denormalized number of visible comments per post
+
+-- Количество одобренных и неудалённых комментариев поста; отдельная таблица, чтобы
+-- комментарии не порождали UPDATE постов (аудит, search_vector, уведомления представлений)
+CREATE TABLE post_comment_counts (
+    post_id BIGINT PRIMARY KEY,
+    comments_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_post_comment_counts_post FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+COMMENT ON TABLE post_comment_counts IS 'Количество видимых комментариев поста, обновляется триггерами comments';
+
+INSERT INTO post_comment_counts (post_id, comments_count)
+SELECT post_id, COUNT(*)
+FROM comments
+WHERE is_approved = true AND is_deleted = false
+GROUP BY post_id;
+
+--rollback DROP TABLE IF EXISTS post_comment_counts;
+
+--changeset myblog:032-create-post-comment-counts-trigger splitStatements:false endDelimiter:/
+--comment: Adjust comment counts once per statement from transition tables
+
+-- Триггер уровня оператора: пакетная модерация тысяч комментариев одним UPDATE
+-- даёт одну строку изменения на пост, а не одну на комментарий.
+-- Счётчики обновляются в порядке post_id, чтобы параллельные пакеты не взаимоблокировались;
+-- при каскадном удалении поста его счётчик уже удалён и не восстанавливается.
+CREATE OR REPLACE FUNCTION post_comment_counts_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    post_ids BIGINT[];
+    deltas BIGINT[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(post_id), array_agg(delta) INTO post_ids, deltas
+        FROM (SELECT post_id, COUNT(*) AS delta FROM new_comments
+              WHERE is_approved AND NOT is_deleted GROUP BY post_id) changes;
+    ELSIF TG_OP = 'UPDATE' THEN
+        SELECT array_agg(post_id), array_agg(delta) INTO post_ids, deltas
+        FROM (SELECT post_id, SUM(delta) AS delta
+              FROM (SELECT post_id, 1 AS delta FROM new_comments WHERE is_approved AND NOT is_deleted
+                    UNION ALL
+                    SELECT post_id, -1 FROM old_comments WHERE is_approved AND NOT is_deleted) visible
+              GROUP BY post_id) changes;
+    ELSE
+        SELECT array_agg(post_id), array_agg(delta) INTO post_ids, deltas
+        FROM (SELECT post_id, -COUNT(*) AS delta FROM old_comments
+              WHERE is_approved AND NOT is_deleted GROUP BY post_id) changes;
+    END IF;
+
+    INSERT INTO post_comment_counts AS counts (post_id, comments_count)
+    SELECT d.post_id, d.delta
+    FROM unnest(post_ids, deltas) AS d(post_id, delta)
+    WHERE d.delta <> 0 AND EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+    ORDER BY d.post_id
+    ON CONFLICT (post_id) DO UPDATE SET comments_count = counts.comments_count + EXCLUDED.comments_count;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+CREATE TRIGGER post_comment_counts_insert_trigger
+    AFTER INSERT ON comments
+    REFERENCING NEW TABLE AS new_comments
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION post_comment_counts_trigger_function();
+/
+
+CREATE TRIGGER post_comment_counts_update_trigger
+    AFTER UPDATE ON comments
+    REFERENCING OLD TABLE AS old_comments NEW TABLE AS new_comments
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION post_comment_counts_trigger_function();
+/
+
+CREATE TRIGGER post_comment_counts_delete_trigger
+    AFTER DELETE ON comments
+    REFERENCING OLD TABLE AS old_comments
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION post_comment_counts_trigger_function();
+/
+--rollback DROP TRIGGER IF EXISTS post_comment_counts_delete_trigger ON comments;
+--rollback DROP TRIGGER IF EXISTS post_comment_counts_update_trigger ON comments;
+--rollback DROP TRIGGER IF EXISTS post_comment_counts_insert_trigger ON comments;
+--rollback DROP FUNCTION IF EXISTS post_comment_counts_trigger_function();
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset myblog:033-create-likes-user-active-post-index
+--comment: Index-only lookup of posts liked by a user
+
+-- Загрузка лайкнутых постов пользователя в кэш и проверка страницы постов — index-only scan
+-- без чтения строк likes; снятые лайки в индекс не попадают
+CREATE INDEX IF NOT EXISTS idx_likes_user_active_post
+ON likes (user_id, post_id)
+WHERE is_active = true;
+
+--rollback DROP INDEX IF EXISTS idx_likes_user_active_post;
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset myblog:034-create-likes-post-created-index
+--comment: Keyset index for likers of a post
+
+-- Страница лайкнувших пост, новые первыми: диапазон индекса после (created_at, id) курсора
+CREATE INDEX IF NOT EXISTS idx_likes_post_created
+ON likes (post_id, created_at DESC, id DESC)
+WHERE is_active = true;
+
+--rollback DROP INDEX IF EXISTS idx_likes_post_created;
@@ -0,0 +1,120 @@
+--liquibase formatted sql
+
+--changeset myblog:035-create-post-like-bucket-tables
+--comment: Hourly like-count buckets and all-time like totals per post
+
+-- Активные лайки по часу, в который они поставлены: снятие лайка вычитается из часа его постановки,
+-- поэтому сумма по окну — число действующих лайков, поставленных в этом окне
+CREATE TABLE post_like_hourly (
+    bucket_hour TIMESTAMP NOT NULL,
+    post_id BIGINT NOT NULL,
+    likes_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_hour, post_id)
+);
+
+-- Общее число активных лайков поста
+CREATE TABLE post_like_totals (
+    post_id BIGINT PRIMARY KEY,
+    likes_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_post_like_totals_post FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_post_like_totals_count ON post_like_totals (likes_count DESC, post_id);
+
+COMMENT ON TABLE post_like_hourly IS 'Количество активных лайков постов по часу постановки, обновляется триггерами likes';
+COMMENT ON TABLE post_like_totals IS 'Количество активных лайков постов, обновляется триггерами likes';
+
+INSERT INTO post_like_hourly (bucket_hour, post_id, likes_count)
+SELECT date_trunc('hour', created_at), post_id, COUNT(*)
+FROM likes
+WHERE is_active = true
+GROUP BY date_trunc('hour', created_at), post_id;
+
+INSERT INTO post_like_totals (post_id, likes_count)
+SELECT post_id, COUNT(*)
+FROM likes
+WHERE is_active = true
+GROUP BY post_id;
+
+--rollback DROP TABLE IF EXISTS post_like_totals;
+--rollback DROP TABLE IF EXISTS post_like_hourly;
+
+--changeset myblog:035-create-post-like-buckets-trigger splitStatements:false endDelimiter:/
+--comment: Adjust like buckets once per statement from transition tables
+
+-- Триггер уровня оператора: пачка лайков из очереди записи обновляет строку (час, пост) и итог поста
+-- один раз, а не на каждый лайк, поэтому лайки вирусного поста не выстраиваются в очередь за одной строкой.
+-- Строки обновляются в порядке ключа, чтобы параллельные операторы не взаимоблокировались.
+CREATE OR REPLACE FUNCTION post_like_buckets_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    bucket_hours TIMESTAMP[];
+    post_ids BIGINT[];
+    deltas BIGINT[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+        FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, COUNT(*) AS delta
+              FROM new_likes WHERE is_active GROUP BY 1, 2) changes;
+    ELSIF TG_OP = 'UPDATE' THEN
+        SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+        FROM (SELECT bucket_hour, post_id, SUM(delta) AS delta
+              FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, 1 AS delta
+                    FROM new_likes WHERE is_active
+                    UNION ALL
+                    SELECT date_trunc('hour', created_at), post_id, -1
+                    FROM old_likes WHERE is_active) active
+              GROUP BY bucket_hour, post_id) changes;
+    ELSE
+        SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+        FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, -COUNT(*) AS delta
+              FROM old_likes WHERE is_active GROUP BY 1, 2) changes;
+    END IF;
+
+    -- Лайки постов, удалённых каскадно, не учитываются: их итог уже удалён
+    INSERT INTO post_like_hourly AS buckets (bucket_hour, post_id, likes_count)
+    SELECT d.bucket_hour, d.post_id, d.delta
+    FROM unnest(bucket_hours, post_ids, deltas) AS d(bucket_hour, post_id, delta)
+    WHERE d.delta <> 0 AND EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+    ORDER BY d.bucket_hour, d.post_id
+    ON CONFLICT (bucket_hour, post_id) DO UPDATE SET likes_count = buckets.likes_count + EXCLUDED.likes_count;
+
+    INSERT INTO post_like_totals AS totals (post_id, likes_count)
+    SELECT d.post_id, SUM(d.delta)
+    FROM unnest(post_ids, deltas) AS d(post_id, delta)
+    WHERE EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+    GROUP BY d.post_id
+    HAVING SUM(d.delta) <> 0
+    ORDER BY d.post_id
+    ON CONFLICT (post_id) DO UPDATE SET likes_count = totals.likes_count + EXCLUDED.likes_count;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+CREATE TRIGGER post_like_buckets_insert_trigger
+    AFTER INSERT ON likes
+    REFERENCING NEW TABLE AS new_likes
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION post_like_buckets_trigger_function();
+/
+
+CREATE TRIGGER post_like_buckets_update_trigger
+    AFTER UPDATE ON likes
+    REFERENCING OLD TABLE AS old_likes NEW TABLE AS new_likes
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION post_like_buckets_trigger_function();
+/
+
+CREATE TRIGGER post_like_buckets_delete_trigger
+    AFTER DELETE ON likes
+    REFERENCING OLD TABLE AS old_likes
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION post_like_buckets_trigger_function();
+/
+--rollback DROP TRIGGER IF EXISTS post_like_buckets_delete_trigger ON likes;
+--rollback DROP TRIGGER IF EXISTS post_like_buckets_update_trigger ON likes;
+--rollback DROP TRIGGER IF EXISTS post_like_buckets_insert_trigger ON likes;
+--rollback DROP FUNCTION IF EXISTS post_like_buckets_trigger_function();
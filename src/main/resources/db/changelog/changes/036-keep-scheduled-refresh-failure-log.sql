@@ -0,0 +1,62 @@
+--liquibase formatted sql
+
+--changeset myblog:036-keep-scheduled-refresh-failure-log splitStatements:false endDelimiter:/
+--comment: Scheduled refresh reports a failure as a warning so the failure row in materialized_view_refresh_log is committed
+
+CREATE OR REPLACE FUNCTION refresh_active_users_mv_scheduled()
+RETURNS VOID AS $$
+DECLARE
+    started_at TIMESTAMP := clock_timestamp();
+    refreshed_rows BIGINT;
+BEGIN
+    REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+    SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+    VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            refreshed_rows, 'CONCURRENT', true);
+
+    PERFORM pg_notify('materialized_view_refreshed', 'database:active_users_stats_mv');
+
+EXCEPTION WHEN OTHERS THEN
+    INSERT INTO materialized_view_refresh_log
+        (view_name, refresh_type, triggered_at, duration_ms, refresh_path, success, error_message)
+    VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+            (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+            'CONCURRENT', false, SQLERRM);
+
+    -- Без повторного RAISE: он откатил бы транзакцию вызывающего (pg_cron) вместе со строкой о сбое
+    RAISE WARNING 'Scheduled refresh of active_users_stats_mv failed: %', SQLERRM;
+END;
+$$ LANGUAGE plpgsql;
+/
+--rollback CREATE OR REPLACE FUNCTION refresh_active_users_mv_scheduled()
+--rollback RETURNS VOID AS $$
+--rollback DECLARE
+--rollback     started_at TIMESTAMP := clock_timestamp();
+--rollback     refreshed_rows BIGINT;
+--rollback BEGIN
+--rollback     REFRESH MATERIALIZED VIEW CONCURRENTLY active_users_stats_mv;
+--rollback     SELECT COUNT(*) INTO refreshed_rows FROM active_users_stats_mv;
+--rollback
+--rollback     INSERT INTO materialized_view_refresh_log
+--rollback         (view_name, refresh_type, triggered_at, duration_ms, row_count, refresh_path, success)
+--rollback     VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+--rollback             (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+--rollback             refreshed_rows, 'CONCURRENT', true);
+--rollback
+--rollback     PERFORM pg_notify('materialized_view_refreshed', 'database:active_users_stats_mv');
+--rollback
+--rollback EXCEPTION WHEN OTHERS THEN
+--rollback     INSERT INTO materialized_view_refresh_log
+--rollback         (view_name, refresh_type, triggered_at, duration_ms, refresh_path, success, error_message)
+--rollback     VALUES ('active_users_stats_mv', 'SCHEDULED', started_at,
+--rollback             (EXTRACT(EPOCH FROM clock_timestamp() - started_at) * 1000)::BIGINT,
+--rollback             'CONCURRENT', false, SQLERRM);
+--rollback
+--rollback     RAISE;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
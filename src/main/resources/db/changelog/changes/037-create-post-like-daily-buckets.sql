@@ -0,0 +1,135 @@
+--liquibase formatted sql
+
+--changeset myblog:037-create-post-like-daily-buckets splitStatements:false endDelimiter:/
+--comment: Daily like-count buckets for the 7d and 30d rankings
+
+-- Записи в likes ждут конца миграции: иначе лайки между заполнением и заменой функции триггера не попали бы в корзины
+LOCK TABLE likes IN SHARE MODE;
+/
+
+-- Активные лайки по дню постановки; часовые корзины остаются только для окна 24h
+CREATE TABLE post_like_daily (
+    bucket_date DATE NOT NULL,
+    post_id BIGINT NOT NULL,
+    likes_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_date, post_id)
+);
+/
+
+COMMENT ON TABLE post_like_daily IS 'Количество активных лайков постов по дню постановки, обновляется триггерами likes';
+/
+
+CREATE OR REPLACE FUNCTION post_like_buckets_trigger_function()
+RETURNS TRIGGER AS
+$$
+DECLARE
+    bucket_hours TIMESTAMP[];
+    post_ids BIGINT[];
+    deltas BIGINT[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+        FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, COUNT(*) AS delta
+              FROM new_likes WHERE is_active GROUP BY 1, 2) changes;
+    ELSIF TG_OP = 'UPDATE' THEN
+        SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+        FROM (SELECT bucket_hour, post_id, SUM(delta) AS delta
+              FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, 1 AS delta
+                    FROM new_likes WHERE is_active
+                    UNION ALL
+                    SELECT date_trunc('hour', created_at), post_id, -1
+                    FROM old_likes WHERE is_active) active
+              GROUP BY bucket_hour, post_id) changes;
+    ELSE
+        SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+        FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, -COUNT(*) AS delta
+              FROM old_likes WHERE is_active GROUP BY 1, 2) changes;
+    END IF;
+
+    -- Лайки постов, удалённых каскадно, не учитываются: их итог уже удалён
+    INSERT INTO post_like_hourly AS buckets (bucket_hour, post_id, likes_count)
+    SELECT d.bucket_hour, d.post_id, d.delta
+    FROM unnest(bucket_hours, post_ids, deltas) AS d(bucket_hour, post_id, delta)
+    WHERE d.delta <> 0 AND EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+    ORDER BY d.bucket_hour, d.post_id
+    ON CONFLICT (bucket_hour, post_id) DO UPDATE SET likes_count = buckets.likes_count + EXCLUDED.likes_count;
+
+    INSERT INTO post_like_daily AS buckets (bucket_date, post_id, likes_count)
+    SELECT d.bucket_hour::DATE, d.post_id, SUM(d.delta)
+    FROM unnest(bucket_hours, post_ids, deltas) AS d(bucket_hour, post_id, delta)
+    WHERE EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+    GROUP BY d.bucket_hour::DATE, d.post_id
+    HAVING SUM(d.delta) <> 0
+    ORDER BY d.bucket_hour::DATE, d.post_id
+    ON CONFLICT (bucket_date, post_id) DO UPDATE SET likes_count = buckets.likes_count + EXCLUDED.likes_count;
+
+    INSERT INTO post_like_totals AS totals (post_id, likes_count)
+    SELECT d.post_id, SUM(d.delta)
+    FROM unnest(post_ids, deltas) AS d(post_id, delta)
+    WHERE EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+    GROUP BY d.post_id
+    HAVING SUM(d.delta) <> 0
+    ORDER BY d.post_id
+    ON CONFLICT (post_id) DO UPDATE SET likes_count = totals.likes_count + EXCLUDED.likes_count;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+/
+
+INSERT INTO post_like_daily (bucket_date, post_id, likes_count)
+SELECT created_at::DATE, post_id, COUNT(*)
+FROM likes
+WHERE is_active = true
+GROUP BY created_at::DATE, post_id;
+/
+--rollback CREATE OR REPLACE FUNCTION post_like_buckets_trigger_function()
+--rollback RETURNS TRIGGER AS
+--rollback $$
+--rollback DECLARE
+--rollback     bucket_hours TIMESTAMP[];
+--rollback     post_ids BIGINT[];
+--rollback     deltas BIGINT[];
+--rollback BEGIN
+--rollback     IF TG_OP = 'INSERT' THEN
+--rollback         SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+--rollback         FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, COUNT(*) AS delta
+--rollback               FROM new_likes WHERE is_active GROUP BY 1, 2) changes;
+--rollback     ELSIF TG_OP = 'UPDATE' THEN
+--rollback         SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+--rollback         FROM (SELECT bucket_hour, post_id, SUM(delta) AS delta
+--rollback               FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, 1 AS delta
+--rollback                     FROM new_likes WHERE is_active
+--rollback                     UNION ALL
+--rollback                     SELECT date_trunc('hour', created_at), post_id, -1
+--rollback                     FROM old_likes WHERE is_active) active
+--rollback               GROUP BY bucket_hour, post_id) changes;
+--rollback     ELSE
+--rollback         SELECT array_agg(bucket_hour), array_agg(post_id), array_agg(delta) INTO bucket_hours, post_ids, deltas
+--rollback         FROM (SELECT date_trunc('hour', created_at) AS bucket_hour, post_id, -COUNT(*) AS delta
+--rollback               FROM old_likes WHERE is_active GROUP BY 1, 2) changes;
+--rollback     END IF;
+--rollback
+--rollback     -- Лайки постов, удалённых каскадно, не учитываются: их итог уже удалён
+--rollback     INSERT INTO post_like_hourly AS buckets (bucket_hour, post_id, likes_count)
+--rollback     SELECT d.bucket_hour, d.post_id, d.delta
+--rollback     FROM unnest(bucket_hours, post_ids, deltas) AS d(bucket_hour, post_id, delta)
+--rollback     WHERE d.delta <> 0 AND EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+--rollback     ORDER BY d.bucket_hour, d.post_id
+--rollback     ON CONFLICT (bucket_hour, post_id) DO UPDATE SET likes_count = buckets.likes_count + EXCLUDED.likes_count;
+--rollback
+--rollback     INSERT INTO post_like_totals AS totals (post_id, likes_count)
+--rollback     SELECT d.post_id, SUM(d.delta)
+--rollback     FROM unnest(post_ids, deltas) AS d(post_id, delta)
+--rollback     WHERE EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id)
+--rollback     GROUP BY d.post_id
+--rollback     HAVING SUM(d.delta) <> 0
+--rollback     ORDER BY d.post_id
+--rollback     ON CONFLICT (post_id) DO UPDATE SET likes_count = totals.likes_count + EXCLUDED.likes_count;
+--rollback
+--rollback     RETURN NULL;
+--rollback END;
+--rollback $$ LANGUAGE plpgsql;
+--rollback /
+--rollback DROP TABLE IF EXISTS post_like_daily;
+--rollback /
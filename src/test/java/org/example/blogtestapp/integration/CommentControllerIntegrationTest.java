@@ -0,0 +1,269 @@
+package org.example.blogtestapp.integration;
+
+import org.example.blogtestapp.dto.CommentModerationResponse;
+import org.example.blogtestapp.dto.CommentResponse;
+import org.example.blogtestapp.dto.CreateCommentRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.ModerateCommentsRequest;
+import org.example.blogtestapp.dto.PostResponse;
+import org.example.blogtestapp.entity.Post;
+import org.example.blogtestapp.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Интеграционные тесты для CommentController
+ */
+class CommentControllerIntegrationTest extends AbstractIntegrationTest {
+
+    private static final String USERNAME = "commenter";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        // Комментарии удаляются отдельно: каскад JPA по посту не учитывает каскадное удаление ответов в БД
+        jdbcTemplate.update("DELETE FROM comments");
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = userRepository.save(User.builder()
+                .username(USERNAME)
+                .email("commenter@example.com")
+                .displayName("Comment Author")
+                .isActive(true)
+                .build());
+        post = postRepository.save(Post.builder()
+                .title("Discussed post")
+                .content("Content")
+                .isPublished(true)
+                .author(user)
+                .viewsCount(0L)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM comments");
+    }
+
+    @Test
+    void shouldReturnThreadPagedByTopLevelComments() {
+        // Given - three top-level comments, the first one with nested replies
+        CommentResponse first = comment("First", null);
+        CommentResponse reply = comment("Reply", first.getId());
+        CommentResponse nestedReply = comment("Nested reply", reply.getId());
+        CommentResponse second = comment("Second", null);
+        CommentResponse third = comment("Third", null);
+
+        // When
+        CursorPageResponse<CommentResponse> firstPage = thread("?size=2");
+        CursorPageResponse<CommentResponse> secondPage = thread("?size=2&after=" + firstPage.getNextCursor());
+
+        // Then
+        assertThat(firstPage.getItems()).extracting(CommentResponse::getId).containsExactly(first.getId(), second.getId());
+        assertThat(firstPage.getHasMore()).isTrue();
+        CommentResponse loadedReply = firstPage.getItems().get(0).getReplies().get(0);
+        assertThat(loadedReply.getId()).isEqualTo(reply.getId());
+        assertThat(loadedReply.getDepth()).isEqualTo(1);
+        assertThat(loadedReply.getAuthorDisplayName()).isEqualTo("Comment Author");
+        assertThat(loadedReply.getReplies()).extracting(CommentResponse::getId).containsExactly(nestedReply.getId());
+        assertThat(loadedReply.getReplies().get(0).getDepth()).isEqualTo(2);
+
+        assertThat(secondPage.getItems()).extracting(CommentResponse::getId).containsExactly(third.getId());
+        assertThat(secondPage.getHasMore()).isFalse();
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldReturnSubtreeAndKeepRemovedCommentsWithVisibleReplies() {
+        // Given - a deleted comment with a reply and a deleted comment without replies
+        CommentResponse root = comment("Root", null);
+        CommentResponse removed = comment("Removed", root.getId());
+        CommentResponse reply = comment("Reply to removed", removed.getId());
+        CommentResponse removedLeaf = comment("Removed leaf", root.getId());
+        jdbcTemplate.update("UPDATE comments SET is_deleted = true WHERE id IN (?, ?)", removed.getId(), removedLeaf.getId());
+
+        // When
+        ResponseEntity<CommentResponse> response = restTemplate.getForEntity(
+                "/posts/{postId}/comments/{commentId}/thread", CommentResponse.class, post.getId(), root.getId());
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getReplies()).hasSize(1);
+        CommentResponse placeholder = response.getBody().getReplies().get(0);
+        assertThat(placeholder.getId()).isEqualTo(removed.getId());
+        assertThat(placeholder.getRemoved()).isTrue();
+        assertThat(placeholder.getDeleted()).isTrue();
+        assertThat(placeholder.getContent()).isNull();
+        assertThat(placeholder.getReplies()).extracting(CommentResponse::getContent).containsExactly("Reply to removed");
+        assertThat(placeholder.getReplies().get(0).getId()).isEqualTo(reply.getId());
+    }
+
+    @Test
+    void shouldRejectReplyToCommentOfAnotherPost() {
+        CommentResponse root = comment("Root", null);
+        Post otherPost = postRepository.save(Post.builder()
+                .title("Other post")
+                .content("Content")
+                .isPublished(true)
+                .author(post.getAuthor())
+                .viewsCount(0L)
+                .build());
+
+        ResponseEntity<String> response = restTemplate.exchange("/posts/{postId}/comments", HttpMethod.POST,
+                request(CreateCommentRequest.builder().content("Misplaced").parentCommentId(root.getId()).build()),
+                String.class, otherPost.getId());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldPageModerationQueueAndAuthorCommentsByCursor() {
+        // Given - two pending comments, one approved and one deleted
+        CommentResponse approved = comment("Approved", null);
+        CommentResponse firstPending = comment("First pending", null);
+        CommentResponse secondPending = comment("Second pending", null);
+        CommentResponse deleted = comment("Deleted", null);
+        jdbcTemplate.update("UPDATE comments SET is_approved = false WHERE id IN (?, ?)",
+                firstPending.getId(), secondPending.getId());
+        jdbcTemplate.update("UPDATE comments SET is_deleted = true WHERE id = ?", deleted.getId());
+
+        // When
+        CursorPageResponse<CommentResponse> firstPage = page("/private/comments/pending?size=1");
+        CursorPageResponse<CommentResponse> secondPage = page("/private/comments/pending?size=1&after=" + firstPage.getNextCursor());
+        CursorPageResponse<CommentResponse> postComments = page("/private/comments/posts/" + post.getId() + "?size=10");
+        CursorPageResponse<CommentResponse> authorComments = page("/users/" + USERNAME + "/comments?size=10");
+        CursorPageResponse<CommentResponse> recentComments = page("/comments/recent?size=10");
+
+        // Then - newest first, deleted comments only in the per-post moderation listing
+        assertThat(firstPage.getItems()).extracting(CommentResponse::getId).containsExactly(secondPending.getId());
+        assertThat(firstPage.getItems().get(0).getApproved()).isFalse();
+        assertThat(firstPage.getHasMore()).isTrue();
+        assertThat(secondPage.getItems()).extracting(CommentResponse::getId).containsExactly(firstPending.getId());
+        assertThat(secondPage.getHasMore()).isFalse();
+
+        assertThat(postComments.getItems()).extracting(CommentResponse::getId)
+                .containsExactly(deleted.getId(), secondPending.getId(), firstPending.getId(), approved.getId());
+        assertThat(postComments.getItems().get(0).getDeleted()).isTrue();
+        assertThat(postComments.getItems().get(0).getRemoved()).isFalse();
+        assertThat(postComments.getItems().get(0).getContent()).isEqualTo("Deleted");
+        assertThat(authorComments.getItems()).extracting(CommentResponse::getId)
+                .containsExactly(secondPending.getId(), firstPending.getId(), approved.getId());
+        assertThat(recentComments.getItems()).extracting(CommentResponse::getId).containsExactly(approved.getId());
+    }
+
+    @Test
+    void shouldRejectMalformedListingCursor() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/comments/recent?after=not-a-cursor", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldModerateCommentsInBulkAndAdjustPostCommentCount() {
+        // Given - one approved and three pending comments
+        CommentResponse approved = comment("Approved", null);
+        CommentResponse first = comment("Spam 1", null);
+        CommentResponse second = comment("Spam 2", null);
+        CommentResponse third = comment("Spam 3", null);
+        jdbcTemplate.update("UPDATE comments SET is_approved = false WHERE id IN (?, ?, ?)",
+                first.getId(), second.getId(), third.getId());
+        assertThat(commentsCount()).isEqualTo(1L);
+
+        // When - approve one by id, reject the remaining pending ones of the author, then delete the post's comments
+        CommentModerationResponse approve = moderate(ModerateCommentsRequest.builder()
+                .action(ModerateCommentsRequest.Action.APPROVE)
+                .commentIds(List.of(first.getId()))
+                .build());
+        long afterApprove = commentsCount();
+        CommentModerationResponse reject = moderate(ModerateCommentsRequest.builder()
+                .action(ModerateCommentsRequest.Action.REJECT)
+                .authorUsername(USERNAME)
+                .postId(post.getId())
+                .build());
+        long afterReject = commentsCount();
+        CommentModerationResponse delete = moderate(ModerateCommentsRequest.builder()
+                .action(ModerateCommentsRequest.Action.DELETE)
+                .postId(post.getId())
+                .build());
+
+        // Then
+        assertThat(approve.getAffectedCount()).isEqualTo(1L);
+        assertThat(afterApprove).isEqualTo(2L);
+        assertThat(reject.getAffectedCount()).isEqualTo(2L);
+        assertThat(afterReject).isEqualTo(2L);
+        assertThat(delete.getAffectedCount()).isEqualTo(2L);
+        assertThat(commentsCount()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM comments WHERE is_deleted = false", Long.class))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT is_approved FROM comments WHERE id = ?", Boolean.class,
+                approved.getId())).isTrue();
+    }
+
+    @Test
+    void shouldRejectModerationWithoutConditions() {
+        ResponseEntity<String> response = restTemplate.postForEntity("/private/comments/moderation",
+                ModerateCommentsRequest.builder().action(ModerateCommentsRequest.Action.DELETE).build(), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private CommentModerationResponse moderate(ModerateCommentsRequest request) {
+        ResponseEntity<CommentModerationResponse> response = restTemplate.postForEntity(
+                "/private/comments/moderation", request, CommentModerationResponse.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private long commentsCount() {
+        ResponseEntity<PostResponse> response = restTemplate.getForEntity("/posts/{id}", PostResponse.class, post.getId());
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody().getCommentsCount();
+    }
+
+    private CommentResponse comment(String content, Long parentCommentId) {
+        ResponseEntity<CommentResponse> response = restTemplate.exchange("/posts/{postId}/comments", HttpMethod.POST,
+                request(CreateCommentRequest.builder().content(content).parentCommentId(parentCommentId).build()),
+                CommentResponse.class, post.getId());
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        return response.getBody();
+    }
+
+    private CursorPageResponse<CommentResponse> thread(String query) {
+        ResponseEntity<CursorPageResponse<CommentResponse>> response = restTemplate.exchange(
+                "/posts/" + post.getId() + "/comments" + query, HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPageResponse<CommentResponse>>() {});
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private CursorPageResponse<CommentResponse> page(String url) {
+        ResponseEntity<CursorPageResponse<CommentResponse>> response = restTemplate.exchange(
+                url, HttpMethod.GET, null, new ParameterizedTypeReference<CursorPageResponse<CommentResponse>>() {});
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private static HttpEntity<CreateCommentRequest> request(CreateCommentRequest body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Author-Username", USERNAME);
+        return new HttpEntity<>(body, headers);
+    }
+}
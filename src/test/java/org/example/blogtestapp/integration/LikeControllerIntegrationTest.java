@@ -0,0 +1,279 @@
+package org.example.blogtestapp.integration;
+
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.LikedPostResponse;
+import org.example.blogtestapp.dto.LikedStateResponse;
+import org.example.blogtestapp.dto.LikerResponse;
+import org.example.blogtestapp.dto.MostLikedPostResponse;
+import org.example.blogtestapp.dto.PostResponse;
+import org.example.blogtestapp.entity.Post;
+import org.example.blogtestapp.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Интеграционные тесты для LikeController
+ */
+class LikeControllerIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("DELETE FROM comments");
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+
+        author = user("author");
+        post = postRepository.save(Post.builder()
+                .title("Liked post")
+                .content("Content")
+                .isPublished(true)
+                .author(author)
+                .viewsCount(0L)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM likes");
+    }
+
+    @Test
+    void shouldLikeAndUnlikeIdempotently() {
+        // When - like twice
+        assertThat(send(HttpMethod.PUT, post.getId(), "author").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(send(HttpMethod.PUT, post.getId(), "author").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        // Then - a single active like
+        assertThat(activeLikes()).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class)).isEqualTo(1L);
+
+        // When - unlike twice
+        assertThat(send(HttpMethod.DELETE, post.getId(), "author").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(send(HttpMethod.DELETE, post.getId(), "author").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        // Then - the row is kept but inactive
+        assertThat(activeLikes()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class)).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldWriteConcurrentLikesOfManyUsers() {
+        // Given
+        List<String> usernames = IntStream.range(0, 50).mapToObj(i -> user("fan" + i).getUsername()).toList();
+
+        // When - all users like the post at once
+        List<CompletableFuture<ResponseEntity<Void>>> responses = usernames.stream()
+                .map(username -> CompletableFuture.supplyAsync(() -> send(HttpMethod.PUT, post.getId(), username)))
+                .toList();
+
+        // Then
+        assertThat(responses).allSatisfy(response ->
+                assertThat(response.join().getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT));
+        assertThat(activeLikes()).isEqualTo(50L);
+    }
+
+    @Test
+    void shouldReturnLikedStateForPageOfPosts() {
+        // Given
+        Post second = postRepository.save(Post.builder()
+                .title("Second post")
+                .content("Content")
+                .isPublished(true)
+                .author(author)
+                .viewsCount(0L)
+                .build());
+        Post third = postRepository.save(Post.builder()
+                .title("Third post")
+                .content("Content")
+                .isPublished(true)
+                .author(author)
+                .viewsCount(0L)
+                .build());
+        send(HttpMethod.PUT, post.getId(), "author");
+        send(HttpMethod.PUT, third.getId(), "author");
+
+        // When
+        LikedStateResponse before = likedState(post, second, third);
+        send(HttpMethod.DELETE, post.getId(), "author");
+        send(HttpMethod.PUT, second.getId(), "author");
+        LikedStateResponse after = likedState(post, second, third);
+
+        // Then - changes written after the cache was warmed are visible immediately
+        assertThat(before.getLiked()).containsExactly(
+                entry(post.getId(), true), entry(second.getId(), false), entry(third.getId(), true));
+        assertThat(after.getLiked()).containsExactly(
+                entry(post.getId(), false), entry(second.getId(), true), entry(third.getId(), true));
+    }
+
+    @Test
+    void shouldPageLikersAndLikedPostsByCursor() {
+        // Given - three users like the post one after another, the first one also likes a second post
+        User first = user("first");
+        user("second");
+        user("third");
+        Post second = postRepository.save(Post.builder()
+                .title("Second post")
+                .content("Content")
+                .isPublished(true)
+                .author(author)
+                .viewsCount(0L)
+                .build());
+        send(HttpMethod.PUT, post.getId(), "first");
+        send(HttpMethod.PUT, post.getId(), "second");
+        send(HttpMethod.PUT, post.getId(), "third");
+        send(HttpMethod.PUT, second.getId(), "first");
+
+        // When
+        CursorPageResponse<LikerResponse> firstPage = page("/posts/" + post.getId() + "/likers?size=2",
+                new ParameterizedTypeReference<>() {});
+        CursorPageResponse<LikerResponse> secondPage = page("/posts/" + post.getId() + "/likers?size=2&after="
+                + firstPage.getNextCursor(), new ParameterizedTypeReference<>() {});
+        CursorPageResponse<LikedPostResponse> likedPosts = page("/users/" + first.getId() + "/likes?size=10",
+                new ParameterizedTypeReference<>() {});
+
+        // Then - newest likes first
+        assertThat(firstPage.getItems()).extracting(LikerResponse::getUsername).containsExactly("third", "second");
+        assertThat(firstPage.getHasMore()).isTrue();
+        assertThat(secondPage.getItems()).extracting(LikerResponse::getUsername).containsExactly("first");
+        assertThat(secondPage.getHasMore()).isFalse();
+        assertThat(likedPosts.getItems()).extracting(LikedPostResponse::getPostId)
+                .containsExactly(second.getId(), post.getId());
+        assertThat(likedPosts.getItems().get(0).getAuthorUsername()).isEqualTo("author");
+    }
+
+    @Test
+    void shouldRankMostLikedPostsFromLikeBuckets() {
+        // Given - the post has two likes, the second post one like, a third like was taken back
+        user("first");
+        user("second");
+        Post second = postRepository.save(Post.builder()
+                .title("Second post")
+                .content("Content")
+                .isPublished(true)
+                .author(author)
+                .viewsCount(0L)
+                .build());
+        send(HttpMethod.PUT, post.getId(), "first");
+        send(HttpMethod.PUT, post.getId(), "second");
+        send(HttpMethod.PUT, second.getId(), "first");
+        send(HttpMethod.PUT, second.getId(), "second");
+        send(HttpMethod.DELETE, second.getId(), "second");
+
+        // When
+        List<MostLikedPostResponse> day = mostLiked("24h");
+        List<MostLikedPostResponse> allTime = mostLiked("all");
+
+        // Then
+        assertThat(day).extracting(MostLikedPostResponse::getPostId).containsExactly(post.getId(), second.getId());
+        assertThat(day).extracting(MostLikedPostResponse::getLikesCount).containsExactly(2L, 1L);
+        assertThat(allTime).extracting(MostLikedPostResponse::getLikesCount).containsExactly(2L, 1L);
+        assertThat(restTemplate.getForObject("/posts/{id}", PostResponse.class, post.getId()).getLikesCount())
+                .isEqualTo(2L);
+        assertThat(restTemplate.getForEntity("/posts/most-liked?window=1y", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldRankOlderLikesFromDailyBuckets() {
+        // Given - one like today, two likes placed three days ago on the second post
+        User first = user("first");
+        User second = user("second");
+        Post older = postRepository.save(Post.builder()
+                .title("Older post")
+                .content("Content")
+                .isPublished(true)
+                .author(author)
+                .viewsCount(0L)
+                .build());
+        send(HttpMethod.PUT, post.getId(), "first");
+        jdbcTemplate.update("INSERT INTO likes (user_id, post_id, created_at) " +
+                "VALUES (?, ?, LOCALTIMESTAMP - INTERVAL '3 days'), (?, ?, LOCALTIMESTAMP - INTERVAL '3 days')",
+                first.getId(), older.getId(), second.getId(), older.getId());
+
+        // When
+        List<MostLikedPostResponse> day = mostLiked("24h");
+        List<MostLikedPostResponse> week = mostLiked("7d");
+
+        // Then
+        assertThat(day).extracting(MostLikedPostResponse::getPostId).containsExactly(post.getId());
+        assertThat(week).extracting(MostLikedPostResponse::getPostId).containsExactly(older.getId(), post.getId());
+        assertThat(week).extracting(MostLikedPostResponse::getLikesCount).containsExactly(2L, 1L);
+        assertThat(mostLiked("30d")).extracting(MostLikedPostResponse::getLikesCount).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void shouldRejectLikeOfMissingPost() {
+        ResponseEntity<Void> response = send(HttpMethod.PUT, post.getId() + 1000, "author");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private User user(String username) {
+        return userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .displayName(username)
+                .isActive(true)
+                .build());
+    }
+
+    private <T> CursorPageResponse<T> page(String url, ParameterizedTypeReference<CursorPageResponse<T>> type) {
+        ResponseEntity<CursorPageResponse<T>> response = restTemplate.exchange(url, HttpMethod.GET, null, type);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private List<MostLikedPostResponse> mostLiked(String window) {
+        ResponseEntity<List<MostLikedPostResponse>> response = restTemplate.exchange(
+                "/posts/most-liked?window=" + window + "&limit=10", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<MostLikedPostResponse>>() {});
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private LikedStateResponse likedState(Post... posts) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Author-Username", "author");
+        String postIds = Arrays.stream(posts).map(p -> p.getId().toString()).collect(Collectors.joining(","));
+        ResponseEntity<LikedStateResponse> response = restTemplate.exchange("/posts/liked-state?postIds=" + postIds,
+                HttpMethod.GET, new HttpEntity<>(headers), LikedStateResponse.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private long activeLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE post_id = ? AND is_active = true",
+                Long.class, post.getId());
+    }
+
+    private ResponseEntity<Void> send(HttpMethod method, Long postId, String username) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Author-Username", username);
+        return restTemplate.exchange("/posts/{postId}/likes", method, new HttpEntity<>(headers), Void.class, postId);
+    }
+}
@@ -1,5 +1,9 @@
 package org.example.blogtestapp.integration;
 
+import org.example.blogtestapp.config.MaterializedViewConfig;
+import org.example.blogtestapp.entity.Post;
+import org.example.blogtestapp.entity.User;
+import org.example.blogtestapp.service.MaterializedViewChangeTracker;
 import org.example.blogtestapp.service.MaterializedViewService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +13,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,6 +28,12 @@ public class MaterializedViewRefreshIntegrationTest extends AbstractIntegrationT
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private MaterializedViewService materializedViewService;
+
+    @Autowired
+    private MaterializedViewChangeTracker changeTracker;
+
     @Test
     public void testForceRefreshMaterializedView() {
         // When: Force refresh materialized view
@@ -53,4 +64,94 @@ public class MaterializedViewRefreshIntegrationTest extends AbstractIntegrationT
         assertThat(response.getBody().get("success")).isEqualTo(true);
         assertThat(response.getBody().get("statistics")).isNotNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSourceTableWriteMarksViewDirtyUntilRefresh() throws InterruptedException {
+        // Given: view is up to date
+        materializedViewService.forceRefreshActiveUsersStatistics();
+
+        // When: a post is written
+        User author = userRepository.save(User.builder()
+                .username("mv_dirty_author")
+                .email("mv_dirty_author@example.com")
+                .isActive(true)
+                .build());
+        postRepository.save(Post.builder()
+                .title("Dirty marker post")
+                .content("Content")
+                .isPublished(true)
+                .publishedAt(LocalDateTime.now())
+                .author(author)
+                .viewsCount(0L)
+                .build());
+
+        // Then: NOTIFY from the statement trigger marks the view dirty
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!activeUsersFreshness().isDirty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(activeUsersFreshness().isDirty()).isTrue();
+        assertThat(activeUsersFreshness().getPendingSince()).isNotNull();
+
+        // And: refresh clears pending changes
+        materializedViewService.forceRefreshActiveUsersStatistics();
+        assertThat(activeUsersFreshness().isDirty()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testForceRefreshSingleViewAndStatistics() {
+        // When: Force refresh a single registered view
+        ResponseEntity<Map> refreshResponse = restTemplate.postForEntity(
+            "/private/materialized-views/{viewName}/refresh",
+            null,
+            Map.class,
+            MaterializedViewConfig.ACTIVE_USERS_STATS_VIEW
+        );
+
+        // Then: Should refresh successfully
+        assertThat(refreshResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(refreshResponse.getBody().get("success")).isEqualTo(true);
+        assertThat(refreshResponse.getBody().get("results")).asList().hasSize(1);
+
+        // And: Per-view statistics include the refresh
+        ResponseEntity<Map> statsResponse = restTemplate.getForEntity(
+            "/private/materialized-views/{viewName}/statistics",
+            Map.class,
+            MaterializedViewConfig.ACTIVE_USERS_STATS_VIEW
+        );
+        assertThat(statsResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Map<String, Object> stats = (Map<String, Object>) statsResponse.getBody().get("statistics");
+        assertThat(((Number) stats.get("refreshCount")).longValue()).isGreaterThan(0);
+        assertThat(stats.get("averageDurationMs")).isNotNull();
+        assertThat(stats.get("p95DurationMs")).isNotNull();
+        assertThat(stats.get("lastRowCount")).isNotNull();
+    }
+
+    @Test
+    public void testRefreshDurationExportedAsMetric() {
+        materializedViewService.forceRefreshActiveUsersStatistics();
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).contains("materialized_view_refresh_seconds_bucket");
+        assertThat(response.getBody()).contains("materialized_view_rows");
+    }
+
+    @Test
+    public void testUnknownViewReturnsNotFound() {
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+            "/private/materialized-views/{viewName}/refresh",
+            null,
+            Map.class,
+            "unknown_mv"
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private MaterializedViewChangeTracker.ViewFreshness activeUsersFreshness() {
+        return changeTracker.freshness(MaterializedViewConfig.ACTIVE_USERS_STATS_VIEW);
+    }
+}
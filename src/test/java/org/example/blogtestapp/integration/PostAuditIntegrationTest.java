@@ -1,20 +1,44 @@
 package org.example.blogtestapp.integration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.blogtestapp.config.AuditExportProperties;
+import org.example.blogtestapp.config.AuditPartitionProperties;
+import org.example.blogtestapp.dto.AuditExportJobResponse;
+import org.example.blogtestapp.dto.CreateAuditExportRequest;
+import org.example.blogtestapp.dto.CursorPageResponse;
+import org.example.blogtestapp.dto.DailyAuditActivityResponse;
+import org.example.blogtestapp.dto.FrequentlyChangedPostResponse;
+import org.example.blogtestapp.dto.PostAuditContentResponse;
 import org.example.blogtestapp.dto.PostAuditResponse;
+import org.example.blogtestapp.dto.PostAuditSearchResultResponse;
+import org.example.blogtestapp.dto.PostAuditSummaryResponse;
 import org.example.blogtestapp.entity.Post;
+import org.example.blogtestapp.entity.PostAuditLog;
 import org.example.blogtestapp.entity.User;
 import org.example.blogtestapp.repository.PostAuditLogRepository;
+import org.example.blogtestapp.service.PostAuditPartitionManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -26,6 +50,21 @@ class PostAuditIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private PostAuditLogRepository postAuditLogRepository;
 
+    @Autowired
+    private PostAuditPartitionManager postAuditPartitionManager;
+
+    @Autowired
+    private AuditPartitionProperties auditPartitionProperties;
+
+    @Autowired
+    private AuditExportProperties auditExportProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private User testUser;
 
     @BeforeEach
@@ -42,6 +81,7 @@ class PostAuditIntegrationTest extends AbstractIntegrationTest {
                 .build();
         testUser = userRepository.save(testUser);
         postAuditLogRepository.deleteAll();
+        jdbcTemplate.update("TRUNCATE post_audit_daily_rollup, post_audit_post_rollup");
     }
 
     @Test
@@ -188,17 +228,17 @@ class PostAuditIntegrationTest extends AbstractIntegrationTest {
         postRepository.delete(post);
 
         // When
-        ResponseEntity<List<PostAuditResponse>> response = restTemplate.exchange(
+        ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> response = restTemplate.exchange(
                 "/private/audit-info/deleted-posts", HttpMethod.GET, null,
-                new ParameterizedTypeReference<List<PostAuditResponse>>() {});
+                new ParameterizedTypeReference<CursorPageResponse<PostAuditSummaryResponse>>() {});
 
         // Then
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
-        assertThat(response.getBody()).hasSize(1);
-        assertThat(response.getBody().get(0).getOperation()).isEqualTo("DELETE");
-        assertThat(response.getBody().get(0).getPostId()).isEqualTo(postId);
-        assertThat(response.getBody().get(0).getOldTitle()).isEqualTo("Post to Delete");
+        assertThat(response.getBody().getItems()).hasSize(1);
+        assertThat(response.getBody().getItems().get(0).getOperation()).isEqualTo("DELETE");
+        assertThat(response.getBody().getItems().get(0).getPostId()).isEqualTo(postId);
+        assertThat(response.getBody().getItems().get(0).getOldTitle()).isEqualTo("Post to Delete");
     }
 
     @Test
@@ -218,17 +258,328 @@ class PostAuditIntegrationTest extends AbstractIntegrationTest {
         postRepository.save(post);
 
         // When
-        ResponseEntity<List<PostAuditResponse>> response = restTemplate.exchange(
+        ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> response = restTemplate.exchange(
                 "/private/audit-info/title-changes", HttpMethod.GET, null,
-                new ParameterizedTypeReference<List<PostAuditResponse>>() {});
+                new ParameterizedTypeReference<CursorPageResponse<PostAuditSummaryResponse>>() {});
 
         // Then
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
-        assertThat(response.getBody()).hasSize(1);
-        assertThat(response.getBody().get(0).getOperation()).isEqualTo("UPDATE");
-        assertThat(response.getBody().get(0).getOldTitle()).isEqualTo("Original Title");
-        assertThat(response.getBody().get(0).getNewTitle()).isEqualTo("New Title");
+        assertThat(response.getBody().getItems()).hasSize(1);
+        assertThat(response.getBody().getItems().get(0).getOperation()).isEqualTo("UPDATE");
+        assertThat(response.getBody().getItems().get(0).getOldTitle()).isEqualTo("Original Title");
+        assertThat(response.getBody().getItems().get(0).getNewTitle()).isEqualTo("New Title");
+    }
+
+    @Test
+    void shouldListAuditWithoutContentAndServeContentOnDemand() {
+        // Given
+        Post post = postRepository.save(Post.builder()
+                .title("Title")
+                .content("Original content")
+                .isPublished(false)
+                .author(testUser)
+                .viewsCount(0L)
+                .build());
+        post.setContent("Changed");
+        postRepository.save(post);
+
+        // When
+        ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> listResponse = restTemplate.exchange(
+                "/private/audit-info/operation/update", HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPageResponse<PostAuditSummaryResponse>>() {});
+
+        // Then - listing carries only content length and hash
+        assertThat(listResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        PostAuditSummaryResponse summary = listResponse.getBody().getItems().get(0);
+        assertThat(summary.getOldContentLength()).isEqualTo("Original content".length());
+        assertThat(summary.getNewContentLength()).isEqualTo("Changed".length());
+        assertThat(summary.getOldContentHash()).hasSize(32).isNotEqualTo(summary.getNewContentHash());
+
+        // And - content is fetched per entry
+        ResponseEntity<PostAuditContentResponse> contentResponse = restTemplate.getForEntity(
+                "/private/audit-info/entries/{auditId}/content", PostAuditContentResponse.class, summary.getId());
+        assertThat(contentResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(contentResponse.getBody().getOldContent()).isEqualTo("Original content");
+        assertThat(contentResponse.getBody().getNewContent()).isEqualTo("Changed");
+    }
+
+    @Test
+    void shouldStoreContentDeltasAndReconstructEveryRevision() {
+        // Given - a long post edited many times in small places
+        String content = "Абзац текста поста. ".repeat(500);
+        Post post = postRepository.save(Post.builder()
+                .title("Long post")
+                .content(content)
+                .isPublished(false)
+                .author(testUser)
+                .viewsCount(0L)
+                .build());
+        List<String> revisions = new ArrayList<>(List.of(content));
+        for (int i = 0; i < 30; i++) {
+            int position = (i * 331) % content.length();
+            content = content.substring(0, position) + "правка " + i + content.substring(position + 5);
+            post.setContent(content);
+            post = postRepository.save(post);
+            revisions.add(content);
+        }
+
+        // Then - most updates store only a delta, with periodic full checkpoints
+        List<PostAuditLog> updates = postAuditLogRepository.findByPostIdOrderByIdAsc(post.getId()).stream()
+                .filter(auditLog -> "UPDATE".equals(auditLog.getOperation()))
+                .toList();
+        assertThat(updates).hasSize(30);
+        assertThat(updates).allSatisfy(auditLog -> assertThat(auditLog.getOldContent()).isNull());
+        assertThat(updates.stream().filter(auditLog -> auditLog.getNewContent() != null)).hasSize(1);
+        long storedCharacters = updates.stream()
+                .mapToLong(auditLog -> (auditLog.getNewContent() != null ? auditLog.getNewContent().length() : 0)
+                        + (auditLog.getContentDelta() != null ? auditLog.getContentDelta().length() : 0))
+                .sum();
+        assertThat(storedCharacters).isLessThan(revisions.get(0).length() * 30L / 10);
+
+        // And - full history reconstructs every revision, newest first
+        ResponseEntity<List<PostAuditResponse>> historyResponse = restTemplate.exchange(
+                "/private/audit-info/post/{postId}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<PostAuditResponse>>() {}, post.getId());
+        List<PostAuditResponse> history = new ArrayList<>(historyResponse.getBody());
+        Collections.reverse(history);
+        assertThat(history.get(0).getNewContent()).isEqualTo(revisions.get(0));
+        for (int i = 1; i < history.size(); i++) {
+            assertThat(history.get(i).getOldContent()).isEqualTo(revisions.get(i - 1));
+            assertThat(history.get(i).getNewContent()).isEqualTo(revisions.get(i));
+        }
+
+        // And - a single revision is rebuilt from the nearest checkpoint
+        PostAuditLog lastUpdate = updates.get(updates.size() - 1);
+        ResponseEntity<PostAuditContentResponse> contentResponse = restTemplate.getForEntity(
+                "/private/audit-info/entries/{auditId}/content", PostAuditContentResponse.class, lastUpdate.getId());
+        assertThat(contentResponse.getBody().getOldContent()).isEqualTo(revisions.get(29));
+        assertThat(contentResponse.getBody().getNewContent()).isEqualTo(revisions.get(30));
+    }
+
+    @Test
+    void shouldCreateFuturePartitionsAndArchiveExpiredOnes(@TempDir Path archiveDir) throws IOException {
+        // Given - an audit record in a month older than the retention period
+        YearMonth now = YearMonth.now();
+        YearMonth expiredMonth = now.minusMonths(auditPartitionProperties.getRetentionMonths() + 6);
+        String expiredPartition = PostAuditPartitionManager.partitionName(expiredMonth);
+        jdbcTemplate.queryForObject("SELECT create_post_audit_log_partition(?::date)", Boolean.class,
+                expiredMonth.atDay(1).toString());
+        jdbcTemplate.update("INSERT INTO post_audit_log (post_id, operation, changed_at, change_details) " +
+                "VALUES (42, 'DELETE', ?, 'expired record')", expiredMonth.atDay(15).atStartOfDay());
+        String originalArchiveDir = auditPartitionProperties.getArchiveDir();
+        auditPartitionProperties.setArchiveDir(archiveDir.toString());
+
+        // When
+        List<String> dropped;
+        try {
+            dropped = postAuditPartitionManager.maintain(now);
+        } finally {
+            auditPartitionProperties.setArchiveDir(originalArchiveDir);
+        }
+
+        // Then - future partitions exist, the expired one is archived and dropped
+        for (int i = 0; i <= auditPartitionProperties.getMonthsAhead(); i++) {
+            assertThat(tableExists(PostAuditPartitionManager.partitionName(now.plusMonths(i)))).isTrue();
+        }
+        assertThat(dropped).containsExactly(expiredPartition);
+        assertThat(tableExists(expiredPartition)).isFalse();
+        Path archive = archiveDir.resolve(expiredPartition + ".csv.gz");
+        try (GZIPInputStream input = new GZIPInputStream(Files.newInputStream(archive))) {
+            String csv = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(csv).startsWith("id,post_id,operation,changed_at").contains("expired record");
+        }
+    }
+
+    @Test
+    void shouldMoveDefaultPartitionRowsIntoTheirMonthPartition() {
+        // Given - a record in a month without a partition lands in the default partition
+        YearMonth now = YearMonth.now();
+        YearMonth strayMonth = now.plusMonths(auditPartitionProperties.getMonthsAhead() + 12);
+        String strayPartition = PostAuditPartitionManager.partitionName(strayMonth);
+        jdbcTemplate.update("INSERT INTO post_audit_log (post_id, operation, changed_at, change_details) " +
+                "VALUES (43, 'DELETE', ?, 'stray record')", strayMonth.atDay(10).atStartOfDay());
+
+        // When
+        postAuditPartitionManager.maintain(now);
+
+        // Then - the month got its partition and the record moved into it
+        assertThat(tableExists(strayPartition)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM post_audit_log " +
+                "WHERE change_details = 'stray record'", String.class)).isEqualTo(strayPartition);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post_audit_log_default", Long.class)).isZero();
+    }
+
+    @Test
+    void shouldExportAuditRangeToGzipAndResume(@TempDir Path exportDir) throws Exception {
+        // Given - a post with several delta-encoded revisions
+        Post post = postRepository.save(Post.builder()
+                .title("Exported Post")
+                .content("Revision 0")
+                .isPublished(false)
+                .author(testUser)
+                .viewsCount(0L)
+                .build());
+        for (int i = 1; i <= 4; i++) {
+            post.setContent("Revision " + i);
+            post = postRepository.save(post);
+        }
+        String originalDir = auditExportProperties.getDir();
+        int originalCheckpointRows = auditExportProperties.getCheckpointRows();
+        auditExportProperties.setDir(exportDir.toString());
+        // Несколько контрольных точек: файл состоит из нескольких gzip-членов
+        auditExportProperties.setCheckpointRows(2);
+        try {
+            CreateAuditExportRequest request = CreateAuditExportRequest.builder()
+                    .from(LocalDateTime.now().minusDays(1))
+                    .to(LocalDateTime.now().plusDays(1))
+                    .format(AuditExportJobResponse.Format.NDJSON)
+                    .build();
+
+            // When
+            ResponseEntity<AuditExportJobResponse> started = restTemplate.postForEntity(
+                    "/private/audit-info/exports", request, AuditExportJobResponse.class);
+            assertThat(started.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+            Long jobId = started.getBody().getId();
+            AuditExportJobResponse completed = waitForExport(jobId);
+
+            // Then - every revision is exported with reconstructed content
+            assertThat(completed.getRowsWritten()).isEqualTo(5);
+            assertThat(completed.getProgressPercent()).isEqualTo(100.0);
+            List<String> exported = readExport(exportDir.resolve(completed.getFileName()));
+            assertThat(exported).hasSize(5);
+            for (int i = 0; i < 5; i++) {
+                PostAuditResponse row = objectMapper.readValue(exported.get(i), PostAuditResponse.class);
+                assertThat(row.getNewContent()).isEqualTo("Revision " + i);
+            }
+            assertThat(restTemplate.postForEntity("/private/audit-info/exports/{jobId}/resume", null,
+                    String.class, jobId).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+            // And - an interrupted export resumes from its checkpoint without duplicating rows
+            jdbcTemplate.update("UPDATE audit_export_job SET status = 'INTERRUPTED', rows_written = 0, " +
+                    "bytes_written = 0, last_post_id = 0, last_audit_id = 0 WHERE id = ?", jobId);
+            ResponseEntity<AuditExportJobResponse> resumed = restTemplate.postForEntity(
+                    "/private/audit-info/exports/{jobId}/resume", null, AuditExportJobResponse.class, jobId);
+            assertThat(resumed.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+            assertThat(waitForExport(jobId).getRowsWritten()).isEqualTo(5);
+            assertThat(readExport(exportDir.resolve(completed.getFileName()))).isEqualTo(exported);
+        } finally {
+            auditExportProperties.setDir(originalDir);
+            auditExportProperties.setCheckpointRows(originalCheckpointRows);
+        }
+    }
+
+    private AuditExportJobResponse waitForExport(Long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (true) {
+            AuditExportJobResponse job = restTemplate.getForObject(
+                    "/private/audit-info/exports/{jobId}", AuditExportJobResponse.class, jobId);
+            if (job.getStatus() != AuditExportJobResponse.Status.RUNNING) {
+                assertThat(job.getStatus()).isEqualTo(AuditExportJobResponse.Status.COMPLETED);
+                return job;
+            }
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private static List<String> readExport(Path file) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    private boolean tableExists(String tableName) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, tableName));
+    }
+
+    @Test
+    void shouldServeDailyActivityAndFrequentlyChangedPostsFromRollups() {
+        // Given - one post created and updated twice, another post only created
+        Post post = postRepository.save(Post.builder()
+                .title("Rollup Post")
+                .content("Version 1")
+                .isPublished(false)
+                .author(testUser)
+                .viewsCount(0L)
+                .build());
+        post.setContent("Version 2");
+        post = postRepository.save(post);
+        post.setTitle("Rollup Post (edited)");
+        post = postRepository.save(post);
+        postRepository.save(Post.builder()
+                .title("Quiet Post")
+                .content("Untouched")
+                .isPublished(false)
+                .author(testUser)
+                .viewsCount(0L)
+                .build());
+
+        // Rollups cover history independently of the raw audit rows
+        postAuditLogRepository.deleteAll();
+
+        // When
+        ResponseEntity<List<FrequentlyChangedPostResponse>> frequent = restTemplate.exchange(
+                "/private/audit-info/frequently-changed?threshold=1", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<FrequentlyChangedPostResponse>>() {});
+        ResponseEntity<List<DailyAuditActivityResponse>> daily = restTemplate.exchange(
+                "/private/audit-info/daily-activity?days=1", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<DailyAuditActivityResponse>>() {});
+
+        // Then
+        assertThat(frequent.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(frequent.getBody()).hasSize(1);
+        FrequentlyChangedPostResponse changed = frequent.getBody().get(0);
+        assertThat(changed.getPostId()).isEqualTo(post.getId());
+        assertThat(changed.getChangesCount()).isEqualTo(3);
+        assertThat(changed.getInsertsCount()).isEqualTo(1);
+        assertThat(changed.getUpdatesCount()).isEqualTo(2);
+        assertThat(changed.getDeletesCount()).isZero();
+
+        assertThat(daily.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(daily.getBody()).isNotEmpty();
+        assertThat(daily.getBody().stream().mapToLong(DailyAuditActivityResponse::getChangesCount).sum()).isEqualTo(4);
+        assertThat(daily.getBody().stream().mapToLong(DailyAuditActivityResponse::getInsertsCount).sum()).isEqualTo(2);
+        assertThat(daily.getBody().stream().mapToLong(DailyAuditActivityResponse::getUpdatesCount).sum()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFindRevisionsWherePhraseAppearedAndDisappeared() {
+        // Given - a phrase added to a post and later removed
+        Post post = postRepository.save(Post.builder()
+                .title("Weekly notes")
+                .content("The weather report for the coming week.")
+                .isPublished(false)
+                .author(testUser)
+                .viewsCount(0L)
+                .build());
+        post.setContent("The weather report for the coming week mentions quantum entanglement.");
+        post = postRepository.save(post);
+        post.setContent("The weather report for the coming week.");
+        post = postRepository.save(post);
+
+        // When
+        String url = UriComponentsBuilder.fromPath("/private/audit-info/search")
+                .queryParam("q", "quantum entanglement")
+                .queryParam("postId", post.getId())
+                .toUriString();
+        ResponseEntity<CursorPageResponse<PostAuditSearchResultResponse>> response = restTemplate.exchange(
+                url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPageResponse<PostAuditSearchResultResponse>>() {});
+
+        // Then - only the two matching revisions, oldest first, with highlighted snippets
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<PostAuditSearchResultResponse> results = response.getBody().getItems();
+        assertThat(results).extracting(PostAuditSearchResultResponse::getMatch).containsExactly(
+                PostAuditSearchResultResponse.Match.APPEARED, PostAuditSearchResultResponse.Match.DISAPPEARED);
+        assertThat(results.get(0).getId()).isLessThan(results.get(1).getId());
+        assertThat(results).allSatisfy(result -> assertThat(result.getSnippet()).contains("<b>quantum</b>"));
+        assertThat(response.getBody().getHasMore()).isFalse();
+
+        ResponseEntity<String> blankQuery = restTemplate.getForEntity(
+                "/private/audit-info/search?q= ", String.class);
+        assertThat(blankQuery.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
     @Test
@@ -250,14 +601,60 @@ class PostAuditIntegrationTest extends AbstractIntegrationTest {
                 .queryParam("limit", "10")
                 .toUriString();
 
-        ResponseEntity<List<PostAuditResponse>> response = restTemplate.exchange(
+        ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> response = restTemplate.exchange(
                 url, HttpMethod.GET, null,
-                new ParameterizedTypeReference<List<PostAuditResponse>>() {});
+                new ParameterizedTypeReference<CursorPageResponse<PostAuditSummaryResponse>>() {});
 
         // Then
-        System.out.println("response = " + response.getBody().size());
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
-        assertThat(response.getBody()).hasSize(3); // 3 INSERT operations
+        assertThat(response.getBody().getItems()).hasSize(3); // 3 INSERT operations
+        assertThat(response.getBody().getHasMore()).isFalse();
+    }
+
+    @Test
+    void shouldPageRecentChangesWithCursor() {
+        // Given - 5 INSERT audit records
+        for (int i = 1; i <= 5; i++) {
+            postRepository.save(Post.builder()
+                    .title("Post " + i)
+                    .content("Content " + i)
+                    .isPublished(false)
+                    .author(testUser)
+                    .viewsCount(0L)
+                    .build());
+        }
+
+        // When - read pages of 2 following nextCursor
+        List<Long> seenIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromPath("/private/audit-info/recent")
+                    .queryParam("limit", "2");
+            if (cursor != null) {
+                builder.queryParam("after", cursor);
+            }
+            ResponseEntity<CursorPageResponse<PostAuditSummaryResponse>> response = restTemplate.exchange(
+                    builder.encode().toUriString(), HttpMethod.GET, null,
+                    new ParameterizedTypeReference<CursorPageResponse<PostAuditSummaryResponse>>() {});
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            response.getBody().getItems().forEach(item -> seenIds.add(item.getId()));
+            cursor = response.getBody().getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then - every record is returned exactly once, newest first
+        assertThat(pages).isEqualTo(3);
+        assertThat(seenIds).hasSize(5).doesNotHaveDuplicates();
+        assertThat(seenIds).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void shouldRejectInvalidAuditCursor() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "/private/audit-info/recent?after=not-a-cursor", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package org.example.blogtestapp.integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.blogtestapp.MyBlogAppApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Захват аудита постов через логическую репликацию: асинхронная запись, продолжение
+ * с сохранённой позиции после перезапуска, возврат к триггеру и отказ от захвата после повторяющихся сбоев
+ */
+class PostAuditLogicalCaptureIntegrationTest {
+
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"))
+                    .withCommand("postgres", "-c", "wal_level=logical");
+
+    private ConfigurableApplicationContext node;
+
+    @BeforeAll
+    static void startDatabase() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        postgres.stop();
+    }
+
+    @AfterEach
+    void stopNode() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    void testCapturesAuditFromReplicationStreamAndResumes() throws InterruptedException {
+        node = startNode("LOGICAL");
+        JdbcTemplate jdbcTemplate = database();
+        waitUntil(() -> "D".equals(triggerState(jdbcTemplate)), 30_000);
+
+        long authorId = jdbcTemplate.queryForObject("INSERT INTO users (username, email, is_active) " +
+                "VALUES ('capture_author', 'capture@example.com', true) RETURNING id", Long.class);
+        long postId = jdbcTemplate.queryForObject("INSERT INTO posts (title, content, author_id) " +
+                "VALUES ('Captured', 'First version', ?) RETURNING id", Long.class, authorId);
+        jdbcTemplate.update("UPDATE posts SET title = 'Captured again', content = 'Second version' WHERE id = ?", postId);
+        jdbcTemplate.update("UPDATE posts SET views_count = views_count + 1 WHERE id = ?", postId);
+        jdbcTemplate.update("DELETE FROM posts WHERE id = ?", postId);
+
+        waitUntil(() -> auditRows(jdbcTemplate, postId).size() == 3, 30_000);
+        List<Map<String, Object>> rows = auditRows(jdbcTemplate, postId);
+        assertEquals("INSERT", rows.get(0).get("operation"));
+        assertEquals("Captured", rows.get(0).get("new_title"));
+        assertEquals("UPDATE", rows.get(1).get("operation"));
+        assertEquals("Captured", rows.get(1).get("old_title"));
+        assertEquals("Captured again", rows.get(1).get("new_title"));
+        assertEquals("DELETE", rows.get(2).get("operation"));
+        assertEquals("Captured again", rows.get(2).get("old_title"));
+        // Старые значения берутся из журнала аудита: в WAL пишется только первичный ключ
+        assertEquals("d", jdbcTemplate.queryForObject(
+                "SELECT relreplident::text FROM pg_class WHERE oid = 'posts'::regclass", String.class));
+
+        // Изменения, сделанные пока потребитель остановлен, дочитываются после перезапуска без повторов
+        node.close();
+        long nextPostId = jdbcTemplate.queryForObject("INSERT INTO posts (title, content, author_id) " +
+                "VALUES ('While down', 'Content', ?) RETURNING id", Long.class, authorId);
+        node = startNode("LOGICAL");
+        JdbcTemplate restartedJdbcTemplate = database();
+
+        waitUntil(() -> auditRows(restartedJdbcTemplate, nextPostId).size() == 1, 30_000);
+        Thread.sleep(2_000);
+        assertEquals(3, auditRows(restartedJdbcTemplate, postId).size());
+        assertEquals(1, auditRows(restartedJdbcTemplate, nextPostId).size());
+    }
+
+    @Test
+    void testSwitchingBackToTriggerDrainsAndDropsSlot() throws InterruptedException {
+        node = startNode("LOGICAL");
+        JdbcTemplate jdbcTemplate = database();
+        waitUntil(() -> "D".equals(triggerState(jdbcTemplate)), 30_000);
+        node.close();
+
+        long authorId = jdbcTemplate.queryForObject("INSERT INTO users (username, email, is_active) " +
+                "VALUES ('fallback_author', 'fallback@example.com', true) RETURNING id", Long.class);
+        long postId = jdbcTemplate.queryForObject("INSERT INTO posts (title, content, author_id) " +
+                "VALUES ('Pending in slot', 'Content', ?) RETURNING id", Long.class, authorId);
+
+        node = startNode("TRIGGER");
+        JdbcTemplate triggerJdbcTemplate = database();
+        waitUntil(() -> !slotExists(triggerJdbcTemplate), 30_000);
+
+        assertEquals("O", triggerState(triggerJdbcTemplate));
+        assertEquals(1, auditRows(triggerJdbcTemplate, postId).size());
+        assertNull(triggerJdbcTemplate.query("SELECT 1 FROM audit_capture_state",
+                resultSet -> resultSet.next() ? 1 : null));
+
+        // Триггер снова пишет аудит синхронно
+        long syncPostId = triggerJdbcTemplate.queryForObject("INSERT INTO posts (title, content, author_id) " +
+                "VALUES ('Synchronous', 'Content', ?) RETURNING id", Long.class, authorId);
+        assertEquals(1, auditRows(triggerJdbcTemplate, syncPostId).size());
+        assertFalse(slotExists(triggerJdbcTemplate));
+    }
+
+    @Test
+    void testRepeatedFailuresFallBackToTrigger() throws InterruptedException {
+        node = startNode("LOGICAL");
+        JdbcTemplate jdbcTemplate = database();
+        waitUntil(() -> "D".equals(triggerState(jdbcTemplate)), 30_000);
+        // Запись аудита этого поста всегда падает: без отказа от захвата слот стоял бы на нём
+        jdbcTemplate.execute("CREATE FUNCTION reject_poison_audit() RETURNS TRIGGER AS " +
+                "$$ BEGIN RAISE EXCEPTION 'poison audit row'; END; $$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("CREATE TRIGGER reject_poison_audit BEFORE INSERT ON post_audit_log " +
+                "FOR EACH ROW WHEN (NEW.new_title = 'Poison') EXECUTE FUNCTION reject_poison_audit()");
+        try {
+            long authorId = jdbcTemplate.queryForObject("INSERT INTO users (username, email, is_active) " +
+                    "VALUES ('poison_author', 'poison@example.com', true) RETURNING id", Long.class);
+            jdbcTemplate.update("INSERT INTO posts (title, content, author_id) VALUES ('Poison', 'Content', ?)", authorId);
+
+            waitUntil(() -> "O".equals(triggerState(jdbcTemplate)), 30_000);
+            long syncPostId = jdbcTemplate.queryForObject("INSERT INTO posts (title, content, author_id) " +
+                    "VALUES ('After fallback', 'Content', ?) RETURNING id", Long.class, authorId);
+            assertEquals(1, auditRows(jdbcTemplate, syncPostId).size());
+
+            MeterRegistry meterRegistry = node.getBean(MeterRegistry.class);
+            waitUntil(() -> meterRegistry.get("post-audit.capture.slot-lag").gauge().value() > 0, 30_000);
+            assertTrue(slotExists(jdbcTemplate));
+        } finally {
+            jdbcTemplate.execute("DROP TRIGGER reject_poison_audit ON post_audit_log");
+            jdbcTemplate.execute("DROP FUNCTION reject_poison_audit()");
+        }
+        // Когда запись снова проходит, слот дочитывается и удаляется
+        waitUntil(() -> !slotExists(jdbcTemplate), 30_000);
+    }
+
+    private ConfigurableApplicationContext startNode(String captureMode) {
+        return new SpringApplicationBuilder(MyBlogAppApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.docker.compose.enabled=false",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "app.materialized-views.refresh.leader-check-interval-ms=500",
+                        "app.audit.capture.mode=" + captureMode,
+                        "app.audit.capture.reconnect-delay=500ms",
+                        "app.audit.capture.flush-interval=200ms",
+                        "app.audit.capture.status-interval=1s",
+                        "app.audit.capture.max-consecutive-failures=3",
+                        "app.audit.capture.lag-check-interval-ms=200")
+                .run();
+    }
+
+    /**
+     * Отдельное от приложения подключение: контекст в тестах останавливается и запускается заново
+     */
+    private static JdbcTemplate database() {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+    }
+
+    private static List<Map<String, Object>> auditRows(JdbcTemplate jdbcTemplate, long postId) {
+        return jdbcTemplate.queryForList("SELECT operation, old_title, new_title FROM post_audit_log " +
+                "WHERE post_id = ? ORDER BY id", postId);
+    }
+
+    private static String triggerState(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT tgenabled::text FROM pg_trigger " +
+                "WHERE tgname = 'audit_posts_trigger' AND tgrelid = 'posts'::regclass", String.class);
+    }
+
+    private static boolean slotExists(JdbcTemplate jdbcTemplate) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_replication_slots WHERE slot_name = 'post_audit_capture')",
+                Boolean.class));
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within " + timeoutMs + " ms");
+            Thread.sleep(100);
+        }
+    }
+}
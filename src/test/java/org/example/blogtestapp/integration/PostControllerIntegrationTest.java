@@ -202,6 +202,29 @@ class PostControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    void shouldRejectPostsFromDeactivatedAuthor() {
+        // Given - author is resolved (and cached) by a successful post
+        CreatePostRequest request = CreatePostRequest.builder()
+                .title("Test Post")
+                .content("Test content")
+                .isPublished(false)
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Author-Username", testUsername);
+        HttpEntity<CreatePostRequest> entity = new HttpEntity<>(request, headers);
+        assertThat(restTemplate.exchange("/posts", HttpMethod.POST, entity, PostResponse.class).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+
+        // When
+        restTemplate.delete("/users/{id}", testUser.getId());
+        ResponseEntity<Object> response = restTemplate.exchange(
+                "/posts", HttpMethod.POST, entity, Object.class);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     void shouldGetPostsByUser() {
         // Given - create multiple posts
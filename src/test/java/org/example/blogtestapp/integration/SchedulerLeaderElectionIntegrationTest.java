@@ -0,0 +1,154 @@
+package org.example.blogtestapp.integration;
+
+import org.example.blogtestapp.MyBlogAppApplication;
+import org.example.blogtestapp.service.SchedulerLeaderElection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Несколько экземпляров приложения на одной БД: обновления выполняет только лидер,
+ * а при остановке лидера его роль переходит к другой реплике
+ */
+class SchedulerLeaderElectionIntegrationTest {
+
+    private static final int NODE_COUNT = 3;
+
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void startDatabase() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        postgres.stop();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        nodes.clear();
+    }
+
+    @Test
+    void testExactlyOneNodeIsLeader() throws InterruptedException {
+        startNodes();
+
+        waitUntil(() -> leaders().size() == 1, 15_000);
+        Thread.sleep(2_000);
+        assertEquals(1, leaders().size());
+    }
+
+    @Test
+    void testOnlyLeaderRefreshesOnSourceChange() throws InterruptedException {
+        startNodes();
+        waitUntil(() -> leaders().size() == 1, 15_000);
+        JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+        // Даём лидеру выполнить стартовое обновление, после чего считаем только новые записи
+        waitUntil(() -> scheduledRefreshCount(jdbcTemplate) > 0, 15_000);
+        Thread.sleep(3_000);
+        long before = scheduledRefreshCount(jdbcTemplate);
+
+        jdbcTemplate.update("INSERT INTO users (username, email, is_active) " +
+                "VALUES ('leader_test_user', 'leader_test@example.com', true)");
+
+        waitUntil(() -> scheduledRefreshCount(jdbcTemplate) > before, 15_000);
+        Thread.sleep(3_000);
+        assertEquals(before + 1, scheduledRefreshCount(jdbcTemplate));
+    }
+
+    @Test
+    void testLeadershipFailsOverWhenLeaderStops() throws InterruptedException {
+        startNodes();
+        waitUntil(() -> leaders().size() == 1, 15_000);
+
+        ConfigurableApplicationContext leader = leaders().get(0);
+        leader.close();
+        nodes.remove(leader);
+
+        waitUntil(() -> leaders().size() == 1, 15_000);
+        assertFalse(leaders().contains(leader));
+    }
+
+    @Test
+    void testLeadershipIsReacquiredWhenLockSessionIsTerminated() throws InterruptedException {
+        startNodes();
+        waitUntil(() -> leaders().size() == 1, 15_000);
+        JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+        Integer lockHolder = leaderLockHolder(jdbcTemplate);
+
+        // Сессия с блокировкой пропадает, а объект соединения у лидера остаётся
+        jdbcTemplate.queryForObject("SELECT pg_terminate_backend(?)", Boolean.class, lockHolder);
+
+        waitUntil(() -> {
+            Integer holder = leaderLockHolder(jdbcTemplate);
+            return holder != null && !holder.equals(lockHolder) && leaders().size() == 1;
+        }, 15_000);
+    }
+
+    private void startNodes() {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(new SpringApplicationBuilder(MyBlogAppApplication.class)
+                    .profiles("test")
+                    .properties(
+                            "server.port=0",
+                            "spring.docker.compose.enabled=false",
+                            "spring.datasource.url=" + postgres.getJdbcUrl(),
+                            "spring.datasource.username=" + postgres.getUsername(),
+                            "spring.datasource.password=" + postgres.getPassword(),
+                            "app.materialized-views.refresh.leader-check-interval-ms=500",
+                            "app.materialized-views.refresh.tick-interval-ms=200",
+                            "app.materialized-views.refresh.debounce=500ms",
+                            "app.materialized-views.refresh.min-interval=1s")
+                    .run());
+        }
+    }
+
+    private List<ConfigurableApplicationContext> leaders() {
+        return nodes.stream()
+                .filter(node -> node.getBean(SchedulerLeaderElection.class).isLeader())
+                .toList();
+    }
+
+    private static Integer leaderLockHolder(JdbcTemplate jdbcTemplate) {
+        List<Integer> pids = jdbcTemplate.queryForList(
+                "SELECT pid FROM pg_locks WHERE locktype = 'advisory' AND granted AND objsubid = 1 " +
+                "AND classid::BIGINT = (?::BIGINT >> 32) AND objid::BIGINT = (?::BIGINT & 4294967295)",
+                Integer.class, SchedulerLeaderElection.LEADER_LOCK_KEY, SchedulerLeaderElection.LEADER_LOCK_KEY);
+        return pids.isEmpty() ? null : pids.get(0);
+    }
+
+    private static long scheduledRefreshCount(JdbcTemplate jdbcTemplate) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM materialized_view_refresh_log " +
+                "WHERE refresh_type = 'SCHEDULED' AND view_name = 'active_users_stats_mv'", Long.class);
+        return count != null ? count : 0L;
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within " + timeoutMs + " ms");
+            Thread.sleep(100);
+        }
+    }
+}
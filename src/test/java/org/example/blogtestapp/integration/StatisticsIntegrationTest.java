@@ -219,6 +219,28 @@ class StatisticsIntegrationTest extends AbstractIntegrationTest {
         assertThat(mostActive.getTotalViews()).isGreaterThan(0L);
     }
 
+    @Test
+    void shouldLimitAndPageActiveUserStatistics() {
+        // When
+        materializedViewService.forceRefreshActiveUsersStatistics();
+        ResponseEntity<List<ActiveUserStatisticsResponse>> all = restTemplate.exchange(
+                "/posts/statistics/active-users", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<ActiveUserStatisticsResponse>>() {});
+        ResponseEntity<List<ActiveUserStatisticsResponse>> top = restTemplate.exchange(
+                "/posts/statistics/active-users?limit=1", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<ActiveUserStatisticsResponse>>() {});
+        ResponseEntity<List<ActiveUserStatisticsResponse>> secondPage = restTemplate.exchange(
+                "/posts/statistics/active-users?page=1&size=1", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<ActiveUserStatisticsResponse>>() {});
+
+        // Then
+        assertThat(all.getBody()).hasSize(2);
+        assertThat(top.getBody()).hasSize(1);
+        assertThat(top.getBody().get(0).getUsername()).isEqualTo(all.getBody().get(0).getUsername());
+        assertThat(secondPage.getBody()).hasSize(1);
+        assertThat(secondPage.getBody().get(0).getUsername()).isEqualTo(all.getBody().get(1).getUsername());
+    }
+
     @Test
     void shouldReturnEmptyTopicStatisticsForInactiveTags() {
         // Given - make all tags inactive
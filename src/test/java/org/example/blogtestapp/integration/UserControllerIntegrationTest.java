@@ -1,14 +1,29 @@
 package org.example.blogtestapp.integration;
 
+import org.example.blogtestapp.dto.BatchCreateUsersRequest;
+import org.example.blogtestapp.dto.CreatePostRequest;
 import org.example.blogtestapp.dto.CreateUserRequest;
+import org.example.blogtestapp.dto.PostResponse;
+import org.example.blogtestapp.dto.UpdatePostRequest;
+import org.example.blogtestapp.dto.UserRegistrationResult;
 import org.example.blogtestapp.dto.UserResponse;
+import org.example.blogtestapp.entity.Post;
+import org.example.blogtestapp.entity.User;
 import org.example.blogtestapp.repository.UserRepository;
+import org.example.blogtestapp.service.AuthorLeaderboard;
+import org.example.blogtestapp.service.AuthorPublishedPostsChangedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,9 +36,28 @@ class UserControllerIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthorLeaderboard authorLeaderboard;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
+        authorLeaderboard.reconcile();
+    }
+
+    private PostResponse createPublishedPost(String username) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Author-Username", username);
+        CreatePostRequest request = CreatePostRequest.builder()
+                .title("Post by " + username)
+                .content("Content")
+                .isPublished(true)
+                .build();
+        return restTemplate.exchange("/posts", HttpMethod.POST, new HttpEntity<>(request, headers),
+                PostResponse.class).getBody();
     }
 
     @Test
@@ -81,6 +115,55 @@ class UserControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(userRepository.count()).isEqualTo(1);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReportDuplicateEmailAsFieldError() {
+        // Given
+        restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("first").email("same@example.com").build(), UserResponse.class);
+
+        // When
+        ResponseEntity<Map> response = restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("second").email("same@example.com").build(), Map.class);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        Map<String, String> errors = (Map<String, String>) response.getBody().get("validationErrors");
+        assertThat(errors).containsOnlyKeys("email");
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRegisterUsersInBatch() {
+        // Given
+        restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("existing").email("existing@example.com").build(), UserResponse.class);
+        BatchCreateUsersRequest request = BatchCreateUsersRequest.builder()
+                .users(List.of(
+                        CreateUserRequest.builder().username("new1").email("new1@example.com").build(),
+                        CreateUserRequest.builder().username("existing").email("other@example.com").build(),
+                        CreateUserRequest.builder().username("new2").email("new1@example.com").build(),
+                        CreateUserRequest.builder().username("new3").email("new3@example.com").build()))
+                .build();
+
+        // When
+        ResponseEntity<UserRegistrationResult[]> response = restTemplate.postForEntity(
+                "/users/batch", request, UserRegistrationResult[].class);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        UserRegistrationResult[] results = response.getBody();
+        assertThat(results).extracting(UserRegistrationResult::getStatus).containsExactly(
+                UserRegistrationResult.Status.CREATED,
+                UserRegistrationResult.Status.CONFLICT,
+                UserRegistrationResult.Status.CONFLICT,
+                UserRegistrationResult.Status.CREATED);
+        assertThat(results[1].getValidationErrors()).containsOnlyKeys("username");
+        assertThat(results[2].getValidationErrors()).containsOnlyKeys("email");
+        assertThat(results[3].getUser().getId()).isNotNull();
+        assertThat(userRepository.count()).isEqualTo(3);
+    }
+
     @Test
     void shouldGetUserById() {
         // Given
@@ -108,6 +191,137 @@ class UserControllerIntegrationTest extends AbstractIntegrationTest {
         assertThat(getResponse.getBody().getEmail()).isEqualTo("test@example.com");
     }
 
+    @Test
+    void shouldCountOnlyPublishedPostsOfUser() {
+        // Given
+        User author = userRepository.save(User.builder()
+                .username("author")
+                .email("author@example.com")
+                .isActive(true)
+                .build());
+        for (boolean published : new boolean[]{true, true, false}) {
+            postRepository.save(Post.builder()
+                    .title("Post")
+                    .content("Content")
+                    .isPublished(published)
+                    .author(author)
+                    .viewsCount(0L)
+                    .build());
+        }
+
+        // When
+        ResponseEntity<UserResponse> response = restTemplate.getForEntity(
+                "/users/{id}", UserResponse.class, author.getId());
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getPostsCount()).isEqualTo(2L);
+        assertThat(response.getBody().getCommentsCount()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPageActiveUsersByUsernameCursor() {
+        // Given
+        for (String username : new String[]{"charlie", "alice", "bob"}) {
+            restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                    .username(username)
+                    .email(username + "@example.com")
+                    .build(), UserResponse.class);
+        }
+
+        // When
+        ResponseEntity<Map> firstPage = restTemplate.getForEntity(
+                "/users?sort=username&size=2", Map.class);
+        String cursor = (String) firstPage.getBody().get("nextCursor");
+        ResponseEntity<Map> secondPage = restTemplate.getForEntity(
+                "/users?sort=username&size=2&after={after}", Map.class, cursor);
+
+        // Then
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<Map<String, Object>> firstItems = (List<Map<String, Object>>) firstPage.getBody().get("items");
+        assertThat(firstItems).extracting(item -> item.get("username")).containsExactly("alice", "bob");
+        assertThat(cursor).isEqualTo("bob");
+
+        List<Map<String, Object>> secondItems = (List<Map<String, Object>>) secondPage.getBody().get("items");
+        assertThat(secondItems).extracting(item -> item.get("username")).containsExactly("charlie");
+        assertThat(secondPage.getBody().get("hasMore")).isEqualTo(false);
+        assertThat(secondPage.getBody().get("nextCursor")).isNull();
+    }
+
+    @Test
+    void shouldExportActiveUsersAsNdjson() {
+        // Given
+        for (String username : new String[]{"alice", "bob"}) {
+            restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                    .username(username)
+                    .email(username + "@example.com")
+                    .build(), UserResponse.class);
+        }
+
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity("/users/export", String.class);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(response.getBody().lines()).hasSize(2);
+        assertThat(response.getBody().lines().findFirst().orElseThrow()).contains("\"username\":\"alice\"");
+    }
+
+    @Test
+    void shouldRankTopUsersByPublishedPostsIncrementally() {
+        // Given
+        UserResponse alice = restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("alice").email("alice@example.com").build(), UserResponse.class).getBody();
+        UserResponse bob = restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("bob").email("bob@example.com").build(), UserResponse.class).getBody();
+        PostResponse alicePost = createPublishedPost("alice");
+        createPublishedPost("alice");
+        createPublishedPost("bob");
+
+        // When
+        ResponseEntity<UserResponse[]> top = restTemplate.getForEntity("/users/top?limit=2", UserResponse[].class);
+
+        // Then
+        assertThat(top.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(top.getBody()).extracting(UserResponse::getId).containsExactly(alice.getId(), bob.getId());
+        assertThat(top.getBody()[0].getPostsCount()).isEqualTo(2L);
+
+        // When - alice unpublishes one of her posts and bob publishes another
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Author-Username", "alice");
+        restTemplate.exchange("/posts/{id}", HttpMethod.PUT,
+                new HttpEntity<>(UpdatePostRequest.builder().isPublished(false).build(), headers),
+                PostResponse.class, alicePost.getId());
+        createPublishedPost("bob");
+
+        // Then
+        ResponseEntity<UserResponse[]> updatedTop = restTemplate.getForEntity("/users/top?limit=1", UserResponse[].class);
+        assertThat(updatedTop.getBody()).extracting(UserResponse::getId).containsExactly(bob.getId());
+    }
+
+    @Test
+    void shouldNotCountChangeAlreadyInReconciledSnapshotTwice() {
+        // Given - both authors have one post, counted by the reconciliation
+        UserResponse alice = restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("alice").email("alice@example.com").build(), UserResponse.class).getBody();
+        UserResponse bob = restTemplate.postForEntity("/users", CreateUserRequest.builder()
+                .username("bob").email("bob@example.com").build(), UserResponse.class).getBody();
+        createPublishedPost("alice");
+        PostResponse bobPost = createPublishedPost("bob");
+        authorLeaderboard.reconcile();
+
+        // When - the event of bob's post arrives after the reconciliation that already counted it
+        Long transactionId = jdbcTemplate.queryForObject(
+                "SELECT CAST(CAST(xmin AS TEXT) AS BIGINT) FROM posts WHERE id = ?", Long.class, bobPost.getId());
+        authorLeaderboard.onPublishedPostsChanged(new AuthorPublishedPostsChangedEvent(bob.getId(), 1, transactionId));
+
+        // Then - the tie is still broken by author id
+        ResponseEntity<UserResponse[]> top = restTemplate.getForEntity("/users/top?limit=2", UserResponse[].class);
+        assertThat(top.getBody()).extracting(UserResponse::getId).containsExactly(alice.getId(), bob.getId());
+    }
+
     @Test
     void shouldReturnNotFoundForNonExistentUser() {
         // When